@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.benchmarks
+
+import com.adobe.testing.s3mock.s3.dto.ChecksumAlgorithm
+import com.adobe.testing.s3mock.s3.util.ChecksumUtil
+import com.adobe.testing.s3mock.s3.util.Crc64Nvme
+import com.adobe.testing.s3mock.s3.util.DigestUtil
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+
+/**
+ * Throughput of the digests and checksums calculated for every upload, in operations per second
+ * over [size] bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+class ChecksumBenchmark {
+  @Param("1024", "1048576", "16777216")
+  var size: Int = 0
+
+  @Param("CRC32", "CRC32C", "CRC64NVME", "SHA1", "SHA256")
+  lateinit var algorithm: ChecksumAlgorithm
+
+  private lateinit var bytes: ByteArray
+  private lateinit var file: Path
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    bytes = Stores.randomBytes(size)
+    file = Stores.randomFile(size)
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    file.toFile().delete()
+  }
+
+  @Benchmark
+  fun md5(): String = DigestUtil.hexDigest(bytes.inputStream())
+
+  @Benchmark
+  fun checksumFor(): String = ChecksumUtil.checksumFor(file, algorithm.toChecksumAlgorithm())
+
+  /**
+   * The CRC64NVME implementation alone, without stream or file overhead.
+   */
+  @Benchmark
+  fun crc64Nvme(): Long = Crc64Nvme().apply { update(bytes, 0, bytes.size) }.value
+}
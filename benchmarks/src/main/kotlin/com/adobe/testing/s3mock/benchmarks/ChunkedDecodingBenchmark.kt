@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.benchmarks
+
+import com.adobe.testing.s3mock.s3.util.AwsChunkedDecodingChecksumInputStream
+import com.adobe.testing.s3mock.s3.util.AwsUnsignedChunkedDecodingChecksumInputStream
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.io.ByteArrayOutputStream
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.TimeUnit
+
+/**
+ * Decoding of aws-chunked request bodies of [size] bytes, sent in chunks of [chunkSize] bytes with
+ * a trailing checksum, as the AWS SDKs do by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+class ChunkedDecodingBenchmark {
+  @Param("1048576", "16777216")
+  var size: Int = 0
+
+  @Param("8192", "65536")
+  var chunkSize: Int = 0
+
+  private lateinit var signed: ByteArray
+  private lateinit var unsigned: ByteArray
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    val payload = Stores.randomBytes(size)
+    signed = encode(payload) { ";chunk-signature=$SIGNATURE" }
+    unsigned = encode(payload) { "" }
+  }
+
+  @Benchmark
+  fun signed(): Long = drain(AwsChunkedDecodingChecksumInputStream(signed.inputStream(), size.toLong()))
+
+  @Benchmark
+  fun unsigned(): Long = drain(AwsUnsignedChunkedDecodingChecksumInputStream(unsigned.inputStream(), size.toLong()))
+
+  private fun drain(stream: InputStream): Long = stream.use { it.transferTo(OutputStream.nullOutputStream()) }
+
+  private fun encode(
+    payload: ByteArray,
+    extension: () -> String,
+  ): ByteArray {
+    val out = ByteArrayOutputStream(payload.size + payload.size / chunkSize * 128 + 256)
+    for (offset in payload.indices step chunkSize) {
+      val length = minOf(chunkSize, payload.size - offset)
+      out.write("${length.toString(16)}${extension()}$EOL".toByteArray())
+      out.write(payload, offset, length)
+      out.write(EOL.toByteArray())
+    }
+    out.write("0${extension()}$EOL".toByteArray())
+    out.write("x-amz-checksum-crc32:$CHECKSUM$EOL$EOL".toByteArray())
+    return out.toByteArray()
+  }
+
+  companion object {
+    private const val EOL = "\r\n"
+    private const val SIGNATURE = "312a41de690364ad6d17629d1e026c448e78abd328f1602276fdd2c3f928d100"
+    private const val CHECKSUM = "AAAAAA=="
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.benchmarks
+
+import com.adobe.testing.s3mock.s3.dto.ListBucketResultV2
+import com.adobe.testing.s3mock.s3.service.BucketService
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * ListObjectsV2 through the BucketService over buckets of [keyCount] objects, listing the first page
+ * of the whole bucket and of one of its 100 prefixes.
+ *
+ * Setting up the bucket writes one metadata file per object, a million keys take several GB of disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+class ListObjectsBenchmark {
+  @Param("10000", "100000", "1000000")
+  var keyCount: Int = 0
+
+  private lateinit var stores: Stores
+  private lateinit var bucketService: BucketService
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    stores = Stores()
+    val content = Stores.randomFile(16)
+    stores.putObjects(stores.createBucket(), keyCount, content)
+    content.toFile().delete()
+    bucketService = BucketService(stores.bucketStore, stores.objectStore, stores.multipartStore)
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() = stores.close()
+
+  @Benchmark
+  fun listObjectsV2(): ListBucketResultV2 = list(null, null)
+
+  @Benchmark
+  fun listObjectsV2WithPrefix(): ListBucketResultV2 = list("prefix-42/", null)
+
+  @Benchmark
+  fun listObjectsV2WithDelimiter(): ListBucketResultV2 = list(null, "/")
+
+  private fun list(
+    prefix: String?,
+    delimiter: String?,
+  ) = bucketService.listObjectsV2(Stores.BUCKET, prefix, delimiter, null, null, MAX_KEYS, null, false)
+
+  companion object {
+    private const val MAX_KEYS = 1000
+  }
+}
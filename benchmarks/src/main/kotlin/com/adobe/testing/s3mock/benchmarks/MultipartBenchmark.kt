@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.benchmarks
+
+import com.adobe.testing.s3mock.s3.dto.CompleteMultipartUploadResult
+import com.adobe.testing.s3mock.s3.dto.CompletedPart
+import com.adobe.testing.s3mock.s3.dto.Initiator
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.StorageClass
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import com.adobe.testing.s3mock.s3.model.MultipartUploadInfo
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.nio.file.Path
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * CompleteMultipartUpload through the MultipartStore for uploads of [partCount] parts of [partSize]
+ * bytes each. Every invocation completes a fresh upload, whose parts are uploaded before the
+ * invocation and not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+class MultipartBenchmark {
+  @Param("10", "100")
+  var partCount: Int = 0
+
+  @Param("65536")
+  var partSize: Int = 0
+
+  private lateinit var stores: Stores
+  private lateinit var bucket: BucketMetadata
+  private lateinit var part: Path
+
+  private lateinit var id: UUID
+  private lateinit var uploadId: UUID
+  private var uploadInfo: MultipartUploadInfo? = null
+  private lateinit var parts: List<CompletedPart>
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    stores = Stores()
+    bucket = stores.createBucket()
+    part = Stores.randomFile(partSize)
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    stores.close()
+    part.toFile().delete()
+  }
+
+  @Setup(Level.Invocation)
+  fun uploadParts() {
+    id = UUID.randomUUID()
+    val upload =
+      stores.multipartStore.createMultipartUpload(
+        bucket,
+        KEY,
+        id,
+        Stores.CONTENT_TYPE,
+        emptyMap(),
+        Owner.DEFAULT_OWNER,
+        Initiator.DEFAULT_INITIATOR,
+        emptyMap(),
+        emptyMap(),
+        null,
+        StorageClass.STANDARD,
+        null,
+        null,
+      )
+    uploadId = UUID.fromString(upload.uploadId!!)
+    uploadInfo = stores.multipartStore.getMultipartUploadInfo(bucket, uploadId)
+    parts =
+      (1..partCount).map {
+        val etag = stores.multipartStore.putPart(bucket, id, uploadId, it, part, emptyMap())
+        CompletedPart(null, null, null, null, null, etag, it)
+      }
+  }
+
+  @Benchmark
+  fun completeMultipartUpload(): CompleteMultipartUploadResult =
+    stores.multipartStore.completeMultipartUpload(
+      bucket,
+      KEY,
+      id,
+      uploadId,
+      parts,
+      emptyMap(),
+      uploadInfo,
+      "location",
+      null,
+      null,
+      null,
+    )
+
+  companion object {
+    private const val KEY = "multipart"
+  }
+}
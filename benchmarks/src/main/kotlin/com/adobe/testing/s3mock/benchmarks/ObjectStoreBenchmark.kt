@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.benchmarks
+
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.StorageClass
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import com.adobe.testing.s3mock.s3.util.ObjectContent
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.nio.file.Path
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * Writing and reading object metadata through the ObjectStore.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+class ObjectStoreBenchmark {
+  private lateinit var stores: Stores
+  private lateinit var bucket: BucketMetadata
+  private lateinit var content: Path
+  private lateinit var stored: S3ObjectMetadata
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    stores = Stores()
+    bucket = stores.createBucket()
+    content = Stores.randomFile(1024)
+    stored = stores.putObject(bucket, "stored", content)
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    stores.close()
+    content.toFile().delete()
+  }
+
+  @Benchmark
+  fun storeS3ObjectMetadata(): S3ObjectMetadata =
+    stores.objectStore.storeS3ObjectMetadata(
+      bucket,
+      UUID.randomUUID(),
+      "key",
+      Stores.CONTENT_TYPE,
+      emptyMap(),
+      ObjectContent.OnDisk(content),
+      emptyMap(),
+      emptyMap(),
+      null,
+      emptyList(),
+      null,
+      null,
+      Owner.DEFAULT_OWNER,
+      StorageClass.STANDARD,
+      null,
+    )
+
+  @Benchmark
+  fun getS3ObjectMetadata(): S3ObjectMetadata? = stores.objectStore.getS3ObjectMetadata(bucket, stored.id, null)
+}
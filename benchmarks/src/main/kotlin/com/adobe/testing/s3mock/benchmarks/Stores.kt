@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.benchmarks
+
+import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.StorageClass
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import com.adobe.testing.s3mock.s3.store.BucketStore
+import com.adobe.testing.s3mock.s3.store.MultipartStore
+import com.adobe.testing.s3mock.s3.store.ObjectStore
+import com.adobe.testing.s3mock.s3.store.StoreConfiguration.Companion.S3_OBJECT_DATE_FORMAT
+import com.adobe.testing.s3mock.s3.util.ObjectContent
+import tools.jackson.databind.ObjectMapper
+import tools.jackson.databind.json.JsonMapper
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.TreeMap
+import java.util.UUID
+import kotlin.random.Random
+
+/**
+ * The stores of S3Mock wired up without Spring on a temporary root folder, as a starting point for
+ * benchmark state. Call [close] from the tear-down of the benchmark to delete the root folder.
+ */
+class Stores : AutoCloseable {
+  val root: Path = Files.createTempDirectory("s3mock-benchmarks")
+  val objectMapper: ObjectMapper = JsonMapper.builder().findAndAddModules().build()
+  val bucketStore = BucketStore(root.toFile(), S3_OBJECT_DATE_FORMAT, REGION, objectMapper)
+  val objectStore = ObjectStore(S3_OBJECT_DATE_FORMAT, objectMapper)
+  val multipartStore = MultipartStore(objectStore, objectMapper)
+
+  fun createBucket(name: String = BUCKET): BucketMetadata =
+    bucketStore.createBucket(name, false, ObjectOwnership.BUCKET_OWNER_ENFORCED, REGION, null, null)
+
+  /**
+   * Stores an object with [content] under [key] in [bucket].
+   */
+  fun putObject(
+    bucket: BucketMetadata,
+    key: String,
+    content: Path,
+  ): S3ObjectMetadata {
+    val id = bucketStore.addKeyToBucket(key, bucket.name)
+    return objectStore.storeS3ObjectMetadata(
+      bucket,
+      id,
+      key,
+      CONTENT_TYPE,
+      emptyMap(),
+      ObjectContent.OnDisk(content),
+      emptyMap(),
+      emptyMap(),
+      null,
+      emptyList(),
+      null,
+      null,
+      Owner.DEFAULT_OWNER,
+      StorageClass.STANDARD,
+      null,
+    )
+  }
+
+  /**
+   * Fills [bucket] with [count] objects named `prefix-<n>/key-<n>` without going through the stores
+   * one object at a time: all objects share the metadata of one template object, and the key index
+   * of the bucket is written once and read again by the [BucketStore] on first access.
+   */
+  fun putObjects(
+    bucket: BucketMetadata,
+    count: Int,
+    content: Path,
+  ) {
+    val template = putObject(bucket, "template", content)
+    val keys = TreeMap(bucketStore.getObjects(bucket.name))
+    repeat(count) {
+      val key = key(it)
+      val id = UUID.randomUUID()
+      keys[key] = id
+      val folder = Files.createDirectories(bucket.path.resolve(id.toString()))
+      objectMapper.writeValue(folder.resolve(OBJECT_META_FILE).toFile(), template.copy(id = id, key = key))
+    }
+    objectMapper.writeValue(bucket.path.resolve(BucketStore.BUCKET_OBJECTS_FILE).toFile(), keys)
+    bucketStore.loadBuckets(listOf(bucket.name))
+  }
+
+  override fun close() {
+    root.toFile().deleteRecursively()
+  }
+
+  companion object {
+    const val BUCKET = "benchmark-bucket"
+    const val REGION = "us-east-1"
+    const val CONTENT_TYPE = "application/octet-stream"
+    private const val OBJECT_META_FILE = "objectMetadata.json"
+
+    fun key(n: Int) = "prefix-${n % 100}/key-$n"
+
+    /**
+     * Creates a temporary file holding [size] random bytes.
+     */
+    fun randomFile(size: Int): Path = Files.createTempFile("s3mock-benchmarks", ".bin").also { Files.write(it, randomBytes(size)) }
+
+    fun randomBytes(size: Int): ByteArray = Random(size).nextBytes(size)
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.benchmarks
+
+import com.adobe.testing.s3mock.vectors.dto.QueryVectorsResponse
+import com.adobe.testing.s3mock.vectors.dto.VectorData
+import com.adobe.testing.s3mock.vectors.service.VectorBucketService
+import com.adobe.testing.s3mock.vectors.service.VectorIndexService
+import com.adobe.testing.s3mock.vectors.service.VectorQueryService
+import com.adobe.testing.s3mock.vectors.store.VectorBucketStore
+import com.adobe.testing.s3mock.vectors.store.VectorIndexStore
+import com.adobe.testing.s3mock.vectors.store.VectorQuantization
+import com.adobe.testing.s3mock.vectors.store.VectorStore
+import com.adobe.testing.s3mock.vectors.store.VectorStore.VectorWrite
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import tools.jackson.databind.JsonNode
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+/**
+ * QueryVectors through the VectorQueryService over an index of [vectorCount] random vectors of
+ * [dimension] dimensions, with and without a metadata filter matching a tenth of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+class VectorQueryBenchmark {
+  @Param("1000", "10000", "100000")
+  var vectorCount: Int = 0
+
+  @Param("128", "768")
+  var dimension: Int = 0
+
+  @Param("NONE", "INT8")
+  lateinit var quantization: VectorQuantization
+
+  private lateinit var stores: Stores
+  private lateinit var queryService: VectorQueryService
+  private lateinit var queryVector: VectorData
+  private lateinit var filter: JsonNode
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    stores = Stores()
+    val vectorsRoot = stores.root.resolve("vectors").toFile()
+    val bucketStore = VectorBucketStore(vectorsRoot, stores.objectMapper)
+    val indexStore = VectorIndexStore(bucketStore, stores.objectMapper)
+    val vectorStore = VectorStore(indexStore, stores.objectMapper, quantization)
+    val bucketService = VectorBucketService(bucketStore, Stores.REGION)
+    queryService = VectorQueryService(VectorIndexService(bucketService, indexStore, vectorStore, Stores.REGION), vectorStore)
+
+    bucketService.createVectorBucket(BUCKET, null, emptyMap())
+    val index = indexStore.createIndex(BUCKET, INDEX, "float32", dimension, "cosine", null, null, emptyList(), emptyMap())
+    val random = Random(vectorCount)
+    (0 until vectorCount).chunked(BATCH_SIZE).forEach { batch ->
+      vectorStore.putVectors(
+        index,
+        batch.map { VectorWrite("vector-$it", FloatArray(dimension) { random.nextFloat() }, mapOf("group" to it % 10)) },
+      )
+    }
+    queryVector = VectorData(List(dimension) { random.nextDouble() })
+    filter = stores.objectMapper.readTree("""{"group": 7}""")
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() = stores.close()
+
+  @Benchmark
+  fun queryVectors(): QueryVectorsResponse = queryService.queryVectors(BUCKET, INDEX, queryVector, TOP_K, null, true, false)
+
+  @Benchmark
+  fun queryVectorsWithFilter(): QueryVectorsResponse = queryService.queryVectors(BUCKET, INDEX, queryVector, TOP_K, filter, true, false)
+
+  companion object {
+    private const val BUCKET = "benchmark-vectors"
+    private const val INDEX = "benchmark-index"
+    private const val TOP_K = 10
+    private const val BATCH_SIZE = 500
+  }
+}
@@ -27,6 +27,7 @@ import java.net.http.HttpClient
 import java.net.http.HttpRequest
 import java.net.http.HttpResponse
 import java.util.UUID
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Verifies raw HTTP results for those methods where S3 Client from AWS SDK does not return anything
@@ -423,6 +424,55 @@ internal class PlainHttpIT : S3TestBase() {
     assertThat(response.statusCode()).isEqualTo(200)
   }
 
+  @Test
+  @S3VerifiedFailure(
+    year = 2026,
+    reason = "No credentials sent in plain HTTP request",
+  )
+  fun putObjectToNonExistingBucketIsRejectedBeforeBodyIsSent(testInfo: TestInfo) {
+    val bodyRequested = AtomicBoolean()
+    val putObject =
+      HttpRequest
+        .newBuilder(URI.create("$serviceEndpoint/${bucketName(testInfo)}/testObjectName"))
+        .expectContinue(true)
+        .PUT(untouchedBody(bodyRequested))
+        .build()
+
+    val response = httpClient.send(putObject, HttpResponse.BodyHandlers.discarding())
+    assertThat(response.statusCode()).isEqualTo(404)
+    assertThat(bodyRequested).isFalse()
+  }
+
+  @Test
+  @S3VerifiedFailure(
+    year = 2026,
+    reason = "No credentials sent in plain HTTP request",
+  )
+  fun putObjectWithFailingConditionIsRejectedBeforeBodyIsSent(testInfo: TestInfo) {
+    val (targetBucket, _) = givenBucketAndObject(testInfo, UPLOAD_FILE_NAME)
+    val bodyRequested = AtomicBoolean()
+    val putObject =
+      HttpRequest
+        .newBuilder(URI.create("$serviceEndpoint/$targetBucket/$UPLOAD_FILE_NAME"))
+        .expectContinue(true)
+        .header("If-None-Match", "*")
+        .PUT(untouchedBody(bodyRequested))
+        .build()
+
+    val response = httpClient.send(putObject, HttpResponse.BodyHandlers.discarding())
+    assertThat(response.statusCode()).isEqualTo(412)
+    assertThat(bodyRequested).isFalse()
+  }
+
+  /**
+   * Body that records in [requested] whether the client started to send it.
+   */
+  private fun untouchedBody(requested: AtomicBoolean): HttpRequest.BodyPublisher =
+    HttpRequest.BodyPublishers.ofInputStream {
+      requested.set(true)
+      ByteArray(1024 * 1024).inputStream()
+    }
+
   private fun assertApplicationXmlContentType(request: HttpRequest) {
     val response = httpClient.send(request, HttpResponse.BodyHandlers.discarding())
     assertThat(response.headers().firstValue("Content-Type").orElse(null)).isEqualTo("application/xml")
@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.its.load
+
+import java.util.concurrent.TimeUnit
+import kotlin.math.ceil
+
+/**
+ * Outcome of one [LoadScenario]: throughput and latency percentiles over all measured operations.
+ * Latencies are in milliseconds.
+ */
+internal data class LoadReport(
+  val scenario: String,
+  val operations: Int,
+  val concurrency: Int,
+  val errors: Int,
+  val durationMillis: Double,
+  val opsPerSecond: Double,
+  val p50Millis: Double,
+  val p99Millis: Double,
+  val p999Millis: Double,
+  val maxMillis: Double,
+) {
+  override fun toString(): String =
+    "%-20s %8d ops %6d errors %10.1f ops/s   p50 %8.2f ms   p99 %8.2f ms   p99.9 %8.2f ms   max %8.2f ms".format(
+      scenario,
+      operations,
+      errors,
+      opsPerSecond,
+      p50Millis,
+      p99Millis,
+      p999Millis,
+      maxMillis,
+    )
+
+  companion object {
+    /**
+     * Builds the report from the [latencies] in nanoseconds of all operations, run in [durationNanos].
+     */
+    fun of(
+      scenario: LoadScenario,
+      latencies: LongArray,
+      errors: Int,
+      durationNanos: Long,
+    ): LoadReport {
+      val sorted = latencies.sortedArray()
+      return LoadReport(
+        scenario.name,
+        sorted.size,
+        scenario.concurrency,
+        errors,
+        durationNanos.toMillis(),
+        sorted.size / (durationNanos / NANOS_PER_SECOND),
+        sorted.percentile(0.5).toMillis(),
+        sorted.percentile(0.99).toMillis(),
+        sorted.percentile(0.999).toMillis(),
+        (sorted.lastOrNull() ?: 0).toMillis(),
+      )
+    }
+
+    private fun LongArray.percentile(percentile: Double): Long =
+      if (isEmpty()) 0 else this[(ceil(percentile * size).toInt() - 1).coerceIn(indices)]
+
+    private fun Long.toMillis(): Double = this.toDouble() / TimeUnit.MILLISECONDS.toNanos(1)
+
+    private val NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1).toDouble()
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.its.load
+
+/**
+ * Size and thresholds of one load scenario, read from system properties prefixed with
+ * `it.load.<name>.` and falling back to `it.load.` for all scenarios:
+ *
+ * - `operations`: number of measured operations, [defaultOperations] scaled by `it.load.scale`
+ * - `warmup`: number of operations run before measuring, a tenth of `operations` by default
+ * - `concurrency`: maximum number of operations in flight, [defaultConcurrency] by default
+ * - `min-ops-per-second`, `max-p50-ms`, `max-p99-ms`, `max-p999-ms`: optional thresholds, the
+ *   scenario fails if its [LoadReport] doesn't meet them
+ */
+internal class LoadScenario(
+  val name: String,
+  defaultOperations: Int,
+  defaultConcurrency: Int = DEFAULT_CONCURRENCY,
+) {
+  val operations: Int = property("operations")?.toInt() ?: maxOf(1, (defaultOperations * SCALE).toInt())
+  val warmup: Int = property("warmup")?.toInt() ?: (operations / 10)
+  val concurrency: Int = property("concurrency")?.toInt() ?: defaultConcurrency
+  val minOpsPerSecond: Double? = property("min-ops-per-second")?.toDouble()
+  val maxP50Millis: Double? = property("max-p50-ms")?.toDouble()
+  val maxP99Millis: Double? = property("max-p99-ms")?.toDouble()
+  val maxP999Millis: Double? = property("max-p999-ms")?.toDouble()
+
+  /**
+   * A scenario specific setting, e.g. the number of objects to create before measuring.
+   */
+  fun intProperty(
+    key: String,
+    default: Int,
+  ): Int = property(key)?.toInt() ?: default
+
+  private fun property(key: String): String? = System.getProperty("$PREFIX$name.$key") ?: System.getProperty("$PREFIX$key")
+
+  companion object {
+    private const val PREFIX = "it.load."
+    private const val DEFAULT_CONCURRENCY = 32
+    private val SCALE: Double = System.getProperty("${PREFIX}scale", "1").toDouble()
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.its.load
+
+import com.adobe.testing.s3mock.S3MockApplication
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.SoftAssertions
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.TestInstance
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient
+import software.amazon.awssdk.regions.Region
+import software.amazon.awssdk.services.s3.S3AsyncClient
+import software.amazon.awssdk.services.s3vectors.S3VectorsAsyncClient
+import tools.jackson.databind.json.JsonMapper
+import java.net.ServerSocket
+import java.net.URI
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Base type for load tests. Starts S3Mock in-process with the `vectors` profile, so that the
+ * numbers reflect S3Mock and not Docker networking, and drives it with the asynchronous AWS SDK
+ * clients on the CRT HTTP client.
+ *
+ * Each scenario is run through [load], which writes its [LoadReport] to
+ * `target/load-tests/<scenario>.json` and fails if the report misses one of the thresholds
+ * configured for the [LoadScenario].
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal abstract class LoadTestBase {
+  private lateinit var s3Mock: S3MockApplication
+  private val httpPort = freePort()
+  private val vectorsHttpPort = freePort()
+
+  protected val s3Client: S3AsyncClient by lazy {
+    S3AsyncClient
+      .builder()
+      .region(REGION)
+      .credentialsProvider(CREDENTIALS)
+      .forcePathStyle(true)
+      .endpointOverride(URI.create("http://localhost:$httpPort"))
+      .httpClient(httpClient())
+      .build()
+  }
+
+  /**
+   * The CRT based S3 client, which splits large uploads into multipart uploads on its own.
+   */
+  protected val crtClient: S3AsyncClient by lazy {
+    S3AsyncClient
+      .crtBuilder()
+      .region(REGION)
+      .credentialsProvider(CREDENTIALS)
+      .forcePathStyle(true)
+      .endpointOverride(URI.create("http://localhost:$httpPort"))
+      .minimumPartSizeInBytes(MULTIPART_PART_SIZE)
+      .build()
+  }
+
+  protected val vectorsClient: S3VectorsAsyncClient by lazy {
+    S3VectorsAsyncClient
+      .builder()
+      .region(REGION)
+      .credentialsProvider(CREDENTIALS)
+      .endpointOverride(URI.create("http://localhost:$vectorsHttpPort"))
+      .httpClient(httpClient())
+      .build()
+  }
+
+  @BeforeAll
+  fun startS3Mock() {
+    s3Mock =
+      S3MockApplication.start(
+        mutableMapOf(
+          S3MockApplication.PROP_HTTPS_PORT to S3MockApplication.RANDOM_PORT,
+          S3MockApplication.PROP_HTTP_PORT to httpPort,
+          "vectors.http.port" to vectorsHttpPort,
+          "vectors.https.port" to freePort(),
+          "spring.profiles.active" to "vectors",
+          S3MockApplication.PROP_SILENT to true,
+        ),
+      )
+  }
+
+  @AfterAll
+  fun stopS3Mock() {
+    listOf(s3Client, crtClient, vectorsClient).forEach { it.close() }
+    s3Mock.stop()
+  }
+
+  /**
+   * Runs [operation] for the warmup and then for the measured operations of [scenario], with up to
+   * `concurrency` operations in flight. [operation] is called with the number of the operation,
+   * counting on from the warmup operations into the measured ones.
+   */
+  protected fun load(
+    scenario: LoadScenario,
+    operation: (Int) -> CompletableFuture<*>,
+  ): LoadReport {
+    run(scenario.warmup, scenario.concurrency, 0, operation)
+    val latencies = LongArray(scenario.operations)
+    val start = System.nanoTime()
+    val errors = run(scenario.operations, scenario.concurrency, scenario.warmup, operation, latencies)
+    val report = LoadReport.of(scenario, latencies, errors, System.nanoTime() - start)
+
+    LOG.info("{}", report)
+    Files.createDirectories(REPORT_DIR)
+    JSON.writeValue(REPORT_DIR.resolve("${scenario.name}.json").toFile(), report)
+    verify(scenario, report)
+    return report
+  }
+
+  private fun run(
+    operations: Int,
+    concurrency: Int,
+    offset: Int,
+    operation: (Int) -> CompletableFuture<*>,
+    latencies: LongArray? = null,
+  ): Int {
+    val permits = Semaphore(concurrency)
+    val errors = AtomicInteger()
+    val firstError = AtomicReference<Throwable>()
+    val futures =
+      (0 until operations).map { i ->
+        permits.acquire()
+        val start = System.nanoTime()
+        val future =
+          try {
+            operation(offset + i)
+          } catch (e: RuntimeException) {
+            CompletableFuture.failedFuture<Any>(e)
+          }
+        future.whenComplete { _, error ->
+          latencies?.set(i, System.nanoTime() - start)
+          if (error != null && errors.getAndIncrement() == 0) firstError.set(error)
+          permits.release()
+        }
+      }
+    CompletableFuture.allOf(*futures.toTypedArray()).exceptionally { null }.join()
+    firstError.get()?.let { LOG.error("{} of {} operations failed, first failure:", errors.get(), operations, it) }
+    return errors.get()
+  }
+
+  private fun verify(
+    scenario: LoadScenario,
+    report: LoadReport,
+  ) {
+    assertThat(report.errors).`as`("failed operations of %s", scenario.name).isZero()
+    SoftAssertions.assertSoftly { softly ->
+      scenario.minOpsPerSecond?.let { softly.assertThat(report.opsPerSecond).`as`("ops/s of %s", scenario.name).isGreaterThanOrEqualTo(it) }
+      scenario.maxP50Millis?.let { softly.assertThat(report.p50Millis).`as`("p50 of %s", scenario.name).isLessThanOrEqualTo(it) }
+      scenario.maxP99Millis?.let { softly.assertThat(report.p99Millis).`as`("p99 of %s", scenario.name).isLessThanOrEqualTo(it) }
+      scenario.maxP999Millis?.let { softly.assertThat(report.p999Millis).`as`("p99.9 of %s", scenario.name).isLessThanOrEqualTo(it) }
+    }
+  }
+
+  companion object {
+    const val MULTIPART_PART_SIZE = 8L * 1024 * 1024
+    private const val MAX_CONNECTIONS = 256
+    private val REGION = Region.US_EAST_1
+    private val CREDENTIALS = StaticCredentialsProvider.create(AwsBasicCredentials.create("foo", "bar"))
+    private val REPORT_DIR: Path = Path.of(System.getProperty("it.load.reports", "target/load-tests"))
+    private val JSON = JsonMapper.builder().build()
+    private val LOG: Logger = LoggerFactory.getLogger(LoadTestBase::class.java)
+
+    private fun httpClient() =
+      AwsCrtAsyncHttpClient
+        .builder()
+        .maxConcurrency(MAX_CONNECTIONS)
+        .connectionTimeout(Duration.ofMinutes(1))
+        .build()
+
+    private fun freePort(): Int = ServerSocket(0).use { it.localPort }
+  }
+}
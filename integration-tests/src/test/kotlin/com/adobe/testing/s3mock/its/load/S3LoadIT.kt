@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.its.load
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import software.amazon.awssdk.core.async.AsyncRequestBody
+import software.amazon.awssdk.core.async.AsyncResponseTransformer
+import software.amazon.awssdk.services.s3.model.BucketVersioningStatus
+import java.util.concurrent.CompletableFuture
+import kotlin.random.Random
+
+/**
+ * Load scenarios for the S3 API, see [LoadScenario] for their configuration.
+ */
+internal class S3LoadIT : LoadTestBase() {
+  @Test
+  fun `small object PUT storm`() {
+    val bucket = givenBucket("small-object-put")
+    load(LoadScenario("small-object-put", 20_000)) { i -> put(bucket, "key-$i", SMALL_OBJECT) }
+  }
+
+  @Test
+  fun `small object GET storm`() {
+    val bucket = givenBucket("small-object-get")
+    givenObjects(bucket, SEEDED_OBJECTS) { "key-$it" }
+    load(LoadScenario("small-object-get", 20_000)) { i ->
+      s3Client.getObject({ it.bucket(bucket).key("key-${i % SEEDED_OBJECTS}") }, AsyncResponseTransformer.toBytes())
+    }
+  }
+
+  @Test
+  fun `large multipart uploads`() {
+    val bucket = givenBucket("multipart-upload")
+    val content = Random.nextBytes((MULTIPART_PART_SIZE * MULTIPART_PARTS).toInt())
+    load(LoadScenario("multipart-upload", 40, defaultConcurrency = 4)) { i ->
+      crtClient.putObject({ it.bucket(bucket).key("large-$i") }, AsyncRequestBody.fromBytes(content))
+    }
+  }
+
+  @Test
+  fun `deep bucket listing`() {
+    val bucket = givenBucket("deep-listing")
+    val scenario = LoadScenario("deep-listing", 2_000)
+    val keys = scenario.intProperty("keys", 10_000)
+    givenObjects(bucket, keys) { deepKey(it) }
+    load(scenario) { i ->
+      if (i % 2 == 0) {
+        // a page of the whole bucket, starting at some key
+        s3Client.listObjectsV2 { it.bucket(bucket).startAfter(deepKey(Random.nextInt(keys))).maxKeys(LIST_PAGE_SIZE) }
+      } else {
+        // one level of the hierarchy
+        s3Client.listObjectsV2 { it.bucket(bucket).prefix("level-${i % 10}/").delimiter("/") }
+      }
+    }
+  }
+
+  @Test
+  fun `versioned churn`() {
+    val bucket = givenBucket("versioned-churn")
+    s3Client.putBucketVersioning { it.bucket(bucket).versioningConfiguration { c -> c.status(BucketVersioningStatus.ENABLED) } }.join()
+    load(LoadScenario("versioned-churn", 10_000)) { i ->
+      val key = "churn-${i % CHURN_KEYS}"
+      when (i % 4) {
+        // every fourth operation hides the key behind a delete marker, the next PUT revives it
+        3 -> s3Client.deleteObject { it.bucket(bucket).key(key) }
+
+        else -> put(bucket, key, SMALL_OBJECT)
+      }
+    }
+    val versions = s3Client.listObjectVersions { it.bucket(bucket).prefix("churn-0") }.join()
+    assertThat(versions.versions() + versions.deleteMarkers()).isNotEmpty()
+  }
+
+  private fun givenBucket(name: String): String {
+    val bucket = "$name-${System.currentTimeMillis()}"
+    s3Client.createBucket { it.bucket(bucket) }.join()
+    return bucket
+  }
+
+  private fun givenObjects(
+    bucket: String,
+    count: Int,
+    key: (Int) -> String,
+  ) {
+    (0 until count)
+      .chunked(SEED_BATCH_SIZE)
+      .forEach { batch -> CompletableFuture.allOf(*batch.map { put(bucket, key(it), SMALL_OBJECT) }.toTypedArray()).join() }
+  }
+
+  private fun put(
+    bucket: String,
+    key: String,
+    content: ByteArray,
+  ) = s3Client.putObject({ it.bucket(bucket).key(key) }, AsyncRequestBody.fromBytes(content))
+
+  companion object {
+    private val SMALL_OBJECT = Random.nextBytes(1024)
+    private const val SEEDED_OBJECTS = 1_000
+    private const val SEED_BATCH_SIZE = 100
+    private const val MULTIPART_PARTS = 4
+    private const val LIST_PAGE_SIZE = 1000
+    private const val CHURN_KEYS = 100
+
+    private fun deepKey(n: Int) = "level-${n % 10}/level-${n / 10 % 10}/level-${n / 100 % 10}/key-$n"
+  }
+}
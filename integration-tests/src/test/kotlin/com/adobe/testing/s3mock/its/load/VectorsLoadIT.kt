@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.its.load
+
+import org.junit.jupiter.api.Test
+import software.amazon.awssdk.core.document.Document
+import software.amazon.awssdk.services.s3vectors.model.PutInputVector
+import software.amazon.awssdk.services.s3vectors.model.VectorData
+import kotlin.random.Random
+
+/**
+ * Load scenarios for the S3 Vectors API, see [LoadScenario] for their configuration.
+ */
+internal class VectorsLoadIT : LoadTestBase() {
+  @Test
+  fun `vector ingestion`() {
+    val scenario = LoadScenario("vector-ingestion", 1_000, defaultConcurrency = 8)
+    val dimension = scenario.intProperty("dimension", DEFAULT_DIMENSION)
+    val bucket = givenIndex("vector-ingestion", dimension)
+    load(scenario) { i -> putVectors(bucket, dimension, i * BATCH_SIZE) }
+  }
+
+  @Test
+  fun `vector query`() {
+    val scenario = LoadScenario("vector-query", 5_000)
+    val dimension = scenario.intProperty("dimension", DEFAULT_DIMENSION)
+    val vectors = scenario.intProperty("vectors", 50_000)
+    val bucket = givenIndex("vector-query", dimension)
+    (0 until vectors step BATCH_SIZE).forEach { putVectors(bucket, dimension, it).join() }
+    val filter = Document.mapBuilder().putNumber("group", 7).build()
+    load(scenario) { i ->
+      vectorsClient.queryVectors {
+        it.vectorBucketName(bucket)
+        it.indexName(INDEX)
+        it.queryVector(randomVector(dimension))
+        it.topK(TOP_K)
+        it.returnDistance(true)
+        // every other query is narrowed down by metadata
+        if (i % 2 == 1) it.filter(filter)
+      }
+    }
+  }
+
+  private fun givenIndex(
+    name: String,
+    dimension: Int,
+  ): String {
+    val bucket = "$name-${System.currentTimeMillis()}"
+    vectorsClient.createVectorBucket { it.vectorBucketName(bucket) }.join()
+    vectorsClient
+      .createIndex {
+        it.vectorBucketName(bucket)
+        it.indexName(INDEX)
+        it.dataType("float32")
+        it.dimension(dimension)
+        it.distanceMetric("cosine")
+      }.join()
+    return bucket
+  }
+
+  /**
+   * Puts one batch of vectors, numbered from [first].
+   */
+  private fun putVectors(
+    bucket: String,
+    dimension: Int,
+    first: Int,
+  ) = vectorsClient.putVectors {
+    it.vectorBucketName(bucket)
+    it.indexName(INDEX)
+    it.vectors(
+      (first until first + BATCH_SIZE).map { n ->
+        PutInputVector
+          .builder()
+          .key("vector-$n")
+          .data(randomVector(dimension))
+          .metadata(Document.mapBuilder().putNumber("group", n % 10).build())
+          .build()
+      },
+    )
+  }
+
+  private fun randomVector(dimension: Int): VectorData = VectorData.fromFloat32(List(dimension) { Random.nextFloat() })
+
+  companion object {
+    private const val INDEX = "load-index"
+    private const val DEFAULT_DIMENSION = 128
+    private const val BATCH_SIZE = 100
+    private const val TOP_K = 10
+  }
+}
@@ -135,6 +135,39 @@ internal class VectorQueryIT : S3TestBase() {
     assertThat(response.vectors().map { it.key() }).doesNotContain("comedy-1")
   }
 
+  @Test
+  @S3VerifiedSuccess(year = 2026)
+  fun `QueryVectors with range filter skips vectors without the field`(testInfo: TestInfo) {
+    val bucketName = givenVectorBucket(testInfo)
+    val indexName = givenIndex(bucketName, 2, "cosine")
+
+    putVectors(
+      bucketName,
+      indexName,
+      listOf(
+        Triple("old", listOf(1.0f, 0.0f), Document.mapBuilder().putNumber("year", 2010).build()),
+        Triple("new", listOf(0.9f, 0.1f), Document.mapBuilder().putNumber("year", 2020).build()),
+        Triple("undated", listOf(0.8f, 0.2f), Document.mapBuilder().putString("genre", "drama").build()),
+      ),
+    )
+
+    val response =
+      vectorsClient.queryVectors {
+        it.vectorBucketName(bucketName)
+        it.indexName(indexName)
+        it.queryVector(VectorData.fromFloat32(listOf(1.0f, 0.0f)))
+        it.topK(10)
+        it.filter(
+          Document
+            .mapBuilder()
+            .putDocument("year", Document.mapBuilder().putNumber($$"$lt", 2015).build())
+            .build(),
+        )
+      }
+
+    assertThat(response.vectors().map { it.key() }).containsExactly("old")
+  }
+
   @Test
   @S3VerifiedSuccess(year = 2026)
   fun `QueryVectors distance is not returned when returnDistance is false`(testInfo: TestInfo) {
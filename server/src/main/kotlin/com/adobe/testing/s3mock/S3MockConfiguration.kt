@@ -15,13 +15,17 @@
  */
 package com.adobe.testing.s3mock
 
+import com.adobe.testing.s3mock.common.RequestMetricsFilter
+import io.micrometer.core.instrument.MeterRegistry
 import org.apache.catalina.connector.Connector
+import org.apache.coyote.ContinueResponseTiming
 import org.apache.tomcat.util.buf.EncodedSolidusHandling
 import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.tomcat.servlet.TomcatServletWebServerFactory
 import org.springframework.boot.web.server.servlet.ServletWebServerFactory
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
+import org.springframework.context.annotation.Profile
 
 @Configuration
 @EnableConfigurationProperties(S3MockProperties::class)
@@ -34,6 +38,7 @@ class S3MockConfiguration {
   fun httpConnector(properties: S3MockProperties): Connector =
     Connector().apply {
       port = properties.httpPort
+      deferContinueResponse()
     }
 
   /**
@@ -52,8 +57,25 @@ class S3MockConfiguration {
           // Allow encoded slashes in URL
           it.encodedSolidusHandling = EncodedSolidusHandling.DECODE.value
           it.setAllowBackslash(true)
+          it.deferContinueResponse()
         },
       )
       addAdditionalConnectors(httpConnector)
     }
+
+  /**
+   * Only send "100 Continue" to clients sending "Expect: 100-continue" once the body is read, so
+   * that requests rejected on their headers alone are answered without receiving the payload.
+   */
+  private fun Connector.deferContinueResponse() {
+    setProperty("continueResponseTiming", ContinueResponseTiming.ON_REQUEST_BODY_READ.toString())
+  }
+
+  /**
+   * Per-operation metrics of the S3 and S3 Vectors APIs, exposed on the actuator Prometheus
+   * endpoint. Only recorded when the `actuator` profile is active.
+   */
+  @Bean
+  @Profile("actuator")
+  fun requestMetricsFilter(registry: MeterRegistry): RequestMetricsFilter = RequestMetricsFilter(registry)
 }
@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.common
+
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import tools.jackson.databind.ObjectMapper
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import java.nio.file.StandardOpenOption.CREATE_NEW
+import java.nio.file.StandardOpenOption.READ
+import java.nio.file.StandardOpenOption.WRITE
+import java.time.Duration
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Writes all metadata files of the stores. Each file is written to a temporary file next to it
+ * first, which then replaces the file with an atomic move, so that neither readers nor a killed
+ * S3Mock ever leave a partially written file behind.
+ *
+ * Whether the files are also forced to the storage device, to survive a crash of the operating
+ * system or a power loss, depends on the [durability]. With [Durability.BATCHED], the folders the
+ * files were moved to are forced every [syncInterval]. Forces all remaining folders when closed.
+ *
+ * The names of the temporary files contain an id of the running S3Mock, so that
+ * [removeTemporaryFiles] only deletes those left behind by a previous run.
+ */
+class MetadataWriter(
+  private val instrumentation: StoreInstrumentation = StoreInstrumentation(),
+  private val durability: Durability = Durability.NONE,
+  syncInterval: Duration = Duration.ofMillis(100),
+) : AutoCloseable {
+  // folders files were moved to since the last sync with Durability.BATCHED
+  private val unsynced: MutableSet<Path> = ConcurrentHashMap.newKeySet()
+
+  private val executor: ScheduledExecutorService? =
+    if (durability == Durability.BATCHED) {
+      Executors
+        .newSingleThreadScheduledExecutor { Thread(it, "s3mock-metadata-sync").apply { isDaemon = true } }
+        .apply {
+          val interval = syncInterval.toMillis().coerceAtLeast(1)
+          scheduleWithFixedDelay(::syncSafely, interval, interval, TimeUnit.MILLISECONDS)
+        }
+    } else {
+      null
+    }
+
+  /**
+   * Serializes [value] with [objectMapper] to [file], recorded as
+   * [StoreInstrumentation.WRITE_METADATA].
+   */
+  fun writeValue(
+    objectMapper: ObjectMapper,
+    file: File,
+    value: Any,
+  ) = instrumentation.record(StoreInstrumentation.WRITE_METADATA, value.javaClass.simpleName, { file.length() }) {
+    write(file, objectMapper.writeValueAsBytes(value))
+  }
+
+  /**
+   * Replaces the content of [file] with [bytes].
+   */
+  fun write(
+    file: File,
+    bytes: ByteArray,
+  ) {
+    val target = file.toPath()
+    val temp = temporaryFileFor(target)
+    try {
+      FileChannel.open(temp, CREATE_NEW, WRITE).use { channel ->
+        val buffer = ByteBuffer.wrap(bytes)
+        while (buffer.hasRemaining()) {
+          channel.write(buffer)
+        }
+        // the content has to be on the device before the move is, or a crash could leave an empty
+        // or truncated file behind
+        if (durability != Durability.NONE) {
+          channel.force(true)
+        }
+      }
+      move(temp, target)
+    } catch (e: IOException) {
+      Files.deleteIfExists(temp)
+      throw e
+    }
+    when (durability) {
+      Durability.ALWAYS -> {
+        forceDirectory(target.parent)
+      }
+
+      Durability.BATCHED -> {
+        target.parent?.let { unsynced.add(it) }
+      }
+
+      Durability.NONE -> {}
+    }
+  }
+
+  /**
+   * Forces the folders files were moved to since the last sync to the storage device.
+   */
+  fun sync() {
+    val folders = unsynced.toList()
+    unsynced.removeAll(folders.toSet())
+    folders.forEach { forceDirectory(it) }
+  }
+
+  /**
+   * Deletes the temporary files that a previous run left behind in [folder] and its subfolders,
+   * e.g. if S3Mock was killed while writing. Files of the running S3Mock are kept.
+   */
+  fun removeTemporaryFiles(folder: File) {
+    var count = 0
+    folder
+      .walkTopDown()
+      .filter { it.isFile && TEMPORARY_FILE.matches(it.name) && !it.name.contains(RUN) }
+      .forEach {
+        if (it.delete()) {
+          count++
+        }
+      }
+    if (count > 0) {
+      LOG.info("Deleted {} temporary metadata files of a previous run in {}.", count, folder)
+    }
+  }
+
+  private fun syncSafely() {
+    try {
+      sync()
+    } catch (e: RuntimeException) {
+      LOG.warn("Could not sync metadata files.", e)
+    }
+  }
+
+  override fun close() {
+    executor?.shutdownNow()
+    sync()
+  }
+
+  private fun move(
+    source: Path,
+    target: Path,
+  ) {
+    try {
+      Files.move(source, target, ATOMIC_MOVE, REPLACE_EXISTING)
+    } catch (_: AtomicMoveNotSupportedException) {
+      Files.move(source, target, REPLACE_EXISTING)
+    }
+  }
+
+  /**
+   * Forces the entries of [folder] to the storage device, so that a moved file is found after a
+   * crash. Not supported on every operating system, e.g. not on Windows.
+   */
+  private fun forceDirectory(folder: Path?) {
+    if (folder == null) return
+    try {
+      FileChannel.open(folder, READ).use { it.force(true) }
+    } catch (_: IOException) {
+      // folders can't be opened or forced on this platform or file system
+    }
+  }
+
+  /**
+   * How metadata files are forced to the storage device.
+   */
+  enum class Durability {
+    /**
+     * Never, for maximum throughput of throwaway instances. Files still can't be torn by a killed
+     * S3Mock, only by a crash of the operating system.
+     */
+    NONE,
+
+    /**
+     * Every file is forced before it's moved into place, the folders are forced together at the
+     * end of each interval. A crash of the operating system may revert the files written in the
+     * last interval to their previous content, but never leaves a partially written file behind.
+     */
+    BATCHED,
+
+    /**
+     * Every file is forced before the write returns.
+     */
+    ALWAYS,
+  }
+
+  companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(MetadataWriter::class.java)
+    private val RUN = UUID.randomUUID().toString()
+
+    // also matches the names without run id written by older versions
+    private val TEMPORARY_FILE = Regex("""^\..+\.[0-9a-f-]{36}\.tmp$""")
+
+    /**
+     * Temporary file [target] is written to before it's moved into place. Starts with a dot, so
+     * that it's never taken for a bucket, object or upload.
+     */
+    internal fun temporaryFileFor(target: Path): Path = target.resolveSibling(".${target.fileName}.$RUN.${UUID.randomUUID()}.tmp")
+  }
+}
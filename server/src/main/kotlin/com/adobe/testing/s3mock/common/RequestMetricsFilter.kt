@@ -0,0 +1,284 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.common
+
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Tags
+import io.micrometer.core.instrument.Timer
+import jakarta.servlet.AsyncEvent
+import jakarta.servlet.AsyncListener
+import jakarta.servlet.FilterChain
+import jakarta.servlet.ServletOutputStream
+import jakarta.servlet.WriteListener
+import jakarta.servlet.http.HttpServletRequest
+import jakarta.servlet.http.HttpServletResponse
+import jakarta.servlet.http.HttpServletResponseWrapper
+import org.springframework.core.Ordered
+import org.springframework.web.context.request.RequestAttributes
+import org.springframework.web.context.request.RequestContextHolder
+import org.springframework.web.filter.OncePerRequestFilter
+import org.springframework.web.method.HandlerMethod
+import org.springframework.web.servlet.HandlerMapping
+import java.util.concurrent.TimeUnit
+
+/**
+ * Records Micrometer metrics for every S3 and S3 Vectors API request:
+ *
+ * - `s3mock.requests`: timer with percentile histogram, tagged with `api` (`s3` or `s3vectors`),
+ *   `operation` (e.g. `GetObject`), `status` and `error` (the error code, `none` on success).
+ * - `s3mock.errors`: counter of error responses with the same tags.
+ * - `s3mock.request.size` / `s3mock.response.size`: request and response body sizes in bytes,
+ *   tagged with `api` and `operation`. Request sizes are taken from `Content-Length`, response
+ *   sizes are counted while the body is written.
+ *
+ * The operation is looked up by the name of the handling controller method in [OPERATIONS], the
+ * error code is set by the exception handlers through [recordErrorCode]. Requests not handled by
+ * an API operation (e.g. actuator endpoints or the favicon) are not recorded.
+ */
+class RequestMetricsFilter(
+  private val registry: MeterRegistry,
+) : OncePerRequestFilter(),
+  Ordered {
+  override fun getOrder(): Int = Ordered.HIGHEST_PRECEDENCE + 10
+
+  override fun doFilterInternal(
+    request: HttpServletRequest,
+    response: HttpServletResponse,
+    filterChain: FilterChain,
+  ) {
+    val start = System.nanoTime()
+    val countingResponse = CountingResponse(response)
+    try {
+      filterChain.doFilter(request, countingResponse)
+    } catch (e: Exception) {
+      request.setAttribute(ERROR_CODE_ATTRIBUTE, e.javaClass.simpleName)
+      record(request, countingResponse, start, HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
+      throw e
+    }
+    if (request.isAsyncStarted) {
+      // streamed responses are written after the initial dispatch has returned.
+      // onComplete also follows a timeout or an error, which only tag the request so that it's recorded once.
+      request.asyncContext.addListener(
+        object : AsyncListener {
+          override fun onComplete(event: AsyncEvent) = record(request, countingResponse, start, countingResponse.status)
+
+          override fun onTimeout(event: AsyncEvent) = tagAsyncError(request, ASYNC_TIMEOUT_ERROR)
+
+          override fun onError(event: AsyncEvent) = tagAsyncError(request, event.throwable?.javaClass?.simpleName ?: ASYNC_ERROR)
+
+          override fun onStartAsync(event: AsyncEvent) {}
+        },
+      )
+    } else {
+      record(request, countingResponse, start, countingResponse.status)
+    }
+  }
+
+  private fun tagAsyncError(
+    request: HttpServletRequest,
+    code: String,
+  ) {
+    if (request.getAttribute(ERROR_CODE_ATTRIBUTE) == null) request.setAttribute(ERROR_CODE_ATTRIBUTE, code)
+  }
+
+  private fun record(
+    request: HttpServletRequest,
+    response: CountingResponse,
+    start: Long,
+    status: Int,
+  ) {
+    val handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE)
+    // requests that matched no handler at all are still S3 requests, e.g. unsupported operations
+    if (handler != null && (handler !is HandlerMethod || !handler.beanType.packageName.startsWith(BASE_PACKAGE))) return
+    handler as HandlerMethod?
+    val operation = if (handler == null) UNKNOWN_OPERATION else OPERATIONS[handler.method.name] ?: return
+    val api = if (handler?.beanType?.packageName?.startsWith(VECTORS_PACKAGE) == true) API_S3_VECTORS else API_S3
+    val errorCode = request.getAttribute(ERROR_CODE_ATTRIBUTE) as String?
+    val operationTags = Tags.of(TAG_API, api, TAG_OPERATION, operation)
+    val tags = operationTags.and(TAG_STATUS, status.toString(), TAG_ERROR, errorCode ?: NO_ERROR)
+
+    Timer
+      .builder(REQUESTS)
+      .description("S3Mock API requests")
+      .tags(tags)
+      .publishPercentileHistogram()
+      .register(registry)
+      .record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+    if (errorCode != null || status >= 400) {
+      registry.counter(ERRORS, tags).increment()
+    }
+    if (request.contentLengthLong >= 0) {
+      summary(REQUEST_SIZE, operationTags).record(request.contentLengthLong.toDouble())
+    }
+    summary(RESPONSE_SIZE, operationTags).record(response.bytesWritten.toDouble())
+  }
+
+  private fun summary(
+    name: String,
+    tags: Tags,
+  ): DistributionSummary =
+    DistributionSummary
+      .builder(name)
+      .baseUnit("bytes")
+      .tags(tags)
+      .register(registry)
+
+  /**
+   * Counts the bytes written to the response body.
+   */
+  private class CountingResponse(
+    response: HttpServletResponse,
+  ) : HttpServletResponseWrapper(response) {
+    var bytesWritten = 0L
+      private set
+
+    private val outputStream by lazy {
+      val delegate = response.outputStream
+      object : ServletOutputStream() {
+        override fun write(b: Int) {
+          delegate.write(b)
+          bytesWritten++
+        }
+
+        override fun write(
+          b: ByteArray,
+          off: Int,
+          len: Int,
+        ) {
+          delegate.write(b, off, len)
+          bytesWritten += len
+        }
+
+        override fun flush() = delegate.flush()
+
+        override fun close() = delegate.close()
+
+        override fun isReady(): Boolean = delegate.isReady
+
+        override fun setWriteListener(writeListener: WriteListener) = delegate.setWriteListener(writeListener)
+      }
+    }
+
+    override fun getOutputStream(): ServletOutputStream = outputStream
+  }
+
+  companion object {
+    const val REQUESTS = "s3mock.requests"
+    const val ERRORS = "s3mock.errors"
+    const val REQUEST_SIZE = "s3mock.request.size"
+    const val RESPONSE_SIZE = "s3mock.response.size"
+    const val TAG_API = "api"
+    const val TAG_OPERATION = "operation"
+    const val TAG_STATUS = "status"
+    const val TAG_ERROR = "error"
+    const val API_S3 = "s3"
+    const val API_S3_VECTORS = "s3vectors"
+    const val NO_ERROR = "none"
+    const val UNKNOWN_OPERATION = "Unknown"
+    const val ASYNC_TIMEOUT_ERROR = "RequestTimeout"
+    const val ASYNC_ERROR = "AsyncError"
+
+    /**
+     * The API operation of each controller method, by method name. Handler methods missing here,
+     * e.g. the favicon, are no API operations.
+     */
+    val OPERATIONS: Map<String, String> =
+      mapOf(
+        // S3
+        "abortMultipartUpload" to "AbortMultipartUpload",
+        "completeMultipartUpload" to "CompleteMultipartUpload",
+        "copyObject" to "CopyObject",
+        "createBucket" to "CreateBucket",
+        "createMultipartUpload" to "CreateMultipartUpload",
+        "deleteBucket" to "DeleteBucket",
+        "deleteBucketLifecycleConfiguration" to "DeleteBucketLifecycle",
+        "deleteObject" to "DeleteObject",
+        "deleteObjects" to "DeleteObjects",
+        "deleteObjectTagging" to "DeleteObjectTagging",
+        "getBucketLifecycleConfiguration" to "GetBucketLifecycleConfiguration",
+        "getBucketLocation" to "GetBucketLocation",
+        "getLegalHold" to "GetObjectLegalHold",
+        "getObject" to "GetObject",
+        "getObjectAcl" to "GetObjectAcl",
+        "getObjectAttributes" to "GetObjectAttributes",
+        "getObjectLockConfiguration" to "GetObjectLockConfiguration",
+        "getObjectRetention" to "GetObjectRetention",
+        "getObjectTagging" to "GetObjectTagging",
+        "getVersioningConfiguration" to "GetBucketVersioning",
+        "headBucket" to "HeadBucket",
+        "headObject" to "HeadObject",
+        "listBuckets" to "ListBuckets",
+        "listMultipartUploads" to "ListMultipartUploads",
+        "listObjects" to "ListObjects",
+        "listObjectsV2" to "ListObjectsV2",
+        "listObjectVersions" to "ListObjectVersions",
+        "listParts" to "ListParts",
+        "postObject" to "PostObject",
+        "putBucketLifecycleConfiguration" to "PutBucketLifecycleConfiguration",
+        "putLegalHold" to "PutObjectLegalHold",
+        "putObject" to "PutObject",
+        "putObjectAcl" to "PutObjectAcl",
+        "putObjectLockConfiguration" to "PutObjectLockConfiguration",
+        "putObjectRetention" to "PutObjectRetention",
+        "putObjectTagging" to "PutObjectTagging",
+        "putVersioningConfiguration" to "PutBucketVersioning",
+        "uploadPart" to "UploadPart",
+        "uploadPartCopy" to "UploadPartCopy",
+        // S3 Vectors
+        "createIndex" to "CreateIndex",
+        "createVectorBucket" to "CreateVectorBucket",
+        "deleteIndex" to "DeleteIndex",
+        "deleteVectorBucket" to "DeleteVectorBucket",
+        "deleteVectorBucketPolicy" to "DeleteVectorBucketPolicy",
+        "deleteVectors" to "DeleteVectors",
+        "getIndex" to "GetIndex",
+        "getVectorBucket" to "GetVectorBucket",
+        "getVectorBucketPolicy" to "GetVectorBucketPolicy",
+        "getVectors" to "GetVectors",
+        "listIndexes" to "ListIndexes",
+        "listTagsForResource" to "ListTagsForResource",
+        "listVectorBuckets" to "ListVectorBuckets",
+        "listVectors" to "ListVectors",
+        "putVectorBucketPolicy" to "PutVectorBucketPolicy",
+        "putVectors" to "PutVectors",
+        "queryVectors" to "QueryVectors",
+        "tagResource" to "TagResource",
+        "untagResource" to "UntagResource",
+      )
+
+    private val ERROR_CODE_ATTRIBUTE = RequestMetricsFilter::class.java.name + ".errorCode"
+    private const val BASE_PACKAGE = "com.adobe.testing.s3mock."
+    private const val VECTORS_PACKAGE = "com.adobe.testing.s3mock.vectors."
+
+    /**
+     * Tags the metrics of the current request with [code], called by the exception handlers.
+     */
+    fun recordErrorCode(code: String) {
+      RequestContextHolder
+        .getRequestAttributes()
+        ?.setAttribute(ERROR_CODE_ATTRIBUTE, code, RequestAttributes.SCOPE_REQUEST)
+    }
+
+    /**
+     * Tags the metrics of [request] with [code], for filters responding before any handler runs.
+     */
+    fun recordErrorCode(
+      request: HttpServletRequest,
+      code: String,
+    ) = request.setAttribute(ERROR_CODE_ATTRIBUTE, code)
+  }
+}
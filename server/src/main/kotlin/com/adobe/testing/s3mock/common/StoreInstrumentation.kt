@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.common
+
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import tools.jackson.databind.ObjectMapper
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Instrumentation of the I/O below the controllers: metadata file reads and writes including
+ * their (de)serialization, binary copies, digest and checksum calculations.
+ *
+ * Each operation is emitted as [StoreOperationEvent] while a JDK Flight Recorder recording is
+ * running, and recorded as Micrometer metrics if there is a [registry]:
+ *
+ * - `s3mock.store.operations`: timer tagged with `operation` and `type`.
+ * - `s3mock.store.bytes`: bytes read, written or processed, with the same tags.
+ *
+ * Without either, operations run uninstrumented.
+ */
+class StoreInstrumentation(
+  private val registry: MeterRegistry? = null,
+) {
+  /**
+   * Records [block] as [operation] on data of [type]. [bytes] extracts the number of bytes
+   * processed from the result, it is only called if the operation is recorded. Operations not
+   * processing bytes return `null` and are only timed.
+   */
+  fun <T> record(
+    operation: String,
+    type: String,
+    bytes: (T) -> Long?,
+    block: () -> T,
+  ): T {
+    val event = StoreOperationEvent()
+    if (registry == null && !event.isEnabled) return block()
+
+    event.begin()
+    val start = System.nanoTime()
+    val result = block()
+    val duration = System.nanoTime() - start
+    val byteCount = bytes(result)
+    event.end()
+    if (event.shouldCommit()) {
+      event.operation = operation
+      event.type = type
+      event.bytes = byteCount ?: 0
+      event.commit()
+    }
+    if (registry != null) {
+      Timer
+        .builder(OPERATIONS)
+        .description("S3Mock store operations")
+        .tags(TAG_OPERATION, operation, TAG_TYPE, type)
+        .register(registry)
+        .record(duration, TimeUnit.NANOSECONDS)
+      if (byteCount != null) {
+        DistributionSummary
+          .builder(BYTES)
+          .baseUnit("bytes")
+          .tags(TAG_OPERATION, operation, TAG_TYPE, type)
+          .register(registry)
+          .record(byteCount.toDouble())
+      }
+    }
+    return result
+  }
+
+  /**
+   * Deserializes [file] to [type] with [objectMapper], recorded as [READ_METADATA].
+   */
+  fun <T : Any> readMetadata(
+    objectMapper: ObjectMapper,
+    file: File,
+    type: Class<T>,
+  ): T = record(READ_METADATA, type.simpleName, { file.length() }) { objectMapper.readValue(file, type) }
+
+  /**
+   * Calculates the MD5 digest of [bytes] bytes with [block], recorded as [DIGEST].
+   */
+  fun <T> digest(
+    bytes: Long,
+    block: () -> T,
+  ): T = record(DIGEST, MD5, { bytes }, block)
+
+  /**
+   * Calculates the [algorithm] checksum of [bytes] bytes with [block], recorded as [CHECKSUM].
+   */
+  fun <T> checksum(
+    algorithm: String,
+    bytes: Long,
+    block: () -> T,
+  ): T = record(CHECKSUM, algorithm, { bytes }, block)
+
+  companion object {
+    const val OPERATIONS = "s3mock.store.operations"
+    const val BYTES = "s3mock.store.bytes"
+    const val TAG_OPERATION = "operation"
+    const val TAG_TYPE = "type"
+
+    const val READ_METADATA = "read_metadata"
+    const val WRITE_METADATA = "write_metadata"
+    const val COPY_BINARY = "copy_binary"
+    const val DIGEST = "digest"
+    const val CHECKSUM = "checksum"
+    const val LOAD_OBJECTS = "load_objects"
+
+    private const val MD5 = "MD5"
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.common
+
+import jdk.jfr.Category
+import jdk.jfr.DataAmount
+import jdk.jfr.Description
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+
+/**
+ * JDK Flight Recorder event for one store operation recorded by [StoreInstrumentation], e.g. reading
+ * a metadata file or calculating a checksum.
+ */
+@Name("com.adobe.testing.s3mock.StoreOperation")
+@Label("Store Operation")
+@Category("S3Mock")
+@Description("Metadata file access, binary copy, digest or checksum calculation of the S3Mock stores")
+@StackTrace(false)
+class StoreOperationEvent : Event() {
+  @Label("Operation")
+  @JvmField
+  var operation: String? = null
+
+  @Label("Type")
+  @Description("Type of the metadata, or the digest or checksum algorithm")
+  @JvmField
+  var type: String? = null
+
+  @Label("Bytes")
+  @DataAmount
+  @JvmField
+  var bytes: Long = 0
+}
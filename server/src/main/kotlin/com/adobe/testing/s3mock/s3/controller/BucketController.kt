@@ -29,6 +29,7 @@ import com.adobe.testing.s3mock.s3.dto.LocationConstraint
 import com.adobe.testing.s3mock.s3.dto.ObjectLockConfiguration
 import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
 import com.adobe.testing.s3mock.s3.dto.Region
+import com.adobe.testing.s3mock.s3.dto.StreamedListResult
 import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
 import com.adobe.testing.s3mock.s3.service.BucketService
 import com.adobe.testing.s3mock.s3.util.AwsHttpParameters.BUCKET_REGION
@@ -444,19 +445,21 @@ class BucketController(
     @RequestParam(required = false) marker: String?,
     @RequestParam(name = MAX_KEYS, defaultValue = "1000", required = false) maxKeys: Int,
     @RequestParam(required = false) prefix: String?,
-  ): ResponseEntity<ListBucketResult> {
+  ): ResponseEntity<StreamedListResult<ListBucketResult>> {
     bucketService.verifyBucketExists(bucketName)
     bucketService.verifyMaxKeys(maxKeys)
     bucketService.verifyEncodingType(encodingType)
     val listBucketResult =
-      bucketService.listObjectsV1(
-        bucketName,
-        prefix,
-        delimiter,
-        marker,
-        encodingType,
-        maxKeys,
-      )
+      StreamedListResult(ListBucketResult::class.java) { entry ->
+        bucketService.listObjectsV1(
+          bucketName,
+          prefix,
+          delimiter,
+          marker,
+          encodingType,
+          maxKeys,
+        ) { entry(StreamedListResult.CONTENTS, it) }
+      }
     return ResponseEntity.ok(listBucketResult)
   }
 
@@ -487,21 +490,23 @@ class BucketController(
     @RequestParam(name = MAX_KEYS, defaultValue = "1000", required = false) maxKeys: Int,
     @RequestParam(required = false) prefix: String?,
     @RequestParam(name = START_AFTER, required = false) startAfter: String?,
-  ): ResponseEntity<ListBucketResultV2> {
+  ): ResponseEntity<StreamedListResult<ListBucketResultV2>> {
     bucketService.verifyBucketExists(bucketName)
     bucketService.verifyMaxKeys(maxKeys)
     bucketService.verifyEncodingType(encodingType)
     val listBucketResultV2 =
-      bucketService.listObjectsV2(
-        bucketName,
-        prefix,
-        delimiter,
-        encodingType,
-        startAfter,
-        maxKeys,
-        continuationToken,
-        fetchOwner,
-      )
+      StreamedListResult(ListBucketResultV2::class.java) { entry ->
+        bucketService.listObjectsV2(
+          bucketName,
+          prefix,
+          delimiter,
+          encodingType,
+          startAfter,
+          maxKeys,
+          continuationToken,
+          fetchOwner,
+        ) { entry(StreamedListResult.CONTENTS, it) }
+      }
 
     return ResponseEntity.ok(listBucketResultV2)
   }
@@ -532,20 +537,24 @@ class BucketController(
     @RequestParam(name = MAX_KEYS, defaultValue = "1000", required = false) maxKeys: Int,
     @RequestParam(required = false) prefix: String?,
     @RequestParam(name = VERSION_ID_MARKER, required = false) versionIdMarker: String?,
-  ): ResponseEntity<ListVersionsResult> {
+  ): ResponseEntity<StreamedListResult<ListVersionsResult>> {
     bucketService.verifyBucketExists(bucketName)
     bucketService.verifyMaxKeys(maxKeys)
     bucketService.verifyEncodingType(encodingType)
     val listVersionsResult =
-      bucketService.listVersions(
-        bucketName,
-        prefix,
-        delimiter,
-        encodingType,
-        maxKeys,
-        keyMarker,
-        versionIdMarker,
-      )
+      StreamedListResult(ListVersionsResult::class.java) { entry ->
+        bucketService.listVersions(
+          bucketName,
+          prefix,
+          delimiter,
+          encodingType,
+          maxKeys,
+          keyMarker,
+          versionIdMarker,
+          { entry(StreamedListResult.VERSION, it) },
+          { entry(StreamedListResult.DELETE_MARKER, it) },
+        )
+      }
 
     return ResponseEntity.ok(listVersionsResult)
   }
@@ -16,6 +16,7 @@
 package com.adobe.testing.s3mock.s3.controller
 
 import com.adobe.testing.s3mock.common.AwsHttpHeaders.X_AMZ_DELETE_MARKER
+import com.adobe.testing.s3mock.common.RequestMetricsFilter
 import com.adobe.testing.s3mock.s3.S3Exception
 import com.adobe.testing.s3mock.s3.dto.ErrorResponse
 import com.adobe.testing.s3mock.s3.service.BucketService
@@ -35,11 +36,14 @@ import org.springframework.context.annotation.Configuration
 import org.springframework.context.annotation.Profile
 import org.springframework.http.HttpHeaders
 import org.springframework.http.HttpStatus
+import org.springframework.http.HttpStatusCode
 import org.springframework.http.MediaType
 import org.springframework.http.ResponseEntity
+import org.springframework.http.converter.HttpMessageNotWritableException
 import org.springframework.http.converter.xml.JacksonXmlHttpMessageConverter
 import org.springframework.web.bind.annotation.ControllerAdvice
 import org.springframework.web.bind.annotation.ExceptionHandler
+import org.springframework.web.context.request.WebRequest
 import org.springframework.web.filter.CommonsRequestLoggingFilter
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer
@@ -219,6 +223,7 @@ class ControllerConfiguration : WebMvcConfigurer {
         s3Exception.message,
         s3Exception,
       )
+      RequestMetricsFilter.recordErrorCode(s3Exception.code)
 
       val errorResponse =
         ErrorResponse(
@@ -242,6 +247,24 @@ class ControllerConfiguration : WebMvcConfigurer {
         .body(errorResponse)
     }
 
+    /**
+     * Listings are walked while their result is written, an [S3Exception] thrown before the
+     * response is committed is wrapped by the message converter.
+     */
+    override fun handleHttpMessageNotWritable(
+      ex: HttpMessageNotWritableException,
+      headers: HttpHeaders,
+      status: HttpStatusCode,
+      request: WebRequest,
+    ): ResponseEntity<Any>? {
+      val s3Exception =
+        generateSequence(ex.cause) { it.cause }.filterIsInstance<S3Exception>().firstOrNull()
+          ?: return super.handleHttpMessageNotWritable(ex, headers, status, request)
+      @Suppress("UNCHECKED_CAST")
+      val response = handleS3Exception(s3Exception) as ResponseEntity<Any>
+      return response
+    }
+
     companion object {
       private val LOG: Logger = LoggerFactory.getLogger(S3MockExceptionHandler::class.java)
     }
@@ -270,6 +293,7 @@ class ControllerConfiguration : WebMvcConfigurer {
         exception.message,
         exception,
       )
+      RequestMetricsFilter.recordErrorCode("InternalError")
 
       val errorResponse =
         ErrorResponse(
@@ -17,6 +17,7 @@ package com.adobe.testing.s3mock.s3.controller
 
 import com.adobe.testing.s3mock.common.AwsHttpHeaders.X_AMZ_SERVER_SIDE_ENCRYPTION
 import com.adobe.testing.s3mock.common.AwsHttpHeaders.X_AMZ_SERVER_SIDE_ENCRYPTION_AWS_KMS_KEY_ID
+import com.adobe.testing.s3mock.common.RequestMetricsFilter
 import com.adobe.testing.s3mock.s3.dto.ErrorResponse
 import com.adobe.testing.s3mock.s3.store.KmsKeyStore
 import jakarta.servlet.FilterChain
@@ -59,13 +60,14 @@ internal class KmsValidationFilter(
         LOG.info("Received invalid KMS key ID. Sending error response.")
 
         runCatching { request.inputStream.close() }
+        RequestMetricsFilter.recordErrorCode(request, KMS_NOT_FOUND)
 
         response.status = HttpStatus.BAD_REQUEST.value()
         response.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_XML_VALUE)
 
         val error =
           ErrorResponse(
-            "KMS.NotFoundException",
+            KMS_NOT_FOUND,
             "Invalid keyId '$keyId'",
             null,
             null,
@@ -88,5 +90,6 @@ internal class KmsValidationFilter(
   companion object {
     private val LOG: Logger = LoggerFactory.getLogger(KmsValidationFilter::class.java)
     private const val AWS_KMS = "aws:kms"
+    private const val KMS_NOT_FOUND = "KMS.NotFoundException"
   }
 }
@@ -238,15 +238,16 @@ class MultipartController(
     @RequestHeader httpHeaders: HttpHeaders,
     inputStream: InputStream,
   ): ResponseEntity<Void> {
+    bucketService.verifyBucketExists(bucketName)
+    multipartService.verifyMultipartUploadExists(bucketName, uploadId)
+    val partNum = multipartService.verifyPartNumberLimits(partNumber)
+
     val (tempFile, sdkChecksum) = multipartService.toTempFile(inputStream, httpHeaders)
     try {
-      bucketService.verifyBucketExists(bucketName)
-      multipartService.verifyMultipartUploadExists(bucketName, uploadId)
-      val partNum = multipartService.verifyPartNumberLimits(partNumber)
-
       val (checksum, checksumAlgorithm) = resolveChecksum(httpHeaders, sdkChecksum)
 
-      if (checksum != null && checksumAlgorithm != null) {
+      // a checksum calculated from the aws-chunked body has been verified while decoding
+      if (checksum != null && checksumAlgorithm != null && sdkChecksum == null) {
         multipartService.verifyChecksum(tempFile, checksum, checksumAlgorithm)
       }
 
@@ -68,6 +68,7 @@ import com.adobe.testing.s3mock.s3.util.HeaderUtil.encryptionHeadersFrom
 import com.adobe.testing.s3mock.s3.util.HeaderUtil.mediaTypeFrom
 import com.adobe.testing.s3mock.s3.util.HeaderUtil.storeHeadersFrom
 import com.adobe.testing.s3mock.s3.util.HeaderUtil.userMetadataFrom
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import com.adobe.testing.s3mock.s3.util.checksumHeader
 import com.adobe.testing.s3mock.s3.util.objectMetadataHeaders
 import com.adobe.testing.s3mock.s3.util.resolveChecksum
@@ -185,7 +186,7 @@ class ObjectController(
           key = key.key,
           contentType = mediaTypeFrom(contentType).toString(),
           storeHeaders = emptyMap(),
-          path = tempFile,
+          content = ObjectContent.OnDisk(tempFile),
           userMetadata = emptyMap(),
           encryptionHeaders = emptyMap(),
           tags = tags,
@@ -360,7 +361,10 @@ class ObjectController(
       .contentType(mediaTypeFrom(s3ObjectMetadata.contentType))
       .headers {
         s3ObjectMetadata.objectMetadataHeaders(bucket.isVersioningEnabled, queryParams, mode == ChecksumMode.ENABLED).let(it::setAll)
-      }.body(StreamingResponseBody { s3ObjectMetadata.dataPath.inputStream().transferTo(it) })
+      }.body(
+        objectService.getSmallObjectData(s3ObjectMetadata)?.let(::cachedData)
+          ?: StreamingResponseBody { s3ObjectMetadata.dataPath.inputStream().transferTo(it) },
+      )
   }
 
   /**
@@ -394,15 +398,18 @@ class ObjectController(
     @RequestHeader httpHeaders: HttpHeaders,
     inputStream: InputStream,
   ): ResponseEntity<Void> {
-    val (tempFile, calculatedChecksum) = objectService.toTempFile(inputStream, httpHeaders)
+    // reject invalid requests before receiving the body
+    val bucket = bucketService.verifyBucketExists(bucketName)
+    objectService.verifyObjectMatching(bucketName, key.key, match, noneMatch)
+
+    val (content, calculatedChecksum) = objectService.receive(inputStream, httpHeaders)
     try {
       val (checksum, checksumAlgorithm) = resolveChecksum(httpHeaders, calculatedChecksum)
 
-      val bucket = bucketService.verifyBucketExists(bucketName)
-      objectService.verifyObjectMatching(bucketName, key.key, match, noneMatch)
-      objectService.verifyMd5(tempFile, contentMd5)
-      checksum?.let {
-        objectService.verifyChecksum(tempFile, it, checksumAlgorithm!!)
+      objectService.verifyMd5(content, contentMd5)
+      // a checksum calculated from the aws-chunked body has been verified while decoding
+      if (checksum != null && calculatedChecksum == null) {
+        objectService.verifyChecksum(content, checksum, checksumAlgorithm!!)
       }
 
       val s3ObjectMetadata =
@@ -411,7 +418,7 @@ class ObjectController(
           key = key.key,
           contentType = mediaTypeFrom(contentType).toString(),
           storeHeaders = storeHeadersFrom(httpHeaders),
-          path = tempFile,
+          content = content,
           userMetadata = userMetadataFrom(httpHeaders),
           encryptionHeaders = encryptionHeadersFrom(httpHeaders),
           tags = tags,
@@ -432,7 +439,7 @@ class ObjectController(
         .eTag(normalizeEtag(s3ObjectMetadata.etag))
         .build()
     } finally {
-      runCatching { tempFile.toFile().deleteRecursively() }
+      runCatching { content.discard() }
     }
   }
 
@@ -544,20 +551,24 @@ class ObjectController(
       .headers {
         s3ObjectMetadata.objectMetadataHeaders(versioning, queryParams, mode == ChecksumMode.ENABLED).let(it::setAll)
       }.body(
-        StreamingResponseBody {
-          extractBytesToOutputStream(
-            startInclusive,
-            s3ObjectMetadata,
-            it,
-            contentLength,
-          )
-        },
+        objectService.getSmallObjectData(s3ObjectMetadata, startInclusive, contentLength)?.let(::cachedData)
+          ?: StreamingResponseBody {
+            extractBytesToOutputStream(
+              startInclusive,
+              s3ObjectMetadata,
+              it,
+              contentLength,
+            )
+          },
       )
   }
 
   companion object {
     private const val RANGES_BYTES = "bytes"
 
+    // small objects are written from the cache, without reading the data file
+    private fun cachedData(data: ByteArray) = StreamingResponseBody { it.write(data) }
+
     private fun extractBytesToOutputStream(
       startOffset: Long,
       s3ObjectMetadata: S3ObjectMetadata,
@@ -53,15 +53,19 @@ data class ObjectVersion(
 ) {
   companion object {
     /**
-     * Use if versioning is not enabled.
+     * Use if versioning is not enabled. The version is listed with [key], e.g. the URL-encoded key
+     * of the object.
      */
-    fun from(s3Object: S3Object): ObjectVersion =
+    fun from(
+      s3Object: S3Object,
+      key: String = s3Object.key,
+    ): ObjectVersion =
       ObjectVersion(
         s3Object.checksumAlgorithm,
         s3Object.checksumType,
         normalizeEtag(s3Object.etag),
         true,
-        s3Object.key,
+        key,
         s3Object.lastModified,
         s3Object.owner,
         s3Object.restoreStatus,
@@ -0,0 +1,44 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.dto
+
+import com.adobe.testing.s3mock.s3.dto.serialization.StreamedListResultSerializer
+import tools.jackson.databind.annotation.JsonSerialize
+
+/**
+ * A list result whose entries are written to the response while the keys of a bucket are walked,
+ * instead of being collected in the result first.
+ *
+ * [list] runs while the response is written. It passes every entry with its element name, e.g.
+ * `Contents`, to the function it's given and returns the result of type [resultType], whose
+ * properties are written after the entries. This way only the values that are known at the end of
+ * the listing are buffered, e.g. `IsTruncated` and `NextContinuationToken`, together with the common
+ * prefixes. S3 clients read the elements by name, so their order doesn't matter.
+ */
+@JsonSerialize(using = StreamedListResultSerializer::class)
+class StreamedListResult<R : Any>(
+  val resultType: Class<R>,
+  val list: (entry: (name: String, value: Any) -> Unit) -> R,
+) {
+  companion object {
+    /**
+     * Element names of the entries of the results.
+     */
+    const val CONTENTS = "Contents"
+    const val VERSION = "Version"
+    const val DELETE_MARKER = "DeleteMarker"
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.dto.serialization
+
+import com.adobe.testing.s3mock.s3.dto.StreamedListResult
+import com.fasterxml.jackson.annotation.JsonRootName
+import tools.jackson.core.JsonGenerator
+import tools.jackson.databind.SerializationContext
+import tools.jackson.databind.ValueSerializer
+import tools.jackson.databind.util.NameTransformer
+import tools.jackson.dataformat.xml.ser.ToXmlGenerator
+import javax.xml.namespace.QName
+
+/**
+ * Serializes a [StreamedListResult] as the root element of its result type: every entry as soon as
+ * it's listed, then the properties of the result like Jackson would, without another root element.
+ */
+class StreamedListResultSerializer : ValueSerializer<StreamedListResult<*>>() {
+  override fun serialize(
+    value: StreamedListResult<*>,
+    gen: JsonGenerator,
+    serializers: SerializationContext,
+  ) {
+    val root = value.resultType.getAnnotation(JsonRootName::class.java)
+    val xmlGenerator = gen as ToXmlGenerator
+    xmlGenerator.setNextName(QName(root.namespace, root.value))
+    gen.writeStartObject()
+    val result =
+      value.list { name, entry ->
+        xmlGenerator.setNextName(QName(root.namespace, name))
+        gen.writeName(name)
+        serializers.writeValue(gen, entry)
+      }
+    serializers
+      .findValueSerializer(result.javaClass)
+      .unwrappingSerializer(NameTransformer.NOP)
+      .serialize(result, gen, serializers)
+    gen.writeEndObject()
+  }
+}
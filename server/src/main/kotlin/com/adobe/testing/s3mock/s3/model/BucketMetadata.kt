@@ -23,13 +23,17 @@ import com.adobe.testing.s3mock.s3.dto.ObjectLockConfiguration
 import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
 import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
 import com.fasterxml.jackson.annotation.JsonIgnore
-import com.fasterxml.jackson.annotation.JsonProperty
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties
 import java.nio.file.Path
-import java.util.UUID
 
 /**
- * Represents a bucket in S3, used to serialize and deserialize all metadata locally.
+ * Represents a bucket in S3, used to serialize and deserialize the bucket configuration locally.
+ *
+ * The keys of the objects are not part of the configuration, the
+ * [BucketStore][com.adobe.testing.s3mock.s3.store.BucketStore] keeps them apart.
+ * Older versions stored the keys as `objects` in the configuration, the store moves them on read.
  */
+@JsonIgnoreProperties("objects")
 data class BucketMetadata(
   val name: String,
   val creationDate: String,
@@ -41,18 +45,7 @@ data class BucketMetadata(
   val bucketRegion: String,
   val bucketInfo: BucketInfo?,
   val locationInfo: LocationInfo?,
-  @param:JsonProperty("objects")
-  private val _objects: MutableMap<String, UUID> = mutableMapOf(),
 ) {
-  val objects: Map<String, UUID>
-    get() = _objects.toMap()
-
-  fun addKey(key: String): UUID = _objects.getOrPut(key) { UUID.randomUUID() }
-
-  fun removeKey(key: String): Boolean = _objects.remove(key) != null
-
-  fun getID(key: String): UUID? = _objects[key]
-
   @get:JsonIgnore
   val isVersioningEnabled: Boolean
     get() = this.versioningConfiguration?.status == VersioningConfiguration.Status.ENABLED
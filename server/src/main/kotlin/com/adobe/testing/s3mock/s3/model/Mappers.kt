@@ -28,6 +28,7 @@ import com.adobe.testing.s3mock.s3.dto.CopyObjectResult
 import com.adobe.testing.s3mock.s3.dto.DeleteMarkerEntry
 import com.adobe.testing.s3mock.s3.dto.EtagUtil.normalizeEtag
 import com.adobe.testing.s3mock.s3.dto.ObjectVersion
+import com.adobe.testing.s3mock.s3.dto.Owner
 import com.adobe.testing.s3mock.s3.dto.S3Object
 import com.adobe.testing.s3mock.s3.dto.ifAlgorithm
 
@@ -37,8 +38,10 @@ import com.adobe.testing.s3mock.s3.dto.ifAlgorithm
  * keeping dto/ as a true leaf package.
  */
 
-fun S3ObjectMetadata.toS3Object(): S3Object =
-  S3Object(checksumAlgorithm, checksumType, normalizeEtag(etag), key, modificationDate, owner, null, size, storageClass)
+fun S3ObjectMetadata.toS3Object(
+  key: String = this.key,
+  owner: Owner? = this.owner,
+): S3Object = S3Object(checksumAlgorithm, checksumType, normalizeEtag(etag), key, modificationDate, owner, null, size, storageClass)
 
 fun BucketMetadata.toBucket(): Bucket =
   Bucket(
@@ -84,6 +87,36 @@ fun S3ObjectMetadata.toDeleteMarkerEntry(isLatest: Boolean): DeleteMarkerEntry =
     versionId,
   )
 
+fun S3ObjectVersionSummary.toObjectVersion(
+  isLatest: Boolean,
+  key: String = this.key,
+): ObjectVersion =
+  ObjectVersion(
+    checksumAlgorithm,
+    checksumType,
+    normalizeEtag(etag),
+    isLatest,
+    key,
+    modificationDate,
+    owner,
+    null,
+    size,
+    storageClass,
+    versionId,
+  )
+
+fun S3ObjectVersionSummary.toDeleteMarkerEntry(
+  isLatest: Boolean,
+  key: String = this.key,
+): DeleteMarkerEntry =
+  DeleteMarkerEntry(
+    isLatest,
+    key,
+    modificationDate,
+    owner,
+    versionId,
+  )
+
 fun S3ObjectMetadata.toCopyObjectResult(): CopyObjectResult =
   CopyObjectResult(
     checksumAlgorithm.ifAlgorithm(CRC32, checksum),
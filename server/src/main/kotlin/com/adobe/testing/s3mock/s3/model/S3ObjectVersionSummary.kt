@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.model
+
+import com.adobe.testing.s3mock.s3.dto.ChecksumAlgorithm
+import com.adobe.testing.s3mock.s3.dto.ChecksumType
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.StorageClass
+
+/**
+ * The fields of one version of an object that ListObjectVersions returns, kept in memory by the
+ * version index of the ObjectStore.
+ */
+data class S3ObjectVersionSummary(
+  val versionId: String,
+  val key: String,
+  val deleteMarker: Boolean,
+  val etag: String?,
+  val size: String,
+  val modificationDate: String,
+  val lastModified: Long,
+  val owner: Owner,
+  val storageClass: StorageClass?,
+  val checksumAlgorithm: ChecksumAlgorithm?,
+  val checksumType: ChecksumType?,
+) {
+  companion object {
+    fun from(metadata: S3ObjectMetadata): S3ObjectVersionSummary =
+      S3ObjectVersionSummary(
+        metadata.versionId ?: "null",
+        metadata.key,
+        metadata.deleteMarker,
+        metadata.etag,
+        metadata.size,
+        metadata.modificationDate,
+        metadata.lastModified,
+        metadata.owner,
+        metadata.storageClass,
+        metadata.checksumAlgorithm,
+        metadata.checksumType,
+      )
+  }
+}
@@ -38,23 +38,27 @@ import com.adobe.testing.s3mock.s3.dto.Region
 import com.adobe.testing.s3mock.s3.dto.S3Object
 import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
 import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectVersionSummary
 import com.adobe.testing.s3mock.s3.model.toBucket
 import com.adobe.testing.s3mock.s3.model.toDeleteMarkerEntry
 import com.adobe.testing.s3mock.s3.model.toObjectVersion
 import com.adobe.testing.s3mock.s3.model.toS3Object
 import com.adobe.testing.s3mock.s3.store.BucketStore
+import com.adobe.testing.s3mock.s3.store.MultipartStore
 import com.adobe.testing.s3mock.s3.store.ObjectStore
 import software.amazon.awssdk.utils.http.SdkHttpUtils.urlEncodeIgnoreSlashes
 import java.util.Base64
+import java.util.UUID
 import kotlin.let
 
 open class BucketService(
   private val bucketStore: BucketStore,
   private val objectStore: ObjectStore,
+  private val multipartStore: MultipartStore,
 ) : ServiceBase() {
   fun isBucketEmpty(bucketName: String): Boolean {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val objects = bucketMetadata.objects
+    val objects = bucketStore.getObjects(bucketName)
     if (objects.isEmpty()) return true
 
     return objects.values.none { id ->
@@ -70,25 +74,17 @@ open class BucketService(
     maxBuckets: Int,
     prefix: String?,
   ): ListAllMyBucketsResult {
-    val normalizedPrefix = prefix.orEmpty()
-
+    // one more than requested, to know if the listing is truncated
     var buckets =
       bucketStore
-        .listBuckets()
-        .filter { it.name.startsWith(normalizedPrefix) }
-        .sortedBy { it.name }
+        .listBuckets(prefix.orEmpty(), continuationToken?.let { decodeContinuationToken(it) })
+        .filter { bucketRegion == null || it.bucketRegion == bucketRegion.toString() }
+        .take(maxBuckets + 1)
         .map { it.toBucket() }
-
-    bucketRegion?.let {
-      buckets = buckets.filter { it.bucketRegion == it.toString() }
-    }
+        .toList()
 
     var nextContinuationToken: String? = null
 
-    continuationToken?.let {
-      buckets = filterBy(buckets, Bucket::name, decodeContinuationToken(it))
-    }
-
     if (buckets.size > maxBuckets) {
       buckets = buckets.subList(0, maxBuckets)
       nextContinuationToken = buckets[maxBuckets - 1].name?.let { encodeContinuationToken(it) }
@@ -118,24 +114,23 @@ open class BucketService(
       ).toBucket()
 
   fun deleteBucket(bucketName: String): Boolean {
-    var bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val objects = bucketMetadata.objects
+    val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
+    val objects = bucketStore.getObjects(bucketName)
 
     if (objects.isNotEmpty()) {
-      // snapshot to avoid concurrent modification while removing from store
-      for ((key, id) in objects.toList()) {
-        val meta = objectStore.getS3ObjectMetadata(bucketMetadata, id, null)
-        if (meta?.deleteMarker == true) {
-          // delete-marker objects "do not officially exist"
-          objectStore.doDeleteObject(bucketMetadata, id)
-          bucketStore.removeFromBucket(key, bucketName)
-        }
-      }
+      // delete-marker objects "do not officially exist"
+      val deleteMarkers =
+        objects.filter { (_, id) -> objectStore.getS3ObjectMetadata(bucketMetadata, id, null)?.deleteMarker == true }
+      deleteMarkers.values.forEach { objectStore.doDeleteObject(bucketMetadata, it) }
+      bucketStore.removeFromBucket(deleteMarkers.keys, bucketName)
     }
 
-    bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    check(bucketMetadata.objects.isEmpty()) { "Bucket is not empty: $bucketName" }
-    return bucketStore.deleteBucket(bucketName)
+    check(bucketStore.isBucketEmpty(bucketName)) { "Bucket is not empty: $bucketName" }
+    return bucketStore.deleteBucket(bucketName).also { deleted ->
+      if (deleted) {
+        multipartStore.removeMultipartUploads(bucketMetadata)
+      }
+    }
   }
 
   fun setVersioningConfiguration(
@@ -181,21 +176,11 @@ open class BucketService(
     return bucketMetadata.bucketLifecycleConfiguration ?: throw S3Exception.NO_SUCH_LIFECYCLE_CONFIGURATION
   }
 
-  fun getS3Objects(
-    bucketName: String,
-    prefix: String?,
-  ): List<S3Object> {
-    val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    return bucketStore
-      .lookupIdsInBucket(prefix, bucketName)
-      .mapNotNull { id -> objectStore.getS3ObjectMetadata(bucketMetadata, id, null) }
-      .map { it.toS3Object() }
-      .sortedBy(S3Object::key)
-  }
-
-  // listObjectsV1 is deprecated by AWS but must be supported for as long as AWS supports it;
-  // suppress the resulting call-site warning rather than removing the (still required) code.
-  @Suppress("DEPRECATION")
+  /**
+   * Lists the versions and delete markers of the objects in a bucket. Versions are passed to
+   * [onVersion] and delete markers to [onDeleteMarker] as they are read if given, instead of being
+   * collected in the result.
+   */
   fun listVersions(
     bucketName: String,
     prefix: String?,
@@ -204,52 +189,135 @@ open class BucketService(
     maxKeys: Int,
     keyMarker: String?,
     versionIdMarker: String?,
+    onVersion: ((ObjectVersion) -> Unit)? = null,
+    onDeleteMarker: ((DeleteMarkerEntry) -> Unit)? = null,
   ): ListVersionsResult {
-    // Pass null encodingType so listObjectsV1 returns decoded keys; bucket.getID() requires decoded keys.
-    // URL encoding is applied to the result fields below.
-    val result = listObjectsV1(bucketName, prefix, delimiter, keyMarker, null, maxKeys)
-
     val bucket = bucketStore.getBucketMetadata(bucketName)
+    if (!bucket.isVersioningEnabled) {
+      return listCurrentVersions(bucketName, prefix, delimiter, encodingType, maxKeys, keyMarker, versionIdMarker, onVersion)
+    }
+
+    // a key-marker with a version-id-marker continues within the versions of that key
+    val markerEntry =
+      keyMarker
+        ?.takeIf { !versionIdMarker.isNullOrEmpty() && it.startsWith(prefix.orEmpty()) }
+        ?.let { key -> bucketStore.findIdInBucket(key, bucket.name)?.let { ListingEntry.Key(key, it) } }
+    val entries =
+      listOfNotNull(markerEntry).asSequence() +
+        listEntries(bucketStore.getObjects(bucketName), prefix, delimiter, keyMarker?.takeIf { it.isNotEmpty() })
+
+    val commonPrefixes = mutableListOf<String>()
     val objectVersions = mutableListOf<ObjectVersion>()
     val deleteMarkers = mutableListOf<DeleteMarkerEntry>()
+    val addVersion: (ObjectVersion) -> Unit = onVersion ?: { objectVersions += it }
+    val addDeleteMarker: (DeleteMarkerEntry) -> Unit = onDeleteMarker ?: { deleteMarkers += it }
+    var count = 0
+    var isTruncated = false
+    var nextKeyMarker: String? = null
     var nextVersionIdMarker: String? = null
 
-    for (content in result.contents) {
-      if (nextVersionIdMarker != null) break
+    fun isFull() = count == maxKeys
 
-      val id = bucket.getID(content.key) ?: continue
-      if (bucket.isVersioningEnabled) {
-        val s3ObjectVersions = objectStore.getS3ObjectVersions(bucket, id)
-
-        for (s3ObjectVersion in s3ObjectVersions.versions.reversed()) {
-          val meta = objectStore.getS3ObjectMetadata(bucket, id, s3ObjectVersion) ?: continue
-          if (!meta.deleteMarker) {
-            if (objectVersions.size > maxKeys) {
-              nextVersionIdMarker = s3ObjectVersion
-              break
-            }
-            objectVersions += meta.toObjectVersion(s3ObjectVersions.latestVersion == s3ObjectVersion)
-          } else {
-            deleteMarkers += meta.toDeleteMarkerEntry(s3ObjectVersions.latestVersion == s3ObjectVersion)
-          }
+    // versions of each key newest first, read from the version index of the store
+    entries@ for (entry in entries) {
+      if (entry is ListingEntry.CommonPrefix) {
+        if (isFull()) {
+          isTruncated = maxKeys > 0
+          break
         }
-      } else {
-        objectVersions += ObjectVersion.from(content)
+        commonPrefixes += entry.name
+        count++
+        nextKeyMarker = entry.name
+        nextVersionIdMarker = null
+        continue
       }
+      val key = entry as ListingEntry.Key
+      val chain = versionChain(bucket, key.value).asReversed()
+      val versions = if (key === markerEntry) chain.dropWhile { it.versionId != versionIdMarker }.drop(1) else chain
+      for (version in versions) {
+        if (isFull()) {
+          isTruncated = maxKeys > 0
+          break@entries
+        }
+        val isLatest = version === chain.first()
+        val entryKey = encodeUrlIfRequested(version.key, encodingType)!!
+        if (version.deleteMarker) {
+          addDeleteMarker(version.toDeleteMarkerEntry(isLatest, entryKey))
+        } else {
+          addVersion(version.toObjectVersion(isLatest, entryKey))
+        }
+        count++
+        nextKeyMarker = key.name
+        nextVersionIdMarker = version.versionId
+      }
+    }
+    if (!isTruncated) {
+      nextKeyMarker = null
+      nextVersionIdMarker = null
+    }
+
+    return ListVersionsResult(
+      encodeUrlIfRequested(commonPrefixes, encodingType).map { Prefix(it) },
+      deleteMarkers,
+      encodeUrlIfRequested(delimiter, encodingType),
+      encodingType,
+      isTruncated,
+      encodeUrlIfRequested(keyMarker, encodingType),
+      maxKeys,
+      bucketName,
+      encodeUrlIfRequested(nextKeyMarker, encodingType),
+      encodeUrlIfRequested(nextVersionIdMarker, encodingType),
+      encodeUrlIfRequested(prefix, encodingType),
+      objectVersions,
+      encodeUrlIfRequested(versionIdMarker, encodingType),
+    )
+  }
+
+  /**
+   * Versions of [id], oldest first. Objects stored before versioning was enabled have a single
+   * "null" version.
+   */
+  private fun versionChain(
+    bucket: BucketMetadata,
+    id: UUID,
+  ): List<S3ObjectVersionSummary> =
+    objectStore.getS3ObjectVersionChain(bucket, id).ifEmpty {
+      listOfNotNull(objectStore.getS3ObjectMetadata(bucket, id, null)?.let { S3ObjectVersionSummary.from(it) })
     }
 
+  /**
+   * ListObjectVersions for buckets without versioning: the current object of each key is its only
+   * version. listObjectsV1 is deprecated by AWS but must be supported for as long as AWS supports
+   * it, so the resulting call-site warning is suppressed.
+   */
+  @Suppress("DEPRECATION")
+  private fun listCurrentVersions(
+    bucketName: String,
+    prefix: String?,
+    delimiter: String?,
+    encodingType: String?,
+    maxKeys: Int,
+    keyMarker: String?,
+    versionIdMarker: String?,
+    onVersion: ((ObjectVersion) -> Unit)?,
+  ): ListVersionsResult {
+    val objectVersions = mutableListOf<ObjectVersion>()
+    val addVersion: (ObjectVersion) -> Unit = onVersion ?: { objectVersions += it }
+    // Pass null encodingType so listObjectsV1 returns decoded keys.
+    // URL encoding is applied to the versions and the result fields below.
+    val result =
+      listObjectsV1(bucketName, prefix, delimiter, keyMarker, null, maxKeys) {
+        addVersion(ObjectVersion.from(it, encodeUrlIfRequested(it.key, encodingType)!!))
+      }
+
     val returnCommonPrefixes =
       result.commonPrefixes?.let { prefixes ->
         encodeUrlIfRequested(prefixes, encodingType) { it.copy(prefix = urlEncodeIgnoreSlashes(it.prefix ?: "")) }
       }
-    val returnObjectVersions =
-      encodeUrlIfRequested(objectVersions, encodingType) { it.copy(key = it.key?.let { k -> urlEncodeIgnoreSlashes(k) }) }
-    val returnDeleteMarkers =
-      encodeUrlIfRequested(deleteMarkers, encodingType) { it.copy(key = it.key?.let { k -> urlEncodeIgnoreSlashes(k) }) }
 
     return ListVersionsResult(
       returnCommonPrefixes,
-      returnDeleteMarkers,
+      emptyList(),
       encodeUrlIfRequested(delimiter, encodingType),
       encodingType,
       result.isTruncated,
@@ -257,13 +325,17 @@ open class BucketService(
       result.maxKeys,
       result.name,
       encodeUrlIfRequested(result.nextMarker, encodingType),
-      encodeUrlIfRequested(nextVersionIdMarker, encodingType),
+      null,
       encodeUrlIfRequested(result.prefix, encodingType),
-      returnObjectVersions,
+      objectVersions,
       encodeUrlIfRequested(versionIdMarker, encodingType),
     )
   }
 
+  /**
+   * Lists the objects in a bucket. Objects are passed to [onObject] as they are read if given,
+   * instead of being collected in the result.
+   */
   fun listObjectsV2(
     bucketName: String,
     prefix: String?,
@@ -273,6 +345,7 @@ open class BucketService(
     maxKeys: Int,
     continuationToken: String?,
     fetchOwner: Boolean,
+    onObject: ((S3Object) -> Unit)? = null,
   ): ListBucketResultV2 {
     if (maxKeys == 0) {
       return ListBucketResultV2(
@@ -291,35 +364,17 @@ open class BucketService(
       )
     }
 
-    var contents = getS3Objects(bucketName, prefix)
-
-    if (!fetchOwner) {
-      contents = contents.map { it.copy(owner = null, restoreStatus = null) }
-    }
-
-    var nextContinuationToken: String? = null
-    var isTruncated = false
-
-    if (continuationToken != null) {
-      contents = filterBy(contents, S3Object::key, decodeContinuationToken(continuationToken))
-    } else {
-      contents = filterBy(contents, S3Object::key, startAfter)
-    }
-
-    val commonPrefixes = collapseCommonPrefixes(prefix, delimiter, contents, S3Object::key)
-    contents = filterBy(contents, S3Object::key, commonPrefixes)
-
-    if (contents.size > maxKeys) {
-      isTruncated = true
-      contents = contents.subList(0, maxKeys)
-      nextContinuationToken = encodeContinuationToken(contents[maxKeys - 1].key)
-    }
+    val marker = if (continuationToken != null) decodeContinuationToken(continuationToken) else startAfter
+    val page = listPage(bucketName, prefix, delimiter, marker, maxKeys, encodingType, fetchOwner, onObject)
+    val contents = page.contents
+    val commonPrefixes = page.commonPrefixes
+    val isTruncated = page.isTruncated
+    val nextContinuationToken = page.nextMarker?.let { encodeContinuationToken(it) }
 
     val returnDelimiter = encodeUrlIfRequested(delimiter, encodingType)
     val returnPrefix = encodeUrlIfRequested(prefix, encodingType)
     val returnStartAfter = encodeUrlIfRequested(startAfter, encodingType)
     val returnCommonPrefixes = encodeUrlIfRequested(commonPrefixes, encodingType)
-    contents = encodeUrlIfRequested(contents, encodingType) { it.copy(key = urlEncodeIgnoreSlashes(it.key)) }
 
     return ListBucketResultV2(
       returnCommonPrefixes.map { Prefix(it) },
@@ -328,7 +383,7 @@ open class BucketService(
       returnDelimiter,
       encodingType,
       isTruncated,
-      contents.size.toString(),
+      page.keyCount.toString(),
       maxKeys,
       bucketName,
       nextContinuationToken,
@@ -337,6 +392,10 @@ open class BucketService(
     )
   }
 
+  /**
+   * Lists the objects in a bucket. Objects are passed to [onObject] as they are read if given,
+   * instead of being collected in the result.
+   */
   @Deprecated("Long since replaced by listObjectsV2")
   fun listObjectsV1(
     bucketName: String,
@@ -345,6 +404,7 @@ open class BucketService(
     marker: String?,
     encodingType: String?,
     maxKeys: Int,
+    onObject: ((S3Object) -> Unit)? = null,
   ): ListBucketResult {
     if (maxKeys == 0) {
       return ListBucketResult(
@@ -361,26 +421,14 @@ open class BucketService(
       )
     }
 
-    var contents = getS3Objects(bucketName, prefix)
-    contents = filterBy(contents, S3Object::key, marker)
-
-    var isTruncated = false
-    var nextMarker: String? = null
-
-    val commonPrefixes = collapseCommonPrefixes(prefix, delimiter, contents, S3Object::key)
-    contents = filterBy(contents, S3Object::key, commonPrefixes)
-
-    if (maxKeys < contents.size) {
-      contents = contents.subList(0, maxKeys)
-      isTruncated = true
-      if (maxKeys > 0) {
-        nextMarker = contents[maxKeys - 1].key
-      }
-    }
+    val page = listPage(bucketName, prefix, delimiter, marker, maxKeys, encodingType, onObject = onObject)
+    val contents = page.contents
+    val commonPrefixes = page.commonPrefixes
+    val isTruncated = page.isTruncated
+    val nextMarker = page.nextMarker
 
     val returnPrefix = encodeUrlIfRequested(prefix, encodingType)
     val returnCommonPrefixes = encodeUrlIfRequested(commonPrefixes, encodingType)
-    contents = encodeUrlIfRequested(contents, encodingType) { it.copy(key = urlEncodeIgnoreSlashes(it.key)) }
 
     return ListBucketResult(
       returnCommonPrefixes.map { Prefix(it) },
@@ -396,6 +444,72 @@ open class BucketService(
     )
   }
 
+  private class ListingPage(
+    val contents: List<S3Object>,
+    val commonPrefixes: List<String>,
+    val keyCount: Int,
+    val isTruncated: Boolean,
+    val nextMarker: String?,
+  )
+
+  /**
+   * First [maxKeys] objects and common prefixes after [marker], walking the sorted keys of the
+   * bucket so that only the metadata of listed objects is read.
+   * Objects are created with their key encoded as requested by [encodingType] and passed to
+   * [onObject] as they are read, or collected in the page without it. Common prefixes and the next
+   * marker are returned as stored.
+   */
+  private fun listPage(
+    bucketName: String,
+    prefix: String?,
+    delimiter: String?,
+    marker: String?,
+    maxKeys: Int,
+    encodingType: String?,
+    fetchOwner: Boolean = true,
+    onObject: ((S3Object) -> Unit)? = null,
+  ): ListingPage {
+    val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
+    val entries =
+      listEntries(bucketStore.getObjects(bucketName), prefix, delimiter, marker)
+        .mapNotNull { entry ->
+          when (entry) {
+            is ListingEntry.Key -> {
+              objectStore
+                .getS3ObjectMetadata(bucketMetadata, entry.value, null)
+                ?.let {
+                  val s3Object = it.toS3Object(encodeUrlIfRequested(it.key, encodingType)!!, it.owner.takeIf { fetchOwner })
+                  ListingEntry.Key(entry.name, s3Object)
+                }
+            }
+
+            is ListingEntry.CommonPrefix -> {
+              entry
+            }
+          }
+        }
+    val contents = mutableListOf<S3Object>()
+    val addObject: (S3Object) -> Unit = onObject ?: { contents += it }
+    val commonPrefixes = mutableListOf<String>()
+    var keyCount = 0
+    var isTruncated = false
+    var lastName: String? = null
+    for (entry in entries) {
+      // one more entry than requested tells whether the result is truncated
+      if (keyCount == maxKeys) {
+        isTruncated = true
+        break
+      }
+      when (entry) {
+        is ListingEntry.Key -> addObject(entry.value)
+        is ListingEntry.CommonPrefix -> commonPrefixes += entry.name
+      }
+      keyCount++
+      lastName = entry.name
+    }
+    return ListingPage(contents, commonPrefixes, keyCount, isTruncated, lastName.takeIf { isTruncated })
+  }
+
   fun bucketLocationHeaders(bucketMetadata: BucketMetadata): Map<String, String> {
     val info = bucketMetadata.bucketInfo
     val loc = bucketMetadata.locationInfo
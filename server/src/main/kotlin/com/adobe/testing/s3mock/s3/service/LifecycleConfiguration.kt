@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.service
+
+import com.adobe.testing.s3mock.s3.store.BucketStore
+import com.adobe.testing.s3mock.s3.store.MultipartStore
+import com.adobe.testing.s3mock.s3.store.ObjectStore
+import com.adobe.testing.s3mock.s3.store.StoreProperties
+import org.springframework.boot.context.properties.EnableConfigurationProperties
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import org.springframework.context.annotation.Lazy
+
+@Configuration
+@EnableConfigurationProperties(StoreProperties::class)
+class LifecycleConfiguration {
+  /**
+   * Created eagerly, so that lifecycle rules are executed without waiting for the first request.
+   */
+  @Bean
+  @Lazy(false)
+  fun lifecycleService(
+    bucketStore: BucketStore,
+    objectStore: ObjectStore,
+    multipartStore: MultipartStore,
+    objectService: ObjectService,
+    multipartService: MultipartService,
+    storeProperties: StoreProperties,
+  ): LifecycleService =
+    LifecycleService(
+      bucketStore,
+      objectStore,
+      multipartStore,
+      objectService,
+      multipartService,
+      storeProperties.lifecycleInterval,
+      storeProperties.lifecycleTimeAcceleration,
+      storeProperties.lifecycleKeysPerRun,
+    )
+}
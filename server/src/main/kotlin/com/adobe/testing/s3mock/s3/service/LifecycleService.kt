@@ -0,0 +1,273 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.service
+
+import com.adobe.testing.s3mock.s3.dto.Delete
+import com.adobe.testing.s3mock.s3.dto.LegalHold
+import com.adobe.testing.s3mock.s3.dto.LifecycleRule
+import com.adobe.testing.s3mock.s3.dto.LifecycleRuleFilter
+import com.adobe.testing.s3mock.s3.dto.S3ObjectIdentifier
+import com.adobe.testing.s3mock.s3.dto.Tag
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import com.adobe.testing.s3mock.s3.store.BucketStore
+import com.adobe.testing.s3mock.s3.store.MultipartStore
+import com.adobe.testing.s3mock.s3.store.ObjectStore
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.DisposableBean
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Executes the lifecycle rules of all buckets: `Expiration`, `NoncurrentVersionExpiration` and
+ * `AbortIncompleteMultipartUpload`. Transitions are ignored, S3Mock has only one storage class.
+ *
+ * Every [interval], each bucket with enabled rules is evaluated incrementally: at most
+ * [keysPerRun] keys are read per bucket and run, the next run continues after the last key.
+ * Expired objects and versions are deleted in batches through [ObjectService.deleteObjects].
+ * Versions under legal hold or retention are kept.
+ *
+ * Ages are multiplied by [timeAcceleration], e.g. with `86400`, a day passes in a second.
+ * Unlike S3, ages are not rounded up to the next midnight.
+ */
+open class LifecycleService(
+  private val bucketStore: BucketStore,
+  private val objectStore: ObjectStore,
+  private val multipartStore: MultipartStore,
+  private val objectService: ObjectService,
+  private val multipartService: MultipartService,
+  private val interval: Duration = Duration.ZERO,
+  private val timeAcceleration: Long = 1,
+  private val keysPerRun: Int = DEFAULT_KEYS_PER_RUN,
+  private val clock: Clock = Clock.systemUTC(),
+) : DisposableBean {
+  // last key evaluated per bucket
+  private val cursors = ConcurrentHashMap<String, String>()
+  private val executor: ScheduledExecutorService? =
+    if (!interval.isZero && !interval.isNegative) {
+      Executors
+        .newSingleThreadScheduledExecutor { Thread(it, "s3mock-lifecycle").apply { isDaemon = true } }
+        .also { it.scheduleWithFixedDelay(::runSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS) }
+    } else {
+      null
+    }
+
+  /**
+   * Evaluates the rules of all buckets once.
+   */
+  fun run() {
+    val now = clock.instant()
+    bucketStore.listBuckets().forEach { bucket ->
+      val rules =
+        bucket.bucketLifecycleConfiguration
+          ?.rules
+          .orEmpty()
+          .filter { it.status == LifecycleRule.Status.ENABLED }
+      if (rules.isEmpty()) {
+        cursors.remove(bucket.name)
+      } else {
+        expireObjects(bucket, rules, now)
+        abortMultipartUploads(bucket, rules, now)
+      }
+    }
+  }
+
+  override fun destroy() {
+    executor?.shutdownNow()
+  }
+
+  private fun runSafely() {
+    try {
+      run()
+    } catch (e: RuntimeException) {
+      LOG.warn("Could not execute lifecycle rules.", e)
+    }
+  }
+
+  private fun expireObjects(
+    bucket: BucketMetadata,
+    rules: List<LifecycleRule>,
+    now: Instant,
+  ) {
+    val objectRules = rules.filter { it.expiration != null || it.noncurrentVersionExpiration != null }
+    if (objectRules.isEmpty()) {
+      return
+    }
+    val keys = bucketStore.getObjects(bucket.name)
+    val cursor = cursors[bucket.name]
+    val batch =
+      (if (cursor == null) keys else keys.tailMap(cursor, false))
+        .entries
+        .take(keysPerRun)
+    if (batch.size < keysPerRun) {
+      // reached the end, start over with the next run
+      cursors.remove(bucket.name)
+    } else {
+      cursors[bucket.name] = batch.last().key
+    }
+
+    val expired = batch.flatMap { (key, id) -> expiredVersions(bucket, key, id, objectRules, now) }
+    expired.chunked(MAX_DELETE_BATCH_SIZE).forEach {
+      objectService.deleteObjects(bucket.name, Delete(it, true))
+    }
+    if (expired.isNotEmpty()) {
+      LOG.info("Expired {} objects or versions in bucket {}.", expired.size, bucket.name)
+    }
+  }
+
+  /**
+   * Objects and versions of [key] to delete. A `null` version deletes the current version, which
+   * inserts a delete marker in versioned buckets.
+   */
+  private fun expiredVersions(
+    bucket: BucketMetadata,
+    key: String,
+    id: UUID,
+    rules: List<LifecycleRule>,
+    now: Instant,
+  ): List<S3ObjectIdentifier> {
+    val versionIds =
+      if (bucket.isVersioningEnabled) {
+        objectStore.getS3ObjectVersionChain(bucket, id).map { it.versionId }
+      } else {
+        emptyList()
+      }
+    val current =
+      objectStore.getS3ObjectMetadata(bucket, id, versionIds.lastOrNull())
+        ?: return emptyList()
+    val expired = mutableListOf<S3ObjectIdentifier>()
+
+    rules.filter { matches(it.filter, current) }.mapNotNull { it.expiration }.forEach { expiration ->
+      if (current.deleteMarker) {
+        // a delete marker without noncurrent versions is an expired object delete marker
+        if (expiration.expiredObjectDeleteMarker == true && versionIds.size == 1) {
+          expired += identifier(key, current.versionId)
+        }
+      } else if (
+        expiration.days?.let { isOlderThan(current.lastModified, it, now) } == true ||
+        expiration.date?.let { !now.isBefore(it) } == true
+      ) {
+        expired += identifier(key, null)
+      }
+    }
+
+    val noncurrentRules = rules.filter { it.noncurrentVersionExpiration != null }
+    if (versionIds.size > 1 && noncurrentRules.isNotEmpty()) {
+      // newest first, each version became noncurrent when the next newer one was created
+      val noncurrentVersions =
+        versionIds
+          .reversed()
+          .mapNotNull { objectStore.getS3ObjectMetadata(bucket, id, it) }
+          .zipWithNext { newer, older -> older to newer.lastModified }
+      noncurrentRules.forEach { rule ->
+        val noncurrentExpiration = rule.noncurrentVersionExpiration!!
+        // tags and sizes differ between versions, the filter applies to each noncurrent version
+        noncurrentVersions
+          .filter { (older, _) -> matches(rule.filter, older) }
+          .drop(noncurrentExpiration.newerNoncurrentVersions ?: 0)
+          .filter { (older, noncurrentSince) ->
+            noncurrentExpiration.noncurrentDays?.let { isOlderThan(noncurrentSince, it, now) } == true &&
+              !isLocked(older, now)
+          }.forEach { (older, _) -> expired += identifier(key, older.versionId) }
+      }
+    }
+    return expired.distinct()
+  }
+
+  private fun abortMultipartUploads(
+    bucket: BucketMetadata,
+    rules: List<LifecycleRule>,
+    now: Instant,
+  ) {
+    val abortRules = rules.filter { it.abortIncompleteMultipartUpload?.daysAfterInitiation != null }
+    if (abortRules.isEmpty()) {
+      return
+    }
+    multipartStore
+      .listMultipartUploads(bucket, null)
+      .filter { upload ->
+        val initiated = upload.initiated ?: return@filter false
+        abortRules.any { rule ->
+          upload.key.startsWith(prefix(rule.filter)) &&
+            isOlderThan(initiated.toEpochMilli(), rule.abortIncompleteMultipartUpload!!.daysAfterInitiation!!, now)
+        }
+      }.forEach { upload ->
+        LOG.info("Aborting incomplete multipart upload {} of key {} in bucket {}.", upload.uploadId, upload.key, bucket.name)
+        multipartService.abortMultipartUpload(bucket.name, upload.key, UUID.fromString(upload.uploadId))
+      }
+  }
+
+  private fun isOlderThan(
+    epochMillis: Long,
+    days: Int,
+    now: Instant,
+  ): Boolean =
+    Duration
+      .between(Instant.ofEpochMilli(epochMillis), now)
+      .multipliedBy(timeAcceleration) >= Duration.ofDays(days.toLong())
+
+  private fun isLocked(
+    version: S3ObjectMetadata,
+    now: Instant,
+  ): Boolean =
+    version.legalHold?.status == LegalHold.Status.ON ||
+      version.retention?.retainUntilDate?.isAfter(now) == true
+
+  private fun identifier(
+    key: String,
+    versionId: String?,
+  ) = S3ObjectIdentifier(key, null, null, null, versionId)
+
+  companion object {
+    const val DEFAULT_KEYS_PER_RUN = 10000
+
+    // the maximum number of keys of a DeleteObjects request
+    private const val MAX_DELETE_BATCH_SIZE = 1000
+    private val LOG: Logger = LoggerFactory.getLogger(LifecycleService::class.java)
+
+    private fun prefix(filter: LifecycleRuleFilter?): String = filter?.prefix ?: filter?.and?.prefix ?: ""
+
+    /**
+     * Whether [metadata] matches [filter], a rule without filter applies to all objects.
+     */
+    private fun matches(
+      filter: LifecycleRuleFilter?,
+      metadata: S3ObjectMetadata,
+    ): Boolean {
+      if (filter == null) {
+        return true
+      }
+      val size = metadata.size.toLongOrNull() ?: 0L
+      val and = filter.and
+      return metadata.key.startsWith(prefix(filter)) &&
+        hasTags(metadata, filter.tags.orEmpty() + and?.tags.orEmpty()) &&
+        listOfNotNull(filter.objectSizeGreaterThan, and?.objectSizeGreaterThan).all { size > it } &&
+        listOfNotNull(filter.objectSizeLessThan, and?.objectSizeLessThan).all { size < it }
+    }
+
+    private fun hasTags(
+      metadata: S3ObjectMetadata,
+      tags: List<Tag>,
+    ): Boolean = metadata.tags.orEmpty().containsAll(tags)
+  }
+}
@@ -58,7 +58,7 @@ open class MultipartService(
     checksumAlgorithm: ChecksumAlgorithm? = null,
   ): String? {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val uuid = bucketMetadata.getID(key) ?: return null
+    val uuid = bucketStore.findIdInBucket(key, bucketMetadata.name) ?: return null
     return multipartStore.putPart(
       bucketMetadata,
       uuid,
@@ -84,7 +84,7 @@ open class MultipartService(
   ): CopyPartResult? {
     val sourceBucketMetadata = bucketStore.getBucketMetadata(bucketName)
     val destinationBucketMetadata = bucketStore.getBucketMetadata(destinationBucket)
-    val sourceId = sourceBucketMetadata.getID(key) ?: return null
+    val sourceId = bucketStore.findIdInBucket(key, sourceBucketMetadata.name) ?: return null
     // source must be copied to destination
     val destinationId = bucketStore.addKeyToBucket(destinationKey, destinationBucket)
     try {
@@ -121,16 +121,18 @@ open class MultipartService(
   ): ListPartsResult? {
     verifyMaxParts(maxParts)
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val id = bucketMetadata.getID(key) ?: return null
+    val id = bucketStore.findIdInBucket(key, bucketMetadata.name) ?: return null
     val multipartUpload = multipartStore.getMultipartUpload(bucketMetadata, uploadId, false)
-    var parts = multipartStore.getMultipartUploadParts(bucketMetadata, id, uploadId)
-
-    parts = filterBy(parts, Part::partNumber, partNumberMarker)
+    // one more part than requested tells whether the result is truncated
+    var parts =
+      if (maxParts == 0) {
+        emptyList()
+      } else {
+        multipartStore.listParts(bucketMetadata, uploadId, partNumberMarker, maxParts.coerceAtMost(Int.MAX_VALUE - 1) + 1)
+      }
 
     var isTruncated = false
-    if (maxParts == 0) {
-      parts = emptyList()
-    } else if (parts.size > maxParts) {
+    if (parts.size > maxParts) {
       parts = parts.subList(0, maxParts)
       isTruncated = true
     }
@@ -178,7 +180,7 @@ open class MultipartService(
     checksumAlgorithm: ChecksumAlgorithm?,
   ): CompleteMultipartUploadResult? {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val id = bucketMetadata.getID(key) ?: return null
+    val id = bucketStore.findIdInBucket(key, bucketMetadata.name) ?: return null
     val multipartUploadInfo = multipartStore.getMultipartUploadInfo(bucketMetadata, uploadId)
     return multipartStore
       .completeMultipartUpload(
@@ -253,6 +255,11 @@ open class MultipartService(
     }
   }
 
+  /**
+   * Pages through the registry of active uploads: the walk starts after the [uploadIdMarker]
+   * within the uploads of [keyMarker], continues with the keys after [keyMarker] and stops once
+   * [maxUploads] uploads and common prefixes have been collected.
+   */
   fun listMultipartUploads(
     bucketName: String,
     delimiter: String?,
@@ -266,42 +273,59 @@ open class MultipartService(
     var nextKeyMarker: String? = null
     var nextUploadIdMarker: String? = null
     var isTruncated = false
-    val normalizedPrefix = prefix ?: ""
 
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    var contents =
-      multipartStore
-        .listMultipartUploads(bucketMetadata, prefix)
-        .filter { it.key.startsWith(normalizedPrefix) }
-        .sortedBy(MultipartUpload::key)
-        .toList()
+    val uploadsByKey = multipartStore.getMultipartUploads(bucketMetadata)
+    // an upload-id-marker continues within the uploads of the key-marker
+    val markerEntry =
+      keyMarker
+        ?.takeIf { !uploadIdMarker.isNullOrEmpty() && it.startsWith(prefix.orEmpty()) }
+        ?.let { key ->
+          uploadsByKey[key]?.let { uploads -> ListingEntry.Key(key, uploads.dropWhile { it.uploadId != uploadIdMarker }.drop(1)) }
+        }
+    val entries =
+      listOfNotNull(markerEntry).asSequence() +
+        listEntries(uploadsByKey, prefix, delimiter, keyMarker?.takeIf { it.isNotEmpty() })
 
-    contents = filterBy(contents, MultipartUpload::key, keyMarker)
+    val contents = mutableListOf<MultipartUpload>()
+    val commonPrefixes = mutableListOf<String>()
 
-    val commonPrefixes =
-      collapseCommonPrefixes(
-        prefix,
-        delimiter,
-        contents,
-        MultipartUpload::key,
-      )
-    contents = filterBy(contents, MultipartUpload::key, commonPrefixes)
+    fun isFull() = contents.size + commonPrefixes.size == maxUploads
+
+    entries@ for (entry in entries) {
+      if (entry is ListingEntry.CommonPrefix) {
+        if (isFull()) {
+          isTruncated = maxUploads > 0
+          break
+        }
+        commonPrefixes += entry.name
+        nextKeyMarker = entry.name
+        nextUploadIdMarker = null
+        continue
+      }
+      for (upload in (entry as ListingEntry.Key).value) {
+        if (isFull()) {
+          isTruncated = maxUploads > 0
+          break@entries
+        }
+        contents += upload
+        nextKeyMarker = upload.key
+        nextUploadIdMarker = upload.uploadId
+      }
+    }
     if (maxUploads == 0) {
-      contents = emptyList()
       nextKeyMarker = keyMarker ?: ""
       nextUploadIdMarker = uploadIdMarker ?: ""
-    } else if (maxUploads < contents.size) {
-      contents = contents.subList(0, maxUploads)
-      isTruncated = true
-      nextKeyMarker = contents.lastOrNull()?.key
-      nextUploadIdMarker = contents.lastOrNull()?.uploadId
+    } else if (!isTruncated) {
+      nextKeyMarker = null
+      nextUploadIdMarker = null
     }
 
     val returnDelimiter = encodeUrlIfRequested(delimiter, encodingType)
     val returnKeyMarker = encodeUrlIfRequested(keyMarker, encodingType)
     val returnPrefix = encodeUrlIfRequested(prefix, encodingType)
     val returnCommonPrefixes = encodeUrlIfRequested(commonPrefixes, encodingType)
-    contents = encodeUrlIfRequested(contents, encodingType) { it.copy(key = urlEncodeIgnoreSlashes(it.key)) }
+    val returnContents = encodeUrlIfRequested(contents, encodingType) { it.copy(key = urlEncodeIgnoreSlashes(it.key)) }
     nextKeyMarker = encodeUrlIfRequested(nextKeyMarker, encodingType)
 
     return ListMultipartUploadsResult(
@@ -315,7 +339,7 @@ open class MultipartService(
       nextKeyMarker,
       nextUploadIdMarker,
       returnPrefix,
-      contents,
+      returnContents,
       uploadIdMarker,
     )
   }
@@ -345,7 +369,7 @@ open class MultipartService(
     requestedParts: List<CompletedPart>,
   ) {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val id = bucketMetadata.getID(key) ?: throw S3Exception.INVALID_PART
+    val id = bucketStore.findIdInBucket(key, bucketMetadata.name) ?: throw S3Exception.INVALID_PART
     verifyMultipartParts(bucketName, id, uploadId)
 
     val uploadedParts: List<Part> = multipartStore.getMultipartUploadParts(bucketMetadata, id, uploadId)
@@ -34,8 +34,10 @@ import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
 import com.adobe.testing.s3mock.s3.store.BucketStore
 import com.adobe.testing.s3mock.s3.store.ObjectStore
 import com.adobe.testing.s3mock.s3.util.DigestUtil.base64Digest
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+import org.springframework.http.HttpHeaders
 import java.io.IOException
 import java.io.InputStream
 import java.nio.file.Path
@@ -46,6 +48,10 @@ import java.util.UUID
 open class ObjectService(
   private val bucketStore: BucketStore,
   private val objectStore: ObjectStore,
+  /**
+   * Objects up to this size are received and served from memory.
+   */
+  private val smallObjectThreshold: Long = 0L,
 ) : ServiceBase() {
   fun copyObject(
     sourceBucketName: String,
@@ -60,7 +66,7 @@ open class ObjectService(
   ): S3ObjectMetadata? {
     val sourceBucketMetadata = bucketStore.getBucketMetadata(sourceBucketName)
     val destinationBucketMetadata = bucketStore.getBucketMetadata(destinationBucketName)
-    val sourceId = sourceBucketMetadata.getID(sourceKey) ?: return null
+    val sourceId = bucketStore.findIdInBucket(sourceKey, sourceBucketMetadata.name) ?: return null
 
     // source and destination are the same, pretend we copied - S3 does the same.
     if (sourceKey == destinationKey && sourceBucketName == destinationBucketName) {
@@ -102,7 +108,7 @@ open class ObjectService(
     key: String,
     contentType: String,
     storeHeaders: Map<String, String>,
-    path: Path,
+    content: ObjectContent,
     userMetadata: Map<String, String>,
     encryptionHeaders: Map<String, String>,
     tags: List<Tag>?,
@@ -112,14 +118,14 @@ open class ObjectService(
     storageClass: StorageClass?,
   ): S3ObjectMetadata {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val id = bucketMetadata.getID(key) ?: bucketStore.addKeyToBucket(key, bucketName)
+    val id = bucketStore.findIdInBucket(key, bucketName) ?: bucketStore.addKeyToBucket(key, bucketName)
     return objectStore.storeS3ObjectMetadata(
       bucketMetadata,
       id,
       key,
       contentType,
       storeHeaders,
-      path,
+      content,
       userMetadata,
       encryptionHeaders,
       null,
@@ -132,21 +138,64 @@ open class ObjectService(
     )
   }
 
+  /**
+   * Receives the body of a PutObject request, in memory if it is small enough to be served from
+   * memory later on, otherwise into a temp file.
+   */
+  fun receive(
+    inputStream: InputStream,
+    httpHeaders: HttpHeaders,
+  ): Pair<ObjectContent, String?> = receive(inputStream, httpHeaders, smallObjectThreshold)
+
+  /**
+   * The data of [s3ObjectMetadata] from [start] on, [length] bytes long, if the object is small
+   * enough to be served from memory. Returns `null` for all other objects, which are streamed from
+   * disk by the caller.
+   */
+  fun getSmallObjectData(
+    s3ObjectMetadata: S3ObjectMetadata,
+    start: Long = 0L,
+    length: Long = s3ObjectMetadata.size.toLong(),
+  ): ByteArray? {
+    val size = s3ObjectMetadata.size.toLong()
+    if (smallObjectThreshold <= 0 || size > smallObjectThreshold) {
+      return null
+    }
+    val data = objectStore.readObjectData(s3ObjectMetadata)
+    return if (start == 0L && length == size) data else data.copyOfRange(start.toInt(), (start + length).toInt())
+  }
+
+  /**
+   * Deletes all objects in [delete] as a batch: the bucket metadata is read once, the objects are
+   * deleted one after another, and all keys that are gone are removed from the bucket with a single
+   * [BucketStore.removeFromBucket] update, which keeps keys stored again in the meantime.
+   */
   fun deleteObjects(
     bucketName: String,
     delete: Delete,
   ): DeleteResult {
+    val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
+    val ids = mutableMapOf<String, UUID>()
+    val results =
+      delete.objectsToDelete.map { toDelete ->
+        try {
+          val id = bucketStore.findIdInBucket(toDelete.key, bucketMetadata.name)
+          val outcome = deleteFromStore(bucketMetadata, id, toDelete.versionId)
+          if (outcome.deleted && id != null) ids[toDelete.key] = id
+          toDelete to outcome
+        } catch (e: IllegalStateException) {
+          LOG.error("Object could not be deleted!", e)
+          toDelete to null
+        }
+      }
+
+    // keys stored again since they were deleted are kept
+    bucketStore.removeFromBucket(ids, bucketName)
+
     val deleted = mutableListOf<DeletedS3Object>()
     val errors = mutableListOf<Error>()
-    delete.objectsToDelete.forEach { toDelete ->
-      try {
-        // ignore result of delete object.
-        deleteObject(bucketName, toDelete.key, toDelete.versionId)
-        // add deleted object even if it does not exist S3 does the same.
-        if (!delete.quiet) {
-          deleted.add(DeletedS3Object.from(toDelete))
-        }
-      } catch (e: IllegalStateException) {
+    results.forEach { (toDelete, outcome) ->
+      if (outcome == null) {
         errors.add(
           Error(
             "InternalError",
@@ -155,7 +204,9 @@ open class ObjectService(
             toDelete.versionId,
           ),
         )
-        LOG.error("Object could not be deleted!", e)
+      } else if (!delete.quiet) {
+        // add deleted object even if it does not exist S3 does the same.
+        deleted.add(DeletedS3Object.from(toDelete))
       }
     }
     return DeleteResult(deleted, errors)
@@ -167,18 +218,29 @@ open class ObjectService(
     versionId: String?,
   ): DeleteOutcome {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val id = bucketMetadata.getID(key) ?: return DeleteOutcome(deleted = false, isDeleteMarker = false)
+    val outcome = deleteFromStore(bucketMetadata, bucketStore.findIdInBucket(key, bucketName), versionId)
+    if (!outcome.deleted) {
+      return outcome
+    }
+    return outcome.copy(deleted = bucketStore.removeFromBucket(key, bucketName))
+  }
+
+  /**
+   * Deletes the object or version from the object store, but leaves the key in the bucket.
+   * [DeleteOutcome.deleted] tells whether the key has to be removed from the bucket.
+   */
+  private fun deleteFromStore(
+    bucketMetadata: BucketMetadata,
+    id: UUID?,
+    versionId: String?,
+  ): DeleteOutcome {
+    if (id == null) return DeleteOutcome(deleted = false, isDeleteMarker = false)
 
     // Read before delete: tells us whether this version is itself a delete marker, and whether
     // the object exists at all (needed to distinguish "not found" from "delete marker created").
     val metaBefore = objectStore.getS3ObjectMetadata(bucketMetadata, id, versionId)
 
-    val removed =
-      if (objectStore.deleteObject(bucketMetadata, id, versionId)) {
-        bucketStore.removeFromBucket(key, bucketName)
-      } else {
-        false
-      }
+    val deleted = objectStore.deleteObject(bucketMetadata, id, versionId, metaBefore)
 
     val isDeleteMarker =
       when {
@@ -194,7 +256,7 @@ open class ObjectService(
         else -> false
       }
 
-    return DeleteOutcome(deleted = removed, isDeleteMarker = isDeleteMarker)
+    return DeleteOutcome(deleted = deleted, isDeleteMarker = isDeleteMarker)
   }
 
   fun getObject(
@@ -203,7 +265,7 @@ open class ObjectService(
     versionId: String?,
   ): S3ObjectMetadata? {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    val uuid = bucketMetadata.getID(key) ?: return null
+    val uuid = bucketStore.findIdInBucket(key, bucketMetadata.name) ?: return null
     return objectStore.getS3ObjectMetadata(bucketMetadata, uuid, versionId)
   }
 
@@ -273,6 +335,19 @@ open class ObjectService(
     }
   }
 
+  fun verifyMd5(
+    content: ObjectContent,
+    contentMd5: String?,
+  ) {
+    try {
+      content.inputStream().use {
+        verifyMd5(it, contentMd5)
+      }
+    } catch (_: IOException) {
+      throw S3Exception.BAD_REQUEST_CONTENT
+    }
+  }
+
   fun verifyMd5(
     inputStream: InputStream,
     contentMd5: String?,
@@ -459,7 +534,7 @@ open class ObjectService(
     key: String,
   ): Pair<BucketMetadata, UUID> {
     val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-    return bucketMetadata to (bucketMetadata.getID(key) ?: throw S3Exception.NO_SUCH_KEY)
+    return bucketMetadata to (bucketStore.findIdInBucket(key, bucketName) ?: throw S3Exception.NO_SUCH_KEY)
   }
 
   private fun verifyDuplicateTagKeys(tags: List<Tag>) {
@@ -26,6 +26,7 @@ import com.adobe.testing.s3mock.s3.util.ChecksumUtil.verifyChecksum
 import com.adobe.testing.s3mock.s3.util.HeaderUtil.checksumAlgorithmFromSdk
 import com.adobe.testing.s3mock.s3.util.HeaderUtil.isChunkedEncoding
 import com.adobe.testing.s3mock.s3.util.HeaderUtil.isV4Signed
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import org.springframework.http.HttpHeaders
@@ -34,9 +35,27 @@ import java.io.IOException
 import java.io.InputStream
 import java.nio.file.Files
 import java.nio.file.Path
+import java.util.NavigableMap
+import kotlin.io.path.deleteIfExists
 import kotlin.io.path.outputStream
 
 abstract class ServiceBase {
+  /**
+   * An entry of a listing, see [listEntries].
+   */
+  sealed interface ListingEntry<out V> {
+    val name: String
+
+    data class Key<V>(
+      override val name: String,
+      val value: V,
+    ) : ListingEntry<V>
+
+    data class CommonPrefix(
+      override val name: String,
+    ) : ListingEntry<Nothing>
+  }
+
   fun verifyChecksum(
     path: Path,
     checksum: String,
@@ -46,27 +65,103 @@ abstract class ServiceBase {
     verifyChecksum(checksum, computed, checksumAlgorithm)
   }
 
+  fun verifyChecksum(
+    content: ObjectContent,
+    checksum: String,
+    checksumAlgorithm: ChecksumAlgorithm,
+  ) {
+    val computed = content.inputStream().use { checksumFor(it, checksumAlgorithm.toChecksumAlgorithm()) }
+    verifyChecksum(checksum, computed, checksumAlgorithm)
+  }
+
+  /**
+   * Writes the request body to a temp file, decoding the "aws-chunked" content encoding if used.
+   *
+   * If the SDK sent a checksum in the trailer of a chunked body, that checksum is verified against
+   * the payload while it is decoded and returned alongside the temp file, so it does not need to
+   * be verified against the temp file again.
+   */
   fun toTempFile(
     inputStream: InputStream,
     httpHeaders: HttpHeaders,
-  ): Pair<Path, String?> =
-    try {
-      val tempFile = Files.createTempFile("ObjectService", "toTempFile")
-      tempFile.outputStream().use { os ->
-        wrapStream(inputStream, httpHeaders).use { wrapped ->
-          wrapped.transferTo(os)
-          val algoFromSdk = checksumAlgorithmFromSdk(httpHeaders)
-          if (algoFromSdk != null && wrapped is AbstractAwsInputStream) {
-            tempFile to wrapped.checksum
-          } else {
-            tempFile to null
+  ): Pair<Path, String?> {
+    val algoFromSdk = checksumAlgorithmFromSdk(httpHeaders)
+    val tempFile = Files.createTempFile("ObjectService", "toTempFile")
+    val wrapped =
+      try {
+        tempFile.outputStream().use { os ->
+          wrapStream(inputStream, httpHeaders, algoFromSdk).use { wrapped ->
+            wrapped.transferTo(os)
+            wrapped
           }
         }
+      } catch (e: IOException) {
+        LOG.error("Error reading from InputStream", e)
+        tempFile.deleteIfExists()
+        throw S3Exception.BAD_REQUEST_CONTENT
       }
-    } catch (e: IOException) {
-      LOG.error("Error reading from InputStream", e)
-      throw S3Exception.BAD_REQUEST_CONTENT
+    val checksum =
+      try {
+        sdkChecksum(wrapped, algoFromSdk) { checksumFor(tempFile, it.toChecksumAlgorithm()) }
+      } catch (e: S3Exception) {
+        tempFile.deleteIfExists()
+        throw e
+      }
+    return tempFile to checksum
+  }
+
+  /**
+   * Receives the request body like [toTempFile], but keeps it in memory if its (decoded) length is
+   * known up front and at most [inMemoryLimit]. A limit of 0 disables the in-memory path.
+   */
+  protected fun receive(
+    inputStream: InputStream,
+    httpHeaders: HttpHeaders,
+    inMemoryLimit: Long,
+  ): Pair<ObjectContent, String?> {
+    val length = decodedContentLength(httpHeaders)
+    if (inMemoryLimit <= 0 || length !in 0..inMemoryLimit) {
+      val (tempFile, checksum) = toTempFile(inputStream, httpHeaders)
+      return ObjectContent.OnDisk(tempFile) to checksum
+    }
+    val algoFromSdk = checksumAlgorithmFromSdk(httpHeaders)
+    val (bytes, wrapped) =
+      try {
+        wrapStream(inputStream, httpHeaders, algoFromSdk).use { wrapped ->
+          // reading past the payload consumes the trailing headers of a chunked body
+          val bytes = wrapped.readNBytes(length.toInt())
+          if (bytes.size.toLong() != length || wrapped.read() != -1) {
+            throw S3Exception.BAD_REQUEST_CONTENT
+          }
+          bytes to wrapped
+        }
+      } catch (e: IOException) {
+        LOG.error("Error reading from InputStream", e)
+        throw S3Exception.BAD_REQUEST_CONTENT
+      }
+    val content = ObjectContent.InMemory(bytes)
+    return content to sdkChecksum(wrapped, algoFromSdk) { checksumFor(content.inputStream(), it.toChecksumAlgorithm()) }
+  }
+
+  /**
+   * The checksum the SDK sent in the trailer of a chunked body, verified against the payload.
+   * [calculate] is only used if the checksum could not be calculated while decoding.
+   */
+  private fun sdkChecksum(
+    wrapped: InputStream,
+    algoFromSdk: ChecksumAlgorithm?,
+    calculate: (ChecksumAlgorithm) -> String,
+  ): String? {
+    if (algoFromSdk == null || wrapped !is AbstractAwsInputStream) {
+      return null
+    }
+    val checksum = wrapped.checksum
+    val algorithm = wrapped.algorithm
+    if (checksum != null && algorithm != null) {
+      verifyChecksum(checksum, wrapped.calculatedChecksum ?: calculate(algorithm), algorithm)
     }
+    return checksum
+  }
 
   fun toTempFile(inputStream: InputStream): Pair<Path, String?> =
     try {
@@ -85,15 +180,26 @@ abstract class ServiceBase {
   private fun wrapStream(
     dataStream: InputStream,
     headers: HttpHeaders,
+    expectedAlgorithm: ChecksumAlgorithm?,
   ): InputStream {
     val length = headers.getFirst(X_AMZ_DECODED_CONTENT_LENGTH)?.toLong() ?: -1L
     return when {
-      isV4Signed(headers) -> AwsChunkedDecodingChecksumInputStream(dataStream, length)
-      isChunkedEncoding(headers) -> AwsUnsignedChunkedDecodingChecksumInputStream(dataStream, length)
+      isV4Signed(headers) -> AwsChunkedDecodingChecksumInputStream(dataStream, length, expectedAlgorithm)
+      isChunkedEncoding(headers) -> AwsUnsignedChunkedDecodingChecksumInputStream(dataStream, length, expectedAlgorithm)
       else -> dataStream
     }
   }
 
+  /**
+   * Length of the payload, `-1` if unknown.
+   */
+  private fun decodedContentLength(headers: HttpHeaders): Long =
+    if (isV4Signed(headers) || isChunkedEncoding(headers)) {
+      headers.getFirst(X_AMZ_DECODED_CONTENT_LENGTH)?.toLongOrNull() ?: -1L
+    } else {
+      headers.contentLength
+    }
+
   companion object {
     private val LOG: Logger = LoggerFactory.getLogger(ServiceBase::class.java)
 
@@ -123,54 +229,48 @@ abstract class ServiceBase {
       transform: (T) -> T,
     ): List<T> = if (encodingType == "url") items.map(transform) else items
 
-    fun <T, R : Comparable<R>> filterBy(
-      contents: List<T>,
-      selector: (T) -> R?,
-      compareTo: R?,
-    ): List<T> =
-      compareTo?.let { threshold ->
-        contents.filter { selector(it)?.let { candidate -> candidate > threshold } == true }
-      } ?: contents
-
-    fun <T> filterBy(
-      contents: List<T>,
-      selector: (T) -> String?,
-      prefixes: List<String>?,
-    ): List<T> =
-      if (!prefixes.isNullOrEmpty()) {
-        contents.filter { content -> prefixes.none { prefix -> selector(content)?.startsWith(prefix) ?: false } }
-      } else {
-        contents
-      }
-
     /**
-     * Collapse all elements with keys starting with some prefix up to the given delimiter into
-     * one prefix entry. Collapsed elements are removed from the contents list.
-     *
-     * @param queryPrefix the key prefix as specified in the list request
-     * @param delimiter the delimiter used to separate a prefix from the rest of the object name
-     * @param contents the list of contents to use for collapsing the prefixes
-     * @param function the function to apply on a content to extract the value to collapse the prefixes on
+     * Entries of a listing over the sorted [keys]: all keys starting with [prefix] that sort after
+     * [marker], with keys containing [delimiter] after the prefix collapsed into one common prefix.
+     * Once a common prefix has been emitted, the walk seeks past all
+     * keys starting with it, so taking n entries costs O(n log keys) regardless of the size of the
+     * collapsed subtrees. Common prefixes that don't sort after [marker] were listed before and are
+     * skipped.
      */
-    fun <T> collapseCommonPrefixes(
-      queryPrefix: String?,
+    fun <V> listEntries(
+      keys: NavigableMap<String, V>,
+      prefix: String?,
       delimiter: String?,
-      contents: List<T>,
-      function: (T) -> String,
-    ): List<String> {
-      if (delimiter.isNullOrEmpty()) return emptyList()
-
-      val normalizedQueryPrefix = queryPrefix.orEmpty()
-      return contents
-        .mapNotNull { c ->
-          val key = function(c)
-          if (key.startsWith(normalizedQueryPrefix)) {
-            val delimiterIndex = key.indexOf(delimiter, startIndex = normalizedQueryPrefix.length)
-            if (delimiterIndex > 0) key.take(delimiterIndex + delimiter.length) else null
+      marker: String?,
+    ): Sequence<ListingEntry<V>> =
+      sequence {
+        val normalizedPrefix = prefix.orEmpty()
+        var entry =
+          if (marker != null && marker >= normalizedPrefix) keys.higherEntry(marker) else keys.ceilingEntry(normalizedPrefix)
+        while (entry != null && entry.key.startsWith(normalizedPrefix)) {
+          val key = entry.key
+          val delimiterIndex = if (delimiter.isNullOrEmpty()) -1 else key.indexOf(delimiter, startIndex = normalizedPrefix.length)
+          if (delimiterIndex > 0) {
+            val commonPrefix = key.take(delimiterIndex + delimiter!!.length)
+            if (marker == null || commonPrefix > marker) {
+              yield(ListingEntry.CommonPrefix(commonPrefix))
+            }
+            entry = successor(commonPrefix)?.let { keys.ceilingEntry(it) }
           } else {
-            null
+            yield(ListingEntry.Key(key, entry.value))
+            entry = keys.higherEntry(key)
           }
-        }.distinct()
+        }
+      }
+
+    /**
+     * The smallest string that sorts after all strings starting with [prefix], `null` if there is
+     * none.
+     */
+    private fun successor(prefix: String): String? {
+      val trimmed = prefix.trimEnd(Char.MAX_VALUE)
+      if (trimmed.isEmpty()) return null
+      return trimmed.dropLast(1) + (trimmed.last() + 1)
     }
   }
 }
@@ -18,22 +18,27 @@ package com.adobe.testing.s3mock.s3.service
 import com.adobe.testing.s3mock.s3.store.BucketStore
 import com.adobe.testing.s3mock.s3.store.MultipartStore
 import com.adobe.testing.s3mock.s3.store.ObjectStore
+import com.adobe.testing.s3mock.s3.store.StoreProperties
+import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 
 @Configuration
+@EnableConfigurationProperties(StoreProperties::class)
 class ServiceConfiguration {
   @Bean
   fun bucketService(
     bucketStore: BucketStore,
     objectStore: ObjectStore,
-  ): BucketService = BucketService(bucketStore, objectStore)
+    multipartStore: MultipartStore,
+  ): BucketService = BucketService(bucketStore, objectStore, multipartStore)
 
   @Bean
   fun objectService(
     bucketStore: BucketStore,
     objectStore: ObjectStore,
-  ): ObjectService = ObjectService(bucketStore, objectStore)
+    storeProperties: StoreProperties,
+  ): ObjectService = ObjectService(bucketStore, objectStore, storeProperties.smallObjectThreshold.toBytes())
 
   @Bean
   fun multipartService(
@@ -16,6 +16,8 @@
 
 package com.adobe.testing.s3mock.s3.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.common.StoreInstrumentation
 import com.adobe.testing.s3mock.common.StripedLocks
 import com.adobe.testing.s3mock.s3.dto.BucketInfo
 import com.adobe.testing.s3mock.s3.dto.BucketLifecycleConfiguration
@@ -27,106 +29,218 @@ import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
 import com.adobe.testing.s3mock.s3.model.BucketMetadata
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+import tools.jackson.core.JacksonException
+import tools.jackson.databind.JsonNode
 import tools.jackson.databind.ObjectMapper
 import java.io.File
 import java.io.IOException
 import java.nio.file.Path
 import java.time.LocalDateTime
 import java.time.format.DateTimeFormatter
+import java.util.Collections
+import java.util.NavigableMap
 import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentNavigableMap
+import java.util.concurrent.ConcurrentSkipListMap
 import kotlin.io.path.createDirectories
 import kotlin.io.path.exists
-import kotlin.io.path.isDirectory
-import kotlin.io.path.listDirectoryEntries
 
 /**
  * Stores buckets and their metadata created in S3Mock.
  * [API Reference](https://docs.aws.amazon.com/AmazonS3/latest/userguide/creating-buckets-s3.html)
+ *
+ * The configuration of all buckets is read once on startup and kept in memory, every change is
+ * written through to disk. The keys of the objects in a bucket are stored in a file
+ * of their own, [BUCKET_OBJECTS_FILE], and only read when they are accessed first.
  */
 open class BucketStore(
   private val rootFolder: File,
   private val s3ObjectDateFormat: DateTimeFormatter,
   private val region: String,
   private val objectMapper: ObjectMapper,
+  private val trash: Trash? = null,
+  private val instrumentation: StoreInstrumentation = StoreInstrumentation(),
+  private val metadataWriter: MetadataWriter = MetadataWriter(instrumentation),
 ) {
   private val locks = StripedLocks()
 
   private fun lockFor(name: String): Any = locks.lockFor(name)
 
-  fun listBuckets(): List<BucketMetadata> =
-    findBucketPaths()
-      .filter { it.resolve(BUCKET_META_FILE).exists() }
-      .map { it.fileName.toString() }
-      .map { getBucketMetadata(it) }
+  private val buckets = ConcurrentSkipListMap<String, BucketMetadata>()
+
+  // keys and ids of the objects of each bucket, by bucket name, read from disk on first access
+  private val objects = ConcurrentHashMap<String, Lazy<ConcurrentNavigableMap<String, UUID>>>()
+
+  /**
+   * All buckets, sorted by name.
+   */
+  fun listBuckets(): List<BucketMetadata> = buckets.values.toList()
+
+  /**
+   * Buckets with names starting with [prefix] and sorting after [startAfter], sorted by name.
+   * Only the configurations of the buckets are read, not their keys.
+   */
+  fun listBuckets(
+    prefix: String,
+    startAfter: String?,
+  ): Sequence<BucketMetadata> {
+    val from = if (startAfter != null && startAfter >= prefix) startAfter else prefix
+    return buckets
+      .tailMap(from, from != startAfter)
+      .values
+      .asSequence()
+      .takeWhile { it.name.startsWith(prefix) }
+  }
 
-  fun getBucketMetadata(bucketName: String): BucketMetadata {
+  fun getBucketMetadata(bucketName: String): BucketMetadata =
+    findBucketMetadata(bucketName) ?: throw IllegalStateException("Bucket does not exist: $bucketName")
+
+  /**
+   * Metadata of the bucket, `null` if there is no such bucket. All buckets are loaded on startup,
+   * see [loadBuckets], so buckets not in memory don't exist and the disk is never checked.
+   */
+  private fun findBucketMetadata(bucketName: String): BucketMetadata? = buckets[bucketName]
+
+  private fun readFromDisk(bucketName: String): BucketMetadata? {
+    val metaFilePath = getMetaFilePath(bucketName)
+    if (!metaFilePath.exists()) {
+      return null
+    }
     try {
-      check(doesBucketExist(bucketName)) { "Bucket does not exist: $bucketName" }
-      val metaFilePath = getMetaFilePath(bucketName)
-      return synchronized(lockFor(bucketName)) {
-        objectMapper.readValue(metaFilePath.toFile(), BucketMetadata::class.java)
-      }
+      val metaFile = instrumentation.readMetadata(objectMapper, metaFilePath.toFile(), JsonNode::class.java)
+      val bucketMetadata = objectMapper.treeToValue(metaFile, BucketMetadata::class.java)
+      metaFile.get(LEGACY_OBJECTS_FIELD)?.let { migrateKeys(bucketMetadata, it) }
+      return bucketMetadata
     } catch (e: IOException) {
       throw IllegalStateException("Could not read bucket metadata-file $bucketName", e)
+    } catch (e: JacksonException) {
+      throw IllegalStateException("Could not read bucket metadata-file $bucketName", e)
     }
   }
 
-  fun addKeyToBucket(
-    key: String,
-    bucketName: String,
-  ): UUID =
-    synchronized(lockFor(bucketName)) {
-      val bucketMetadata = getBucketMetadata(bucketName)
-      val uuid = bucketMetadata.addKey(key)
-      writeToDisk(bucketMetadata)
-      uuid
+  /**
+   * Moves the keys stored in the metadata file by older versions to their own file.
+   */
+  private fun migrateKeys(
+    bucketMetadata: BucketMetadata,
+    objects: JsonNode,
+  ) {
+    try {
+      metadataWriter.writeValue(objectMapper, getObjectsFilePath(bucketMetadata.name).toFile(), toKeys(objects))
+      metadataWriter.writeValue(objectMapper, getMetaFilePath(bucketMetadata.name).toFile(), bucketMetadata)
+    } catch (e: IOException) {
+      throw IllegalStateException("Could not migrate keys of bucket ${bucketMetadata.name}", e)
     }
+    LOG.info("Moved keys of bucket {} to {}.", bucketMetadata.name, BUCKET_OBJECTS_FILE)
+  }
 
-  fun lookupIdsInBucket(
-    prefix: String?,
-    bucketName: String,
-  ): List<UUID> = lookupInBucket(prefix, bucketName) { it.value }
+  private fun readKeysFromDisk(bucketName: String): ConcurrentNavigableMap<String, UUID> {
+    val objectsFile = getObjectsFilePath(bucketName).toFile()
+    if (!objectsFile.exists()) {
+      return ConcurrentSkipListMap()
+    }
+    try {
+      return toKeys(instrumentation.readMetadata(objectMapper, objectsFile, JsonNode::class.java))
+    } catch (e: IOException) {
+      throw IllegalStateException("Could not read keys of bucket $bucketName", e)
+    } catch (e: JacksonException) {
+      throw IllegalStateException("Could not read keys of bucket $bucketName", e)
+    }
+  }
 
-  fun lookupKeysInBucket(
-    prefix: String?,
+  private fun toKeys(objects: JsonNode): ConcurrentNavigableMap<String, UUID> =
+    objects.properties().associateTo(ConcurrentSkipListMap()) { (key, id) -> key to UUID.fromString(id.stringValue()) }
+
+  private fun objectsOf(bucketName: String): ConcurrentNavigableMap<String, UUID> =
+    objects[bucketName]?.value ?: throw IllegalStateException("Bucket does not exist: $bucketName")
+
+  /**
+   * Read-only view of the keys and ids of all objects in the bucket, sorted by key.
+   */
+  fun getObjects(bucketName: String): NavigableMap<String, UUID> = Collections.unmodifiableNavigableMap(objectsOf(bucketName))
+
+  /**
+   * Read-only view of the keys and ids of all objects in the bucket if they were read from disk
+   * already, `null` otherwise.
+   */
+  fun getLoadedObjects(bucketName: String): NavigableMap<String, UUID>? =
+    objects[bucketName]?.takeIf { it.isInitialized() }?.let { Collections.unmodifiableNavigableMap(it.value) }
+
+  /**
+   * Id of the object with [key] in the bucket, `null` if there is no such object.
+   */
+  fun findIdInBucket(
+    key: String,
     bucketName: String,
-  ): List<String> = lookupInBucket(prefix, bucketName) { it.key }
+  ): UUID? = objectsOf(bucketName)[key]
 
-  private fun <R> lookupInBucket(
-    prefix: String?,
+  fun addKeyToBucket(
+    key: String,
     bucketName: String,
-    extract: (Map.Entry<String, UUID>) -> R,
-  ): List<R> {
-    val normalizedPrefix = prefix ?: ""
+  ): UUID =
     synchronized(lockFor(bucketName)) {
-      return getBucketMetadata(bucketName)
-        .objects
-        .entries
-        .filter { it.key.startsWith(normalizedPrefix) }
-        .map(extract)
+      val keys = objectsOf(bucketName)
+      val uuid = keys.getOrPut(key) { UUID.randomUUID() }
+      writeKeysToDisk(bucketName, keys)
+      uuid
     }
-  }
 
   fun removeFromBucket(
     key: String,
     bucketName: String,
   ): Boolean =
     synchronized(lockFor(bucketName)) {
-      val bucketMetadata = getBucketMetadata(bucketName)
-      val removed = bucketMetadata.removeKey(key)
-      writeToDisk(bucketMetadata)
+      val keys = objectsOf(bucketName)
+      val removed = keys.remove(key) != null
+      writeKeysToDisk(bucketName, keys)
       removed
     }
 
-  private fun findBucketPaths(): List<Path> =
-    try {
-      rootFolder
-        .toPath()
-        .listDirectoryEntries()
-        .filter { it.isDirectory() }
-    } catch (e: IOException) {
-      throw IllegalStateException("Could not Iterate over Bucket-Folders.", e)
+  /**
+   * Removes all [keys] from the bucket with a single write of the keys of the bucket.
+   *
+   * @return the keys that were removed.
+   */
+  fun removeFromBucket(
+    keys: Collection<String>,
+    bucketName: String,
+  ): List<String> {
+    if (keys.isEmpty()) {
+      return emptyList()
     }
+    return synchronized(lockFor(bucketName)) {
+      val bucketKeys = objectsOf(bucketName)
+      val removed = keys.filter { bucketKeys.remove(it) != null }
+      if (removed.isNotEmpty()) {
+        writeKeysToDisk(bucketName, bucketKeys)
+      }
+      removed
+    }
+  }
+
+  /**
+   * Removes each key of [ids] from the bucket with a single write of the keys of the bucket, but
+   * only if the key still maps to its id, i.e. wasn't deleted and stored again in the meantime.
+   *
+   * @return the keys that were removed.
+   */
+  fun removeFromBucket(
+    ids: Map<String, UUID>,
+    bucketName: String,
+  ): List<String> {
+    if (ids.isEmpty()) {
+      return emptyList()
+    }
+    return synchronized(lockFor(bucketName)) {
+      val keys = objectsOf(bucketName)
+      val removed = ids.filter { (key, id) -> keys.remove(key, id) }.keys.toList()
+      if (removed.isNotEmpty()) {
+        writeKeysToDisk(bucketName, keys)
+      }
+      removed
+    }
+  }
 
   fun createBucket(
     bucketName: String,
@@ -154,6 +268,7 @@ open class BucketStore(
           bucketInfo,
           locationInfo,
         )
+      objects[bucketName] = lazyOf(ConcurrentSkipListMap())
       writeToDisk(newBucketMetadata)
       newBucketMetadata
     }
@@ -164,10 +279,7 @@ open class BucketStore(
    * this method to determine if a specified bucket name already exists, and therefore can't be used
    * to create a new bucket.
    */
-  fun doesBucketExist(bucketName: String): Boolean {
-    val metaFilePath = getMetaFilePath(bucketName)
-    return metaFilePath.exists()
-  }
+  fun doesBucketExist(bucketName: String): Boolean = findBucketMetadata(bucketName) != null
 
   fun isObjectLockEnabled(bucketName: String): Boolean {
     val objectLockConfiguration = getBucketMetadata(bucketName).objectLockConfiguration
@@ -179,7 +291,7 @@ open class BucketStore(
     configuration: ObjectLockConfiguration,
   ) {
     synchronized(lockFor(metadata.name)) {
-      writeToDisk(metadata.copy(objectLockConfiguration = configuration))
+      writeToDisk(getBucketMetadata(metadata.name).copy(objectLockConfiguration = configuration))
     }
   }
 
@@ -188,7 +300,7 @@ open class BucketStore(
     configuration: VersioningConfiguration,
   ) {
     synchronized(lockFor(metadata.name)) {
-      writeToDisk(metadata.copy(versioningConfiguration = configuration))
+      writeToDisk(getBucketMetadata(metadata.name).copy(versioningConfiguration = configuration))
     }
   }
 
@@ -197,20 +309,22 @@ open class BucketStore(
     configuration: BucketLifecycleConfiguration?,
   ) {
     synchronized(lockFor(metadata.name)) {
-      writeToDisk(metadata.copy(bucketLifecycleConfiguration = configuration))
+      writeToDisk(getBucketMetadata(metadata.name).copy(bucketLifecycleConfiguration = configuration))
     }
   }
 
   fun isBucketEmpty(bucketName: String): Boolean {
     check(doesBucketExist(bucketName)) { "Requested Bucket does not exist: $bucketName" }
-    return getBucketMetadata(bucketName).objects.isEmpty()
+    return objectsOf(bucketName).isEmpty()
   }
 
   fun deleteBucket(bucketName: String): Boolean =
     synchronized(lockFor(bucketName)) {
       if (isBucketEmpty(bucketName)) {
         val bucketMetadata = getBucketMetadata(bucketName)
-        bucketMetadata.path.toFile().deleteRecursively()
+        buckets.remove(bucketName)
+        objects.remove(bucketName)
+        trash?.delete(bucketMetadata.path) ?: bucketMetadata.path.toFile().deleteRecursively()
         true
       } else {
         false
@@ -218,34 +332,58 @@ open class BucketStore(
     }
 
   /**
-   * Used to load metadata for all buckets when S3Mock starts.
+   * Used to load metadata for all buckets when S3Mock starts. Reads the configuration of all
+   * [bucketNames] from disk in parallel, the keys of each bucket are read on first access.
    */
-  fun loadBuckets(bucketNames: List<String>): List<UUID> {
-    val objectIds = mutableListOf<UUID>()
-    for (bucketName in bucketNames) {
-      LOG.info("Loading existing bucket {}.", bucketName)
+  fun loadBuckets(bucketNames: List<String>) {
+    loadInParallel(bucketNames, "s3mock-bucket-loader") { bucketName ->
       synchronized(lockFor(bucketName)) {
-        val bucketMetadata = getBucketMetadata(bucketName)
-        for ((key, value) in bucketMetadata.objects.entries) {
-          objectIds += value
-          LOG.info("Loading existing bucket {} key {}", bucketName, key)
-        }
+        val bucketMetadata = checkNotNull(readFromDisk(bucketName)) { "Bucket does not exist: $bucketName" }
+        objects[bucketName] = lazy { readKeysFromDisk(bucketName) }
+        buckets[bucketName] = bucketMetadata
+      }
+      LOG.info("Loaded existing bucket {}.", bucketName)
+    }
+  }
+
+  /**
+   * Restores the buckets of a [StoreManifest] instead of reading them from disk. Keys that are not
+   * part of the manifest are read on first access, like after [loadBuckets].
+   */
+  fun restoreBuckets(restored: List<StoreManifest.Bucket>) {
+    restored.forEach { bucket ->
+      val bucketName = bucket.metadata.name
+      synchronized(lockFor(bucketName)) {
+        objects[bucketName] = bucket.keys?.let { lazyOf(ConcurrentSkipListMap(it)) } ?: lazy { readKeysFromDisk(bucketName) }
+        buckets[bucketName] = bucket.metadata
       }
     }
-    return objectIds
+    LOG.info("Restored {} buckets from the store manifest.", restored.size)
   }
 
   private fun writeToDisk(bucketMetadata: BucketMetadata) {
     try {
       val metaFile = getMetaFilePath(bucketMetadata.name).toFile()
       synchronized(lockFor(bucketMetadata.name)) {
-        objectMapper.writeValue(metaFile, bucketMetadata)
+        metadataWriter.writeValue(objectMapper, metaFile, bucketMetadata)
+        buckets[bucketMetadata.name] = bucketMetadata
       }
     } catch (e: IOException) {
       throw IllegalStateException("Could not write bucket metadata-file", e)
     }
   }
 
+  private fun writeKeysToDisk(
+    bucketName: String,
+    keys: Map<String, UUID>,
+  ) {
+    try {
+      metadataWriter.writeValue(objectMapper, getObjectsFilePath(bucketName).toFile(), keys)
+    } catch (e: IOException) {
+      throw IllegalStateException("Could not write keys of bucket $bucketName", e)
+    }
+  }
+
   private fun getBucketFolderPath(bucketName: String): Path {
     val rootPath = rootFolder.toPath().toAbsolutePath().normalize()
     val candidate = rootPath.resolve(bucketName).normalize()
@@ -263,8 +401,12 @@ open class BucketStore(
 
   private fun getMetaFilePath(bucketName: String): Path = getBucketFolderPath(bucketName).resolve(BUCKET_META_FILE)
 
+  private fun getObjectsFilePath(bucketName: String): Path = getBucketFolderPath(bucketName).resolve(BUCKET_OBJECTS_FILE)
+
   companion object {
     private val LOG: Logger = LoggerFactory.getLogger(BucketStore::class.java)
     const val BUCKET_META_FILE: String = "bucketMetadata.json"
+    const val BUCKET_OBJECTS_FILE: String = "objects.json"
+    private const val LEGACY_OBJECTS_FIELD = "objects"
   }
 }
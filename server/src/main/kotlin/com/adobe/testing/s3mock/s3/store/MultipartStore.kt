@@ -16,6 +16,8 @@
 package com.adobe.testing.s3mock.s3.store
 
 import com.adobe.testing.s3mock.common.AwsHttpHeaders
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.common.StoreInstrumentation
 import com.adobe.testing.s3mock.s3.S3Exception
 import com.adobe.testing.s3mock.s3.dto.ChecksumAlgorithm
 import com.adobe.testing.s3mock.s3.dto.ChecksumFields
@@ -36,6 +38,7 @@ import com.adobe.testing.s3mock.s3.model.PartMetadata
 import com.adobe.testing.s3mock.s3.util.BoundedInputStream
 import com.adobe.testing.s3mock.s3.util.ChecksumUtil
 import com.adobe.testing.s3mock.s3.util.DigestUtil
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import org.springframework.http.HttpRange
@@ -48,9 +51,11 @@ import java.nio.file.Files
 import java.nio.file.Path
 import java.time.Instant
 import java.time.temporal.ChronoUnit
+import java.util.NavigableMap
 import java.util.UUID
 import kotlin.io.path.createDirectories
 import kotlin.io.path.exists
+import kotlin.io.path.fileSize
 import kotlin.io.path.inputStream
 import kotlin.io.path.isDirectory
 import kotlin.io.path.listDirectoryEntries
@@ -59,7 +64,12 @@ import kotlin.io.path.outputStream
 open class MultipartStore(
   private val objectStore: ObjectStore,
   private val objectMapper: ObjectMapper,
-) : StoreBase() {
+  private val trash: Trash? = null,
+  instrumentation: StoreInstrumentation = StoreInstrumentation(),
+  metadataWriter: MetadataWriter = MetadataWriter(instrumentation),
+) : StoreBase(instrumentation, metadataWriter) {
+  private val registry = MultipartUploadRegistry()
+
   fun createMultipartUpload(
     bucket: BucketMetadata,
     key: String,
@@ -122,14 +132,60 @@ open class MultipartStore(
         checksumAlgorithm,
       )
     writeMetafile(bucket, multipartUploadInfo)
+    registry.addUpload(bucket, upload) { loadMultipartUploads(bucket) }
 
     return upload
   }
 
+  /**
+   * Active uploads with keys starting with [prefix], sorted by key and initiation.
+   */
   fun listMultipartUploads(
     bucketMetadata: BucketMetadata,
     prefix: String?,
   ): List<MultipartUpload> {
+    val normalizedPrefix = prefix.orEmpty()
+    return getMultipartUploads(bucketMetadata)
+      .tailMap(normalizedPrefix, true)
+      .values
+      .asSequence()
+      .flatten()
+      .takeWhile { it.key.startsWith(normalizedPrefix) }
+      .toList()
+  }
+
+  /**
+   * Read-only view of the active uploads by key, sorted by key, the uploads of each key sorted by
+   * initiation.
+   */
+  fun getMultipartUploads(bucketMetadata: BucketMetadata): NavigableMap<String, List<MultipartUpload>> =
+    registry.uploads(bucketMetadata) { loadMultipartUploads(bucketMetadata) }
+
+  /**
+   * Active uploads of the bucket if they were read from disk already, `null` otherwise.
+   */
+  fun getLoadedMultipartUploads(bucketMetadata: BucketMetadata): List<MultipartUpload>? = registry.loadedUploads(bucketMetadata)
+
+  /**
+   * Restores the active [uploads] of a bucket from a [StoreManifest] instead of reading them from
+   * disk on first access.
+   */
+  fun restoreMultipartUploads(
+    bucketMetadata: BucketMetadata,
+    uploads: List<MultipartUpload>,
+  ) {
+    registry.uploads(bucketMetadata) { uploads }
+  }
+
+  /**
+   * Forgets the uploads of [bucketMetadata] after the bucket was deleted, their files are deleted
+   * with the bucket.
+   */
+  fun removeMultipartUploads(bucketMetadata: BucketMetadata) {
+    registry.removeUploads(bucketMetadata)
+  }
+
+  private fun loadMultipartUploads(bucketMetadata: BucketMetadata): List<MultipartUpload> {
     val multipartsFolder = getMultipartsFolder(bucketMetadata)
     if (!multipartsFolder.exists()) {
       return emptyList()
@@ -143,8 +199,6 @@ open class MultipartStore(
           }.getOrNull()
         }.filter { !it.completed }
         .map { it.upload }
-        .filter { prefix.isNullOrBlank() || it.key.startsWith(prefix) }
-        .toList()
     } catch (e: IOException) {
       throw IllegalStateException("Could not load buckets from data directory ", e)
     }
@@ -174,7 +228,8 @@ open class MultipartStore(
     val multipartUploadInfo = getMultipartUploadInfo(bucket, uploadId)
     if (multipartUploadInfo != null) {
       synchronized(lockFor(uploadId)) {
-        getPartsFolder(bucket, uploadId).toFile().deleteRecursively()
+        deleteRecursively(getPartsFolder(bucket, uploadId), trash)
+        registry.removeUpload(bucket, multipartUploadInfo.upload)
       }
     }
   }
@@ -190,7 +245,10 @@ open class MultipartStore(
     checksumAlgorithm: ChecksumAlgorithm? = null,
   ): String {
     val file = inputPathToFile(path, getPartPath(bucket, uploadId, partNumber))
-    val etag = DigestUtil.hexDigest(encryptionHeaders[AwsHttpHeaders.X_AMZ_SERVER_SIDE_ENCRYPTION_AWS_KMS_KEY_ID], file)
+    val etag =
+      instrumentation.digest(file.length()) {
+        DigestUtil.hexDigest(encryptionHeaders[AwsHttpHeaders.X_AMZ_SERVER_SIDE_ENCRYPTION_AWS_KMS_KEY_ID], file)
+      }
 
     // Persist per-part metadata alongside the part file so checksums survive until CompleteMultipart
     val partMetadata =
@@ -203,6 +261,9 @@ open class MultipartStore(
         checksumAlgorithm = checksumAlgorithm,
       )
     writePartMetafile(bucket, uploadId, partNumber, partMetadata)
+    synchronized(lockFor(uploadId)) {
+      registry.putPart(uploadId, partFromMetadata(partMetadata))
+    }
 
     return etag
   }
@@ -234,7 +295,7 @@ open class MultipartStore(
         }
       }
       val checksumFor = validateChecksums(uploadInfo, tempFile, parts, partsPaths, checksum, checksumType, checksumAlgorithm)
-      val etag = DigestUtil.hexDigestMultipart(partsPaths)
+      val etag = instrumentation.digest(partsPaths.sumOf { it.fileSize() }) { DigestUtil.hexDigestMultipart(partsPaths) }
 
       // Read per-part metadata under the lock to avoid racing with abort or ListParts
       val objectParts =
@@ -249,7 +310,7 @@ open class MultipartStore(
           key,
           uploadInfo.contentType,
           uploadInfo.storeHeaders,
-          tempFile,
+          ObjectContent.OnDisk(tempFile),
           uploadInfo.userMetadata,
           encryptionHeaders,
           etag,
@@ -279,6 +340,9 @@ open class MultipartStore(
       }
       val completedUploadInfo = uploadInfo.complete()
       writeMetafile(bucket, completedUploadInfo)
+      synchronized(lockFor(uploadId)) {
+        registry.removeUpload(bucket, uploadInfo.upload)
+      }
       return CompleteMultipartUploadResult.from(
         location,
         completedUploadInfo.bucket,
@@ -297,35 +361,68 @@ open class MultipartStore(
     }
   }
 
+  /**
+   * All parts of [uploadId], sorted by part number.
+   */
   fun getMultipartUploadParts(
     bucket: BucketMetadata,
     id: UUID,
     uploadId: UUID,
+  ): List<Part> = listParts(bucket, uploadId, null, Int.MAX_VALUE)
+
+  /**
+   * Parts of [uploadId] after [partNumberMarker], sorted by part number, at most [limit].
+   */
+  fun listParts(
+    bucket: BucketMetadata,
+    uploadId: UUID,
+    partNumberMarker: Int?,
+    limit: Int,
   ): List<Part> {
+    registry.parts(uploadId, partNumberMarker, limit)?.let { return it }
+    // putPart, copyPart and removing the upload update the registry under the same lock, so no part
+    // is missed between reading and registering the parts, and an aborted upload isn't registered
+    synchronized(lockFor(uploadId)) {
+      if (!registry.hasParts(uploadId)) {
+        val loaded = loadParts(bucket, uploadId) ?: return emptyList()
+        registry.addParts(uploadId, loaded)
+      }
+    }
+    return registry.parts(uploadId, partNumberMarker, limit).orEmpty()
+  }
+
+  /**
+   * Reads the parts of [uploadId] from disk, `null` if the upload doesn't exist (anymore).
+   */
+  private fun loadParts(
+    bucket: BucketMetadata,
+    uploadId: UUID,
+  ): List<Part>? {
     val partsPath = getPartsFolder(bucket, uploadId)
+    if (!partsPath.exists()) {
+      return null
+    }
     try {
-      return synchronized(lockFor(uploadId)) {
-        partsPath
-          .listDirectoryEntries("*$PART_SUFFIX")
-          .map {
-            val name = it.fileName.toString()
-            val partNumber = name.substringBefore('.').toInt()
-            val file = it.toFile()
-            val partMetaPath = getPartMetaPath(bucket, uploadId, partNumber)
-            if (partMetaPath.exists()) {
-              // Read persisted metadata (has checksum)
-              val meta = objectMapper.readValue(partMetaPath.toFile(), PartMetadata::class.java)
-              partFromMetadata(meta)
-            } else {
-              // Fall back to on-the-fly reconstruction (no checksum, e.g. copy-part uploads)
-              val partMd5 = DigestUtil.hexDigest(file)
-              Part(partNumber, normalizeEtag(partMd5), Instant.ofEpochMilli(file.lastModified()), file.length())
-            }
-          }.sortedBy { it.partNumber }
-          .toList()
-      }
+      return partsPath
+        .listDirectoryEntries("*$PART_SUFFIX")
+        .map {
+          val name = it.fileName.toString()
+          val partNumber = name.substringBefore('.').toInt()
+          val file = it.toFile()
+          val partMetaPath = getPartMetaPath(bucket, uploadId, partNumber)
+          if (partMetaPath.exists()) {
+            // Read persisted metadata (has checksum)
+            val meta = instrumentation.readMetadata(objectMapper, partMetaPath.toFile(), PartMetadata::class.java)
+            partFromMetadata(meta)
+          } else {
+            // Fall back to on-the-fly reconstruction (no checksum, parts written by older versions)
+            val partMd5 = instrumentation.digest(file.length()) { DigestUtil.hexDigest(file) }
+            Part(partNumber, normalizeEtag(partMd5), Instant.ofEpochMilli(file.lastModified()), file.length())
+          }
+        }.sortedBy { it.partNumber }
+        .toList()
     } catch (e: IOException) {
-      throw IllegalStateException("Could not read all parts. bucket=$bucket, id=$id, uploadId=$uploadId", e)
+      throw IllegalStateException("Could not read all parts. bucket=$bucket, uploadId=$uploadId", e)
     }
   }
 
@@ -342,13 +439,23 @@ open class MultipartStore(
   ): String {
     verifyMultipartUploadPreparation(destinationBucket, destinationId, uploadId)
 
-    return copyPartToFile(
-      bucket,
-      id,
-      copyRange,
-      createPartFile(destinationBucket, destinationId, uploadId, partNumber),
-      versionId,
-    )
+    val partFile = createPartFile(destinationBucket, destinationId, uploadId, partNumber)
+    val etag = copyPartToFile(bucket, id, copyRange, partFile, versionId)
+    // persist the part metadata as in putPart, so that ListParts doesn't need to hash the part
+    val partMetadata =
+      PartMetadata(
+        partNumber = partNumber,
+        etag = etag,
+        size = partFile.length(),
+        lastModified = partFile.lastModified(),
+        checksum = null,
+        checksumAlgorithm = null,
+      )
+    writePartMetafile(destinationBucket, uploadId, partNumber, partMetadata)
+    synchronized(lockFor(uploadId)) {
+      registry.putPart(uploadId, partFromMetadata(partMetadata))
+    }
+    return etag
   }
 
   private fun copyPartToFile(
@@ -384,7 +491,7 @@ open class MultipartStore(
         e,
       )
     }
-    return DigestUtil.hexDigest(partFile)
+    return instrumentation.digest(partFile.length()) { DigestUtil.hexDigest(partFile) }
   }
 
   private fun createPartFile(
@@ -445,7 +552,8 @@ open class MultipartStore(
     if (metaPath.exists()) {
       synchronized(lockFor(uploadId)) {
         try {
-          return objectMapper.readValue(
+          return instrumentation.readMetadata(
+            objectMapper,
             metaPath.toFile(),
             MultipartUploadInfo::class.java,
           )
@@ -536,7 +644,9 @@ open class MultipartStore(
     uploadInfo: MultipartUploadInfo,
   ): String? =
     uploadInfo.checksumAlgorithm?.let { algo ->
-      ChecksumUtil.checksumMultipart(paths, algo.toChecksumAlgorithm())
+      instrumentation.checksum(algo.toString(), paths.sumOf { it.fileSize() }) {
+        ChecksumUtil.checksumMultipart(paths, algo.toChecksumAlgorithm())
+      }
     }
 
   private fun checksumFor(
@@ -544,7 +654,7 @@ open class MultipartStore(
     uploadInfo: MultipartUploadInfo,
   ): String? =
     uploadInfo.checksumAlgorithm?.let { algo ->
-      ChecksumUtil.checksumFor(path, algo.toChecksumAlgorithm())
+      instrumentation.checksum(algo.toString(), path.fileSize()) { ChecksumUtil.checksumFor(path, algo.toChecksumAlgorithm()) }
     }
 
   private fun getPartMetaPath(
@@ -585,7 +695,7 @@ open class MultipartStore(
     completedParts.mapNotNull { completed ->
       val metaPath = getPartMetaPath(bucket, uploadId, completed.partNumber)
       if (metaPath.exists()) {
-        val meta = objectMapper.readValue(metaPath.toFile(), PartMetadata::class.java)
+        val meta = instrumentation.readMetadata(objectMapper, metaPath.toFile(), PartMetadata::class.java)
         ObjectPart.from(
           ChecksumFields.from(meta.checksumAlgorithm, meta.checksum),
           meta.partNumber,
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import com.adobe.testing.s3mock.s3.dto.MultipartUpload
+import com.adobe.testing.s3mock.s3.dto.Part
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import java.time.Instant
+import java.util.Collections
+import java.util.NavigableMap
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentSkipListMap
+
+/**
+ * In-memory index of the active multipart uploads of each bucket and the parts of each upload,
+ * so that listing them doesn't read the metadata files of all uploads and parts.
+ *
+ * The files written by [MultipartStore] stay the source of truth: the uploads of a bucket and the
+ * parts of an upload are loaded on first access, and kept up to date by [MultipartStore]
+ * afterwards. Completed and aborted uploads are evicted, as are all uploads of a deleted bucket.
+ */
+class MultipartUploadRegistry {
+  // the uploads of each key are kept as an immutable list sorted by initiation, so that they can
+  // be replaced atomically by the skip list
+  private val uploads = ConcurrentHashMap<String, ConcurrentSkipListMap<String, List<MultipartUpload>>>()
+  private val parts = ConcurrentHashMap<UUID, ConcurrentSkipListMap<Int, Part>>()
+
+  /**
+   * Read-only view of the active uploads of [bucket] by key, sorted by key. The uploads of each
+   * key are sorted by initiation.
+   */
+  fun uploads(
+    bucket: BucketMetadata,
+    load: () -> List<MultipartUpload>,
+  ): NavigableMap<String, List<MultipartUpload>> = Collections.unmodifiableNavigableMap(uploadsOf(bucket, load))
+
+  /**
+   * Active uploads of [bucket] if they were loaded already, `null` otherwise.
+   */
+  fun loadedUploads(bucket: BucketMetadata): List<MultipartUpload>? = uploads[bucketKey(bucket)]?.values?.flatten()
+
+  fun addUpload(
+    bucket: BucketMetadata,
+    upload: MultipartUpload,
+    load: () -> List<MultipartUpload>,
+  ) {
+    uploadsOf(bucket, load).compute(upload.key) { _, keyUploads ->
+      (keyUploads.orEmpty().filterNot { it.uploadId == upload.uploadId } + upload).sortedWith(UPLOAD_ORDER)
+    }
+  }
+
+  fun removeUpload(
+    bucket: BucketMetadata,
+    upload: MultipartUpload,
+  ) {
+    uploads[bucketKey(bucket)]?.computeIfPresent(upload.key) { _, keyUploads ->
+      keyUploads.filterNot { it.uploadId == upload.uploadId }.ifEmpty { null }
+    }
+    upload.uploadId?.let { parts.remove(UUID.fromString(it)) }
+  }
+
+  /**
+   * Evicts all uploads of [bucket] and their parts, e.g. after the bucket was deleted.
+   */
+  fun removeUploads(bucket: BucketMetadata) {
+    uploads.remove(bucketKey(bucket))?.values?.forEach { keyUploads ->
+      keyUploads.forEach { upload -> upload.uploadId?.let { parts.remove(UUID.fromString(it)) } }
+    }
+  }
+
+  /**
+   * Parts of [uploadId] after [partNumberMarker], sorted by part number, at most [limit], `null` if
+   * the parts of the upload weren't loaded yet, see [addParts].
+   */
+  fun parts(
+    uploadId: UUID,
+    partNumberMarker: Int?,
+    limit: Int,
+  ): List<Part>? {
+    val uploadParts = parts[uploadId] ?: return null
+    return (if (partNumberMarker == null) uploadParts else uploadParts.tailMap(partNumberMarker, false))
+      .values
+      .asSequence()
+      .take(limit)
+      .toList()
+  }
+
+  fun hasParts(uploadId: UUID): Boolean = parts.containsKey(uploadId)
+
+  /**
+   * Registers the [loaded] parts of [uploadId] unless they were registered already. The parts are
+   * read from disk by the caller, not while the registry is locked, and the caller has to hold the
+   * same lock as for [putPart] and [removeUpload], so that no part is missed in between.
+   */
+  fun addParts(
+    uploadId: UUID,
+    loaded: List<Part>,
+  ) {
+    parts.putIfAbsent(uploadId, ConcurrentSkipListMap<Int, Part>().apply { loaded.forEach { put(it.partNumber, it) } })
+  }
+
+  /**
+   * Adds [part] to the parts of [uploadId] if they were loaded already, otherwise it's read from
+   * its file on first access. Parts of a removed upload are not registered again.
+   */
+  fun putPart(
+    uploadId: UUID,
+    part: Part,
+  ) {
+    parts.computeIfPresent(uploadId) { _, uploadParts -> uploadParts.apply { put(part.partNumber, part) } }
+  }
+
+  private fun uploadsOf(
+    bucket: BucketMetadata,
+    load: () -> List<MultipartUpload>,
+  ) = uploads.computeIfAbsent(bucketKey(bucket)) {
+    ConcurrentSkipListMap<String, List<MultipartUpload>>().apply {
+      load().groupBy { it.key }.forEach { (key, keyUploads) -> put(key, keyUploads.sortedWith(UPLOAD_ORDER)) }
+    }
+  }
+
+  // a bucket can be deleted and created again with the same name
+  private fun bucketKey(bucket: BucketMetadata) = "${bucket.name}/${bucket.creationDate}"
+
+  private companion object {
+    val UPLOAD_ORDER =
+      compareBy<MultipartUpload, Instant?>(nullsFirst()) { it.initiated }
+        .thenBy { it.uploadId.orEmpty() }
+  }
+}
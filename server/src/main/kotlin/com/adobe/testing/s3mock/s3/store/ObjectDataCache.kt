@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import java.nio.file.Path
+
+/**
+ * Bounded, least recently used cache of the data of small objects, so that serving them does not
+ * touch the filesystem.
+ *
+ * Entries are keyed by data file, ETag and modification time. An overwritten object therefore
+ * never hits the entry of its previous content, which just ages out.
+ */
+class ObjectDataCache(
+  private val maxBytes: Long,
+) {
+  private data class Key(
+    val dataPath: Path,
+    val etag: String?,
+    val lastModified: Long,
+  )
+
+  // access-ordered, eldest entry first
+  private val entries = LinkedHashMap<Key, ByteArray>(16, 0.75f, true)
+  private var bytes = 0L
+
+  /**
+   * Data of [s3ObjectMetadata], [load]ed and cached if not cached yet.
+   */
+  fun get(
+    s3ObjectMetadata: S3ObjectMetadata,
+    load: () -> ByteArray,
+  ): ByteArray {
+    val key = s3ObjectMetadata.cacheKey()
+    synchronized(this) { entries[key] }?.let { return it }
+    return load().also { put(key, it) }
+  }
+
+  fun put(
+    s3ObjectMetadata: S3ObjectMetadata,
+    data: ByteArray,
+  ) = put(s3ObjectMetadata.cacheKey(), data)
+
+  val size: Long
+    get() = synchronized(this) { bytes }
+
+  private fun put(
+    key: Key,
+    data: ByteArray,
+  ) {
+    if (data.size > maxBytes) return
+    synchronized(this) {
+      entries.put(key, data)?.let { bytes -= it.size }
+      bytes += data.size
+      val eldest = entries.values.iterator()
+      while (bytes > maxBytes) {
+        bytes -= eldest.next().size
+        eldest.remove()
+      }
+    }
+  }
+
+  private fun S3ObjectMetadata.cacheKey() = Key(dataPath, etag, lastModified)
+}
@@ -17,6 +17,8 @@
 package com.adobe.testing.s3mock.s3.store
 
 import com.adobe.testing.s3mock.common.AwsHttpHeaders
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.common.StoreInstrumentation
 import com.adobe.testing.s3mock.s3.S3Exception
 import com.adobe.testing.s3mock.s3.dto.AccessControlPolicy
 import com.adobe.testing.s3mock.s3.dto.CanonicalUser
@@ -31,31 +33,41 @@ import com.adobe.testing.s3mock.s3.dto.StorageClass
 import com.adobe.testing.s3mock.s3.dto.Tag
 import com.adobe.testing.s3mock.s3.model.BucketMetadata
 import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectVersionSummary
 import com.adobe.testing.s3mock.s3.model.S3ObjectVersions
 import com.adobe.testing.s3mock.s3.util.DigestUtil
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import org.springframework.http.MediaType
 import tools.jackson.databind.ObjectMapper
 import java.io.IOException
+import java.nio.file.Files
 import java.nio.file.Path
 import java.time.Instant
 import java.time.format.DateTimeFormatter
 import java.util.UUID
+import java.util.concurrent.TimeUnit
 import kotlin.io.path.createDirectories
 import kotlin.io.path.exists
 
 open class ObjectStore(
   private val s3ObjectDateFormat: DateTimeFormatter,
   private val objectMapper: ObjectMapper,
-) : StoreBase() {
+  private val dataCache: ObjectDataCache = ObjectDataCache(0),
+  private val trash: Trash? = null,
+  instrumentation: StoreInstrumentation = StoreInstrumentation(),
+  metadataWriter: MetadataWriter = MetadataWriter(instrumentation),
+) : StoreBase(instrumentation, metadataWriter) {
+  private val versionIndex = ObjectVersionIndex()
+
   fun storeS3ObjectMetadata(
     bucket: BucketMetadata,
     id: UUID,
     key: String,
     contentType: String?,
     storeHeaders: Map<String, String>?,
-    path: Path,
+    content: ObjectContent,
     userMetadata: Map<String, String>?,
     encryptionHeaders: Map<String, String>?,
     etag: String?,
@@ -78,7 +90,7 @@ open class ObjectStore(
         } else {
           null
         }
-      val dataFile = inputPathToFile(path, getDataFilePath(bucket, id, versionId))
+      val dataFile = contentToFile(content, getDataFilePath(bucket, id, versionId))
       val now = Instant.now()
       val s3ObjectMetadata =
         S3ObjectMetadata(
@@ -88,10 +100,11 @@ open class ObjectStore(
           modificationDate = s3ObjectDateFormat.format(now),
           etag =
             etag
-              ?: DigestUtil.hexDigest(
-                encryptionHeaders!![AwsHttpHeaders.X_AMZ_SERVER_SIDE_ENCRYPTION_AWS_KMS_KEY_ID],
-                dataFile,
-              ),
+              ?: instrumentation.digest(content.size) {
+                content.inputStream().use {
+                  DigestUtil.hexDigest(encryptionHeaders!![AwsHttpHeaders.X_AMZ_SERVER_SIDE_ENCRYPTION_AWS_KMS_KEY_ID], it)
+                }
+              },
           contentType = contentType ?: MediaType.APPLICATION_OCTET_STREAM_VALUE,
           lastModified = now.toEpochMilli(),
           dataPath = dataFile.toPath(),
@@ -111,6 +124,10 @@ open class ObjectStore(
           parts = parts,
         )
       writeMetafile(bucket, s3ObjectMetadata)
+      versionIndex.append(s3ObjectMetadata)
+      if (content is ObjectContent.InMemory) {
+        dataCache.put(s3ObjectMetadata, content.bytes)
+      }
       return s3ObjectMetadata
     }
   }
@@ -131,7 +148,9 @@ open class ObjectStore(
     transform: (S3ObjectMetadata) -> S3ObjectMetadata,
   ) = synchronized(lockFor(id)) {
     val meta = getS3ObjectMetadata(bucket, id, versionId) ?: throw S3Exception.NO_SUCH_KEY
-    writeMetafile(bucket, transform(meta))
+    val updated = transform(meta)
+    writeMetafile(bucket, updated)
+    versionIndex.replace(updated)
   }
 
   fun storeTags(
@@ -178,24 +197,39 @@ open class ObjectStore(
   ): S3ObjectMetadata? {
     val effectiveVersionId =
       if (bucket.isVersioningEnabled && versionId == null) {
-        getS3ObjectVersions(bucket, id).latestVersion
+        getS3ObjectVersionChain(bucket, id).lastOrNull()?.versionId
       } else {
         versionId
       }
     val metaPath = getMetaFilePath(bucket, id, effectiveVersionId)
 
-    if (metaPath.exists()) {
-      return synchronized(lockFor(id)) {
-        try {
-          objectMapper.readValue(metaPath.toFile(), S3ObjectMetadata::class.java)
-        } catch (e: IOException) {
-          throw IllegalArgumentException("Could not read object metadata-file $id", e)
-        }
+    // checked under the lock, the object may be deleted concurrently
+    return synchronized(lockFor(id)) {
+      if (!metaPath.exists()) {
+        return null
+      }
+      try {
+        instrumentation.readMetadata(objectMapper, metaPath.toFile(), S3ObjectMetadata::class.java)
+      } catch (e: IOException) {
+        throw IllegalArgumentException("Could not read object metadata-file $id", e)
       }
     }
-    return null
   }
 
+  /**
+   * Data of the object described by [s3ObjectMetadata], from memory if it has been read or
+   * written recently. Only meant for small objects, everything else should be streamed from
+   * [S3ObjectMetadata.dataPath].
+   */
+  fun readObjectData(s3ObjectMetadata: S3ObjectMetadata): ByteArray =
+    dataCache.get(s3ObjectMetadata) {
+      try {
+        Files.readAllBytes(s3ObjectMetadata.dataPath)
+      } catch (e: IOException) {
+        throw IllegalStateException("Could not read object binary-file.", e)
+      }
+    }
+
   fun getS3ObjectVersions(
     bucket: BucketMetadata,
     id: UUID,
@@ -205,7 +239,7 @@ open class ObjectStore(
     if (metaPath.exists()) {
       return synchronized(lockFor(id)) {
         try {
-          objectMapper.readValue(metaPath.toFile(), S3ObjectVersions::class.java)
+          instrumentation.readMetadata(objectMapper, metaPath.toFile(), S3ObjectVersions::class.java)
         } catch (e: IOException) {
           throw IllegalArgumentException("Could not read object versions-file $id", e)
         }
@@ -214,6 +248,22 @@ open class ObjectStore(
     return S3ObjectVersions.empty(id)
   }
 
+  /**
+   * Summaries of all versions of [id], oldest version first. Loaded from the versions-file and the
+   * metadata of each version on first access, kept in memory afterwards.
+   */
+  fun getS3ObjectVersionChain(
+    bucket: BucketMetadata,
+    id: UUID,
+  ): List<S3ObjectVersionSummary> =
+    versionIndex[id] ?: synchronized(lockFor(id)) {
+      versionIndex[id]
+        ?: getS3ObjectVersions(bucket, id)
+          .versions
+          .mapNotNull { version -> getS3ObjectMetadata(bucket, id, version)?.let { S3ObjectVersionSummary.from(it) } }
+          .also { versionIndex.put(id, it) }
+    }
+
   fun createS3ObjectVersions(
     bucket: BucketMetadata,
     id: UUID,
@@ -227,7 +277,7 @@ open class ObjectStore(
       return synchronized(lockFor(id)) {
         try {
           writeVersionsFile(bucket, id, S3ObjectVersions(id))
-          objectMapper.readValue(metaPath.toFile(), S3ObjectVersions::class.java)
+          instrumentation.readMetadata(objectMapper, metaPath.toFile(), S3ObjectVersions::class.java)
         } catch (e: IOException) {
           throw IllegalArgumentException("Could not read object versions-file $id", e)
         }
@@ -255,7 +305,7 @@ open class ObjectStore(
         destinationKey,
         sourceObject.contentType,
         storeHeaders?.takeIf { it.isNotEmpty() } ?: sourceObject.storeHeaders,
-        sourceObject.dataPath,
+        ObjectContent.OnDisk(sourceObject.dataPath),
         userMetadata?.takeIf { it.isNotEmpty() } ?: sourceObject.userMetadata,
         encryptionHeaders?.takeIf { it.isNotEmpty() } ?: sourceObject.encryptionHeaders,
         null,
@@ -295,7 +345,10 @@ open class ObjectStore(
         storeHeaders = storeHeaders?.takeIf { it.isNotEmpty() } ?: sourceObject.storeHeaders,
         storageClass = storageClass ?: sourceObject.storageClass,
       )
-    writeMetafile(sourceBucket, s3ObjectMetadata)
+    synchronized(lockFor(sourceId)) {
+      writeMetafile(sourceBucket, s3ObjectMetadata)
+      versionIndex.replace(s3ObjectMetadata)
+    }
     return s3ObjectMetadata
   }
 
@@ -303,8 +356,18 @@ open class ObjectStore(
     bucket: BucketMetadata,
     id: UUID,
     versionId: String?,
+  ): Boolean = deleteObject(bucket, id, versionId, getS3ObjectMetadata(bucket, id, versionId))
+
+  /**
+   * Same as [deleteObject], for callers that have read the [s3ObjectMetadata] of [versionId]
+   * already.
+   */
+  fun deleteObject(
+    bucket: BucketMetadata,
+    id: UUID,
+    versionId: String?,
+    s3ObjectMetadata: S3ObjectMetadata?,
   ): Boolean {
-    val s3ObjectMetadata = getS3ObjectMetadata(bucket, id, versionId)
     if (s3ObjectMetadata != null) {
       if (bucket.isVersioningEnabled && "null" != versionId) {
         return if (versionId != null) {
@@ -343,6 +406,7 @@ open class ObjectStore(
           // there is at least one version of an object left, delete only the version.
           existingVersions.deleteVersion(versionId)
           writeVersionsFile(bucket, id, existingVersions)
+          versionIndex.remove(id, versionId)
           return false
         }
       } catch (e: Exception) {
@@ -356,7 +420,8 @@ open class ObjectStore(
     id: UUID,
   ): Boolean =
     synchronized(lockFor(id)) {
-      getObjectFolderPath(bucket, id).toFile().deleteRecursively()
+      deleteRecursively(getObjectFolderPath(bucket, id), trash)
+      versionIndex.evict(id)
       true
     }
 
@@ -377,7 +442,9 @@ open class ObjectStore(
           } else {
             null
           }
-        writeMetafile(bucket, S3ObjectMetadata.deleteMarker(s3ObjectMetadata, versionId))
+        val deleteMarker = S3ObjectMetadata.deleteMarker(s3ObjectMetadata, versionId)
+        writeMetafile(bucket, deleteMarker)
+        versionIndex.append(deleteMarker)
       } catch (e: Exception) {
         throw IllegalStateException("Could not insert object-deletemarker $id", e)
       }
@@ -386,25 +453,38 @@ open class ObjectStore(
   }
 
   /**
-   * Used to load metadata for all objects from a bucket when S3Mock starts.
+   * Used to load metadata for all objects from a bucket when S3Mock starts. Reads the metadata
+   * of all [ids] one after another to verify that they can be loaded, buckets are loaded in
+   * parallel by the caller.
    *
    * @param bucketMetadata metadata of existing bucket.
    * @param ids ids of the keys to load
+   * @return the number of objects that could be loaded
    */
   fun loadObjects(
     bucketMetadata: BucketMetadata,
     ids: Collection<UUID>,
-  ) {
+  ): Int {
+    val start = System.nanoTime()
     val loaded =
-      ids.count { id ->
-        val s3ObjectVersions = getS3ObjectVersions(bucketMetadata, id)
-        if (s3ObjectVersions.versions.isNotEmpty()) {
-          loadVersions(bucketMetadata, s3ObjectVersions)
-        } else {
-          getS3ObjectMetadata(bucketMetadata, id, null) != null
+      instrumentation.record(StoreInstrumentation.LOAD_OBJECTS, S3ObjectMetadata::class.java.simpleName, { null }) {
+        ids.count { id ->
+          val s3ObjectVersions = getS3ObjectVersions(bucketMetadata, id)
+          if (s3ObjectVersions.versions.isNotEmpty()) {
+            loadVersions(bucketMetadata, s3ObjectVersions)
+          } else {
+            getS3ObjectMetadata(bucketMetadata, id, null) != null
+          }
         }
       }
-    LOG.info("Loaded {}/{} objects for bucket {}", loaded, ids.size, bucketMetadata.name)
+    LOG.info(
+      "Loaded {}/{} objects for bucket {} in {} ms",
+      loaded,
+      ids.size,
+      bucketMetadata.name,
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+    )
+    return loaded
   }
 
   private fun loadVersions(
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectVersionSummary
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * In-memory index of the version chains of objects in versioned buckets, so that resolving the
+ * latest version and listing versions doesn't read the versions-file and the metadata of every
+ * version.
+ *
+ * The versions-file of an object stays the journal of its chain: [ObjectStore] loads the chain of
+ * an object from the files on first access and updates it after every write. Chains are
+ * immutable lists, oldest version first; callers hold the lock of the object while changing it.
+ */
+class ObjectVersionIndex {
+  private val chains = ConcurrentHashMap<UUID, List<S3ObjectVersionSummary>>()
+
+  operator fun get(id: UUID): List<S3ObjectVersionSummary>? = chains[id]
+
+  fun put(
+    id: UUID,
+    chain: List<S3ObjectVersionSummary>,
+  ) {
+    chains[id] = chain
+  }
+
+  /**
+   * Appends the version described by [metadata] as the latest version, if the chain is loaded.
+   */
+  fun append(metadata: S3ObjectMetadata) {
+    if (metadata.versionId == null) return
+    chains.computeIfPresent(metadata.id) { _, chain -> chain + S3ObjectVersionSummary.from(metadata) }
+  }
+
+  /**
+   * Replaces the version described by [metadata], if the chain is loaded and contains it.
+   */
+  fun replace(metadata: S3ObjectMetadata) {
+    val versionId = metadata.versionId ?: return
+    chains.computeIfPresent(metadata.id) { _, chain ->
+      chain.map { if (it.versionId == versionId) S3ObjectVersionSummary.from(metadata) else it }
+    }
+  }
+
+  fun remove(
+    id: UUID,
+    versionId: String,
+  ) {
+    chains.computeIfPresent(id) { _, chain -> chain.filterNot { it.versionId == versionId } }
+  }
+
+  fun evict(id: UUID) {
+    chains.remove(id)
+  }
+}
@@ -16,16 +16,20 @@
 
 package com.adobe.testing.s3mock.s3.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.common.StoreInstrumentation
 import com.adobe.testing.s3mock.common.StripedLocks
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import tools.jackson.databind.ObjectMapper
 import java.io.File
 import java.io.IOException
-import java.nio.file.Files
 import java.nio.file.Path
-import java.nio.file.StandardCopyOption.REPLACE_EXISTING
 import java.util.UUID
 
-abstract class StoreBase {
+abstract class StoreBase(
+  protected val instrumentation: StoreInstrumentation,
+  protected val metadataWriter: MetadataWriter,
+) {
   /**
    * Striped locks keyed by UUID — shared across [ObjectStore] and [MultipartStore] subclasses.
    * Guards read-modify-write access to metadata files that can be updated concurrently for the
@@ -48,21 +52,40 @@ abstract class StoreBase {
     objectMapper: ObjectMapper,
   ) {
     try {
-      synchronized(lockFor(lockId)) { objectMapper.writeValue(file, value) }
+      synchronized(lockFor(lockId)) { metadataWriter.writeValue(objectMapper, file, value) }
     } catch (e: IOException) {
       throw IllegalStateException("Could not write $context", e)
     }
   }
 
+  /**
+   * Deletes [path] and everything below it, in the background if there is a [trash].
+   */
+  protected fun deleteRecursively(
+    path: Path,
+    trash: Trash?,
+  ): Boolean = trash?.delete(path) ?: path.toFile().deleteRecursively()
+
   fun inputPathToFile(
     inputPath: Path,
     filePath: Path,
+  ): File = contentToFile(ObjectContent.OnDisk(inputPath), filePath)
+
+  fun contentToFile(
+    content: ObjectContent,
+    filePath: Path,
   ): File {
     try {
-      Files.copy(inputPath, filePath, REPLACE_EXISTING)
+      instrumentation.record(StoreInstrumentation.COPY_BINARY, OBJECT_BINARY, { content.size }) {
+        content.copyTo(filePath)
+      }
     } catch (e: IOException) {
       throw IllegalStateException("Could not write object binary-file.", e)
     }
     return filePath.toFile()
   }
+
+  private companion object {
+    const val OBJECT_BINARY = "object"
+  }
 }
@@ -21,9 +21,15 @@ import org.slf4j.LoggerFactory
 import org.springframework.beans.factory.DisposableBean
 import java.io.File
 
+/**
+ * Deletes all files below [rootFolder] on shutdown, unless they are retained. Retained files are
+ * complemented with a [StoreManifest] written by [writeManifest], so that the next start doesn't
+ * need to scan them.
+ */
 open class StoreCleaner(
   private val rootFolder: File,
   private val retainFilesOnExit: Boolean,
+  private val writeManifest: () -> Unit = {},
 ) : DisposableBean {
   override fun destroy() {
     LOG.info("Calling StoreCleaner destroy() with retainFilesOnExit={}", retainFilesOnExit)
@@ -34,6 +40,8 @@ open class StoreCleaner(
       } catch (e: Exception) {
         LOG.warn("Could not clean up directory {}.", rootFolder, e)
       }
+    } else if (retainFilesOnExit) {
+      writeManifest()
     }
   }
 
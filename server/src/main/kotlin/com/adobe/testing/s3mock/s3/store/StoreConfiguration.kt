@@ -16,21 +16,28 @@
 
 package com.adobe.testing.s3mock.s3.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.common.StoreInstrumentation
 import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
 import com.adobe.testing.s3mock.s3.dto.S3_DATE_FORMAT
 import com.adobe.testing.s3mock.s3.store.BucketStore.Companion.BUCKET_META_FILE
+import io.micrometer.core.instrument.MeterRegistry
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.ObjectProvider
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
+import org.springframework.core.env.Environment
 import tools.jackson.databind.ObjectMapper
 import java.io.File
 import java.io.IOException
 import java.nio.file.Files
 import java.time.ZoneId
 import java.time.format.DateTimeFormatter
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
 import kotlin.io.path.listDirectoryEntries
 
 @Configuration
@@ -38,31 +45,79 @@ import kotlin.io.path.listDirectoryEntries
 class StoreConfiguration {
   @Bean
   fun objectStore(
-    bucketNames: MutableList<String>,
+    properties: StoreProperties,
+    bucketNames: List<String>,
     bucketStore: BucketStore,
     objectMapper: ObjectMapper,
+    trash: Trash,
+    storeInstrumentation: StoreInstrumentation,
+    metadataWriter: MetadataWriter,
+    storeManifest: StoreManifest,
   ): ObjectStore {
-    val objectStore = ObjectStore(S3_OBJECT_DATE_FORMAT, objectMapper)
-    for (bucketName in bucketNames) {
-      val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
-      objectStore.loadObjects(bucketMetadata, bucketMetadata.objects.values)
+    val objectStore =
+      ObjectStore(
+        S3_OBJECT_DATE_FORMAT,
+        objectMapper,
+        ObjectDataCache(properties.smallObjectCacheSize.toBytes()),
+        trash,
+        storeInstrumentation,
+        metadataWriter,
+      )
+    // objects were verified before the last graceful shutdown if there is a store manifest
+    if (bucketNames.isNotEmpty() && storeManifest.snapshot == null) {
+      // objects are read on access anyway, verify them in the background to not delay startup
+      thread(isDaemon = true, name = "s3mock-object-loader") {
+        loadObjects(objectStore, bucketStore, bucketNames)
+      }
     }
     return objectStore
   }
 
+  internal fun loadObjects(
+    objectStore: ObjectStore,
+    bucketStore: BucketStore,
+    bucketNames: List<String>,
+  ) {
+    val start = System.nanoTime()
+    loadInParallel(bucketNames, "s3mock-object-loader") { bucketName ->
+      try {
+        val bucketMetadata = bucketStore.getBucketMetadata(bucketName)
+        objectStore.loadObjects(bucketMetadata, bucketStore.getObjects(bucketName).values)
+      } catch (e: RuntimeException) {
+        // e.g. the bucket was deleted in the meantime
+        LOG.warn("Could not load objects of bucket {}", bucketName, e)
+      }
+    }
+    LOG.info(
+      "Loaded objects of {} buckets in {} ms",
+      bucketNames.size,
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+    )
+  }
+
   @Bean
   fun bucketStore(
     properties: StoreProperties,
     rootFolder: File,
     bucketNames: List<String>,
     objectMapper: ObjectMapper,
+    trash: Trash,
+    storeInstrumentation: StoreInstrumentation,
+    metadataWriter: MetadataWriter,
+    storeManifest: StoreManifest,
     @Value($$"${com.adobe.testing.s3mock.store.region}") region: String?,
   ): BucketStore {
     val mockRegion = region ?: properties.region
 
-    val bucketStore = BucketStore(rootFolder, S3_OBJECT_DATE_FORMAT, mockRegion, objectMapper)
-    // load existing buckets first
-    bucketStore.loadBuckets(bucketNames)
+    val bucketStore =
+      BucketStore(rootFolder, S3_OBJECT_DATE_FORMAT, mockRegion, objectMapper, trash, storeInstrumentation, metadataWriter)
+    // load existing buckets first, from the store manifest if there is one
+    val snapshot = storeManifest.snapshot
+    if (snapshot != null) {
+      bucketStore.restoreBuckets(snapshot.buckets)
+    } else {
+      bucketStore.loadBuckets(bucketNames)
+    }
 
     // load initialBuckets if not part of existing buckets
     properties.initialBuckets
@@ -90,11 +145,18 @@ class StoreConfiguration {
   }
 
   @Bean
-  fun bucketNames(rootFolder: File): List<String> =
+  fun bucketNames(
+    rootFolder: File,
+    storeManifest: StoreManifest,
+  ): List<String> = storeManifest.snapshot?.buckets?.map { it.metadata.name } ?: scanBucketNames(rootFolder)
+
+  private fun scanBucketNames(rootFolder: File): List<String> =
     try {
       rootFolder
         .toPath()
         .listDirectoryEntries()
+        // bucket names can't start with a dot, e.g. the trash folder or the store manifest
+        .filterNot { it.fileName.toString().startsWith(".") }
         .mapNotNull {
           val meta = it.resolve(BUCKET_META_FILE).toFile()
           if (meta.exists()) {
@@ -115,7 +177,20 @@ class StoreConfiguration {
   fun multipartStore(
     objectStore: ObjectStore,
     objectMapper: ObjectMapper,
-  ): MultipartStore = MultipartStore(objectStore, objectMapper)
+    trash: Trash,
+    storeInstrumentation: StoreInstrumentation,
+    metadataWriter: MetadataWriter,
+    storeManifest: StoreManifest,
+  ): MultipartStore {
+    val multipartStore = MultipartStore(objectStore, objectMapper, trash, storeInstrumentation, metadataWriter)
+    storeManifest.snapshot?.buckets?.forEach { bucket ->
+      bucket.uploads?.let { multipartStore.restoreMultipartUploads(bucket.metadata, it) }
+    }
+    return multipartStore
+  }
+
+  @Bean
+  fun trash(rootFolder: File): Trash = Trash(rootFolder)
 
   @Bean
   fun kmsKeyStore(properties: StoreProperties): KmsKeyStore = KmsKeyStore(properties.validKmsKeys.ifEmpty { setOf() })
@@ -158,11 +233,54 @@ class StoreConfiguration {
     return root
   }
 
+  /**
+   * Writes all metadata files with the configured durability, forces the remaining folders when
+   * the context is closed. Temporary files a killed S3Mock left behind in the root folder are
+   * deleted in the background.
+   */
+  @Bean
+  fun metadataWriter(
+    properties: StoreProperties,
+    rootFolder: File,
+    storeInstrumentation: StoreInstrumentation,
+  ): MetadataWriter {
+    val metadataWriter = MetadataWriter(storeInstrumentation, properties.metadataDurability, properties.metadataSyncInterval)
+    thread(isDaemon = true, name = "s3mock-metadata-cleaner") {
+      metadataWriter.removeTemporaryFiles(rootFolder)
+    }
+    return metadataWriter
+  }
+
+  /**
+   * Records store operations as JFR events, and as metrics in the actuator registry if the
+   * `actuator` profile is active.
+   */
+  @Bean
+  fun storeInstrumentation(
+    environment: Environment,
+    registry: ObjectProvider<MeterRegistry>,
+  ): StoreInstrumentation = StoreInstrumentation(if (environment.matchesProfiles("actuator")) registry.ifAvailable else null)
+
+  @Bean
+  fun storeManifest(
+    rootFolder: File,
+    objectMapper: ObjectMapper,
+    storeInstrumentation: StoreInstrumentation,
+    metadataWriter: MetadataWriter,
+  ): StoreManifest = StoreManifest(rootFolder, objectMapper, storeInstrumentation, metadataWriter)
+
+  // depends on the stores, so that it's destroyed while they are still intact
   @Bean
   fun storeCleaner(
     rootFolder: File,
     properties: StoreProperties,
-  ): StoreCleaner = StoreCleaner(rootFolder, properties.retainFilesOnExit)
+    storeManifest: StoreManifest,
+    bucketStore: BucketStore,
+    multipartStore: MultipartStore,
+  ): StoreCleaner =
+    StoreCleaner(rootFolder, properties.retainFilesOnExit) {
+      storeManifest.write(bucketStore, multipartStore)
+    }
 
   companion object {
     private val LOG: Logger = LoggerFactory.getLogger(StoreConfiguration::class.java)
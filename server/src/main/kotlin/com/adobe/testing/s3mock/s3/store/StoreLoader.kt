@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.min
+
+/**
+ * Runs [action] for all [items] on a pool of at most [threads] threads named after [name] and
+ * returns once all of them are done. The pool only lives for this call, so loading the store at
+ * startup never competes with request handling on the common ForkJoin pool.
+ * The first exception thrown by [action] is rethrown after all items have been processed.
+ */
+internal fun <T> loadInParallel(
+  items: Collection<T>,
+  name: String,
+  threads: Int = Runtime.getRuntime().availableProcessors(),
+  action: (T) -> Unit,
+) {
+  if (items.size <= 1) {
+    items.forEach(action)
+    return
+  }
+  val counter = AtomicInteger()
+  val executor =
+    Executors.newFixedThreadPool(min(threads, items.size)) { runnable ->
+      Thread(runnable, "$name-${counter.incrementAndGet()}").apply { isDaemon = true }
+    }
+  try {
+    val failures =
+      items
+        .map { item -> executor.submit(Callable { action(item) }) }
+        .mapNotNull { future ->
+          try {
+            future.get()
+            null
+          } catch (e: ExecutionException) {
+            e.cause ?: e
+          }
+        }
+    failures.firstOrNull()?.let { throw it }
+  } finally {
+    executor.shutdownNow()
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.common.StoreInstrumentation
+import com.adobe.testing.s3mock.s3.dto.MultipartUpload
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import tools.jackson.core.JacksonException
+import tools.jackson.databind.ObjectMapper
+import java.io.File
+import java.io.IOException
+import java.util.UUID
+import kotlin.io.path.isDirectory
+import kotlin.io.path.listDirectoryEntries
+
+/**
+ * Snapshot of the stores, written to [FILE] in the root folder on graceful shutdown if files are
+ * retained: the metadata of all buckets, their keys and their active multipart uploads.
+ *
+ * On the next start, the snapshot is read and deleted right away, so that it's only ever used
+ * once and a crash leads to a full scan of the root folder. While it is used, the bucket folders
+ * are only listed, no metadata file is read, and existing objects aren't verified again. Keys and
+ * uploads that were never accessed before the shutdown aren't part of the snapshot, they are read
+ * from disk on first access as usual.
+ *
+ * Each bucket is stamped with the modification times of its folder and its multipart uploads
+ * folder. Every metadata file is moved into place in one of them, so the file system bumps the
+ * stamps on every write, also on writes by other tools or S3Mock versions that don't know the
+ * manifest. The snapshot is only used if all stamps are unchanged.
+ */
+open class StoreManifest(
+  private val rootFolder: File,
+  private val objectMapper: ObjectMapper,
+  private val instrumentation: StoreInstrumentation = StoreInstrumentation(),
+  private val metadataWriter: MetadataWriter = MetadataWriter(instrumentation),
+) {
+  private val file: File = rootFolder.resolve(FILE)
+
+  /**
+   * The snapshot written on the last graceful shutdown, `null` if there is none or if buckets were
+   * added, removed or written in the meantime.
+   */
+  val snapshot: Snapshot? by lazy { consume() }
+
+  /**
+   * Writes a snapshot of [bucketStore] and [multipartStore]. Must only be called once no more
+   * requests are served.
+   */
+  fun write(
+    bucketStore: BucketStore,
+    multipartStore: MultipartStore,
+  ) {
+    val buckets =
+      bucketStore.listBuckets().map {
+        Bucket(
+          it,
+          bucketStore.getLoadedObjects(it.name),
+          multipartStore.getLoadedMultipartUploads(it),
+          folderModified(it.name),
+          uploadsModified(it.name),
+        )
+      }
+    try {
+      metadataWriter.writeValue(objectMapper, file, Snapshot(VERSION, buckets))
+      LOG.info("Wrote store manifest with {} buckets.", buckets.size)
+    } catch (e: JacksonException) {
+      LOG.warn("Could not write store manifest {}", file, e)
+    } catch (e: IOException) {
+      LOG.warn("Could not write store manifest {}", file, e)
+    }
+  }
+
+  private fun consume(): Snapshot? {
+    if (!file.exists()) {
+      return null
+    }
+    try {
+      val snapshot = instrumentation.readMetadata(objectMapper, file, Snapshot::class.java)
+      if (snapshot.version == VERSION &&
+        snapshot.buckets.map { it.metadata.name }.toSet() == bucketFolders() &&
+        snapshot.buckets.all { isUnmodified(it) }
+      ) {
+        LOG.info("Using store manifest with {} buckets.", snapshot.buckets.size)
+        return snapshot
+      }
+      LOG.info("Store manifest does not match root folder {}, scanning buckets.", rootFolder)
+    } catch (e: JacksonException) {
+      LOG.warn("Could not read store manifest {}", file, e)
+    } catch (e: IOException) {
+      LOG.warn("Could not read store manifest {}", file, e)
+    } finally {
+      file.delete()
+    }
+    return null
+  }
+
+  private fun isUnmodified(bucket: Bucket): Boolean {
+    val name = bucket.metadata.name
+    return bucket.folderModified == folderModified(name) && bucket.uploadsModified == uploadsModified(name)
+  }
+
+  private fun folderModified(bucketName: String): Long = rootFolder.resolve(bucketName).lastModified()
+
+  // 0 if the bucket has no multipart uploads folder
+  private fun uploadsModified(bucketName: String): Long =
+    rootFolder.resolve(bucketName).resolve(MultipartStore.MULTIPARTS_FOLDER).lastModified()
+
+  /**
+   * Names of the folders in the root folder, bucket names can't start with a dot.
+   */
+  private fun bucketFolders(): Set<String> =
+    rootFolder
+      .toPath()
+      .listDirectoryEntries()
+      .filter { !it.fileName.toString().startsWith(".") && it.isDirectory() }
+      .map { it.fileName.toString() }
+      .toSet()
+
+  data class Snapshot(
+    val version: Int,
+    val buckets: List<Bucket>,
+  )
+
+  /**
+   * A bucket, its keys and its active multipart uploads, `null` if they were never loaded, and the
+   * modification times of its folder and its multipart uploads folder when the snapshot was taken.
+   */
+  data class Bucket(
+    val metadata: BucketMetadata,
+    val keys: Map<String, UUID>?,
+    val uploads: List<MultipartUpload>?,
+    val folderModified: Long,
+    val uploadsModified: Long,
+  )
+
+  companion object {
+    const val FILE = ".manifest.json"
+    private const val VERSION = 1
+    private val LOG: Logger = LoggerFactory.getLogger(StoreManifest::class.java)
+  }
+}
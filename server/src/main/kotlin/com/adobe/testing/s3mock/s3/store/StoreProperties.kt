@@ -16,8 +16,11 @@
 
 package com.adobe.testing.s3mock.s3.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.boot.context.properties.bind.DefaultValue
+import org.springframework.util.unit.DataSize
+import java.time.Duration
 
 @JvmRecord
 @ConfigurationProperties("com.adobe.testing.s3mock.store")
@@ -33,4 +36,19 @@ data class StoreProperties(
   // Region is S3Mock is supposed to mock.
   // Must be an official AWS region string like "us-east-1"
   @param:DefaultValue("us-east-1") val region: String,
+  // Objects up to this size are received and served from memory instead of being streamed
+  // through temp files. 0 to disable.
+  @param:DefaultValue("64KB") val smallObjectThreshold: DataSize = DataSize.ofKilobytes(64),
+  // Maximum total size of small objects kept in memory for serving GetObject.
+  @param:DefaultValue("32MB") val smallObjectCacheSize: DataSize = DataSize.ofMegabytes(32),
+  // How often lifecycle rules of buckets are executed. 0 to never execute them.
+  @param:DefaultValue("0s") val lifecycleInterval: Duration = Duration.ZERO,
+  // Factor by which time passes faster for lifecycle rules, e.g. 86400 for a day per second.
+  @param:DefaultValue("1") val lifecycleTimeAcceleration: Long = 1,
+  // Maximum number of keys per bucket evaluated in one execution of lifecycle rules.
+  @param:DefaultValue("10000") val lifecycleKeysPerRun: Int = 10000,
+  // How metadata files are forced to the storage device: "none", "batched" or "always".
+  @param:DefaultValue("none") val metadataDurability: MetadataWriter.Durability = MetadataWriter.Durability.NONE,
+  // How often metadata files written since the last sync are forced with durability "batched".
+  @param:DefaultValue("100ms") val metadataSyncInterval: Duration = Duration.ofMillis(100),
 )
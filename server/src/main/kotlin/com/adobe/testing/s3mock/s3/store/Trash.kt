@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.DisposableBean
+import java.io.File
+import java.io.IOException
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.util.UUID
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.io.path.createDirectories
+import kotlin.io.path.exists
+import kotlin.io.path.listDirectoryEntries
+
+/**
+ * Deletes files and folders in the background.
+ *
+ * [delete] atomically moves its target into a trash folder under the root folder and returns,
+ * reaper threads delete the contents of the trash folder afterwards. Leftovers from a previous
+ * run, e.g. after S3Mock was killed, are deleted when the trash is created.
+ */
+open class Trash(
+  rootFolder: File,
+  reapers: Int = DEFAULT_REAPERS,
+) : DisposableBean {
+  // created on first use
+  private val folder: Path = rootFolder.toPath().resolve(FOLDER)
+  private val counter = AtomicInteger()
+  private val executor: ExecutorService =
+    Executors.newFixedThreadPool(reapers) { runnable ->
+      Thread(runnable, "s3mock-trash-reaper-${counter.incrementAndGet()}").apply { isDaemon = true }
+    }
+
+  init {
+    if (folder.exists()) {
+      folder.listDirectoryEntries().forEach { reap(it) }
+    }
+  }
+
+  /**
+   * Moves [path] into the trash, to be deleted in the background.
+   * Falls back to deleting [path] right away if it can't be moved.
+   *
+   * @return true if [path] existed.
+   */
+  fun delete(path: Path): Boolean {
+    if (!path.exists()) {
+      return false
+    }
+    val target = folder.resolve(UUID.randomUUID().toString())
+    try {
+      folder.createDirectories()
+      Files.move(path, target, ATOMIC_MOVE)
+    } catch (e: AtomicMoveNotSupportedException) {
+      LOG.warn("Could not move {} to trash, deleting it right away.", path, e)
+      return path.toFile().deleteRecursively()
+    } catch (e: IOException) {
+      throw IllegalStateException("Could not delete $path", e)
+    }
+    reap(target)
+    return true
+  }
+
+  private fun reap(path: Path) {
+    executor.execute {
+      if (!path.toFile().deleteRecursively()) {
+        LOG.warn("Could not delete {} from trash.", path)
+      }
+    }
+  }
+
+  /**
+   * Stops the reapers without waiting for them, whatever is left in the trash is deleted on the
+   * next start.
+   */
+  override fun destroy() {
+    executor.shutdownNow()
+  }
+
+  companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(Trash::class.java)
+
+    /**
+     * Name of the trash folder in the root folder. Bucket names can't start with a dot, so this
+     * never clashes with a bucket.
+     */
+    const val FOLDER = ".trash"
+    private const val DEFAULT_REAPERS = 2
+  }
+}
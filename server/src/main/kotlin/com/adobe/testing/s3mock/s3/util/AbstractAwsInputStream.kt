@@ -17,42 +17,81 @@
 package com.adobe.testing.s3mock.s3.util
 
 import com.adobe.testing.s3mock.s3.dto.ChecksumAlgorithm
-import java.io.BufferedInputStream
+import software.amazon.awssdk.checksums.SdkChecksum
 import java.io.IOException
 import java.io.InputStream
-import java.nio.ByteBuffer
 import java.nio.charset.StandardCharsets
+import java.util.Base64
 import java.util.Objects
 
+/**
+ * Decodes the "aws-chunked" content encoding.
+ *
+ * The source is read in blocks into an internal buffer, which is scanned for the chunk framing:
+ * chunk headers (hex length, optionally followed by ";"-separated extensions like the chunk
+ * signature), the CRLF after each chunk's payload and the trailing headers after the last chunk.
+ * Payload bytes are copied to the caller in bulk, across chunk boundaries.
+ *
+ * A stream ending before the last, zero-length chunk, or a payload whose length differs from a
+ * known [decodedLength], fails with an [IOException].
+ *
+ * If the [expectedAlgorithm] is known up front, the payload is checksummed as it passes through;
+ * once the stream is exhausted, [calculatedChecksum] can be compared to the trailing [checksum].
+ */
 abstract class AbstractAwsInputStream protected constructor(
-  source: InputStream,
+  private val source: InputStream,
   val decodedLength: Long,
+  private val expectedAlgorithm: ChecksumAlgorithm? = null,
 ) : InputStream() {
   var readDecodedLength: Long = 0L
-    protected set
+    private set
   var checksum: String? = null
-    protected set
+    private set
   var algorithm: ChecksumAlgorithm? = null
-    protected set
+    private set
   var chunks: Int = 0
-    protected set
-  protected val source: InputStream = BufferedInputStream(source)
-  protected var chunkLength: Long = 0L
-  private val byteBuffer: ByteBuffer = ByteBuffer.allocate(MAX_CHUNK_SIZE)
+    private set
+
+  /**
+   * Checksum of the decoded payload, calculated with the algorithm passed to the constructor.
+   * Only available once the stream is exhausted and if the trailing [algorithm] matches.
+   */
+  var calculatedChecksum: String? = null
+    private set
+
+  private val digest: SdkChecksum? = expectedAlgorithm?.let { ChecksumUtil.sdkChecksumFor(it.toChecksumAlgorithm()) }
+  private val buffer = ByteArray(BUFFER_SIZE)
+  private var pos = 0
+  private var limit = 0
+  private var state = State.HEADER
+  private var chunkLength = 0L
+
+  private enum class State {
+    HEADER,
+    DATA,
+    DATA_END,
+    TRAILER,
+    DONE,
+  }
 
   @Throws(IOException::class)
   override fun close() {
     source.close()
   }
 
+  @Throws(IOException::class)
+  override fun read(): Int {
+    if (!nextPayload()) {
+      return -1
+    }
+    val b = buffer[pos].toInt() and 0xFF
+    consume(1)
+    return b
+  }
+
   /**
-   * Bulk read that delegates the first byte to the single-byte [read] so that all chunk-boundary
-   * parsing (chunk headers, signatures, trailing checksum, end-of-stream detection) stays in one
-   * place, then copies the remaining payload bytes of the *current* chunk directly from [source].
-   *
-   * The copy never crosses a chunk boundary (it is bounded by [chunkLength]), so all delimiter,
-   * CRLF and checksum handling remains the responsibility of [read]. A single call therefore
-   * returns at most the bytes remaining in the current chunk, which is a valid short read.
+   * Copies as much buffered payload as possible, continuing into following chunks while their
+   * framing is available. Only blocks on the source if no payload byte was copied yet.
    */
   @Throws(IOException::class)
   override fun read(
@@ -64,103 +103,178 @@ abstract class AbstractAwsInputStream protected constructor(
     if (len == 0) {
       return 0
     }
-
-    val first = read()
-    if (first < 0) {
-      return -1
-    }
-    b[off] = first.toByte()
-
-    var count = 1
-    while (count < len && chunkLength > 0L) {
-      val toRead = minOf((len - count).toLong(), chunkLength).toInt()
-      val read = source.read(b, off + count, toRead)
-      if (read < 0) {
-        break
-      }
-      count += read
-      chunkLength -= read
-      readDecodedLength += read
+    var count = 0
+    while (count < len && (count == 0 || pos < limit) && nextPayload()) {
+      val n = minOf(len - count, limit - pos, minOf(chunkLength, Int.MAX_VALUE.toLong()).toInt())
+      System.arraycopy(buffer, pos, b, off + count, n)
+      consume(n)
+      count += n
     }
-    return count
+    return if (count == 0) -1 else count
+  }
+
+  override fun available(): Int = if (state == State.DATA) minOf(chunkLength, (limit - pos).toLong()).toInt() else 0
+
+  private fun consume(n: Int) {
+    digest?.update(buffer, pos, n)
+    pos += n
+    chunkLength -= n
+    readDecodedLength += n
   }
 
   /**
-   * Reads this stream until the byte sequence was found.
-   *
-   * @param endSequence The byte sequence to look for in the stream. The source stream is read
-   * until the last bytes read are equal to this sequence.
+   * Advances through the chunk framing until payload is buffered.
    *
-   * @return The bytes read *before* the end sequence started.
+   * @return `false` if the end of the payload was reached.
    */
   @Throws(IOException::class)
-  protected fun readUntil(endSequence: ByteArray): ByteArray {
-    byteBuffer.clear()
-    while (!endsWith(byteBuffer, endSequence)) {
-      val c = source.read()
-      if (c < 0) {
-        return ByteArray(0)
-      }
+  private fun nextPayload(): Boolean {
+    while (true) {
+      when (state) {
+        State.DATA -> {
+          when {
+            chunkLength == 0L -> state = State.DATA_END
+            pos < limit -> return true
+            !fill() -> throw IOException("Unexpected end of stream in chunk $chunks")
+          }
+        }
 
-      val unsigned = (c and 0xFF).toByte()
-      byteBuffer.put(unsigned)
-    }
+        State.DATA_END -> {
+          // the CRLF terminating the payload of a chunk
+          readLine() ?: throw IOException("Unexpected end of stream after chunk $chunks")
+          state = State.HEADER
+        }
 
-    val result = ByteArray(byteBuffer.position() - endSequence.size)
-    byteBuffer.rewind()
-    byteBuffer.get(result)
-    return result
-  }
+        State.HEADER -> {
+          val line = readLine() ?: throw IOException("Unexpected end of stream before the last chunk")
+          if (line.isNotBlank()) {
+            chunkLength = parseChunkLength(line)
+            if (chunkLength == 0L) {
+              verifyDecodedLength()
+              state = State.TRAILER
+            } else {
+              chunks++
+              state = State.DATA
+            }
+          }
+        }
+
+        State.TRAILER -> {
+          readTrailer()
+          if (digest != null && algorithm == expectedAlgorithm) {
+            calculatedChecksum = Base64.getEncoder().encodeToString(digest.checksumBytes)
+          }
+          state = State.DONE
+        }
 
-  protected fun endsWith(
-    buffer: ByteBuffer,
-    endSequence: ByteArray,
-  ): Boolean {
-    val pos = buffer.position()
-    if (pos >= endSequence.size) {
-      for (i in endSequence.indices) {
-        if (buffer.get(pos - endSequence.size + i) != endSequence[i]) {
+        State.DONE -> {
           return false
         }
       }
-
-      return true
     }
+  }
 
-    return false
+  /**
+   * Verifies that the payload has the length announced by the client, if it announced one.
+   */
+  @Throws(IOException::class)
+  private fun verifyDecodedLength() {
+    if (decodedLength >= 0 && readDecodedLength != decodedLength) {
+      throw IOException("Decoded $readDecodedLength bytes, but the decoded content length is $decodedLength")
+    }
   }
 
-  protected fun setChunkLength(hexLengthBytes: ByteArray) {
-    chunkLength = String(hexLengthBytes, StandardCharsets.UTF_8).trim().toLong(16)
+  /**
+   * Reads the trailing headers up to the empty line terminating them, or the end of the stream.
+   */
+  @Throws(IOException::class)
+  private fun readTrailer() {
+    while (true) {
+      val line = readLine()
+      if (line.isNullOrEmpty()) {
+        return
+      }
+      if (checksum == null && line.startsWith(CHECKSUM_HEADER, ignoreCase = true)) {
+        val sep = line.indexOf(':')
+        if (sep > CHECKSUM_HEADER.length && sep < line.length - 1) {
+          algorithm = ChecksumAlgorithm.fromString(line.substring(CHECKSUM_HEADER.length, sep))
+          checksum = line.substring(sep + 1).trim()
+        }
+      }
+    }
   }
 
+  /**
+   * Reads the next line from the buffer, without its line terminator.
+   *
+   * @return the line, or `null` if the stream ended before any byte was read.
+   */
   @Throws(IOException::class)
-  protected fun extractAlgorithmAndChecksum() {
-    if (algorithm == null && checksum == null) {
-      readUntil(CHECKSUM_HEADER)
-      val headerLine = String(readUntil(CRLF))
-      if (headerLine.isNotBlank()) {
-        val sep = headerLine.indexOf(':')
-        if (sep in 1 until headerLine.length - 1) {
-          val type = headerLine.take(sep)
-          algorithm = ChecksumAlgorithm.fromString(type)
-          checksum = headerLine.substring(sep + 1)
+  private fun readLine(): String? {
+    var scanFrom = pos
+    while (true) {
+      for (i in scanFrom until limit) {
+        if (buffer[i] == LF) {
+          val end = if (i > pos && buffer[i - 1] == CR) i - 1 else i
+          val line = String(buffer, pos, end - pos, StandardCharsets.US_ASCII)
+          pos = i + 1
+          return line
         }
       }
+      scanFrom = limit - pos
+      if (!fill()) {
+        if (pos == limit) {
+          return null
+        }
+        // unterminated last line
+        return String(buffer, pos, limit - pos, StandardCharsets.US_ASCII).also { pos = limit }
+      }
+      scanFrom += pos
     }
   }
 
-  companion object {
-    @JvmStatic
-    protected val CRLF: ByteArray = "\r\n".toByteArray(StandardCharsets.UTF_8)
+  /**
+   * Reads more bytes from the source, moving unconsumed bytes to the start of the buffer first.
+   *
+   * @return `false` if the source is exhausted.
+   */
+  @Throws(IOException::class)
+  private fun fill(): Boolean {
+    if (pos > 0) {
+      System.arraycopy(buffer, pos, buffer, 0, limit - pos)
+      limit -= pos
+      pos = 0
+    }
+    if (limit == buffer.size) {
+      throw IOException("Chunk header exceeds ${buffer.size} bytes")
+    }
+    val read = source.read(buffer, limit, buffer.size - limit)
+    if (read < 0) {
+      return false
+    }
+    limit += read
+    return true
+  }
 
-    @JvmStatic
-    protected val DELIMITER: ByteArray = ";".toByteArray(StandardCharsets.UTF_8)
-    protected val CHECKSUM_HEADER: ByteArray = "x-amz-checksum-".toByteArray(StandardCharsets.UTF_8)
+  @Throws(IOException::class)
+  private fun parseChunkLength(header: String): Long {
+    val end = header.indexOf(';').let { if (it < 0) header.length else it }
+    return header
+      .substring(0, end)
+      .trim()
+      .toLongOrNull(16)
+      ?.takeIf { it >= 0 }
+      ?: throw IOException("Invalid chunk header")
+  }
+
+  companion object {
+    private const val CR = '\r'.code.toByte()
+    private const val LF = '\n'.code.toByte()
+    private const val CHECKSUM_HEADER = "x-amz-checksum-"
 
     /**
      * That's the max chunk buffer size used in the AWS implementation.
      */
-    private const val MAX_CHUNK_SIZE = 256 * 1024
+    private const val BUFFER_SIZE = 256 * 1024
   }
 }
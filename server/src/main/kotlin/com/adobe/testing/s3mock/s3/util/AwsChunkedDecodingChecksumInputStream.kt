@@ -16,7 +16,7 @@
 
 package com.adobe.testing.s3mock.s3.util
 
-import java.io.IOException
+import com.adobe.testing.s3mock.s3.dto.ChecksumAlgorithm
 import java.io.InputStream
 
 /**
@@ -57,34 +57,5 @@ import java.io.InputStream
 class AwsChunkedDecodingChecksumInputStream(
   source: InputStream,
   decodedLength: Long,
-) : AbstractAwsInputStream(source, decodedLength) {
-  @Throws(IOException::class)
-  override fun read(): Int {
-    if (chunkLength == 0L) {
-      // try to read chunk length
-      val hexLengthBytes = readHexLength()
-      if (hexLengthBytes.isEmpty()) {
-        return -1
-      }
-
-      setChunkLength(hexLengthBytes)
-
-      if (chunkLength == 0L) {
-        // chunk length found, but was "0". Try and find the checksum.
-        extractAlgorithmAndChecksum()
-        return -1
-      }
-
-      chunks++
-      readUntil(CRLF)
-    }
-
-    readDecodedLength++
-    chunkLength--
-
-    return source.read()
-  }
-
-  @Throws(IOException::class)
-  private fun readHexLength(): ByteArray = readUntil(DELIMITER)
-}
+  expectedAlgorithm: ChecksumAlgorithm? = null,
+) : AbstractAwsInputStream(source, decodedLength, expectedAlgorithm)
@@ -81,7 +81,7 @@ object ChecksumUtil {
    * @param algorithm algorithm to use
    * @return the checksum
    */
-  private fun checksumFor(
+  fun checksumFor(
     stream: InputStream,
     algorithm: SdkChecksumAlgorithm,
   ): String = Base64.getEncoder().encodeToString(checksum(stream, algorithm))
@@ -144,7 +144,7 @@ object ChecksumUtil {
    * `aws-crt` library; all other algorithms have a Java implementation in the SDK
    * `checksums` module and are delegated to [SdkChecksum.forAlgorithm].
    */
-  private fun sdkChecksumFor(algorithm: SdkChecksumAlgorithm): SdkChecksum =
+  fun sdkChecksumFor(algorithm: SdkChecksumAlgorithm): SdkChecksum =
     if (algorithm.algorithmId() == DefaultChecksumAlgorithm.CRC64NVME.algorithmId()) {
       Crc64Nvme()
     } else {
@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.util
+
+import java.io.InputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import kotlin.io.path.deleteIfExists
+import kotlin.io.path.fileSize
+import kotlin.io.path.inputStream
+
+/**
+ * Body of an upload as received from the client.
+ * Small bodies are kept [InMemory], everything else is spooled to a temp file [OnDisk].
+ */
+sealed interface ObjectContent {
+  val size: Long
+
+  fun inputStream(): InputStream
+
+  /**
+   * Writes the content to [target], replacing it if it exists.
+   */
+  fun copyTo(target: Path)
+
+  /**
+   * Releases the content, deleting its temp file if there is one.
+   */
+  fun discard()
+
+  class InMemory(
+    val bytes: ByteArray,
+  ) : ObjectContent {
+    override val size: Long
+      get() = bytes.size.toLong()
+
+    override fun inputStream(): InputStream = bytes.inputStream()
+
+    override fun copyTo(target: Path) {
+      Files.write(target, bytes)
+    }
+
+    override fun discard() {
+      // nothing to release
+    }
+  }
+
+  class OnDisk(
+    val path: Path,
+  ) : ObjectContent {
+    override val size: Long
+      get() = path.fileSize()
+
+    override fun inputStream(): InputStream = path.inputStream()
+
+    override fun copyTo(target: Path) {
+      Files.copy(path, target, REPLACE_EXISTING)
+    }
+
+    override fun discard() {
+      runCatching { path.deleteIfExists() }
+    }
+  }
+}
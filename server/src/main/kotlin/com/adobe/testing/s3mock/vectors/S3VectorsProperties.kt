@@ -15,6 +15,7 @@
  */
 package com.adobe.testing.s3mock.vectors
 
+import com.adobe.testing.s3mock.vectors.store.VectorQuantization
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.boot.context.properties.bind.DefaultValue
 
@@ -27,4 +28,7 @@ import org.springframework.boot.context.properties.bind.DefaultValue
 data class S3VectorsProperties(
   @param:DefaultValue("9092") val httpPort: Int,
   @param:DefaultValue("9193") val httpsPort: Int,
+  // In-memory representation of vectors: none (float32), float16 or int8.
+  // Quantized query results are rescored with the exact vectors read from disk.
+  @param:DefaultValue("none") val quantization: VectorQuantization,
 )
@@ -16,6 +16,7 @@
 package com.adobe.testing.s3mock.vectors.controller
 
 import com.adobe.testing.s3mock.common.AwsHttpHeaders.X_AMZN_ERROR_TYPE
+import com.adobe.testing.s3mock.common.RequestMetricsFilter
 import com.adobe.testing.s3mock.vectors.S3VectorsException
 import com.adobe.testing.s3mock.vectors.dto.VectorsErrorResponse
 import com.adobe.testing.s3mock.vectors.service.VectorBucketService
@@ -121,6 +122,7 @@ class VectorsControllerConfiguration : WebMvcConfigurer {
     @ExceptionHandler(S3VectorsException::class)
     fun handleS3VectorsException(ex: S3VectorsException): ResponseEntity<VectorsErrorResponse> {
       LOG.debug("Responding with status {}: {}", ex.status, ex.message, ex)
+      RequestMetricsFilter.recordErrorCode(ex.type)
       val headers =
         HttpHeaders().apply {
           contentType = MediaType.APPLICATION_JSON
@@ -147,6 +149,7 @@ class VectorsControllerConfiguration : WebMvcConfigurer {
     @ExceptionHandler(IllegalStateException::class)
     fun handleIllegalState(ex: IllegalStateException): ResponseEntity<VectorsErrorResponse> {
       LOG.debug("Responding with 500: {}", ex.message, ex)
+      RequestMetricsFilter.recordErrorCode("InternalError")
       val headers = HttpHeaders().apply { contentType = MediaType.APPLICATION_JSON }
       return ResponseEntity
         .status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -53,6 +53,15 @@ object VectorArns {
     return parts[3]
   }
 
+  /** Extracts `<bucketName>` and `<indexName>` from an index ARN. */
+  fun indexIdFromArn(arn: String): Pair<String, String> {
+    val resource = arn.split(":").getOrNull(5) ?: throw S3VectorsException.validation("Invalid ARN: $arn")
+    val parts = resource.split("/")
+    if (parts.size < 2 || parts[0] != "bucket") throw S3VectorsException.validation("Invalid vector bucket ARN: $arn")
+    if (parts.size < 4 || parts[2] != "index") throw S3VectorsException.validation("Invalid vector index ARN: $arn")
+    return parts[1] to parts[3]
+  }
+
   /** Returns true if `arn` looks like an ARN (starts with `arn:`). */
   fun isArn(value: String): Boolean = value.startsWith("arn:")
 }
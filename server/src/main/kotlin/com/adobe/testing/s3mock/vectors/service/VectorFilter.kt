@@ -0,0 +1,289 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.service
+
+import com.adobe.testing.s3mock.vectors.store.VectorMetadataIndex
+import com.adobe.testing.s3mock.vectors.store.VectorMetadataIndex.Companion.canonical
+import tools.jackson.databind.JsonNode
+import java.util.BitSet
+
+/**
+ * A metadata filter, compiled once per query from the MongoDB-style filter DSL.
+ *
+ * Operands are converted to typed scalars at compile time (see [VectorMetadataIndex.canonical]),
+ * so evaluating a vector compares doubles and strings instead of `JsonNode`s.
+ * [candidates] resolves the filter against the inverted index of an index to the ordinals that
+ * can match, so that distances are only computed for those.
+ *
+ * Semantics: a field holding an array matches if any of its elements matches. Comparison operators
+ * only match values of the same type as the operand (number or string); a missing field never
+ * matches `$eq`, `$gt(e)`, `$lt(e)` or `$in`, but always matches `$ne` and `$nin`. A `null`
+ * operand matches missing and null fields, and arrays holding a null element.
+ */
+sealed interface VectorFilter {
+  /**
+   * Metadata keys referenced by this filter.
+   */
+  val keys: Set<String>
+
+  fun matches(metadata: JsonNode?): Boolean
+
+  /**
+   * Ordinals out of [live] that may match this filter, or `null` if [index] can't narrow them down.
+   */
+  fun candidates(
+    index: VectorMetadataIndex,
+    live: BitSet,
+  ): Candidates?
+
+  /**
+   * If [exact] is `true`, exactly [ordinals] match. Otherwise [ordinals] is a superset of the
+   * matches, and each candidate still has to be checked with [matches].
+   */
+  class Candidates(
+    val ordinals: BitSet,
+    val exact: Boolean,
+  )
+
+  data object MatchAll : VectorFilter {
+    override val keys: Set<String> = emptySet()
+
+    override fun matches(metadata: JsonNode?): Boolean = true
+
+    override fun candidates(
+      index: VectorMetadataIndex,
+      live: BitSet,
+    ) = Candidates(live, true)
+  }
+
+  data class And(
+    val filters: List<VectorFilter>,
+  ) : VectorFilter {
+    override val keys: Set<String> = filters.flatMapTo(mutableSetOf()) { it.keys }
+
+    override fun matches(metadata: JsonNode?): Boolean = filters.all { it.matches(metadata) }
+
+    override fun candidates(
+      index: VectorMetadataIndex,
+      live: BitSet,
+    ): Candidates? {
+      val resolved = filters.map { it.candidates(index, live) }
+      val known = resolved.filterNotNull()
+      if (known.isEmpty()) return null
+      val ordinals = known.first().ordinals.clone() as BitSet
+      known.drop(1).forEach { ordinals.and(it.ordinals) }
+      return Candidates(ordinals, resolved.all { it?.exact == true })
+    }
+  }
+
+  data class Or(
+    val filters: List<VectorFilter>,
+  ) : VectorFilter {
+    override val keys: Set<String> = filters.flatMapTo(mutableSetOf()) { it.keys }
+
+    override fun matches(metadata: JsonNode?): Boolean = filters.any { it.matches(metadata) }
+
+    override fun candidates(
+      index: VectorMetadataIndex,
+      live: BitSet,
+    ): Candidates? {
+      val ordinals = BitSet()
+      var exact = true
+      for (filter in filters) {
+        val candidates = filter.candidates(index, live) ?: return null
+        ordinals.or(candidates.ordinals)
+        exact = exact && candidates.exact
+      }
+      return Candidates(ordinals, exact)
+    }
+  }
+
+  data class Not(
+    val filter: VectorFilter,
+  ) : VectorFilter {
+    override val keys: Set<String> = filter.keys
+
+    override fun matches(metadata: JsonNode?): Boolean = !filter.matches(metadata)
+
+    override fun candidates(
+      index: VectorMetadataIndex,
+      live: BitSet,
+    ): Candidates? {
+      val inner = filter.candidates(index, live)?.takeIf { it.exact } ?: return null
+      val ordinals = live.clone() as BitSet
+      ordinals.andNot(inner.ordinals)
+      return Candidates(ordinals, true)
+    }
+  }
+
+  /**
+   * Matches if the field equals [value], a canonical scalar, a `JsonNode` for objects and arrays,
+   * or `null` to match missing or null fields and arrays holding a null element.
+   */
+  data class Equals(
+    val key: String,
+    val value: Any?,
+  ) : VectorFilter {
+    override val keys: Set<String> = setOf(key)
+
+    override fun matches(metadata: JsonNode?): Boolean {
+      val values = fieldValues(metadata, key)
+      return when (value) {
+        null -> values.isEmpty() || values.any { it.isNull }
+        is JsonNode -> metadata?.get(key) == value || values.any { it == value }
+        else -> values.any { canonical(it) == value }
+      }
+    }
+
+    override fun candidates(
+      index: VectorMetadataIndex,
+      live: BitSet,
+    ): Candidates? {
+      if (!index.isIndexed(key)) return null
+      if (value == null) {
+        val ordinals = live.clone() as BitSet
+        ordinals.andNot(index.present(key))
+        ordinals.or(index.nullElements(key))
+        return Candidates(ordinals, true)
+      }
+      return index.equalTo(key, value)?.let { Candidates(it, true) }
+    }
+  }
+
+  /**
+   * Matches if the field is of the same type as [bound] and compares above it
+   * (or below it if [greater] is `false`).
+   */
+  data class Compare(
+    val key: String,
+    val bound: Any?,
+    val greater: Boolean,
+    val inclusive: Boolean,
+  ) : VectorFilter {
+    override val keys: Set<String> = setOf(key)
+
+    override fun matches(metadata: JsonNode?): Boolean =
+      fieldValues(metadata, key).any { node ->
+        val value = canonical(node)
+        val result =
+          when {
+            value is Double && bound is Double -> value.compareTo(bound)
+            value is String && bound is String -> value.compareTo(bound)
+            else -> return@any false
+          }
+        when {
+          result == 0 -> inclusive
+          greater -> result > 0
+          else -> result < 0
+        }
+      }
+
+    override fun candidates(
+      index: VectorMetadataIndex,
+      live: BitSet,
+    ): Candidates? {
+      if (!index.isIndexed(key)) return null
+      if (bound == null) return Candidates(BitSet(), true)
+      // bounds other than numbers and strings never match
+      return Candidates(index.range(key, bound, greater, inclusive) ?: BitSet(), true)
+    }
+  }
+
+  data class Exists(
+    val key: String,
+  ) : VectorFilter {
+    override val keys: Set<String> = setOf(key)
+
+    override fun matches(metadata: JsonNode?): Boolean = fieldValues(metadata, key).isNotEmpty()
+
+    override fun candidates(
+      index: VectorMetadataIndex,
+      live: BitSet,
+    ): Candidates? = if (index.isIndexed(key)) Candidates(index.present(key), true) else null
+  }
+
+  companion object {
+    fun compile(filter: JsonNode): VectorFilter {
+      if (!filter.isObject) return MatchAll
+      return and(
+        filter.properties().map { (key, condition) ->
+          when (key) {
+            AND -> and(subFilters(condition))
+            OR -> Or(subFilters(condition))
+            else -> compileCondition(key, condition)
+          }
+        },
+      )
+    }
+
+    private fun compileCondition(
+      key: String,
+      condition: JsonNode,
+    ): VectorFilter {
+      if (!condition.isObject) return Equals(key, canonical(condition))
+      return and(
+        condition.properties().map { (op, operand) ->
+          when (op) {
+            EQ -> Equals(key, canonical(operand))
+            NE -> Not(Equals(key, canonical(operand)))
+            GT -> Compare(key, canonical(operand), greater = true, inclusive = false)
+            GTE -> Compare(key, canonical(operand), greater = true, inclusive = true)
+            LT -> Compare(key, canonical(operand), greater = false, inclusive = false)
+            LTE -> Compare(key, canonical(operand), greater = false, inclusive = true)
+            IN -> Or(operands(operand).map { Equals(key, canonical(it)) })
+            NIN -> Not(Or(operands(operand).map { Equals(key, canonical(it)) }))
+            EXISTS -> if (operand.booleanValue()) Exists(key) else Not(Exists(key))
+            else -> MatchAll
+          }
+        },
+      )
+    }
+
+    private fun subFilters(condition: JsonNode): List<VectorFilter> = operands(condition).map { compile(it) }
+
+    private fun operands(node: JsonNode): List<JsonNode> = if (node.isArray) node.toList() else emptyList()
+
+    private fun and(filters: List<VectorFilter>): VectorFilter = filters.singleOrNull() ?: And(filters)
+
+    /**
+     * Values of [key] in [metadata], with arrays flattened to their elements, which may be null.
+     * Empty if the field is missing or null.
+     */
+    private fun fieldValues(
+      metadata: JsonNode?,
+      key: String,
+    ): List<JsonNode> {
+      val field = metadata?.get(key) ?: return emptyList()
+      return when {
+        field.isNull -> emptyList()
+        field.isArray -> field.toList()
+        else -> listOf(field)
+      }
+    }
+
+    private const val AND = $$"$and"
+    private const val OR = $$"$or"
+    private const val EQ = $$"$eq"
+    private const val NE = $$"$ne"
+    private const val GT = $$"$gt"
+    private const val GTE = $$"$gte"
+    private const val LT = $$"$lt"
+    private const val LTE = $$"$lte"
+    private const val IN = $$"$in"
+    private const val NIN = $$"$nin"
+    private const val EXISTS = $$"$exists"
+  }
+}
@@ -25,10 +25,12 @@ import com.adobe.testing.s3mock.vectors.dto.MetadataConfiguration
 import com.adobe.testing.s3mock.vectors.dto.VectorIndex
 import com.adobe.testing.s3mock.vectors.store.VectorIndexMetadata
 import com.adobe.testing.s3mock.vectors.store.VectorIndexStore
+import com.adobe.testing.s3mock.vectors.store.VectorStore
 
 open class VectorIndexService(
   private val vectorBucketService: VectorBucketService,
   private val vectorIndexStore: VectorIndexStore,
+  private val vectorStore: VectorStore,
   private val region: String,
 ) : VectorServiceBase() {
   fun createIndex(
@@ -110,8 +112,8 @@ open class VectorIndexService(
     indexNameOrArn: String,
   ) {
     val (bucketName, indexName) = resolveIndexId(bucketNameOrArn, indexNameOrArn)
-    requireIndex(bucketName, indexName)
-    vectorIndexStore.deleteIndex(bucketName, indexName)
+    val meta = requireIndex(bucketName, indexName)
+    vectorStore.deleteIndex(meta)
   }
 
   fun requireIndex(
@@ -158,7 +160,7 @@ open class VectorIndexService(
     indexNameOrArn: String,
   ): Pair<String, String> =
     if (VectorArns.isArn(indexNameOrArn)) {
-      VectorArns.bucketNameFromArn(indexNameOrArn) to VectorArns.indexNameFromArn(indexNameOrArn)
+      VectorArns.indexIdFromArn(indexNameOrArn)
     } else {
       val bucket =
         bucketNameOrArn?.let { vectorBucketService.resolveName(it) }
@@ -168,6 +170,10 @@ open class VectorIndexService(
 
   private fun verifyIndexName(name: String) {
     if (name.length !in 3..63) throw S3VectorsException.INVALID_INDEX_NAME
-    if (!name.matches(Regex("[a-z0-9][a-z0-9\\-]*[a-z0-9]|[a-z0-9]"))) throw S3VectorsException.INVALID_INDEX_NAME
+    if (!name.matches(INDEX_NAME_PATTERN)) throw S3VectorsException.INVALID_INDEX_NAME
+  }
+
+  companion object {
+    private val INDEX_NAME_PATTERN = Regex("[a-z0-9][a-z0-9\\-]*[a-z0-9]|[a-z0-9]")
   }
 }
@@ -19,8 +19,10 @@ import com.adobe.testing.s3mock.vectors.S3VectorsException
 import com.adobe.testing.s3mock.vectors.dto.QueryOutputVector
 import com.adobe.testing.s3mock.vectors.dto.QueryVectorsResponse
 import com.adobe.testing.s3mock.vectors.dto.VectorData
+import com.adobe.testing.s3mock.vectors.store.VectorQuantization
 import com.adobe.testing.s3mock.vectors.store.VectorStore
 import tools.jackson.databind.JsonNode
+import java.util.PriorityQueue
 import kotlin.math.sqrt
 
 open class VectorQueryService(
@@ -45,28 +47,55 @@ open class VectorQueryService(
         ?: throw S3VectorsException.validation("queryVector.float32 is required.")
     if (query.size != indexMeta.dimension) throw S3VectorsException.dimensionMismatch(indexMeta.dimension, query.size)
 
-    if (filter != null) {
-      validateFilter(filter, indexMeta.nonFilterableMetadataKeys)
+    val compiledFilter = filter?.let { VectorFilter.compile(it) }
+    if (compiledFilter != null) {
+      validateFilter(compiledFilter, indexMeta.nonFilterableMetadataKeys)
     }
 
-    val allVectors = vectorStore.readAllForQuery(bucketName, indexName)
-
-    data class Candidate(
-      val key: String,
-      val dist: Double,
-      val metadata: JsonNode?,
-    )
-
-    val candidates = mutableListOf<Candidate>()
-    for ((key, floats1, metadata) in allVectors) {
-      val floats = floats1 ?: continue
-      if (filter != null && !matchesFilter(metadata, filter)) continue
-      val dist = computeDistance(query, floats, indexMeta.distanceMetric)
-      candidates.add(Candidate(key, dist, metadata))
-    }
+    val top =
+      vectorStore.getIndexData(indexMeta).read { view ->
+        val live = view.live()
+        val candidates = compiledFilter?.candidates(view.metadataIndex, live)
+        val ordinals = candidates?.ordinals ?: live
+        // candidates that could not be resolved exactly from the metadata index are checked one by one
+        val residualFilter = compiledFilter?.takeIf { candidates?.exact != true }
+        // quantized distances are approximate, keep more candidates and rescore them exactly
+        val quantized = view.quantization != VectorQuantization.NONE
+        val scanSize = if (quantized) topK * RESCORE_FACTOR else topK
+
+        // max-heap on distance and key, bounded to scanSize entries
+        val nearest = PriorityQueue(scanSize, NEAREST_FIRST.reversed())
+        val vector = FloatArray(query.size)
+        var ordinal = ordinals.nextSetBit(0)
+        while (ordinal >= 0) {
+          if (residualFilter == null || residualFilter.matches(view.metadata(ordinal))) {
+            view.decode(ordinal, vector)
+            val dist = computeDistance(query, vector, indexMeta.distanceMetric)
+            if (nearest.size < scanSize || dist <= nearest.peek().dist) {
+              // vectors at the same distance are ranked by key, independent of their ordinals
+              val candidate = Candidate(ordinal, view.key(ordinal), dist)
+              if (nearest.size < scanSize || NEAREST_FIRST.compare(candidate, nearest.peek()) < 0) {
+                nearest.add(candidate)
+                if (nearest.size > scanSize) nearest.poll()
+              }
+            }
+          }
+          ordinal = ordinals.nextSetBit(ordinal + 1)
+        }
 
-    candidates.sortBy { it.dist }
-    val top = candidates.take(topK)
+        val scanned = nearest.toList()
+        val rescored =
+          if (quantized) {
+            val exact = view.vectors(scanned.map { it.ordinal }.toIntArray())
+            scanned.mapIndexed { i, c -> Candidate(c.ordinal, c.key, computeDistance(query, exact[i], indexMeta.distanceMetric)) }
+          } else {
+            scanned
+          }
+        rescored
+          .sortedWith(NEAREST_FIRST)
+          .take(topK)
+          .map { Match(it.key, it.dist, view.metadata(it.ordinal)) }
+      }
 
     return QueryVectorsResponse(
       distanceMetric = indexMeta.distanceMetric,
@@ -81,6 +110,18 @@ open class VectorQueryService(
     )
   }
 
+  private class Candidate(
+    val ordinal: Int,
+    val key: String,
+    val dist: Double,
+  )
+
+  private class Match(
+    val key: String,
+    val dist: Double,
+    val metadata: JsonNode?,
+  )
+
   private fun computeDistance(
     a: FloatArray,
     b: FloatArray,
@@ -121,135 +162,22 @@ open class VectorQueryService(
   }
 
   private fun validateFilter(
-    filter: JsonNode,
+    filter: VectorFilter,
     nonFilterableKeys: List<String>,
   ) {
-    collectFilterKeys(filter).forEach { key ->
-      if (key in nonFilterableKeys) throw S3VectorsException.INVALID_FILTER_NON_FILTERABLE_KEY
-    }
-  }
-
-  private fun collectFilterKeys(node: JsonNode): Set<String> {
-    val keys = mutableSetOf<String>()
-    if (node.isObject) {
-      for ((key, value) in node.properties()) {
-        when {
-          key == $$"$and" || key == $$"$or" -> {
-            value.forEach { sub -> keys.addAll(collectFilterKeys(sub)) }
-          }
-
-          !key.startsWith("$") -> {
-            keys.add(key)
-          }
-
-          else -> {}
-        }
-      }
-    }
-    return keys
+    if (filter.keys.any { it in nonFilterableKeys }) throw S3VectorsException.INVALID_FILTER_NON_FILTERABLE_KEY
   }
 
   /** Evaluates the MongoDB-style filter DSL against a vector's metadata. */
   internal fun matchesFilter(
     metadata: JsonNode?,
     filter: JsonNode,
-  ): Boolean {
-    if (!filter.isObject) return true
-    for ((key, condition) in filter.properties()) {
-      when (key) {
-        $$"$and" -> {
-          val allMatch = (0 until condition.size()).all { i -> matchesFilter(metadata, condition[i]) }
-          if (!allMatch) return false
-        }
-
-        $$"$or" -> {
-          val anyMatch = (0 until condition.size()).any { i -> matchesFilter(metadata, condition[i]) }
-          if (!anyMatch) return false
-        }
-
-        else -> {
-          val fieldValue = metadata?.get(key)
-          if (!matchesCondition(fieldValue, condition)) return false
-        }
-      }
-    }
-    return true
-  }
-
-  private fun matchesCondition(
-    fieldValue: JsonNode?,
-    condition: JsonNode,
-  ): Boolean {
-    if (condition.isObject) {
-      for ((op, operand) in condition.properties()) {
-        val result =
-          when (op) {
-            $$"$eq" -> {
-              jsonEquals(fieldValue, operand)
-            }
-
-            $$"$ne" -> {
-              !jsonEquals(fieldValue, operand)
-            }
-
-            $$"$gt" -> {
-              jsonCompare(fieldValue, operand) > 0
-            }
-
-            $$"$gte" -> {
-              jsonCompare(fieldValue, operand) >= 0
-            }
-
-            $$"$lt" -> {
-              jsonCompare(fieldValue, operand) < 0
-            }
-
-            $$"$lte" -> {
-              jsonCompare(fieldValue, operand) <= 0
-            }
+  ): Boolean = VectorFilter.compile(filter).matches(metadata)
 
-            $$"$in" -> {
-              (0 until operand.size()).any { i -> jsonEquals(fieldValue, operand[i]) }
-            }
-
-            $$"$nin" -> {
-              !(0 until operand.size()).any { i -> jsonEquals(fieldValue, operand[i]) }
-            }
-
-            $$"$exists" -> {
-              val shouldExist = operand.booleanValue()
-              if (shouldExist) fieldValue != null && !fieldValue.isNull else fieldValue == null || fieldValue.isNull
-            }
-
-            else -> {
-              true
-            }
-          }
-        if (!result) return false
-      }
-      return true
-    }
-    return jsonEquals(fieldValue, condition)
-  }
+  companion object {
+    // number of candidates per requested result that are rescored with exact vectors
+    private const val RESCORE_FACTOR = 4
 
-  private fun jsonEquals(
-    a: JsonNode?,
-    b: JsonNode,
-  ): Boolean {
-    if (a == null || a.isNull) return b.isNull
-    if (a.isArray) return a.any { jsonEquals(it, b) }
-    return a == b
-  }
-
-  private fun jsonCompare(
-    a: JsonNode?,
-    b: JsonNode,
-  ): Int {
-    if (a == null || a.isNull) return -1
-    return when {
-      a.isNumber && b.isNumber -> a.doubleValue().compareTo(b.doubleValue())
-      a.isTextual && b.isTextual -> a.textValue().compareTo(b.textValue())
-      else -> 0
-    }
+    private val NEAREST_FIRST = compareBy<Candidate> { it.dist }.thenBy { it.key }
   }
 }
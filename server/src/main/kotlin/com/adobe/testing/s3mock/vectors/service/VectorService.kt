@@ -36,17 +36,20 @@ open class VectorService(
     val (bucketName, indexName) = vectorIndexService.resolveIndexId(bucketNameOrArn, indexNameOrArn)
     val indexMeta = vectorIndexService.requireIndex(bucketName, indexName)
 
-    for ((key1, data, metadata) in vectors) {
-      val key = key1 ?: throw S3VectorsException.validation("Vector key is required.")
-      val floats =
-        data
-          ?.float32
-          ?.map { it.toFloat() }
-          ?.toFloatArray()
-          ?: throw S3VectorsException.validation("Vector data is required.")
-      validateVector(floats, indexMeta.dimension, indexMeta.distanceMetric)
-      vectorStore.putVector(bucketName, indexName, key, floats, metadata)
-    }
+    // validate the whole batch first, so that it is stored either completely or not at all
+    val writes =
+      vectors.map { (key1, data, metadata) ->
+        val key = key1 ?: throw S3VectorsException.validation("Vector key is required.")
+        val floats =
+          data
+            ?.float32
+            ?.map { it.toFloat() }
+            ?.toFloatArray()
+            ?: throw S3VectorsException.validation("Vector data is required.")
+        validateVector(floats, indexMeta.dimension, indexMeta.distanceMetric)
+        VectorStore.VectorWrite(key, floats, metadata)
+      }
+    vectorStore.putVectors(indexMeta, writes)
   }
 
   fun getVectors(
@@ -57,11 +60,11 @@ open class VectorService(
     returnMetadata: Boolean,
   ): GetVectorsResponse {
     val (bucketName, indexName) = vectorIndexService.resolveIndexId(bucketNameOrArn, indexNameOrArn)
-    vectorIndexService.requireIndex(bucketName, indexName)
+    val indexMeta = vectorIndexService.requireIndex(bucketName, indexName)
 
     val results =
       keys.map { key ->
-        val stored = vectorStore.getVector(bucketName, indexName, key, returnData, returnMetadata)
+        val stored = vectorStore.getVector(indexMeta, key, returnData, returnMetadata)
         GetOutputVector(
           key = key,
           data = if (returnData && stored?.floats != null) VectorData(stored.floats.map { it.toDouble() }) else null,
@@ -83,9 +86,7 @@ open class VectorService(
   ): ListVectorsResponse {
     val max = (maxResults ?: 500).coerceIn(1, 1000)
     val (bucketName, indexName) = vectorIndexService.resolveIndexId(bucketNameOrArn, indexNameOrArn)
-    vectorIndexService.requireIndex(bucketName, indexName)
-
-    var all = vectorStore.listVectors(bucketName, indexName, returnData, returnMetadata)
+    val indexMeta = vectorIndexService.requireIndex(bucketName, indexName)
 
     if (segmentCount != null || segmentIndex != null) {
       if (segmentCount == null || segmentIndex == null) {
@@ -95,16 +96,21 @@ open class VectorService(
       if (segmentIndex !in 0..<segmentCount) {
         throw S3VectorsException.validation("segmentIndex must be between 0 and segmentCount - 1.")
       }
-      all = all.filter { Math.floorMod(it.key.hashCode(), segmentCount) == segmentIndex }
-    }
-
-    if (nextToken != null) {
-      val decoded = decodeToken(nextToken)
-      all = all.dropWhile { it.key <= decoded }
     }
 
-    val page = all.take(max)
-    val resultToken = if (all.size > max) encodeToken(page.last().key) else null
+    // one more than requested tells whether there is a next page
+    val listed =
+      vectorStore.listVectors(
+        indexMeta,
+        returnData,
+        returnMetadata,
+        startAfter = nextToken?.let { decodeToken(it) },
+        limit = max + 1,
+        segmentIndex = segmentIndex ?: 0,
+        segmentCount = segmentCount ?: 1,
+      )
+    val page = listed.take(max)
+    val resultToken = if (listed.size > max) encodeToken(page.last().key) else null
 
     return ListVectorsResponse(
       vectors =
@@ -125,8 +131,8 @@ open class VectorService(
     keys: List<String>,
   ) {
     val (bucketName, indexName) = vectorIndexService.resolveIndexId(bucketNameOrArn, indexNameOrArn)
-    vectorIndexService.requireIndex(bucketName, indexName)
-    keys.forEach { key -> vectorStore.deleteVector(bucketName, indexName, key) }
+    val indexMeta = vectorIndexService.requireIndex(bucketName, indexName)
+    vectorStore.deleteVectors(indexMeta, keys)
   }
 
   private fun validateVector(
@@ -36,8 +36,9 @@ class VectorsServiceConfiguration {
   fun vectorIndexService(
     vectorBucketService: VectorBucketService,
     vectorIndexStore: VectorIndexStore,
+    vectorStore: VectorStore,
     @Value($$"${com.adobe.testing.s3mock.store.region}") region: String?,
-  ): VectorIndexService = VectorIndexService(vectorBucketService, vectorIndexStore, region ?: "us-east-1")
+  ): VectorIndexService = VectorIndexService(vectorBucketService, vectorIndexStore, vectorStore, region ?: "us-east-1")
 
   @Bean
   fun vectorService(
@@ -15,24 +15,36 @@
  */
 package com.adobe.testing.s3mock.vectors.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
 import com.adobe.testing.s3mock.common.StripedLocks
 import com.adobe.testing.s3mock.vectors.S3VectorsException
 import tools.jackson.databind.ObjectMapper
 import java.io.File
 import java.io.IOException
+import java.util.concurrent.ConcurrentSkipListMap
 import kotlin.io.path.isDirectory
 import kotlin.io.path.listDirectoryEntries
 
 /**
  * Stores vector buckets and their metadata on the filesystem.
  * Layout: `<rootFolder>/vectors/<bucketName>/bucketMetadata.json`
+ *
+ * The metadata of all buckets is read once on startup and kept in memory, every change is written
+ * through to disk.
  */
 class VectorBucketStore(
   private val vectorsRoot: File,
   private val objectMapper: ObjectMapper,
+  private val metadataWriter: MetadataWriter = MetadataWriter(),
 ) {
   private val locks = StripedLocks()
 
+  private val buckets = ConcurrentSkipListMap<String, VectorBucketMetadata>()
+
+  init {
+    readBuckets().forEach { buckets[it.name] = it }
+  }
+
   fun createVectorBucket(
     name: String,
     sseType: String?,
@@ -57,17 +69,16 @@ class VectorBucketStore(
     }
   }
 
-  fun getBucketMetadata(name: String): VectorBucketMetadata {
-    synchronized(locks.lockFor(name)) {
-      val metaFile = getBucketDir(name).resolve(BUCKET_META_FILE)
-      if (!metaFile.exists()) throw S3VectorsException.VECTOR_BUCKET_NOT_FOUND
-      return objectMapper.readValue(metaFile, VectorBucketMetadata::class.java).copy(path = metaFile.parentFile.toPath())
-    }
-  }
+  fun getBucketMetadata(name: String): VectorBucketMetadata = buckets[name] ?: throw S3VectorsException.VECTOR_BUCKET_NOT_FOUND
+
+  fun doesBucketExist(name: String): Boolean = buckets.containsKey(name)
 
-  fun doesBucketExist(name: String): Boolean = getBucketDir(name).resolve(BUCKET_META_FILE).exists()
+  /**
+   * All buckets, sorted by name.
+   */
+  fun listBuckets(): List<VectorBucketMetadata> = buckets.values.toList()
 
-  fun listBuckets(): List<VectorBucketMetadata> {
+  private fun readBuckets(): List<VectorBucketMetadata> {
     try {
       val root = vectorsRoot.toPath()
       if (!root.toFile().exists()) return emptyList()
@@ -79,7 +90,7 @@ class VectorBucketStore(
           objectMapper
             .readValue(bucketDir.resolve(BUCKET_META_FILE).toFile(), VectorBucketMetadata::class.java)
             .copy(path = bucketDir)
-        }.sortedBy { it.name }
+        }
     } catch (e: IOException) {
       throw IllegalStateException("Could not list vector buckets", e)
     }
@@ -111,7 +122,7 @@ class VectorBucketStore(
   ) {
     synchronized(locks.lockFor(name)) {
       val policyFile = getBucketDir(name).resolve(BUCKET_POLICY_FILE)
-      policyFile.writeText(policy)
+      metadataWriter.write(policyFile, policy.toByteArray())
     }
   }
 
@@ -131,6 +142,7 @@ class VectorBucketStore(
   fun deleteBucket(name: String) {
     synchronized(locks.lockFor(name)) {
       getBucketDir(name).deleteRecursively()
+      buckets.remove(name)
     }
   }
 
@@ -144,7 +156,8 @@ class VectorBucketStore(
 
   private fun writeBucketMetadata(metadata: VectorBucketMetadata) {
     val metaFile = getBucketDir(metadata.name).resolve(BUCKET_META_FILE)
-    objectMapper.writeValue(metaFile, metadata)
+    metadataWriter.writeValue(objectMapper, metaFile, metadata)
+    buckets[metadata.name] = metadata.copy(path = metaFile.parentFile.toPath())
   }
 
   companion object {
@@ -0,0 +1,280 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import tools.jackson.databind.JsonNode
+import java.util.BitSet
+import java.util.TreeMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * Read-only access to the vectors of one index, addressed by ordinal.
+ * Only valid inside [VectorIndexData.read].
+ */
+interface VectorIndexView {
+  val metadataIndex: VectorMetadataIndex
+
+  val quantization: VectorQuantization
+
+  /**
+   * Ordinals of all vectors currently stored. The returned set is a copy and may be modified.
+   */
+  fun live(): BitSet
+
+  /**
+   * Ordinal of the vector stored under [key], `null` if there is none.
+   */
+  fun ordinal(key: String): Int?
+
+  fun key(ordinal: Int): String
+
+  /**
+   * Ordinals of the stored vectors in the order of their keys, starting after [startAfter].
+   */
+  fun sortedOrdinals(startAfter: String? = null): Sequence<Int>
+
+  /**
+   * Ordinals of the vectors in the [segmentIndex]-th of [segmentCount] segments, in the order of
+   * their keys, starting after [startAfter]. Keys are assigned to segments by their hash, so the
+   * segment of a key doesn't change when other vectors are written.
+   */
+  fun sortedOrdinals(
+    startAfter: String?,
+    segmentIndex: Int,
+    segmentCount: Int,
+  ): Sequence<Int>
+
+  /**
+   * Writes the vector at [ordinal] as held in memory to [into]. Approximate unless [quantization]
+   * is [VectorQuantization.NONE], use [vectors] for the exact values.
+   */
+  fun decode(
+    ordinal: Int,
+    into: FloatArray,
+  )
+
+  /**
+   * Exact vectors at [ordinals], in that order. Read from disk unless [quantization] is
+   * [VectorQuantization.NONE].
+   */
+  fun vectors(ordinals: IntArray): List<FloatArray>
+
+  fun vector(ordinal: Int): FloatArray = vectors(intArrayOf(ordinal)).single()
+
+  fun metadata(ordinal: Int): JsonNode?
+}
+
+/**
+ * In-memory copy of all vectors of one index, loaded once by [VectorStore] from the
+ * [VectorSegment] of the index and kept in sync on every write, so that reads don't touch the
+ * filesystem. With a [quantization] other than [VectorQuantization.NONE], only the quantized
+ * vectors are held in memory and exact vectors are read from [segment] on demand.
+ *
+ * Each vector gets a stable ordinal for as long as it is stored; ordinals of deleted vectors are
+ * reused. Writers are serialized, readers run concurrently.
+ */
+class VectorIndexData(
+  val creationTime: Long,
+  nonFilterableMetadataKeys: Collection<String>,
+  override val quantization: VectorQuantization = VectorQuantization.NONE,
+  /**
+   * Holds the exact vectors, `null` to keep all vectors in memory only.
+   */
+  private val segment: VectorSegment? = null,
+) : VectorIndexView {
+  private val lock = ReentrantReadWriteLock()
+  private val keys = ArrayList<String?>()
+  private val metadata = ArrayList<JsonNode?>()
+
+  // sorted, so that listings can seek to their start key
+  private val ordinals = TreeMap<String, Int>()
+  private val freeOrdinals = ArrayDeque<Int>()
+
+  // sorted keys of each segment by segment count for segmented listings, built on first use and
+  // kept in sync on every write
+  private val segments = ConcurrentHashMap<Int, Array<TreeMap<String, Int>>>()
+  private val live = BitSet()
+
+  // created with the dimension of the first vector
+  private var matrix: VectorMatrix? = null
+
+  // position of each vector in the segment
+  private var positions = LongArray(0)
+
+  override val metadataIndex = VectorMetadataIndex(nonFilterableMetadataKeys)
+
+  fun put(
+    key: String,
+    floats: FloatArray,
+    metadata: JsonNode?,
+  ) = lock.write { doPut(key, floats, metadata, VectorMutation.UNWRITTEN) }
+
+  fun remove(key: String) = lock.write { doRemove(key) }
+
+  /**
+   * Applies all [mutations] in order as one update, readers see either none or all of them.
+   */
+  fun apply(mutations: List<VectorMutation>) =
+    lock.write {
+      mutations.forEach {
+        when (it) {
+          is VectorMutation.Put -> doPut(it.key, it.floats, it.metadata, it.position)
+          is VectorMutation.Delete -> doRemove(it.key)
+        }
+      }
+    }
+
+  /**
+   * Appends [mutations] to the segment as one batch, then [apply]s them. Readers are only blocked
+   * while the mutations are applied in memory. Callers must not commit concurrently.
+   */
+  fun commit(mutations: List<VectorMutation>) {
+    apply(segment?.append(mutations) ?: mutations)
+    if (segment?.isCompactable(size) == true) compact()
+  }
+
+  /**
+   * Applies all mutations of the segment, one at a time.
+   */
+  fun load() {
+    segment?.read { apply(listOf(it)) }
+  }
+
+  /**
+   * Rewrites the segment with the stored vectors only. Blocks readers until done, as the
+   * positions of the vectors change.
+   */
+  fun compact() =
+    lock.write {
+      val segment = segment ?: return@write
+      val liveOrdinals = live.stream().toArray()
+      val newPositions =
+        segment.rewrite(
+          liveOrdinals.asSequence().chunked(COMPACTION_BATCH_SIZE).flatMap { batch ->
+            val exact = vectors(batch.toIntArray())
+            batch.mapIndexed { i, ordinal -> VectorMutation.Put(keys[ordinal]!!, exact[i], metadata[ordinal]) }
+          },
+        )
+      newPositions.forEachIndexed { i, position -> positions[liveOrdinals[i]] = position }
+    }
+
+  val size: Int
+    get() = lock.read { ordinals.size }
+
+  fun contains(key: String): Boolean = lock.read { key in ordinals }
+
+  /**
+   * Runs [block] with a consistent view of this index. Writes wait until [block] has returned.
+   */
+  fun <T> read(block: (VectorIndexView) -> T): T = lock.read { block(this) }
+
+  override fun live(): BitSet = live.clone() as BitSet
+
+  override fun ordinal(key: String): Int? = ordinals[key]
+
+  override fun key(ordinal: Int): String = keys[ordinal]!!
+
+  override fun sortedOrdinals(startAfter: String?): Sequence<Int> =
+    (if (startAfter == null) ordinals else ordinals.tailMap(startAfter, false)).values.asSequence()
+
+  override fun sortedOrdinals(
+    startAfter: String?,
+    segmentIndex: Int,
+    segmentCount: Int,
+  ): Sequence<Int> {
+    val keys = segmentsOf(segmentCount)[segmentIndex]
+    return (if (startAfter == null) keys else keys.tailMap(startAfter, false)).values.asSequence()
+  }
+
+  // readers may build the segments concurrently, the keys don't change while they hold the read lock
+  private fun segmentsOf(segmentCount: Int): Array<TreeMap<String, Int>> {
+    segments[segmentCount]?.let { return it }
+    if (segments.size >= MAX_SEGMENT_COUNTS) segments.clear()
+    return segments.computeIfAbsent(segmentCount) { count ->
+      Array(count) { TreeMap<String, Int>() }.also { partition ->
+        ordinals.forEach { (key, ordinal) -> partition[segmentOf(key, count)][key] = ordinal }
+      }
+    }
+  }
+
+  override fun decode(
+    ordinal: Int,
+    into: FloatArray,
+  ) = matrix!!.decode(ordinal, into)
+
+  override fun vectors(ordinals: IntArray): List<FloatArray> {
+    val matrix = matrix ?: return emptyList()
+    val positions = LongArray(ordinals.size) { positions[ordinals[it]] }
+    if (quantization == VectorQuantization.NONE || segment == null || positions.any { it == VectorMutation.UNWRITTEN }) {
+      return ordinals.map { FloatArray(matrix.dimension).also { floats -> matrix.decode(it, floats) } }
+    }
+    return segment.readFloats(positions, matrix.dimension)
+  }
+
+  override fun metadata(ordinal: Int): JsonNode? = metadata[ordinal]
+
+  private fun doPut(
+    key: String,
+    floats: FloatArray,
+    metadata: JsonNode?,
+    position: Long,
+  ) {
+    val ordinal =
+      ordinals[key]?.also { metadataIndex.remove(it, this.metadata[it]) }
+        ?: (freeOrdinals.removeFirstOrNull() ?: keys.size.also { grow() }).also {
+          keys[it] = key
+          ordinals[key] = it
+          live.set(it)
+          segments.forEach { (count, partition) -> partition[segmentOf(key, count)][key] = it }
+        }
+    val matrix = matrix ?: VectorMatrix.create(quantization, floats.size).also { matrix = it }
+    matrix.set(ordinal, floats)
+    positions[ordinal] = position
+    this.metadata[ordinal] = metadata
+    metadataIndex.add(ordinal, metadata)
+  }
+
+  private fun doRemove(key: String) {
+    val ordinal = ordinals.remove(key) ?: return
+    segments.forEach { (count, partition) -> partition[segmentOf(key, count)].remove(key) }
+    metadataIndex.remove(ordinal, metadata[ordinal])
+    keys[ordinal] = null
+    metadata[ordinal] = null
+    live.clear(ordinal)
+    freeOrdinals.addLast(ordinal)
+  }
+
+  private fun grow() {
+    keys.add(null)
+    metadata.add(null)
+    if (positions.size < keys.size) positions = positions.copyOf(maxOf(keys.size, positions.size * 2))
+  }
+
+  companion object {
+    private const val COMPACTION_BATCH_SIZE = 1000
+
+    // segment counts whose segments are kept, so clients can't grow them without bound
+    private const val MAX_SEGMENT_COUNTS = 4
+
+    private fun segmentOf(
+      key: String,
+      segmentCount: Int,
+    ) = Math.floorMod(key.hashCode(), segmentCount)
+  }
+}
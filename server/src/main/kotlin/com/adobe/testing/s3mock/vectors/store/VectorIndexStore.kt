@@ -15,24 +15,39 @@
  */
 package com.adobe.testing.s3mock.vectors.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
 import com.adobe.testing.s3mock.common.StripedLocks
 import com.adobe.testing.s3mock.vectors.S3VectorsException
 import tools.jackson.databind.ObjectMapper
 import java.io.File
 import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentSkipListMap
 import kotlin.io.path.isDirectory
 import kotlin.io.path.listDirectoryEntries
 
 /**
  * Stores vector indexes and their metadata on the filesystem.
  * Layout: `<vectorsRoot>/<bucket>/indexes/<indexName>/indexMetadata.json`
+ *
+ * The metadata of all indexes is read once on startup and kept in memory, every change is written
+ * through to disk.
  */
 class VectorIndexStore(
   private val vectorBucketStore: VectorBucketStore,
   private val objectMapper: ObjectMapper,
+  private val metadataWriter: MetadataWriter = MetadataWriter(),
 ) {
   private val locks = StripedLocks()
 
+  private val indexes = ConcurrentHashMap<String, ConcurrentSkipListMap<String, VectorIndexMetadata>>()
+
+  init {
+    vectorBucketStore.listBuckets().forEach { bucket ->
+      readIndexes(bucket.name).forEach { indexesOf(bucket.name)[it.name] = it }
+    }
+  }
+
   private fun lockFor(
     bucketName: String,
     indexName: String,
@@ -75,22 +90,19 @@ class VectorIndexStore(
   fun getIndexMetadata(
     bucketName: String,
     indexName: String,
-  ): VectorIndexMetadata {
-    synchronized(lockFor(bucketName, indexName)) {
-      val metaFile = getIndexDir(bucketName, indexName).resolve(INDEX_META_FILE)
-      if (!metaFile.exists()) throw S3VectorsException.INDEX_NOT_FOUND
-      return objectMapper
-        .readValue(metaFile, VectorIndexMetadata::class.java)
-        .copy(path = metaFile.parentFile.toPath())
-    }
-  }
+  ): VectorIndexMetadata = indexes[bucketName]?.get(indexName) ?: throw S3VectorsException.INDEX_NOT_FOUND
 
   fun doesIndexExist(
     bucketName: String,
     indexName: String,
-  ): Boolean = getIndexDir(bucketName, indexName).resolve(INDEX_META_FILE).exists()
+  ): Boolean = indexes[bucketName]?.containsKey(indexName) == true
 
-  fun listIndexes(bucketName: String): List<VectorIndexMetadata> {
+  /**
+   * All indexes of [bucketName], sorted by name.
+   */
+  fun listIndexes(bucketName: String): List<VectorIndexMetadata> = indexes[bucketName]?.values?.toList().orEmpty()
+
+  private fun readIndexes(bucketName: String): List<VectorIndexMetadata> {
     try {
       val indexesDir = vectorBucketStore.getBucketDir(bucketName).resolve(VectorBucketStore.INDEXES_DIR).toPath()
       if (!indexesDir.toFile().exists()) return emptyList()
@@ -102,7 +114,7 @@ class VectorIndexStore(
           objectMapper
             .readValue(indexDir.resolve(INDEX_META_FILE).toFile(), VectorIndexMetadata::class.java)
             .copy(path = indexDir)
-        }.sortedBy { it.name }
+        }
     } catch (e: IOException) {
       throw IllegalStateException("Could not list vector indexes for bucket $bucketName", e)
     }
@@ -136,6 +148,7 @@ class VectorIndexStore(
   ) {
     synchronized(lockFor(bucketName, indexName)) {
       getIndexDir(bucketName, indexName).deleteRecursively()
+      indexes[bucketName]?.remove(indexName)
     }
   }
 
@@ -146,9 +159,12 @@ class VectorIndexStore(
 
   private fun writeIndexMetadata(metadata: VectorIndexMetadata) {
     val metaFile = getIndexDir(metadata.vectorBucketName, metadata.name).resolve(INDEX_META_FILE)
-    objectMapper.writeValue(metaFile, metadata)
+    metadataWriter.writeValue(objectMapper, metaFile, metadata)
+    indexesOf(metadata.vectorBucketName)[metadata.name] = metadata.copy(path = metaFile.parentFile.toPath())
   }
 
+  private fun indexesOf(bucketName: String) = indexes.computeIfAbsent(bucketName) { ConcurrentSkipListMap() }
+
   companion object {
     const val INDEX_META_FILE = "indexMetadata.json"
     const val VECTORS_DIR = "vectors"
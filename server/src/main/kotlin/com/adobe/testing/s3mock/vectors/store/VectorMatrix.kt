@@ -0,0 +1,202 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
+
+/**
+ * The vectors of one index, stored contiguously by ordinal in the representation of a
+ * [VectorQuantization], so that scanning them walks a single array.
+ *
+ * Not thread-safe, guarded by the owning [VectorIndexData].
+ */
+internal sealed class VectorMatrix(
+  val dimension: Int,
+) {
+  protected var capacity = 0
+
+  abstract fun set(
+    ordinal: Int,
+    floats: FloatArray,
+  )
+
+  /**
+   * Writes the (approximate) vector stored at [ordinal] to [into].
+   */
+  abstract fun decode(
+    ordinal: Int,
+    into: FloatArray,
+  )
+
+  protected fun newCapacity(ordinal: Int): Int = max(ordinal + 1, max(INITIAL_CAPACITY, capacity * 2))
+
+  private class Float32(
+    dimension: Int,
+  ) : VectorMatrix(dimension) {
+    private var values = FloatArray(0)
+
+    override fun set(
+      ordinal: Int,
+      floats: FloatArray,
+    ) {
+      if (ordinal >= capacity) {
+        capacity = newCapacity(ordinal)
+        values = values.copyOf(capacity * dimension)
+      }
+      floats.copyInto(values, ordinal * dimension)
+    }
+
+    override fun decode(
+      ordinal: Int,
+      into: FloatArray,
+    ) {
+      values.copyInto(into, 0, ordinal * dimension, (ordinal + 1) * dimension)
+    }
+  }
+
+  private class Float16(
+    dimension: Int,
+  ) : VectorMatrix(dimension) {
+    private var values = ShortArray(0)
+
+    override fun set(
+      ordinal: Int,
+      floats: FloatArray,
+    ) {
+      if (ordinal >= capacity) {
+        capacity = newCapacity(ordinal)
+        values = values.copyOf(capacity * dimension)
+      }
+      val offset = ordinal * dimension
+      for (i in 0 until dimension) values[offset + i] = VectorQuantization.toFloat16(floats[i])
+    }
+
+    override fun decode(
+      ordinal: Int,
+      into: FloatArray,
+    ) {
+      val offset = ordinal * dimension
+      for (i in 0 until dimension) into[i] = VectorQuantization.fromFloat16(values[offset + i])
+    }
+  }
+
+  /**
+   * Maps each dimension linearly onto 256 levels between the smallest and largest value stored so
+   * far in a block of [BLOCK_SIZE] ordinals. A value outside that range widens it by half again and
+   * re-encodes the dimension in that block only, so a widening costs the same however many vectors
+   * are stored. As the range grows by half at least with each widening, the accumulated
+   * re-encoding error stays below one and a half levels of the final range.
+   */
+  private class Int8(
+    dimension: Int,
+  ) : VectorMatrix(dimension) {
+    private var codes = ByteArray(0)
+
+    // range of each dimension by block, NaN until the first value of the block is stored
+    private var lower = FloatArray(0)
+    private var upper = FloatArray(0)
+
+    override fun set(
+      ordinal: Int,
+      floats: FloatArray,
+    ) {
+      if (ordinal >= capacity) {
+        capacity = newCapacity(ordinal)
+        codes = codes.copyOf(capacity * dimension)
+        val rangeSize = (capacity + BLOCK_SIZE - 1) / BLOCK_SIZE * dimension
+        lower = grow(lower, rangeSize)
+        upper = grow(upper, rangeSize)
+      }
+      val block = ordinal / BLOCK_SIZE
+      for (i in 0 until dimension) {
+        val value = floats[i]
+        val range = block * dimension + i
+        if (!(value >= lower[range] && value <= upper[range])) widen(block, i, value)
+        codes[ordinal * dimension + i] = encode(range, value)
+      }
+    }
+
+    override fun decode(
+      ordinal: Int,
+      into: FloatArray,
+    ) {
+      val offset = ordinal * dimension
+      val ranges = ordinal / BLOCK_SIZE * dimension
+      for (i in 0 until dimension) into[i] = decode(ranges + i, codes[offset + i])
+    }
+
+    private fun widen(
+      block: Int,
+      dimensionIndex: Int,
+      value: Float,
+    ) {
+      val range = block * dimension + dimensionIndex
+      val oldLower = lower[range]
+      val oldUpper = upper[range]
+      if (oldLower.isNaN()) {
+        lower[range] = value
+        upper[range] = value
+        return
+      }
+      val headroom = (max(oldUpper, value) - min(oldLower, value)) * HEADROOM
+      val first = block * BLOCK_SIZE
+      val decoded = FloatArray(min(capacity, first + BLOCK_SIZE) - first) { decode(range, codes[(first + it) * dimension + dimensionIndex]) }
+      if (value < oldLower) lower[range] = value - headroom
+      if (value > oldUpper) upper[range] = value + headroom
+      decoded.forEachIndexed { i, it -> codes[(first + i) * dimension + dimensionIndex] = encode(range, it) }
+    }
+
+    private fun encode(
+      range: Int,
+      value: Float,
+    ): Byte {
+      val width = upper[range] - lower[range]
+      if (width == 0f) return 0
+      return ((value - lower[range]) / width * LEVELS).roundToInt().coerceIn(0, LEVELS).toByte()
+    }
+
+    private fun decode(
+      range: Int,
+      code: Byte,
+    ): Float = lower[range] + (code.toInt() and 0xff) * (upper[range] - lower[range]) / LEVELS
+
+    private fun grow(
+      ranges: FloatArray,
+      size: Int,
+    ): FloatArray = ranges.copyOf(size).also { it.fill(Float.NaN, ranges.size) }
+  }
+
+  companion object {
+    private const val INITIAL_CAPACITY = 16
+    private const val LEVELS = 255
+    private const val HEADROOM = 0.5f
+
+    // ordinals sharing the ranges of an int8 matrix
+    private const val BLOCK_SIZE = 256
+
+    fun create(
+      quantization: VectorQuantization,
+      dimension: Int,
+    ): VectorMatrix =
+      when (quantization) {
+        VectorQuantization.NONE -> Float32(dimension)
+        VectorQuantization.FLOAT16 -> Float16(dimension)
+        VectorQuantization.INT8 -> Int8(dimension)
+      }
+  }
+}
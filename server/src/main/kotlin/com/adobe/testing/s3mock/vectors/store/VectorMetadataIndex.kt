@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import tools.jackson.databind.JsonNode
+import java.util.BitSet
+import java.util.TreeMap
+
+/**
+ * Inverted index over the filterable metadata keys of one vector index.
+ *
+ * For every metadata key not listed in `nonFilterableMetadataKeys`, maps each scalar value to the
+ * set of vector ordinals holding it. Numbers and strings are kept in sorted maps so that range
+ * operators resolve to a contiguous sub-map instead of a scan. Array values are indexed per element.
+ *
+ * Not thread-safe, guarded by the owning [VectorIndexData].
+ */
+class VectorMetadataIndex(
+  nonFilterableMetadataKeys: Collection<String>,
+) {
+  private val nonFilterableKeys = nonFilterableMetadataKeys.toSet()
+  private val keys = HashMap<String, KeyIndex>()
+
+  private class KeyIndex {
+    val present = BitSet()
+
+    // ordinals whose array value holds a null element
+    val nulls = BitSet()
+    val numbers = TreeMap<Double, BitSet>()
+    val strings = TreeMap<String, BitSet>()
+    val booleans = HashMap<Boolean, BitSet>()
+  }
+
+  fun isIndexed(key: String): Boolean = key !in nonFilterableKeys
+
+  fun add(
+    ordinal: Int,
+    metadata: JsonNode?,
+  ) {
+    forEachIndexedValue(metadata) { key, value ->
+      val keyIndex = keys.getOrPut(key) { KeyIndex() }
+      keyIndex.present.set(ordinal)
+      when (val canonical = canonical(value)) {
+        is Double -> {
+          keyIndex.numbers.getOrPut(canonical) { BitSet() }.set(ordinal)
+        }
+
+        is String -> {
+          keyIndex.strings.getOrPut(canonical) { BitSet() }.set(ordinal)
+        }
+
+        is Boolean -> {
+          keyIndex.booleans.getOrPut(canonical) { BitSet() }.set(ordinal)
+        }
+
+        null -> {
+          keyIndex.nulls.set(ordinal)
+        }
+
+        else -> {}
+      }
+    }
+  }
+
+  fun remove(
+    ordinal: Int,
+    metadata: JsonNode?,
+  ) {
+    forEachIndexedValue(metadata) { key, value ->
+      val keyIndex = keys[key] ?: return@forEachIndexedValue
+      keyIndex.present.clear(ordinal)
+      when (val canonical = canonical(value)) {
+        is Double -> {
+          keyIndex.numbers.clearAndPrune(canonical, ordinal)
+        }
+
+        is String -> {
+          keyIndex.strings.clearAndPrune(canonical, ordinal)
+        }
+
+        is Boolean -> {
+          keyIndex.booleans.clearAndPrune(canonical, ordinal)
+        }
+
+        null -> {
+          keyIndex.nulls.clear(ordinal)
+        }
+
+        else -> {}
+      }
+      if (keyIndex.present.isEmpty) keys.remove(key)
+    }
+  }
+
+  /**
+   * Ordinals having a non-null value for [key].
+   */
+  fun present(key: String): BitSet = keys[key]?.present?.clone() as BitSet? ?: BitSet()
+
+  /**
+   * Ordinals whose array value for [key] holds a null element.
+   */
+  fun nullElements(key: String): BitSet = keys[key]?.nulls?.clone() as BitSet? ?: BitSet()
+
+  /**
+   * Ordinals whose value for [key] (or one of its array elements) equals [value].
+   * [value] must be a canonical scalar as returned by [canonical], otherwise `null` is returned.
+   */
+  fun equalTo(
+    key: String,
+    value: Any,
+  ): BitSet? {
+    val keyIndex = keys[key] ?: return BitSet()
+    val bits =
+      when (value) {
+        is Double -> keyIndex.numbers[value]
+        is String -> keyIndex.strings[value]
+        is Boolean -> keyIndex.booleans[value]
+        else -> return null
+      }
+    return bits?.clone() as BitSet? ?: BitSet()
+  }
+
+  /**
+   * Ordinals whose value for [key] (or one of its array elements) is of the same type as [bound]
+   * and compares above it (or below it if [greater] is `false`).
+   * Only numbers and strings are ordered, for any other [bound] `null` is returned.
+   */
+  fun range(
+    key: String,
+    bound: Any,
+    greater: Boolean,
+    inclusive: Boolean,
+  ): BitSet? {
+    val keyIndex = keys[key]
+    val values: Collection<BitSet> =
+      when (bound) {
+        is Double -> {
+          val numbers = keyIndex?.numbers ?: return BitSet()
+          (if (greater) numbers.tailMap(bound, inclusive) else numbers.headMap(bound, inclusive)).values
+        }
+
+        is String -> {
+          val strings = keyIndex?.strings ?: return BitSet()
+          (if (greater) strings.tailMap(bound, inclusive) else strings.headMap(bound, inclusive)).values
+        }
+
+        else -> {
+          return null
+        }
+      }
+    val result = BitSet()
+    values.forEach { result.or(it) }
+    return result
+  }
+
+  private fun forEachIndexedValue(
+    metadata: JsonNode?,
+    action: (String, JsonNode) -> Unit,
+  ) {
+    if (metadata == null || !metadata.isObject) return
+    for ((key, value) in metadata.properties()) {
+      if (!isIndexed(key) || value.isNull) continue
+      if (value.isArray) {
+        // the same element may occur more than once, index it once
+        value.distinct().forEach { action(key, it) }
+      } else {
+        action(key, value)
+      }
+    }
+  }
+
+  private fun <K> MutableMap<K, BitSet>.clearAndPrune(
+    value: K,
+    ordinal: Int,
+  ) {
+    val bits = this[value] ?: return
+    bits.clear(ordinal)
+    if (bits.isEmpty) remove(value)
+  }
+
+  companion object {
+    /**
+     * Canonical, typed representation of a scalar metadata or filter value:
+     * numbers become [Double] (so that `1` and `1.0` are equal), strings become [String],
+     * booleans become [Boolean]. `null` for JSON null, the node itself for anything else.
+     */
+    fun canonical(node: JsonNode): Any? =
+      when {
+        node.isNull -> null
+
+        // adding 0.0 normalizes -0.0 to 0.0, which would otherwise be a distinct TreeMap key
+        node.isNumber -> node.doubleValue() + 0.0
+
+        node.isString -> node.stringValue()
+
+        node.isBoolean -> node.booleanValue()
+
+        else -> node
+      }
+  }
+}
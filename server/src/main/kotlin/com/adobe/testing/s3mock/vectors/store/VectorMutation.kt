@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import tools.jackson.databind.JsonNode
+
+/**
+ * A single change to the vectors of an index, as applied to [VectorIndexData] and recorded in the
+ * [VectorSegment] of the index.
+ */
+sealed interface VectorMutation {
+  val key: String
+
+  /**
+   * Inserts the vector or replaces the vector stored under the same key.
+   * [position] is the offset of [floats] in the segment, or [UNWRITTEN] before it is appended.
+   */
+  class Put(
+    override val key: String,
+    val floats: FloatArray,
+    val metadata: JsonNode?,
+    val position: Long = UNWRITTEN,
+  ) : VectorMutation {
+    fun at(position: Long) = Put(key, floats, metadata, position)
+  }
+
+  class Delete(
+    override val key: String,
+  ) : VectorMutation
+
+  companion object {
+    const val UNWRITTEN = -1L
+  }
+}
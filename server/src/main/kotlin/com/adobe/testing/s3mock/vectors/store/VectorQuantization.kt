@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+/**
+ * In-memory representation of the vectors of an index, used to scan for query candidates.
+ * With [FLOAT16] and [INT8], vectors are kept exact only in the [VectorSegment] on disk, and the
+ * best candidates of a query are rescored with those.
+ */
+enum class VectorQuantization(
+  val bytesPerDimension: Int,
+) {
+  /**
+   * float32, exact.
+   */
+  NONE(Float.SIZE_BYTES),
+
+  /**
+   * IEEE 754 half precision, 11 significant bits, values above 65504 overflow to infinity.
+   */
+  FLOAT16(Short.SIZE_BYTES),
+
+  /**
+   * 256 levels per dimension, spread evenly between the smallest and largest value seen in that
+   * dimension.
+   */
+  INT8(Byte.SIZE_BYTES),
+  ;
+
+  companion object {
+    /**
+     * Converts to half precision, rounding to nearest even.
+     */
+    fun toFloat16(value: Float): Short {
+      val bits = value.toRawBits()
+      val sign = (bits ushr 16) and 0x8000
+      val exponent = ((bits ushr 23) and 0xff) - 127 + 15
+      val mantissa = bits and 0x7fffff
+      return when {
+        // NaN stays NaN, infinity stays infinity
+        (bits ushr 23) and 0xff == 0xff -> sign or 0x7c00 or (if (mantissa != 0) 0x200 else 0)
+
+        exponent >= 0x1f -> sign or 0x7c00
+
+        exponent < -10 -> sign
+
+        exponent <= 0 -> sign or roundShift(mantissa or 0x800000, 14 - exponent)
+
+        // a carry out of the mantissa correctly increments the exponent
+        else -> sign or ((exponent shl 10) + roundShift(mantissa, 13))
+      }.toShort()
+    }
+
+    fun fromFloat16(half: Short): Float {
+      val bits = half.toInt() and 0xffff
+      val sign = (bits and 0x8000) shl 16
+      val exponent = (bits ushr 10) and 0x1f
+      val mantissa = bits and 0x3ff
+      return when (exponent) {
+        0 -> {
+          val magnitude = Math.scalb(mantissa.toFloat(), -24)
+          if (sign != 0) -magnitude else magnitude
+        }
+
+        0x1f -> {
+          Float.fromBits(sign or 0x7f800000 or (mantissa shl 13))
+        }
+
+        else -> {
+          Float.fromBits(sign or ((exponent + 127 - 15) shl 23) or (mantissa shl 13))
+        }
+      }
+    }
+
+    private fun roundShift(
+      value: Int,
+      shift: Int,
+    ): Int {
+      val shifted = value ushr shift
+      val remainder = value and ((1 shl shift) - 1)
+      val halfway = 1 shl (shift - 1)
+      return if (remainder > halfway || (remainder == halfway && shifted and 1 == 1)) shifted + 1 else shifted
+    }
+  }
+}
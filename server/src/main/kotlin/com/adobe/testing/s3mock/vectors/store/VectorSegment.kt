@@ -0,0 +1,300 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import tools.jackson.databind.ObjectMapper
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.zip.CRC32
+import kotlin.io.path.deleteIfExists
+import kotlin.io.path.exists
+
+/**
+ * Append-only write-ahead segment holding the vectors of one index.
+ *
+ * Each batch of [VectorMutation]s is appended with a single write as one frame: the payload length
+ * and its CRC32, followed by the payload holding the number of mutations and the mutations
+ * themselves. All numbers are little-endian.
+ * A truncated or corrupt trailing frame, e.g. left behind by a crash mid-write, is dropped as a
+ * whole when the segment is read, so a batch is either applied completely or not at all.
+ *
+ * The floats of a [VectorMutation.Put] can be read back by their position, see [readFloats].
+ * Overwritten and deleted vectors stay in the segment until the segment is rewritten, see [rewrite].
+ * Not thread-safe, guarded by the lock of the index in [VectorStore].
+ */
+class VectorSegment internal constructor(
+  private val file: Path,
+  private val objectMapper: ObjectMapper,
+  // writes appended frames, replaced in tests to simulate a full disk
+  private val write: (FileChannel, ByteBuffer) -> Unit,
+) {
+  constructor(file: Path, objectMapper: ObjectMapper) : this(file, objectMapper, { channel, buffer -> channel.write(buffer) })
+
+  /**
+   * Number of mutations in the segment, including those superseded by later ones.
+   */
+  var mutationCount = 0L
+    private set
+
+  fun exists(): Boolean = file.exists()
+
+  /**
+   * Passes all mutations of the segment to [action] in the order they were appended, one frame at
+   * a time. Cuts off a truncated or corrupt trailing frame, so that following appends are readable.
+   */
+  fun read(action: (VectorMutation) -> Unit) {
+    if (!file.exists()) return
+    try {
+      FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE).use { channel ->
+        val header = ByteBuffer.allocate(FRAME_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        var payload = ByteBuffer.allocate(0)
+        var position = 0L
+        var count = 0L
+        while (true) {
+          header.clear()
+          if (!readFully(channel, header, position)) break
+          val length = header.getInt(0)
+          if (length < 0 || length > channel.size() - position - FRAME_HEADER_SIZE) break
+          if (payload.capacity() < length) payload = ByteBuffer.allocate(length)
+          payload.clear().limit(length)
+          readFully(channel, payload, position + FRAME_HEADER_SIZE)
+          payload.flip()
+          if (crc32(payload) != header.getInt(Int.SIZE_BYTES)) break
+          val mutations = decode(payload.order(ByteOrder.LITTLE_ENDIAN), position + FRAME_HEADER_SIZE)
+          mutations.forEach(action)
+          count += mutations.size
+          position += FRAME_HEADER_SIZE + length
+        }
+        if (channel.size() > position) channel.truncate(position)
+        mutationCount = count
+      }
+    } catch (e: IOException) {
+      throw IllegalStateException("Could not read vector segment $file", e)
+    }
+  }
+
+  /**
+   * Appends [mutations] as one batch. A failed write is cut off again, so that later batches
+   * aren't appended behind a torn frame and dropped with it when the segment is read.
+   * Returns them with the position of their floats in the segment, see [VectorMutation.Put.position].
+   */
+  fun append(mutations: List<VectorMutation>): List<VectorMutation> {
+    if (mutations.isEmpty()) return mutations
+    try {
+      Files.createDirectories(file.parent)
+      val frame = encode(mutations)
+      FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND).use { channel ->
+        val start = channel.size()
+        try {
+          while (frame.buffer.hasRemaining()) write(channel, frame.buffer)
+        } catch (e: IOException) {
+          try {
+            channel.truncate(start)
+          } catch (suppressed: IOException) {
+            e.addSuppressed(suppressed)
+          }
+          throw e
+        }
+        mutationCount += mutations.size
+        return frame.positioned(mutations, start)
+      }
+    } catch (e: IOException) {
+      throw IllegalStateException("Could not append to vector segment $file", e)
+    }
+  }
+
+  /**
+   * Replaces the segment with one holding only [vectors], dropping superseded mutations.
+   * The new segment is written next to the current one, so [vectors] may still be read from it,
+   * and is moved into place atomically.
+   * Returns the positions of the floats of [vectors] in the new segment.
+   */
+  fun rewrite(vectors: Sequence<VectorMutation.Put>): LongArray {
+    val temp = file.resolveSibling("${file.fileName}.tmp")
+    try {
+      Files.createDirectories(file.parent)
+      val positions = ArrayList<Long>()
+      FileChannel
+        .open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+        .use { channel ->
+          vectors.chunked(REWRITE_BATCH_SIZE).forEach { batch ->
+            val frame = encode(batch)
+            val start = channel.position()
+            while (frame.buffer.hasRemaining()) channel.write(frame.buffer)
+            frame.floatOffsets.forEach { positions.add(start + it) }
+          }
+        }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      mutationCount = positions.size.toLong()
+      return positions.toLongArray()
+    } catch (e: IOException) {
+      temp.deleteIfExists()
+      throw IllegalStateException("Could not rewrite vector segment $file", e)
+    }
+  }
+
+  /**
+   * Reads the floats of [dimension] each stored at [positions], in that order.
+   */
+  fun readFloats(
+    positions: LongArray,
+    dimension: Int,
+  ): List<FloatArray> {
+    if (positions.isEmpty()) return emptyList()
+    try {
+      FileChannel.open(file, StandardOpenOption.READ).use { channel ->
+        val buffer = ByteBuffer.allocate(dimension * Float.SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+        return positions.map { position ->
+          buffer.clear()
+          check(readFully(channel, buffer, position)) { "Vector at $position is beyond the end of $file" }
+          FloatArray(dimension).also { buffer.flip().asFloatBuffer().get(it) }
+        }
+      }
+    } catch (e: IOException) {
+      throw IllegalStateException("Could not read vectors from segment $file", e)
+    }
+  }
+
+  /**
+   * `true` once most mutations in the segment are superseded and it is worth a [rewrite].
+   */
+  fun isCompactable(vectorCount: Int): Boolean = mutationCount >= MIN_COMPACTION_MUTATIONS && mutationCount > 2L * vectorCount
+
+  private class Frame(
+    val buffer: ByteBuffer,
+    /**
+     * Offsets of the floats of each [VectorMutation.Put] in the frame.
+     */
+    val floatOffsets: List<Int>,
+  ) {
+    fun positioned(
+      mutations: List<VectorMutation>,
+      start: Long,
+    ): List<VectorMutation> {
+      val offsets = floatOffsets.iterator()
+      return mutations.map { if (it is VectorMutation.Put) it.at(start + offsets.next()) else it }
+    }
+  }
+
+  private fun encode(mutations: List<VectorMutation>): Frame {
+    val keys = mutations.map { it.key.toByteArray(Charsets.UTF_8) }
+    val metadata = mutations.map { (it as? VectorMutation.Put)?.metadata?.let { node -> objectMapper.writeValueAsBytes(node) } }
+    var payloadSize = Int.SIZE_BYTES
+    mutations.forEachIndexed { i, mutation ->
+      payloadSize += 1 + Int.SIZE_BYTES + keys[i].size
+      if (mutation is VectorMutation.Put) {
+        payloadSize += Int.SIZE_BYTES + mutation.floats.size * Float.SIZE_BYTES + Int.SIZE_BYTES + (metadata[i]?.size ?: 0)
+      }
+    }
+    val frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payloadSize).order(ByteOrder.LITTLE_ENDIAN)
+    val floatOffsets = ArrayList<Int>()
+    frame.putInt(payloadSize)
+    frame.putInt(0)
+    frame.putInt(mutations.size)
+    mutations.forEachIndexed { i, mutation ->
+      when (mutation) {
+        is VectorMutation.Put -> {
+          frame.put(PUT)
+          frame.putInt(keys[i].size).put(keys[i])
+          frame.putInt(mutation.floats.size)
+          floatOffsets.add(frame.position())
+          frame.put(VectorStore.floatsToBytes(mutation.floats))
+          val metadataBytes = metadata[i]
+          if (metadataBytes == null) frame.putInt(NO_METADATA) else frame.putInt(metadataBytes.size).put(metadataBytes)
+        }
+
+        is VectorMutation.Delete -> {
+          frame.put(DELETE)
+          frame.putInt(keys[i].size).put(keys[i])
+        }
+      }
+    }
+    frame.putInt(Int.SIZE_BYTES, crc32(frame.slice(FRAME_HEADER_SIZE, payloadSize)))
+    return Frame(frame.flip(), floatOffsets)
+  }
+
+  /**
+   * Decodes the mutations in [payload], which starts at [start] in the segment.
+   */
+  private fun decode(
+    payload: ByteBuffer,
+    start: Long,
+  ): List<VectorMutation> =
+    List(payload.getInt()) {
+      val op = payload.get()
+      val key = String(ByteArray(payload.getInt()).also { payload.get(it) }, Charsets.UTF_8)
+      when (op) {
+        PUT -> {
+          val floats = FloatArray(payload.getInt())
+          val position = start + payload.position()
+          payload.asFloatBuffer().get(floats)
+          payload.position(payload.position() + floats.size * Float.SIZE_BYTES)
+          val metadataSize = payload.getInt()
+          val metadata =
+            if (metadataSize == NO_METADATA) {
+              null
+            } else {
+              objectMapper.readTree(ByteArray(metadataSize).also { payload.get(it) })
+            }
+          VectorMutation.Put(key, floats, metadata, position)
+        }
+
+        DELETE -> {
+          VectorMutation.Delete(key)
+        }
+
+        else -> {
+          throw IllegalStateException("Unknown mutation type $op in vector segment $file")
+        }
+      }
+    }
+
+  /**
+   * Reads from [position] until [buffer] is full, `false` if the end of the file comes first.
+   */
+  private fun readFully(
+    channel: FileChannel,
+    buffer: ByteBuffer,
+    position: Long,
+  ): Boolean {
+    var offset = position
+    while (buffer.hasRemaining()) {
+      val read = channel.read(buffer, offset)
+      if (read < 0) return false
+      offset += read
+    }
+    return true
+  }
+
+  private fun crc32(payload: ByteBuffer): Int = CRC32().apply { update(payload.duplicate()) }.value.toInt()
+
+  companion object {
+    const val SEGMENT_FILE = "segment.wal"
+
+    private const val FRAME_HEADER_SIZE = 2 * Int.SIZE_BYTES
+    private const val PUT: Byte = 1
+    private const val DELETE: Byte = 2
+    private const val NO_METADATA = -1
+    private const val REWRITE_BATCH_SIZE = 1000
+    private const val MIN_COMPACTION_MUTATIONS = 10_000L
+  }
+}
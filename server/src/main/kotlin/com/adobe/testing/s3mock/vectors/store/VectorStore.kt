@@ -16,30 +16,36 @@
 package com.adobe.testing.s3mock.vectors.store
 
 import com.adobe.testing.s3mock.common.StripedLocks
+import com.adobe.testing.s3mock.vectors.S3VectorsException
 import tools.jackson.databind.JsonNode
 import tools.jackson.databind.ObjectMapper
 import java.io.File
-import java.io.IOException
 import java.nio.ByteBuffer
 import java.nio.ByteOrder
-import java.security.MessageDigest
-import java.util.HexFormat
-import kotlin.io.path.isDirectory
-import kotlin.io.path.listDirectoryEntries
+import java.util.concurrent.ConcurrentHashMap
 
 /**
- * Stores individual vectors on the filesystem.
- * Layout: `<indexDir>/vectors/<sha256(key)>/{key.txt, data.f32, metadata.json}`
+ * Stores the vectors of each index in a [VectorSegment] on the filesystem.
+ * Layout: `<indexDir>/vectors/segment.wal`
  *
- * The vector key is hashed (SHA-256) to avoid filesystem issues with arbitrary Unicode keys.
- * The original key is preserved in `key.txt`.
+ * All reads are served from a [VectorIndexData] per index, read from the segment on first use.
+ * A PutVectors or DeleteVectors batch is appended to the segment with a single write and then
+ * applied to the in-memory data as one update, both under the lock of the index.
+ * In memory, vectors are held in the representation of [quantization].
+ *
+ * Indexes written by earlier versions, which stored each vector in its own directory
+ * `<indexDir>/vectors/<sha256(key)>/{key.txt, data.f32, metadata.json}`, are migrated to a segment
+ * on first use.
  */
 class VectorStore(
   private val vectorIndexStore: VectorIndexStore,
   private val objectMapper: ObjectMapper,
+  private val quantization: VectorQuantization = VectorQuantization.NONE,
 ) {
   private val locks = StripedLocks()
 
+  private val indexData = ConcurrentHashMap<String, VectorIndexData>()
+
   private fun lockFor(key: String): Any = locks.lockFor(key)
 
   data class StoredVector(
@@ -48,164 +54,162 @@ class VectorStore(
     val metadata: JsonNode?,
   )
 
-  fun putVector(
-    bucketName: String,
-    indexName: String,
-    key: String,
-    floats: FloatArray,
-    metadata: Map<String, Any?>?,
+  class VectorWrite(
+    val key: String,
+    val floats: FloatArray,
+    val metadata: Map<String, Any?>?,
+  )
+
+  /**
+   * Stores all [vectors] as one batch, replacing existing vectors with the same key.
+   * If [vectors] contains a key more than once, the last one wins.
+   */
+  fun putVectors(
+    index: VectorIndexMetadata,
+    vectors: List<VectorWrite>,
   ) {
-    val lockKey = lockKey(bucketName, indexName, key)
-    synchronized(lockFor(lockKey)) {
-      val dir = getVectorDir(bucketName, indexName, key)
-      dir.mkdirs()
-      dir.resolve(KEY_FILE).writeText(key, Charsets.UTF_8)
-      dir.resolve(DATA_FILE).writeBytes(floatsToBytes(floats))
-      if (metadata != null) {
-        objectMapper.writeValue(dir.resolve(METADATA_FILE), metadata)
-      } else {
-        dir.resolve(METADATA_FILE).delete()
-      }
-    }
+    commit(
+      index,
+      vectors.map { VectorMutation.Put(it.key, it.floats, it.metadata?.let { metadata -> objectMapper.valueToTree<JsonNode>(metadata) }) },
+    )
+  }
+
+  /**
+   * Deletes the vectors stored under [keys] as one batch, keys without a vector are ignored.
+   */
+  fun deleteVectors(
+    index: VectorIndexMetadata,
+    keys: List<String>,
+  ) {
+    commit(index, keys.map { VectorMutation.Delete(it) })
   }
 
   fun getVector(
-    bucketName: String,
-    indexName: String,
+    index: VectorIndexMetadata,
     key: String,
     returnData: Boolean,
     returnMetadata: Boolean,
-  ): StoredVector? {
-    val dir = getVectorDir(bucketName, indexName, key)
-    if (!dir.exists()) return null
-    return readVectorDir(dir, returnData, returnMetadata)
-  }
+  ): StoredVector? =
+    getIndexData(index).read { view ->
+      view.ordinal(key)?.let { storedVectors(view, intArrayOf(it), returnData, returnMetadata).single() }
+    }
 
   fun vectorExists(
-    bucketName: String,
-    indexName: String,
+    index: VectorIndexMetadata,
     key: String,
-  ): Boolean = getVectorDir(bucketName, indexName, key).resolve(KEY_FILE).exists()
+  ): Boolean = getIndexData(index).contains(key)
+
+  /**
+   * Lists the vectors of [index] in the order of their keys, starting after [startAfter].
+   * Seeks to [startAfter] in the sorted keys, so that paging through an index reads each vector
+   * once. With a [segmentCount] above one, only the keys whose hash falls into the [segmentIndex]-th
+   * of that many segments are listed, without walking the keys of other segments.
+   * At most [limit] vectors are returned.
+   */
+  fun listVectors(
+    index: VectorIndexMetadata,
+    returnData: Boolean,
+    returnMetadata: Boolean,
+    startAfter: String? = null,
+    limit: Int = Int.MAX_VALUE,
+    segmentIndex: Int = 0,
+    segmentCount: Int = 1,
+  ): List<StoredVector> =
+    getIndexData(index).read { view ->
+      val sorted =
+        if (segmentCount == 1) {
+          view.sortedOrdinals(startAfter)
+        } else {
+          view.sortedOrdinals(startAfter, segmentIndex, segmentCount)
+        }
+      val ordinals = sorted.take(limit).toList().toIntArray()
+      storedVectors(view, ordinals, returnData, returnMetadata)
+    }
 
-  fun deleteVector(
-    bucketName: String,
-    indexName: String,
-    key: String,
-  ) {
-    val dir = getVectorDir(bucketName, indexName, key)
-    if (!dir.exists()) return
-    val lockKey = lockKey(bucketName, indexName, key)
-    synchronized(lockFor(lockKey)) {
-      dir.deleteRecursively()
+  fun countVectors(index: VectorIndexMetadata): Int = getIndexData(index).size
+
+  /**
+   * Returns the in-memory vectors of [index], loading them from disk on first access.
+   * Data cached for an earlier index of the same name (deleted and re-created since) is discarded.
+   */
+  fun getIndexData(index: VectorIndexMetadata): VectorIndexData {
+    val key = indexKey(index)
+    indexData[key]?.takeIf { it.creationTime == index.creationTime }?.let { return it }
+    synchronized(lockFor(key)) {
+      return indexData.compute(key) { _, existing ->
+        existing?.takeIf { it.creationTime == index.creationTime } ?: load(index)
+      }!!
     }
   }
 
-  fun listVectors(
-    bucketName: String,
-    indexName: String,
-    returnData: Boolean,
-    returnMetadata: Boolean,
-  ): List<StoredVector> {
-    try {
-      val vectorsDir =
-        vectorIndexStore
-          .getIndexDir(bucketName, indexName)
-          .resolve(VectorIndexStore.VECTORS_DIR)
-          .toPath()
-      if (!vectorsDir.toFile().exists()) return emptyList()
-      return vectorsDir
-        .listDirectoryEntries()
-        .filter { it.isDirectory() }
-        .filter { it.resolve(KEY_FILE).toFile().exists() }
-        .map { readVectorDir(it.toFile(), returnData, returnMetadata) }
-        .sortedBy { it.key }
-    } catch (e: IOException) {
-      throw IllegalStateException("Could not list vectors for index $indexName", e)
+  /**
+   * Deletes [index] and drops its in-memory vectors. Holds the lock of the index meanwhile, so that
+   * a concurrent PutVectors or DeleteVectors batch can't bring back its segment, see [commit].
+   */
+  fun deleteIndex(index: VectorIndexMetadata) {
+    synchronized(lockFor(indexKey(index))) {
+      vectorIndexStore.deleteIndex(index.vectorBucketName, index.name)
+      indexData.computeIfPresent(indexKey(index)) { _, existing -> existing.takeIf { it.creationTime != index.creationTime } }
     }
   }
 
-  fun countVectors(
-    bucketName: String,
-    indexName: String,
-  ): Int = listVectors(bucketName, indexName, returnData = false, returnMetadata = false).size
+  private fun commit(
+    index: VectorIndexMetadata,
+    mutations: List<VectorMutation>,
+  ) {
+    synchronized(lockFor(indexKey(index))) {
+      // the index may have been deleted while the batch waited for the lock
+      if (!exists(index)) throw S3VectorsException.INDEX_NOT_FOUND
+      val data = getIndexData(index)
+      // deleting a key that isn't stored is a no-op and doesn't need to be recorded
+      val effective = mutations.filter { it is VectorMutation.Put || data.contains(it.key) }
+      if (effective.isNotEmpty()) data.commit(effective)
+    }
+  }
 
-  private fun readVectorDir(
-    dir: File,
-    returnData: Boolean,
-    returnMetadata: Boolean,
-  ): StoredVector {
-    val key = dir.resolve(KEY_FILE).readText(Charsets.UTF_8)
-    val floats = if (returnData && dir.resolve(DATA_FILE).exists()) bytesToFloats(dir.resolve(DATA_FILE).readBytes()) else null
-    val metadataNode =
-      if (returnMetadata && dir.resolve(METADATA_FILE).exists()) {
-        objectMapper.readTree(dir.resolve(METADATA_FILE))
-      } else {
-        null
-      }
-    return StoredVector(key, floats, metadataNode)
+  private fun exists(index: VectorIndexMetadata): Boolean =
+    vectorIndexStore.doesIndexExist(index.vectorBucketName, index.name) &&
+      vectorIndexStore.getIndexMetadata(index.vectorBucketName, index.name).creationTime == index.creationTime
+
+  private fun load(index: VectorIndexMetadata): VectorIndexData {
+    val vectorsDir = vectorIndexStore.getIndexDir(index.vectorBucketName, index.name).resolve(VectorIndexStore.VECTORS_DIR)
+    val segment = VectorSegment(vectorsDir.resolve(VectorSegment.SEGMENT_FILE).toPath(), objectMapper)
+    val legacyDirs = vectorsDir.listFiles { file -> file.isDirectory && file.resolve(KEY_FILE).exists() }.orEmpty()
+    if (legacyDirs.isNotEmpty()) {
+      // an existing segment means that an earlier migration was interrupted while cleaning up
+      if (!segment.exists()) segment.rewrite(legacyDirs.asSequence().mapNotNull { readLegacyVectorDir(it) })
+      legacyDirs.forEach { it.deleteRecursively() }
+    }
+    return VectorIndexData(index.creationTime, index.nonFilterableMetadataKeys, quantization, segment).apply { load() }
   }
 
-  fun readAllForQuery(
-    bucketName: String,
-    indexName: String,
+  private fun storedVectors(
+    view: VectorIndexView,
+    ordinals: IntArray,
+    returnData: Boolean,
+    returnMetadata: Boolean,
   ): List<StoredVector> {
-    try {
-      val vectorsDir =
-        vectorIndexStore
-          .getIndexDir(bucketName, indexName)
-          .resolve(VectorIndexStore.VECTORS_DIR)
-          .toPath()
-      if (!vectorsDir.toFile().exists()) return emptyList()
-      return vectorsDir
-        .listDirectoryEntries()
-        .filter { it.isDirectory() }
-        .filter { it.resolve(KEY_FILE).toFile().exists() }
-        .map { vectorDir ->
-          val key = vectorDir.resolve(KEY_FILE).toFile().readText(Charsets.UTF_8)
-          val floats =
-            if (vectorDir.resolve(DATA_FILE).toFile().exists()) {
-              bytesToFloats(vectorDir.resolve(DATA_FILE).toFile().readBytes())
-            } else {
-              null
-            }
-          val metadataNode =
-            if (vectorDir.resolve(METADATA_FILE).toFile().exists()) {
-              objectMapper.readTree(vectorDir.resolve(METADATA_FILE).toFile())
-            } else {
-              null
-            }
-          StoredVector(key, floats, metadataNode)
-        }
-    } catch (e: IOException) {
-      throw IllegalStateException("Could not read vectors for query in index $indexName", e)
+    val floats = if (returnData) view.vectors(ordinals) else null
+    return ordinals.mapIndexed { i, ordinal ->
+      StoredVector(view.key(ordinal), floats?.get(i), if (returnMetadata) view.metadata(ordinal) else null)
     }
   }
 
-  private fun getVectorDir(
-    bucketName: String,
-    indexName: String,
-    key: String,
-  ): File {
-    val hash = sha256Hex(key)
-    return vectorIndexStore.getIndexDir(bucketName, indexName).resolve(VectorIndexStore.VECTORS_DIR).resolve(hash)
+  private fun readLegacyVectorDir(dir: File): VectorMutation.Put? {
+    val dataFile = dir.resolve(DATA_FILE).takeIf { it.exists() } ?: return null
+    return VectorMutation.Put(
+      dir.resolve(KEY_FILE).readText(Charsets.UTF_8),
+      bytesToFloats(dataFile.readBytes()),
+      dir.resolve(METADATA_FILE).takeIf { it.exists() }?.let { objectMapper.readTree(it) },
+    )
   }
 
-  private fun lockKey(
-    bucketName: String,
-    indexName: String,
-    key: String,
-  ) = "$bucketName/$indexName/${sha256Hex(key)}"
+  private fun indexKey(index: VectorIndexMetadata) = "${index.vectorBucketName}/${index.name}"
 
   companion object {
-    const val KEY_FILE = "key.txt"
-    const val DATA_FILE = "data.f32"
-    const val METADATA_FILE = "metadata.json"
-
-    fun sha256Hex(input: String): String {
-      val digest = MessageDigest.getInstance("SHA-256")
-      val bytes = digest.digest(input.toByteArray(Charsets.UTF_8))
-      return HexFormat.of().formatHex(bytes)
-    }
+    private const val KEY_FILE = "key.txt"
+    private const val DATA_FILE = "data.f32"
+    private const val METADATA_FILE = "metadata.json"
 
     fun floatsToBytes(floats: FloatArray): ByteArray {
       val buf = ByteBuffer.allocate(floats.size * 4).order(ByteOrder.LITTLE_ENDIAN)
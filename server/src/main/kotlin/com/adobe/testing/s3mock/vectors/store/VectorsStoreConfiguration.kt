@@ -15,6 +15,9 @@
  */
 package com.adobe.testing.s3mock.vectors.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.vectors.S3VectorsProperties
+import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 import org.springframework.context.annotation.Profile
@@ -23,6 +26,7 @@ import java.io.File
 
 @Configuration
 @Profile("vectors")
+@EnableConfigurationProperties(S3VectorsProperties::class)
 class VectorsStoreConfiguration {
   @Bean
   fun vectorsRoot(rootFolder: File): File {
@@ -35,17 +39,20 @@ class VectorsStoreConfiguration {
   fun vectorBucketStore(
     vectorsRoot: File,
     objectMapper: ObjectMapper,
-  ): VectorBucketStore = VectorBucketStore(vectorsRoot, objectMapper)
+    metadataWriter: MetadataWriter,
+  ): VectorBucketStore = VectorBucketStore(vectorsRoot, objectMapper, metadataWriter)
 
   @Bean
   fun vectorIndexStore(
     vectorBucketStore: VectorBucketStore,
     objectMapper: ObjectMapper,
-  ): VectorIndexStore = VectorIndexStore(vectorBucketStore, objectMapper)
+    metadataWriter: MetadataWriter,
+  ): VectorIndexStore = VectorIndexStore(vectorBucketStore, objectMapper, metadataWriter)
 
   @Bean
   fun vectorStore(
     vectorIndexStore: VectorIndexStore,
     objectMapper: ObjectMapper,
-  ): VectorStore = VectorStore(vectorIndexStore, objectMapper)
+    vectorsProperties: S3VectorsProperties,
+  ): VectorStore = VectorStore(vectorIndexStore, objectMapper, vectorsProperties.quantization)
 }
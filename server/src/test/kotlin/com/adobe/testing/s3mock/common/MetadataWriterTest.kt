@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.EnumSource
+import tools.jackson.databind.json.JsonMapper
+import java.io.IOException
+import java.nio.file.Path
+import java.time.Duration
+import java.util.UUID
+import kotlin.io.path.createDirectories
+import kotlin.io.path.createFile
+import kotlin.io.path.listDirectoryEntries
+import kotlin.io.path.readText
+import kotlin.io.path.writeText
+
+internal class MetadataWriterTest {
+  @TempDir
+  private lateinit var tempDir: Path
+
+  @ParameterizedTest
+  @EnumSource(MetadataWriter.Durability::class)
+  fun `replaces the file without leaving temporary files behind`(durability: MetadataWriter.Durability) {
+    val file = tempDir.resolve("metadata.json")
+
+    MetadataWriter(durability = durability, syncInterval = Duration.ofMillis(10)).use {
+      it.write(file.toFile(), "first".toByteArray())
+      it.write(file.toFile(), "second".toByteArray())
+    }
+
+    assertThat(file.readText()).isEqualTo("second")
+    assertThat(tempDir.listDirectoryEntries()).containsExactly(file)
+  }
+
+  @Test
+  fun `keeps the file and removes the temporary file if the file can't be replaced`() {
+    // a folder that is not empty can't be replaced by a file
+    val file = tempDir.resolve("metadata.json")
+    file.resolve("child").createDirectories()
+
+    assertThatThrownBy { MetadataWriter().write(file.toFile(), "content".toByteArray()) }
+      .isInstanceOf(IOException::class.java)
+
+    assertThat(file.resolve("child")).exists()
+    assertThat(tempDir.listDirectoryEntries()).containsExactly(file)
+  }
+
+  @Test
+  fun `syncs folders that were deleted after files were written to them`() {
+    val folder = tempDir.resolve("bucket").createDirectories()
+
+    MetadataWriter(durability = MetadataWriter.Durability.BATCHED, syncInterval = Duration.ofHours(1)).use {
+      it.write(folder.resolve("metadata.json").toFile(), "content".toByteArray())
+      folder.toFile().deleteRecursively()
+      it.sync()
+    }
+
+    assertThat(tempDir.listDirectoryEntries()).isEmpty()
+  }
+
+  @Test
+  fun `removes temporary files of previous runs only`() {
+    val folder = tempDir.resolve("bucket").resolve(UUID.randomUUID().toString()).createDirectories()
+    val file = folder.resolve("objectMetadata.json").createFile()
+    val previousRun = folder.resolve(".objectMetadata.json.${UUID.randomUUID()}.${UUID.randomUUID()}.tmp").createFile()
+    val olderVersion = tempDir.resolve("bucket").resolve(".objects.json.${UUID.randomUUID()}.tmp").createFile()
+    val currentRun = MetadataWriter.temporaryFileFor(file).createFile()
+    val other = folder.resolve("binaryData.tmp").createFile()
+
+    MetadataWriter().removeTemporaryFiles(tempDir.toFile())
+
+    assertThat(previousRun).doesNotExist()
+    assertThat(olderVersion).doesNotExist()
+    assertThat(file).exists()
+    assertThat(currentRun).exists()
+    assertThat(other).exists()
+  }
+
+  @Test
+  fun `serializes values with writeValue`() {
+    val file = tempDir.resolve("metadata.json")
+    file.writeText("{\"stale\":true}")
+
+    MetadataWriter().writeValue(JsonMapper.builder().build(), file.toFile(), mapOf("key" to "value"))
+
+    assertThat(file.readText()).isEqualTo("{\"key\":\"value\"}")
+    assertThat(tempDir.listDirectoryEntries()).containsExactly(file)
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.common
+
+import com.adobe.testing.s3mock.S3MockConfiguration
+import com.adobe.testing.s3mock.s3.S3Exception
+import com.adobe.testing.s3mock.s3.controller.BucketController
+import com.adobe.testing.s3mock.s3.controller.FaviconController
+import com.adobe.testing.s3mock.s3.controller.MultipartController
+import com.adobe.testing.s3mock.s3.controller.ObjectController
+import com.adobe.testing.s3mock.s3.dto.Buckets
+import com.adobe.testing.s3mock.s3.dto.ListAllMyBucketsResult
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.service.BucketService
+import com.adobe.testing.s3mock.s3.service.MultipartService
+import com.adobe.testing.s3mock.s3.service.ObjectService
+import com.adobe.testing.s3mock.s3.store.KmsKeyStore
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jakarta.servlet.AsyncEvent
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.whenever
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider
+import org.springframework.context.annotation.Import
+import org.springframework.core.annotation.AnnotatedElementUtils
+import org.springframework.core.type.filter.AnnotationTypeFilter
+import org.springframework.http.MediaType
+import org.springframework.mock.web.MockAsyncContext
+import org.springframework.stereotype.Controller
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.bean.override.mockito.MockitoBean
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.request
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+import org.springframework.web.bind.annotation.GetMapping
+import org.springframework.web.bind.annotation.RequestMapping
+import org.springframework.web.bind.annotation.RestController
+import org.springframework.web.context.request.async.DeferredResult
+
+@MockitoBean(
+  types = [KmsKeyStore::class, ObjectService::class, MultipartService::class, ObjectController::class, MultipartController::class],
+)
+@WebMvcTest(
+  controllers = [BucketController::class, FaviconController::class],
+  properties = ["com.adobe.testing.s3mock.store.region=us-east-1"],
+)
+@ActiveProfiles("actuator")
+// nested controllers of tests are not scanned
+@Import(S3MockConfiguration::class, RequestMetricsFilterTest.Config::class, RequestMetricsFilterTest.AsyncController::class)
+internal class RequestMetricsFilterTest {
+  @MockitoBean
+  private lateinit var bucketService: BucketService
+
+  @Autowired
+  private lateinit var mockMvc: MockMvc
+
+  @Autowired
+  private lateinit var registry: MeterRegistry
+
+  @AfterEach
+  fun cleanup() {
+    registry.clear()
+  }
+
+  @Test
+  fun `records timer and request size per operation`() {
+    val body = """<VersioningConfiguration><Status>Enabled</Status></VersioningConfiguration>"""
+
+    mockMvc
+      .perform(
+        put("/test-bucket")
+          .param("versioning", "")
+          .contentType(MediaType.APPLICATION_XML)
+          .content(body),
+      ).andExpect(status().isOk)
+
+    val timer =
+      registry
+        .get(RequestMetricsFilter.REQUESTS)
+        .tags("api", "s3", "operation", "PutBucketVersioning", "status", "200", "error", "none")
+        .timer()
+    assertThat(timer.count()).isEqualTo(1)
+    assertThat(
+      registry
+        .get(RequestMetricsFilter.REQUEST_SIZE)
+        .tag("operation", "PutBucketVersioning")
+        .summary()
+        .totalAmount(),
+    ).isEqualTo(body.length.toDouble())
+    assertThat(registry.find(RequestMetricsFilter.ERRORS).counter()).isNull()
+  }
+
+  @Test
+  fun `records response size per operation`() {
+    whenever(bucketService.listBuckets(anyOrNull(), anyOrNull(), any(), anyOrNull()))
+      .thenReturn(ListAllMyBucketsResult(Owner.DEFAULT_OWNER, Buckets(emptyList()), null, null))
+
+    val response =
+      mockMvc
+        .perform(get("/").accept(MediaType.APPLICATION_XML))
+        .andExpect(status().isOk)
+        .andReturn()
+        .response
+
+    assertThat(response.contentAsByteArray).isNotEmpty()
+    assertThat(
+      registry
+        .get(RequestMetricsFilter.RESPONSE_SIZE)
+        .tags("api", "s3", "operation", "ListBuckets")
+        .summary()
+        .totalAmount(),
+    ).isEqualTo(response.contentAsByteArray.size.toDouble())
+    // GET requests have no body
+    assertThat(registry.find(RequestMetricsFilter.REQUEST_SIZE).summary()).isNull()
+  }
+
+  @Test
+  fun `records error code set by exception handlers`() {
+    doThrow(S3Exception.NO_SUCH_BUCKET)
+      .whenever(bucketService)
+      .verifyBucketExists(any())
+
+    mockMvc
+      .perform(head("/test-bucket"))
+      .andExpect(status().isNotFound)
+
+    val tags = arrayOf("operation", "HeadBucket", "status", "404", "error", "NoSuchBucket")
+    assertThat(
+      registry
+        .get(RequestMetricsFilter.REQUESTS)
+        .tags(*tags)
+        .timer()
+        .count(),
+    ).isEqualTo(1)
+    assertThat(
+      registry
+        .get(RequestMetricsFilter.ERRORS)
+        .tags(*tags)
+        .counter()
+        .count(),
+    ).isEqualTo(1.0)
+  }
+
+  @Test
+  fun `records requests without handler as unknown operation`() {
+    mockMvc.perform(patch("/test-bucket"))
+
+    assertThat(
+      registry
+        .get(RequestMetricsFilter.REQUESTS)
+        .tag("operation", "Unknown")
+        .timer()
+        .count(),
+    ).isEqualTo(1)
+  }
+
+  @Test
+  fun `ignores requests handled by no API operation`() {
+    mockMvc
+      .perform(get("/favicon.ico"))
+      .andExpect(status().isOk)
+
+    assertThat(registry.find(RequestMetricsFilter.REQUESTS).timer()).isNull()
+  }
+
+  @Test
+  fun `records timed out async requests once they complete`() {
+    val result =
+      mockMvc
+        .perform(get("/internal-test/async"))
+        .andExpect(request().asyncStarted())
+        .andReturn()
+    // nothing is recorded before the async request completes
+    assertThat(registry.find(RequestMetricsFilter.REQUESTS).timer()).isNull()
+
+    val asyncContext = result.request.asyncContext as MockAsyncContext
+    asyncContext.listeners.forEach { it.onTimeout(AsyncEvent(asyncContext)) }
+    result.response.status = 503
+    asyncContext.complete()
+
+    assertThat(
+      registry
+        .get(RequestMetricsFilter.REQUESTS)
+        .tags("operation", "GetObject", "status", "503", "error", RequestMetricsFilter.ASYNC_TIMEOUT_ERROR)
+        .timer()
+        .count(),
+    ).isEqualTo(1)
+    assertThat(registry.get(RequestMetricsFilter.ERRORS).counter().count()).isEqualTo(1.0)
+  }
+
+  @Test
+  fun `maps every handler method of the API controllers to an operation`() {
+    val scanner =
+      ClassPathScanningCandidateComponentProvider(false).apply {
+        addIncludeFilter(AnnotationTypeFilter(Controller::class.java))
+      }
+    val handlerMethods =
+      scanner
+        .findCandidateComponents("com.adobe.testing.s3mock")
+        .map { Class.forName(it.beanClassName) }
+        // controllers of tests are nested in the test classes
+        .filter { !it.isMemberClass && it != FaviconController::class.java }
+        .flatMap { type -> type.declaredMethods.filter { AnnotatedElementUtils.hasAnnotation(it, RequestMapping::class.java) } }
+        .map { it.name }
+
+    assertThat(handlerMethods).doesNotHaveDuplicates()
+    assertThat(RequestMetricsFilter.OPERATIONS.keys).containsExactlyInAnyOrderElementsOf(handlerMethods)
+    assertThat(RequestMetricsFilter.OPERATIONS)
+      .containsEntry("getLegalHold", "GetObjectLegalHold")
+      .containsEntry("putLegalHold", "PutObjectLegalHold")
+      .containsEntry("getVersioningConfiguration", "GetBucketVersioning")
+      .containsEntry("putVersioningConfiguration", "PutBucketVersioning")
+  }
+
+  @TestConfiguration
+  internal class Config {
+    @Bean
+    fun meterRegistry(): MeterRegistry = SimpleMeterRegistry()
+  }
+
+  @RestController
+  @RequestMapping("/internal-test")
+  internal class AsyncController {
+    // named like the API operation, the result is never set so that the request times out
+    @GetMapping("/async")
+    fun getObject(): DeferredResult<String> = DeferredResult()
+  }
+}
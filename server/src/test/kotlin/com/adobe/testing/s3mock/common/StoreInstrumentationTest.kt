@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.common
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import tools.jackson.databind.json.JsonMapper
+import tools.jackson.module.kotlin.KotlinModule
+import java.nio.file.Path
+
+internal class StoreInstrumentationTest {
+  private val registry = SimpleMeterRegistry()
+  private val iut = StoreInstrumentation(registry)
+  private val objectMapper = JsonMapper.builder().addModule(KotlinModule.Builder().build()).build()
+
+  @TempDir
+  private lateinit var tempDir: Path
+
+  @Test
+  fun `records timer and bytes`() {
+    val result = iut.record(StoreInstrumentation.DIGEST, "MD5", { 42L }) { "digest" }
+
+    assertThat(result).isEqualTo("digest")
+    val timer =
+      registry
+        .get(StoreInstrumentation.OPERATIONS)
+        .tags(StoreInstrumentation.TAG_OPERATION, StoreInstrumentation.DIGEST, StoreInstrumentation.TAG_TYPE, "MD5")
+        .timer()
+    assertThat(timer.count()).isEqualTo(1)
+    assertThat(registry.get(StoreInstrumentation.BYTES).summary().totalAmount()).isEqualTo(42.0)
+  }
+
+  @Test
+  fun `only records timer without bytes`() {
+    iut.record(StoreInstrumentation.LOAD_OBJECTS, "S3ObjectMetadata", { null }) { 3 }
+
+    assertThat(registry.get(StoreInstrumentation.OPERATIONS).timer().count()).isEqualTo(1)
+    assertThat(registry.find(StoreInstrumentation.BYTES).summary()).isNull()
+  }
+
+  @Test
+  fun `does not record without registry`() {
+    val result = StoreInstrumentation().record(StoreInstrumentation.DIGEST, "MD5", { 42L }) { "digest" }
+
+    assertThat(result).isEqualTo("digest")
+    assertThat(registry.meters).isEmpty()
+  }
+
+  @Test
+  fun `instruments metadata reads and writes`() {
+    val file = tempDir.resolve("metadata.json").toFile()
+
+    MetadataWriter(iut).writeValue(objectMapper, file, Metadata("value"))
+    val read = iut.readMetadata(objectMapper, file, Metadata::class.java)
+
+    assertThat(read).isEqualTo(Metadata("value"))
+    listOf(StoreInstrumentation.WRITE_METADATA, StoreInstrumentation.READ_METADATA).forEach {
+      assertThat(
+        registry
+          .get(StoreInstrumentation.BYTES)
+          .tags(StoreInstrumentation.TAG_OPERATION, it, StoreInstrumentation.TAG_TYPE, "Metadata")
+          .summary()
+          .totalAmount(),
+      ).isEqualTo(file.length().toDouble())
+    }
+  }
+
+  @Test
+  fun `emits flight recorder events`() {
+    val dump = tempDir.resolve("recording.jfr")
+    Recording().use { recording ->
+      recording.enable(StoreOperationEvent::class.java)
+      recording.start()
+      StoreInstrumentation().checksum("CRC32", 7L) { }
+      recording.stop()
+      recording.dump(dump)
+    }
+
+    val events = RecordingFile.readAllEvents(dump).filter { it.eventType.name == "com.adobe.testing.s3mock.StoreOperation" }
+    assertThat(events).hasSize(1)
+    assertThat(events[0].getString("operation")).isEqualTo(StoreInstrumentation.CHECKSUM)
+    assertThat(events[0].getString("type")).isEqualTo("CRC32")
+    assertThat(events[0].getLong("bytes")).isEqualTo(7L)
+  }
+
+  data class Metadata(
+    val value: String,
+  )
+}
@@ -61,6 +61,7 @@ import org.mockito.kotlin.any
 import org.mockito.kotlin.anyOrNull
 import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.eq
+import org.mockito.kotlin.isNull
 import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import org.springframework.beans.factory.annotation.Autowired
@@ -227,23 +228,6 @@ internal class BucketControllerTest : BaseControllerTest() {
       .whenever(bucketService)
       .verifyBucketIsEmpty(any())
 
-    whenever(bucketService.getS3Objects(TEST_BUCKET_NAME, null))
-      .thenReturn(
-        listOf(
-          S3Object(
-            null,
-            null,
-            null,
-            "key",
-            null,
-            null,
-            null,
-            null,
-            null,
-          ),
-        ),
-      )
-
     mockMvc
       .perform(
         delete("/test-bucket")
@@ -445,12 +429,13 @@ internal class BucketControllerTest : BaseControllerTest() {
     givenBucket()
     whenever(
       bucketService.listObjectsV1(
-        TEST_BUCKET_NAME,
-        null,
-        null,
-        null,
-        null,
-        MAX_KEYS_DEFAULT,
+        eq(TEST_BUCKET_NAME),
+        isNull(),
+        isNull(),
+        isNull(),
+        isNull(),
+        eq(MAX_KEYS_DEFAULT),
+        any(),
       ),
     ).thenThrow(IllegalStateException("THIS IS EXPECTED"))
 
@@ -468,14 +453,15 @@ internal class BucketControllerTest : BaseControllerTest() {
     givenBucket()
     whenever(
       bucketService.listObjectsV2(
-        TEST_BUCKET_NAME,
-        null,
-        null,
-        null,
-        null,
-        MAX_KEYS_DEFAULT,
-        null,
-        false,
+        eq(TEST_BUCKET_NAME),
+        isNull(),
+        isNull(),
+        isNull(),
+        isNull(),
+        eq(MAX_KEYS_DEFAULT),
+        isNull(),
+        eq(false),
+        any(),
       ),
     ).thenThrow(IllegalStateException("THIS IS EXPECTED"))
 
@@ -516,12 +502,13 @@ internal class BucketControllerTest : BaseControllerTest() {
 
     whenever(
       bucketService.listObjectsV1(
-        TEST_BUCKET_NAME,
-        null,
-        null,
-        null,
-        null,
-        MAX_KEYS_DEFAULT,
+        eq(TEST_BUCKET_NAME),
+        isNull(),
+        isNull(),
+        isNull(),
+        isNull(),
+        eq(MAX_KEYS_DEFAULT),
+        any(),
       ),
     ).thenReturn(expected)
 
@@ -558,14 +545,15 @@ internal class BucketControllerTest : BaseControllerTest() {
 
     whenever(
       bucketService.listObjectsV2(
-        TEST_BUCKET_NAME,
-        null,
-        null,
-        null,
-        null,
-        MAX_KEYS_DEFAULT,
-        null,
-        false,
+        eq(TEST_BUCKET_NAME),
+        isNull(),
+        isNull(),
+        isNull(),
+        isNull(),
+        eq(MAX_KEYS_DEFAULT),
+        isNull(),
+        eq(false),
+        any(),
       ),
     ).thenReturn(expected)
 
@@ -859,6 +847,8 @@ internal class BucketControllerTest : BaseControllerTest() {
         eq(MAX_KEYS_DEFAULT),
         anyOrNull(),
         anyOrNull(),
+        any(),
+        any(),
       ),
     ).thenReturn(expected)
 
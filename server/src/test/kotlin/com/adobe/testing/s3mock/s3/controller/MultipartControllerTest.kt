@@ -37,7 +37,6 @@ import com.adobe.testing.s3mock.s3.service.BucketService
 import com.adobe.testing.s3mock.s3.service.MultipartService
 import com.adobe.testing.s3mock.s3.service.ObjectService
 import com.adobe.testing.s3mock.s3.store.KmsKeyStore
-import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Test
 import org.mockito.kotlin.any
 import org.mockito.kotlin.anyOrNull
@@ -45,6 +44,8 @@ import org.mockito.kotlin.argThat
 import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.eq
 import org.mockito.kotlin.isA
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest
@@ -1536,10 +1537,6 @@ internal class MultipartControllerTest : BaseControllerTest() {
 
   @Test
   fun testUploadPart_InvalidPartNumber_BadRequest() {
-    // Arrange: toTempFile is called before validations
-    val temp = Files.createTempFile("junie", "part")
-    whenever(multipartService.toTempFile(any(), any())).thenReturn(Pair(temp, null))
-
     val bucketMeta = bucketMetadata()
     whenever(bucketService.verifyBucketExists(TEST_BUCKET_NAME)).thenReturn(bucketMeta)
 
@@ -1565,16 +1562,12 @@ internal class MultipartControllerTest : BaseControllerTest() {
       ).andExpect(status().isBadRequest)
       .andExpect(content().string(MAPPER.writeValueAsString(from(S3Exception.INVALID_PART_NUMBER))))
 
-    // the temp file must be cleaned up even though the request failed validation
-    assertThat(temp).doesNotExist()
+    // the request is rejected without reading the body
+    verify(multipartService, never()).toTempFile(any(), any())
   }
 
   @Test
   fun testUploadPart_NoSuchBucket() {
-    // toTempFile happens first
-    val temp = Files.createTempFile("junie", "part")
-    whenever(multipartService.toTempFile(any(), any())).thenReturn(Pair(temp, null))
-
     // bucket missing
     doThrow(S3Exception.NO_SUCH_BUCKET)
       .whenever(bucketService)
@@ -1597,15 +1590,12 @@ internal class MultipartControllerTest : BaseControllerTest() {
       ).andExpect(status().isNotFound)
       .andExpect(content().string(MAPPER.writeValueAsString(from(S3Exception.NO_SUCH_BUCKET))))
 
-    // the temp file must be cleaned up even though the request failed validation
-    assertThat(temp).doesNotExist()
+    // the request is rejected without reading the body
+    verify(multipartService, never()).toTempFile(any(), any())
   }
 
   @Test
   fun testUploadPart_NoSuchUpload() {
-    val temp = Files.createTempFile("junie", "part")
-    whenever(multipartService.toTempFile(any(), any())).thenReturn(Pair(temp, null))
-
     val bucketMeta = bucketMetadata()
     whenever(bucketService.verifyBucketExists(TEST_BUCKET_NAME)).thenReturn(bucketMeta)
 
@@ -1629,6 +1619,8 @@ internal class MultipartControllerTest : BaseControllerTest() {
           .content("payload-bytes"),
       ).andExpect(status().isNotFound)
       .andExpect(content().string(MAPPER.writeValueAsString(from(S3Exception.NO_SUCH_UPLOAD_MULTIPART))))
+
+    verify(multipartService, never()).toTempFile(any(), any())
   }
 
   @Test
@@ -36,6 +36,7 @@ import com.adobe.testing.s3mock.s3.store.KmsKeyStore
 import com.adobe.testing.s3mock.s3.util.AwsHttpParameters
 import com.adobe.testing.s3mock.s3.util.ChecksumUtil
 import com.adobe.testing.s3mock.s3.util.DigestUtil
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Test
 import org.mockito.kotlin.any
@@ -44,6 +45,7 @@ import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.eq
 import org.mockito.kotlin.isA
 import org.mockito.kotlin.isNull
+import org.mockito.kotlin.never
 import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import org.springframework.beans.factory.annotation.Autowired
@@ -54,6 +56,7 @@ import org.springframework.mock.web.MockMultipartFile
 import org.springframework.test.context.bean.override.mockito.MockitoBean
 import org.springframework.test.web.servlet.MockMvc
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart
@@ -61,13 +64,13 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.optio
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers.content
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers.header
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.request
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
 import org.springframework.web.util.UriComponentsBuilder
 import software.amazon.awssdk.checksums.DefaultChecksumAlgorithm
 import java.io.File
 import java.io.InputStream
 import java.nio.file.Files
-import java.nio.file.Path
 import java.time.Instant
 import java.util.UUID
 
@@ -111,13 +114,13 @@ internal class ObjectControllerTest : BaseControllerTest() {
         testFile.copyTo(it.toFile(), overwrite = true)
       }
     whenever(
-      objectService.toTempFile(
+      objectService.receive(
         isA<InputStream>(),
         isA<HttpHeaders>(),
       ),
     ).thenReturn(
       Pair(
-        tempFile,
+        ObjectContent.OnDisk(tempFile),
         ChecksumUtil.checksumFor(testFile.toPath(), DefaultChecksumAlgorithm.CRC32),
       ),
     )
@@ -128,7 +131,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
         eq(key),
         argThat<String> { this.contains(MediaType.TEXT_PLAIN_VALUE) },
         isA<Map<String, String>>(),
-        isA<Path>(),
+        isA<ObjectContent>(),
         isA<Map<String, String>>(),
         isA<Map<String, String>>(),
         isNull(),
@@ -162,12 +165,12 @@ internal class ObjectControllerTest : BaseControllerTest() {
         testFile.copyTo(it.toFile(), overwrite = true)
       }
     whenever(
-      objectService.toTempFile(
+      objectService.receive(
         isA<InputStream>(),
         isA<HttpHeaders>(),
       ),
     ).thenReturn(
-      tempFile to ChecksumUtil.checksumFor(testFile.toPath(), DefaultChecksumAlgorithm.CRC32),
+      ObjectContent.OnDisk(tempFile) to ChecksumUtil.checksumFor(testFile.toPath(), DefaultChecksumAlgorithm.CRC32),
     )
 
     whenever(
@@ -176,7 +179,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
         eq(key),
         argThat<String> { this.contains(MediaType.TEXT_PLAIN_VALUE) },
         isA<Map<String, String>>(),
-        isA<Path>(),
+        isA<ObjectContent>(),
         isA<Map<String, String>>(),
         isA<Map<String, String>>(),
         isNull(),
@@ -210,13 +213,13 @@ internal class ObjectControllerTest : BaseControllerTest() {
         testFile.copyTo(it.toFile(), overwrite = true)
       }
     whenever(
-      objectService.toTempFile(
+      objectService.receive(
         isA<InputStream>(),
         isA<HttpHeaders>(),
       ),
     ).thenReturn(
       Pair(
-        tempFile,
+        ObjectContent.OnDisk(tempFile),
         ChecksumUtil.checksumFor(testFile.toPath(), DefaultChecksumAlgorithm.CRC32),
       ),
     )
@@ -227,7 +230,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
         eq(key),
         argThat<String> { this.contains(MediaType.TEXT_PLAIN_VALUE) },
         isA<Map<String, String>>(),
-        isA<Path>(),
+        isA<ObjectContent>(),
         isA<Map<String, String>>(),
         isA<Map<String, String>>(),
         isNull(),
@@ -274,13 +277,13 @@ internal class ObjectControllerTest : BaseControllerTest() {
         testFile.copyTo(it.toFile(), overwrite = true)
       }
     whenever(
-      objectService.toTempFile(
+      objectService.receive(
         isA<InputStream>(),
         isA<HttpHeaders>(),
       ),
     ).thenReturn(
       Pair(
-        tempFile,
+        ObjectContent.OnDisk(tempFile),
         ChecksumUtil.checksumFor(testFile.toPath(), DefaultChecksumAlgorithm.CRC32),
       ),
     )
@@ -290,7 +293,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
         eq(key),
         argThat<String> { this.contains(MediaType.TEXT_PLAIN_VALUE) },
         isA<Map<String, String>>(),
-        isA<Path>(),
+        isA<ObjectContent>(),
         isA<Map<String, String>>(),
         isA<Map<String, String>>(),
         isNull(),
@@ -327,15 +330,15 @@ internal class ObjectControllerTest : BaseControllerTest() {
       }
 
     whenever(
-      objectService.toTempFile(
+      objectService.receive(
         isA<InputStream>(),
         isA<HttpHeaders>(),
       ),
-    ).thenReturn(Pair(tempFile, "checksum"))
+    ).thenReturn(Pair(ObjectContent.OnDisk(tempFile), "checksum"))
     doThrow(S3Exception.BAD_REQUEST_MD5)
       .whenever(objectService)
       .verifyMd5(
-        isA<Path>(),
+        isA<ObjectContent>(),
         eq(base64Digest + 1),
       )
 
@@ -434,17 +437,79 @@ internal class ObjectControllerTest : BaseControllerTest() {
       .thenReturn(s3ObjectMetadata(key, digest))
 
     val total = testFile.length()
+    val bytes = testFile.readBytes()
+    whenever(objectService.getSmallObjectData(any(), eq(1L), eq(2L)))
+      .thenReturn(bytes.copyOfRange(1, 3))
+
+    val result =
+      mockMvc
+        .perform(
+          get("/test-bucket/$key")
+            .accept(MediaType.ALL)
+            .header("Range", "bytes=1-2"),
+        ).andExpect(request().asyncStarted())
+        .andReturn()
 
     mockMvc
-      .perform(
-        get("/test-bucket/$key")
-          .accept(MediaType.ALL)
-          .header("Range", "bytes=1-2"),
-      ).andExpect(status().isPartialContent)
+      .perform(asyncDispatch(result))
+      .andExpect(status().isPartialContent)
       .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-2/$total"))
       .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
       .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 2))
       .andExpect(header().string(HttpHeaders.ETAG, "\"$digest\""))
+      .andExpect(content().bytes(bytes.copyOfRange(1, 3)))
+  }
+
+  @Test
+  fun testGetObject_Ok() {
+    givenBucket()
+    val key = "sampleFile.txt"
+    val testFile = File(UPLOAD_FILE_NAME)
+    val digest = DigestUtil.hexDigest(testFile.inputStream())
+    val s3ObjectMetadata = s3ObjectMetadata(key, digest).copy(contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    whenever(objectService.verifyObjectExists("test-bucket", key, null)).thenReturn(s3ObjectMetadata)
+    whenever(objectService.getSmallObjectData(any(), eq(0L), eq(s3ObjectMetadata.size.toLong())))
+      .thenReturn(testFile.readBytes())
+
+    val result =
+      mockMvc
+        .perform(
+          get("/test-bucket/$key")
+            .accept(MediaType.ALL),
+        ).andExpect(request().asyncStarted())
+        .andReturn()
+
+    mockMvc
+      .perform(asyncDispatch(result))
+      .andExpect(status().isOk)
+      .andExpect(header().string(HttpHeaders.ETAG, "\"$digest\""))
+      .andExpect(content().bytes(testFile.readBytes()))
+  }
+
+  @Test
+  fun testGetObject_LargeObject_Streamed() {
+    givenBucket()
+    val key = "sampleFile.txt"
+    val testFile = File(UPLOAD_FILE_NAME)
+    val digest = DigestUtil.hexDigest(testFile.inputStream())
+    val s3ObjectMetadata = s3ObjectMetadata(key, digest).copy(contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    whenever(objectService.verifyObjectExists("test-bucket", key, null)).thenReturn(s3ObjectMetadata)
+    // objects above the small-object threshold are not held in memory
+    whenever(objectService.getSmallObjectData(any(), any(), any())).thenReturn(null)
+
+    val result =
+      mockMvc
+        .perform(
+          get("/test-bucket/$key")
+            .accept(MediaType.ALL),
+        ).andExpect(request().asyncStarted())
+        .andReturn()
+
+    mockMvc
+      .perform(asyncDispatch(result))
+      .andExpect(status().isOk)
+      .andExpect(header().string(HttpHeaders.ETAG, "\"$digest\""))
+      .andExpect(content().bytes(testFile.readBytes()))
   }
 
   @Test
@@ -645,7 +710,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
         eq(key),
         argThat<String> { this.contains(MediaType.APPLICATION_OCTET_STREAM_VALUE) },
         isA<Map<String, String>>(),
-        isA<Path>(),
+        isA<ObjectContent>(),
         isA<Map<String, String>>(),
         isA<Map<String, String>>(),
         isNull(),
@@ -749,7 +814,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
         eq(key),
         argThat<String> { this.contains(MediaType.APPLICATION_OCTET_STREAM_VALUE) },
         isA<Map<String, String>>(),
-        isA<Path>(),
+        isA<ObjectContent>(),
         isA<Map<String, String>>(),
         isA<Map<String, String>>(),
         argThat<List<Tag>> { this.containsAll(tagging.tagSet.tags) },
@@ -776,7 +841,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
       eq(key),
       argThat<String> { this.contains(MediaType.APPLICATION_OCTET_STREAM_VALUE) },
       isA<Map<String, String>>(),
-      isA<Path>(),
+      isA<ObjectContent>(),
       isA<Map<String, String>>(),
       isA<Map<String, String>>(),
       argThat<List<Tag>> { this.containsAll(tagging.tagSet.tags) },
@@ -787,6 +852,38 @@ internal class ObjectControllerTest : BaseControllerTest() {
     )
   }
 
+  @Test
+  fun testPutObject_NoSuchBucket_BodyNotRead() {
+    doThrow(S3Exception.NO_SUCH_BUCKET).whenever(bucketService).verifyBucketExists(TEST_BUCKET_NAME)
+
+    mockMvc
+      .perform(
+        put("/$TEST_BUCKET_NAME/some-key")
+          .content("payload-bytes")
+          .contentType(MediaType.APPLICATION_OCTET_STREAM),
+      ).andExpect(status().isNotFound)
+
+    verify(objectService, never()).receive(any<InputStream>(), any<HttpHeaders>())
+  }
+
+  @Test
+  fun testPutObject_PreconditionFailed_BodyNotRead() {
+    givenBucket()
+    doThrow(S3Exception.PRECONDITION_FAILED)
+      .whenever(objectService)
+      .verifyObjectMatching(eq(TEST_BUCKET_NAME), eq("some-key"), isNull(), any())
+
+    mockMvc
+      .perform(
+        put("/$TEST_BUCKET_NAME/some-key")
+          .content("payload-bytes")
+          .contentType(MediaType.APPLICATION_OCTET_STREAM)
+          .header(HttpHeaders.IF_NONE_MATCH, "*"),
+      ).andExpect(status().isPreconditionFailed)
+
+    verify(objectService, never()).receive(any<InputStream>(), any<HttpHeaders>())
+  }
+
   @Test
   fun testPutObject_WithIfMatch_AndSdkChecksum() {
     givenBucket()
@@ -795,9 +892,9 @@ internal class ObjectControllerTest : BaseControllerTest() {
     val src = File(UPLOAD_FILE_NAME)
     val temp = Files.createTempFile("put-chk", "").also { src.copyTo(it.toFile(), overwrite = true) }
 
-    // SDK checksum path: controller uses Right value from toTempFile
-    whenever(objectService.toTempFile(any<InputStream>(), any<HttpHeaders>()))
-      .thenReturn(Pair(temp, "crc32Value"))
+    // SDK checksum path: controller uses Right value from receive
+    whenever(objectService.receive(any<InputStream>(), any<HttpHeaders>()))
+      .thenReturn(Pair(ObjectContent.OnDisk(temp), "crc32Value"))
 
     // Returned metadata should include checksum to be echoed as header
     val s3ObjectMetadata =
@@ -813,7 +910,7 @@ internal class ObjectControllerTest : BaseControllerTest() {
         eq(key),
         argThat<String> { this.contains(MediaType.APPLICATION_OCTET_STREAM_VALUE) },
         isA<Map<String, String>>(),
-        isA<Path>(),
+        isA<ObjectContent>(),
         isA<Map<String, String>>(),
         isA<Map<String, String>>(),
         isNull(),
@@ -834,9 +931,9 @@ internal class ObjectControllerTest : BaseControllerTest() {
       ).andExpect(status().isOk)
       .andExpect(header().string(AwsHttpHeaders.X_AMZ_CHECKSUM_CRC32, "crc32Value"))
       .andExpect(header().string(AwsHttpHeaders.X_AMZ_OBJECT_SIZE, s3ObjectMetadata.size))
-    // verify matching path used and checksum verification invoked
+    // verify matching path used, the SDK checksum has been verified while decoding the body
     verify(objectService).verifyObjectMatching(eq(bucket), eq(key), any(), isNull())
-    verify(objectService).verifyChecksum(eq(temp), eq("crc32Value"), eq(ChecksumAlgorithm.CRC32))
+    verify(objectService, never()).verifyChecksum(any<ObjectContent>(), any(), any())
   }
 
   @Test
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.dto
+
+import com.adobe.testing.s3mock.common.DtoTestUtil.serializeAndAssertXML
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInfo
+
+internal class StreamedListResultTest {
+  @Test
+  fun testSerialization(testInfo: TestInfo) {
+    val iut =
+      StreamedListResult(ListBucketResultV2::class.java) { entry ->
+        createBucketContents(2).forEach { entry(StreamedListResult.CONTENTS, it) }
+        ListBucketResultV2(
+          listOf(
+            Prefix("prefix1/"),
+            Prefix("prefix2/"),
+          ),
+          emptyList(),
+          "continuationToken",
+          "delimiter",
+          "url",
+          false,
+          "2",
+          1000,
+          "bucketName",
+          "nextContinuationToken",
+          "prefix/",
+          "startAfter",
+        )
+      }
+    serializeAndAssertXML(iut, testInfo)
+  }
+
+  @Test
+  fun testSerializationOfVersions(testInfo: TestInfo) {
+    val iut =
+      StreamedListResult(ListVersionsResult::class.java) { entry ->
+        entry(StreamedListResult.DELETE_MARKER, DeleteMarkerEntry(true, "key0", "2009-10-12T17:50:30.000Z", Owner("10"), "v2"))
+        entry(StreamedListResult.VERSION, ObjectVersion.from(createBucketContents(1).single()))
+        ListVersionsResult(
+          null,
+          emptyList(),
+          null,
+          null,
+          true,
+          null,
+          1,
+          "bucketName",
+          "key0",
+          "null",
+          null,
+          emptyList(),
+          null,
+        )
+      }
+    serializeAndAssertXML(iut, testInfo)
+  }
+
+  private fun createBucketContents(count: Int): List<S3Object> =
+    (0 until count).map {
+      S3Object(
+        ChecksumAlgorithm.SHA256,
+        ChecksumType.FULL_OBJECT,
+        "\"fba9dede5f27731c9771645a39863328\"",
+        "key$it",
+        "2009-10-12T17:50:30.000Z",
+        Owner((10L + it).toString()),
+        null,
+        "434234",
+        StorageClass.STANDARD,
+      )
+    }
+}
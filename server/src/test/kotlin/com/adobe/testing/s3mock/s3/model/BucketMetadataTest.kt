@@ -46,7 +46,6 @@ import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.TestInfo
 import java.nio.file.Path
 import java.time.Instant
-import java.util.UUID
 
 class BucketMetadataTest {
   @Test
@@ -64,9 +63,6 @@ class BucketMetadataTest {
     assertThat(iut.bucketRegion).isEqualTo("us-east-1")
     assertThat(iut.bucketInfo).isEqualTo(bucketInfo())
     assertThat(iut.locationInfo).isEqualTo(locationInfo())
-    assertThat(iut.objects).isNotNull()
-    assertThat(iut.objects).containsOnlyKeys("my-file")
-    assertThat(iut.objects["my-file"]).isEqualTo(UUID.fromString("eb9cfbf2-571e-41c1-a0b8-91c1495b5529"))
   }
 
   @Test
@@ -83,7 +79,6 @@ class BucketMetadataTest {
         bucketRegion = "us-east-1",
         bucketInfo = bucketInfo(),
         locationInfo = locationInfo(),
-        _objects = mutableMapOf("src/test/resources/sampleFile_large.txt" to UUID.fromString("c6fe9dd9-2c83-4f34-a934-5da6d7d4ea2c")),
       )
     DtoTestUtil.serializeAndAssertJSON(iut, testInfo)
   }
@@ -17,6 +17,7 @@ package com.adobe.testing.s3mock.s3.service
 
 import com.adobe.testing.s3mock.s3.S3Exception
 import com.adobe.testing.s3mock.s3.store.BucketStore
+import com.adobe.testing.s3mock.s3.store.MultipartStore
 import com.adobe.testing.s3mock.s3.store.ObjectStore
 import com.code_intelligence.jazzer.api.FuzzedDataProvider
 import com.code_intelligence.jazzer.junit.FuzzTest
@@ -25,7 +26,7 @@ import org.assertj.core.api.Assertions.catchThrowable
 import org.mockito.Mockito.mock
 
 internal class BucketServiceFuzzTest {
-  private val iut = BucketService(mock(BucketStore::class.java), mock(ObjectStore::class.java))
+  private val iut = BucketService(mock(BucketStore::class.java), mock(ObjectStore::class.java), mock(MultipartStore::class.java))
 
   @FuzzTest
   fun `fuzz bucket name validation`(data: FuzzedDataProvider) {
@@ -21,15 +21,22 @@ import com.adobe.testing.s3mock.s3.dto.BucketLifecycleConfiguration
 import com.adobe.testing.s3mock.s3.dto.ObjectLockConfiguration
 import com.adobe.testing.s3mock.s3.dto.ObjectLockEnabled
 import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.Region
+import com.adobe.testing.s3mock.s3.dto.S3Object
+import com.adobe.testing.s3mock.s3.dto.StorageClass
 import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
 import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration.Status
 import com.adobe.testing.s3mock.s3.model.BucketMetadata
 import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectVersionSummary
 import com.adobe.testing.s3mock.s3.store.MultipartStore
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.Test
 import org.mockito.Mockito.verify
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
 import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.whenever
 import org.springframework.beans.factory.annotation.Autowired
@@ -37,7 +44,6 @@ import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.test.context.bean.override.mockito.MockitoBean
 import java.nio.file.Files
 import java.util.Date
-import java.util.UUID
 
 @SpringBootTest(classes = [ServiceConfiguration::class], webEnvironment = SpringBootTest.WebEnvironment.NONE)
 @MockitoBean(types = [ObjectService::class, MultipartService::class, MultipartStore::class])
@@ -45,49 +51,8 @@ internal class BucketServiceTest : ServiceTestBase() {
   @Autowired
   private lateinit var iut: BucketService
 
-  @Test
-  fun getObject() {
-    assertPrefix("a/b/c", "a/b/c")
-  }
-
-  @Test
-  fun getObjectsForParentDirectory() {
-    assertPrefix("a/b/c", "a/b")
-  }
-
-  @Test
-  fun getObjectsForPartialPrefix() {
-    assertPrefix("foo_bar_baz", "foo")
-  }
-
-  @Test
-  fun getObjectsForEmptyPrefix() {
-    assertPrefix("a", "")
-  }
-
-  @Test
-  fun getObjectsForNullPrefix() {
-    assertPrefix("a", null)
-  }
-
-  @Test
-  fun getObjectsForPartialParentDirectory() {
-    assertPrefix("a/bee/c", "a/b")
-  }
-
-  private fun assertPrefix(
-    key: String,
-    prefix: String?,
-  ) {
-    val id = UUID.randomUUID()
-    whenever(bucketStore.lookupIdsInBucket(prefix, TEST_BUCKET_NAME)).thenReturn(listOf(id))
-    val bucketMetadata = metadataFrom(TEST_BUCKET_NAME)
-    whenever(bucketStore.getBucketMetadata(TEST_BUCKET_NAME)).thenReturn(bucketMetadata)
-    whenever(objectStore.getS3ObjectMetadata(bucketMetadata, id, null)).thenReturn(s3ObjectMetadata(id, key))
-    val result = iut.getS3Objects(TEST_BUCKET_NAME, prefix)
-    assertThat(result).hasSize(1)
-    assertThat(result[0].key).isEqualTo(key)
-  }
+  @Autowired
+  private lateinit var multipartStore: MultipartStore
 
   @Test
   fun testListObjectsV2() {
@@ -292,7 +257,7 @@ internal class BucketServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyBucketIsEmpty_success() {
     val bucketName = "bucket"
-    whenever(bucketStore.getBucketMetadata(bucketName)).thenReturn(metadataFrom(TEST_BUCKET_NAME))
+    givenBucket(bucketName)
     iut.verifyBucketIsEmpty(bucketName)
   }
 
@@ -316,7 +281,7 @@ internal class BucketServiceTest : ServiceTestBase() {
       )
 
     val key = "testKey"
-    val id = bucketMetadata.addKey(key)
+    val id = givenKey(bucketName, key)
 
     whenever(bucketStore.getBucketMetadata(bucketName)).thenReturn(bucketMetadata)
     whenever(objectStore.getS3ObjectMetadata(bucketMetadata, id, null)).thenReturn(s3ObjectMetadata(id, key))
@@ -421,6 +386,41 @@ internal class BucketServiceTest : ServiceTestBase() {
     assertThat(result.isTruncated).isFalse()
   }
 
+  @Test
+  fun testListObjectsV2_withDelimiter_paginatesOverCommonPrefixes() {
+    val bucketName = "bucket"
+    givenBucketWithContents(bucketName, null)
+
+    val names = mutableListOf<String>()
+    var token: String? = null
+    do {
+      val page = iut.listObjectsV2(bucketName, null, "/", null, null, 3, token, false)
+      assertThat(page.keyCount.toInt()).isEqualTo(page.contents.size + page.commonPrefixes!!.size).isLessThanOrEqualTo(3)
+      names += page.contents.map { it.key } + page.commonPrefixes.map { it.prefix!! }
+      token = page.nextContinuationToken
+    } while (page.isTruncated)
+
+    assertThat(names)
+      .containsExactlyInAnyOrder("3330/", "33309/", "a", "b", "b/", "c/", "d:1", "d:1:1", "eor.txt", "foo/")
+  }
+
+  @Test
+  fun testListObjectsV2_passesObjectsToConsumer() {
+    val bucketName = "bucket"
+    givenBucketWithContents(bucketName, null)
+    val collected = iut.listObjectsV2(bucketName, null, "/", null, null, 5, null, false)
+
+    val listed = mutableListOf<S3Object>()
+    val streamed = iut.listObjectsV2(bucketName, null, "/", null, null, 5, null, false) { listed += it }
+
+    assertThat(listed).isEqualTo(collected.contents)
+    assertThat(streamed.contents).isEmpty()
+    assertThat(streamed.commonPrefixes).isEqualTo(collected.commonPrefixes)
+    assertThat(streamed.keyCount).isEqualTo(collected.keyCount)
+    assertThat(streamed.isTruncated).isEqualTo(collected.isTruncated)
+    assertThat(streamed.nextContinuationToken).isEqualTo(collected.nextContinuationToken)
+  }
+
   @Test
   fun testListObjectsV2_paginationWithContinuationToken() {
     val bucketName = "bucket"
@@ -490,7 +490,7 @@ internal class BucketServiceTest : ServiceTestBase() {
     // a freshly-constructed service instance (no shared server-side paging state) can still
     // resolve the token, proving the token itself carries the paging state instead of a
     // server-side cache that would otherwise grow unboundedly for every truncated listing.
-    val freshInstance = BucketService(bucketStore, objectStore)
+    val freshInstance = BucketService(bucketStore, objectStore, multipartStore)
     val second =
       freshInstance.listObjectsV2(
         bucketName,
@@ -537,7 +537,7 @@ internal class BucketServiceTest : ServiceTestBase() {
   @Test
   fun testListBuckets_continuationTokenIsStateless() {
     val bucketNames = (1..3).map { "bucket-$it" }
-    whenever(bucketStore.listBuckets()).thenReturn(bucketNames.map { metadataFrom(it) })
+    givenBuckets(bucketNames.map { metadataFrom(it) })
 
     val first = iut.listBuckets(null, null, 2, null)
     assertThat(first.buckets!!.buckets).hasSize(2)
@@ -546,16 +546,25 @@ internal class BucketServiceTest : ServiceTestBase() {
     // a freshly-constructed service instance (no shared server-side paging state) can still
     // resolve the token, proving the token itself carries the paging state instead of a
     // server-side cache that would otherwise grow unboundedly for every truncated listing.
-    val freshInstance = BucketService(bucketStore, objectStore)
+    val freshInstance = BucketService(bucketStore, objectStore, multipartStore)
     val second = freshInstance.listBuckets(null, first.continuationToken, 2, null)
 
     assertThat(second.buckets!!.buckets).extracting<String> { it.name }.containsExactly("bucket-3")
   }
 
+  @Test
+  fun testListBuckets_filtersByRegion() {
+    givenBuckets(listOf(metadataFrom("bucket-1"), metadataFrom("bucket-2").copy(bucketRegion = "eu-west-1")))
+
+    val result = iut.listBuckets(Region.EU_WEST_1, null, 10, null)
+
+    assertThat(result.buckets!!.buckets).extracting<String> { it.name }.containsExactly("bucket-2")
+  }
+
   @Test
   fun testListBuckets_invalidContinuationTokenIsIgnored() {
     val bucketNames = (1..3).map { "bucket-$it" }
-    whenever(bucketStore.listBuckets()).thenReturn(bucketNames.map { metadataFrom(it) })
+    givenBuckets(bucketNames.map { metadataFrom(it) })
 
     val result = iut.listBuckets(null, "not-a-valid-token", 10, null)
 
@@ -606,7 +615,7 @@ internal class BucketServiceTest : ServiceTestBase() {
     val fetchOwner = false
 
     // Create bucket with no contents
-    givenBucketWithContents(bucketName, prefix, emptyList())
+    givenBucketWithContents(bucketName, emptyList())
 
     val result =
       iut.listObjectsV2(
@@ -725,10 +734,10 @@ internal class BucketServiceTest : ServiceTestBase() {
     val bucketName = "bucket-del"
     val meta = givenBucket(bucketName)
     val key = "k1"
-    val id = meta.addKey(key)
+    val id = givenKey(bucketName, key)
 
-    // First call returns metadata with one object, second call also returns non-empty -> triggers exception
-    whenever(bucketStore.getBucketMetadata(bucketName)).thenReturn(meta, meta)
+    // The object is not a delete marker, so the bucket stays non-empty -> triggers exception
+    whenever(bucketStore.isBucketEmpty(bucketName)).thenReturn(false)
 
     // Object metadata without delete marker
     whenever(objectStore.getS3ObjectMetadata(meta, id, null)).thenReturn(s3ObjectMetadata(id, key))
@@ -743,13 +752,10 @@ internal class BucketServiceTest : ServiceTestBase() {
     val bucketName = "bucket-del-markers"
     val metaInitial = givenBucket(bucketName)
     val key = "k1"
-    val id = metaInitial.addKey(key)
+    val id = givenKey(bucketName, key)
 
-    // Metadata before deletion: contains one key
-    // After removing delete marker, metadata is empty
-    val metaAfter = bucketMetadata(bucketName, metaInitial)
-
-    whenever(bucketStore.getBucketMetadata(bucketName)).thenReturn(metaInitial, metaAfter)
+    // After removing the delete marker, the bucket is empty
+    whenever(bucketStore.isBucketEmpty(bucketName)).thenReturn(true)
 
     // Return S3ObjectMetadata marked as delete marker
     val dm = s3ObjectMetadata(id, key)
@@ -764,8 +770,10 @@ internal class BucketServiceTest : ServiceTestBase() {
     val deleted = iut.deleteBucket(bucketName)
     assertThat(deleted).isTrue()
     // ensure we removed the key from the bucket
-    verify(bucketStore).removeFromBucket(key, bucketName)
+    verify(bucketStore).removeFromBucket(setOf(key), bucketName)
     verify(objectStore).doDeleteObject(metaInitial, id)
+    // the uploads of the deleted bucket are evicted from the registry
+    verify(multipartStore).removeMultipartUploads(metaInitial)
   }
 
   @Test
@@ -812,7 +820,7 @@ internal class BucketServiceTest : ServiceTestBase() {
     val encodingType = "url"
     val maxKeys = 100
 
-    givenBucketWithContents(bucketName, null, listOf(givenS3Object(specialKey)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(specialKey)))
 
     val out =
       iut.listVersions(
@@ -840,7 +848,7 @@ internal class BucketServiceTest : ServiceTestBase() {
     val encodingType = "url"
     val maxKeys = 100
 
-    givenBucketWithContents(bucketName, null, listOf(givenS3Object("key")))
+    givenBucketWithContents(bucketName, listOf(givenS3Object("key")))
 
     val out =
       iut.listVersions(
@@ -856,6 +864,89 @@ internal class BucketServiceTest : ServiceTestBase() {
     assertThat(out.delimiter).doesNotContain("&")
   }
 
+  @Test
+  fun testListVersions_versioningEnabled_paginatesWithMarkers() {
+    val bucketName = "bucket-versioned"
+    val bucketMetadata =
+      bucketMetadata(
+        bucketName,
+        givenBucket(bucketName),
+        versioningConfiguration = VersioningConfiguration(null, Status.ENABLED),
+      )
+    whenever(bucketStore.getBucketMetadata(bucketName)).thenReturn(bucketMetadata)
+    val a = givenKey(bucketName, "a")
+    val b = givenKey(bucketName, "b")
+    whenever(objectStore.getS3ObjectVersionChain(bucketMetadata, a))
+      .thenReturn(listOf(versionSummary("a", "a1"), versionSummary("a", "a2"), versionSummary("a", "a3", true)))
+    whenever(objectStore.getS3ObjectVersionChain(bucketMetadata, b)).thenReturn(listOf(versionSummary("b", "b1")))
+
+    val first = iut.listVersions(bucketName, null, null, null, 2, null, null)
+    assertThat(first.deleteMarkers!!.map { it.versionId to it.isLatest }).containsExactly("a3" to true)
+    assertThat(first.objectVersions!!.map { it.versionId to it.isLatest }).containsExactly("a2" to false)
+    assertThat(first.isTruncated).isTrue()
+    assertThat(first.nextKeyMarker).isEqualTo("a")
+    assertThat(first.nextVersionIdMarker).isEqualTo("a2")
+
+    val second = iut.listVersions(bucketName, null, null, null, 2, first.nextKeyMarker, first.nextVersionIdMarker)
+    assertThat(second.deleteMarkers).isEmpty()
+    assertThat(second.objectVersions!!.map { it.versionId to it.isLatest }).containsExactly("a1" to false, "b1" to true)
+    assertThat(second.isTruncated).isFalse()
+    assertThat(second.nextKeyMarker).isNull()
+    assertThat(second.nextVersionIdMarker).isNull()
+  }
+
+  @Test
+  fun testListVersions_versioningEnabled_passesEntriesToConsumers() {
+    val bucketName = "bucket-versioned"
+    val bucketMetadata =
+      bucketMetadata(
+        bucketName,
+        givenBucket(bucketName),
+        versioningConfiguration = VersioningConfiguration(null, Status.ENABLED),
+      )
+    whenever(bucketStore.getBucketMetadata(bucketName)).thenReturn(bucketMetadata)
+    val a = givenKey(bucketName, "a")
+    whenever(objectStore.getS3ObjectVersionChain(bucketMetadata, a))
+      .thenReturn(listOf(versionSummary("a", "a1"), versionSummary("a", "a2", true)))
+
+    val listed = mutableListOf<String?>()
+    val result =
+      iut.listVersions(
+        bucketName,
+        null,
+        null,
+        null,
+        1000,
+        null,
+        null,
+        { listed += it.versionId },
+        { listed += it.versionId },
+      )
+
+    assertThat(listed).containsExactly("a2", "a1")
+    assertThat(result.objectVersions).isEmpty()
+    assertThat(result.deleteMarkers).isEmpty()
+    assertThat(result.isTruncated).isFalse()
+  }
+
+  private fun versionSummary(
+    key: String,
+    versionId: String,
+    deleteMarker: Boolean = false,
+  ) = S3ObjectVersionSummary(
+    versionId,
+    key,
+    deleteMarker,
+    "etag",
+    "1",
+    "modificationDate",
+    0L,
+    Owner.DEFAULT_OWNER,
+    StorageClass.STANDARD,
+    null,
+    null,
+  )
+
   companion object {
     private const val TEST_BUCKET_NAME = "test-bucket"
 
@@ -879,4 +970,12 @@ internal class BucketServiceTest : ServiceTestBase() {
         bucketMetadata.locationInfo,
       )
   }
+
+  private fun givenBuckets(buckets: List<BucketMetadata>) {
+    whenever(bucketStore.listBuckets(any(), anyOrNull())).thenAnswer { invocation ->
+      val prefix = invocation.getArgument<String>(0)
+      val startAfter = invocation.getArgument<String?>(1)
+      buckets.asSequence().filter { it.name.startsWith(prefix) && (startAfter == null || it.name > startAfter) }
+    }
+  }
 }
@@ -0,0 +1,302 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.service
+
+import com.adobe.testing.s3mock.s3.dto.AbortIncompleteMultipartUpload
+import com.adobe.testing.s3mock.s3.dto.BucketLifecycleConfiguration
+import com.adobe.testing.s3mock.s3.dto.Delete
+import com.adobe.testing.s3mock.s3.dto.Initiator
+import com.adobe.testing.s3mock.s3.dto.LifecycleExpiration
+import com.adobe.testing.s3mock.s3.dto.LifecycleRule
+import com.adobe.testing.s3mock.s3.dto.LifecycleRuleFilter
+import com.adobe.testing.s3mock.s3.dto.MultipartUpload
+import com.adobe.testing.s3mock.s3.dto.NoncurrentVersionExpiration
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.S3ObjectIdentifier
+import com.adobe.testing.s3mock.s3.dto.StorageClass
+import com.adobe.testing.s3mock.s3.dto.Tag
+import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import com.adobe.testing.s3mock.s3.model.S3ObjectVersionSummary
+import com.adobe.testing.s3mock.s3.store.MultipartStore
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.test.context.bean.override.mockito.MockitoBean
+import java.time.Duration
+import java.time.Instant
+import java.util.UUID
+
+@SpringBootTest(classes = [LifecycleConfiguration::class], webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@MockitoBean(types = [ObjectService::class, MultipartService::class, MultipartStore::class])
+internal class LifecycleServiceTest : ServiceTestBase() {
+  @Autowired
+  private lateinit var iut: LifecycleService
+
+  @Autowired
+  private lateinit var objectService: ObjectService
+
+  @Autowired
+  private lateinit var multipartService: MultipartService
+
+  @Autowired
+  private lateinit var multipartStore: MultipartStore
+
+  @Test
+  fun `expires objects matching prefix and tags once they are old enough`() {
+    givenRules(rule(expiration = LifecycleExpiration(null, 1, null), filter = filter(prefix = "logs/", tags = listOf(TAG))))
+    givenObject("logs/old", Duration.ofDays(2), listOf(TAG))
+    givenObject("logs/new", Duration.ofHours(23), listOf(TAG))
+    givenObject("logs/untagged", Duration.ofDays(2))
+    givenObject("data/old", Duration.ofDays(2), listOf(TAG))
+
+    iut.run()
+
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("logs/old")), true))
+  }
+
+  @Test
+  fun `accelerates time`() {
+    givenRules(rule(expiration = LifecycleExpiration(null, 1, null)))
+    givenObject("key", Duration.ofSeconds(2))
+
+    iut(timeAcceleration = 86400).run()
+
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("key")), true))
+  }
+
+  @Test
+  fun `ignores disabled rules`() {
+    givenRules(rule(expiration = LifecycleExpiration(null, 1, null), status = LifecycleRule.Status.DISABLED))
+    givenObject("key", Duration.ofDays(2))
+
+    iut.run()
+
+    verify(objectService, never()).deleteObjects(any(), any())
+  }
+
+  @Test
+  fun `evaluates keys incrementally`() {
+    givenRules(rule(expiration = LifecycleExpiration(null, 1, null)))
+    givenObject("a", Duration.ofDays(2))
+    givenObject("b", Duration.ofDays(2))
+    givenObject("c", Duration.ofDays(2))
+    val iut = iut(keysPerRun = 2)
+
+    iut.run()
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("a"), identifier("b")), true))
+
+    iut.run()
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("c")), true))
+  }
+
+  @Test
+  fun `inserts delete marker and expires noncurrent versions in versioned buckets`() {
+    givenVersioning()
+    givenRules(
+      rule(
+        expiration = LifecycleExpiration(null, 1, true),
+        noncurrentVersionExpiration = NoncurrentVersionExpiration(null, 1),
+      ),
+    )
+    givenVersions("key", version("v1", Duration.ofDays(3)), version("v2", Duration.ofDays(2)))
+
+    iut.run()
+
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("key"), identifier("key", "v1")), true))
+  }
+
+  @Test
+  fun `removes expired object delete markers`() {
+    givenVersioning()
+    givenRules(rule(expiration = LifecycleExpiration(null, null, true)))
+    givenVersions("key", version("v1", Duration.ofDays(2), deleteMarker = true))
+
+    iut.run()
+
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("key", "v1")), true))
+  }
+
+  @Test
+  fun `keeps newer noncurrent versions`() {
+    givenVersioning()
+    givenRules(rule(noncurrentVersionExpiration = NoncurrentVersionExpiration(1, 1)))
+    givenVersions(
+      "key",
+      version("v1", Duration.ofDays(4)),
+      version("v2", Duration.ofDays(3)),
+      version("v3", Duration.ofDays(2)),
+    )
+
+    iut.run()
+
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("key", "v1")), true))
+  }
+
+  @Test
+  fun `matches the filter against each noncurrent version`() {
+    givenVersioning()
+    givenRules(rule(noncurrentVersionExpiration = NoncurrentVersionExpiration(null, 1), filter = filter(tags = listOf(TAG))))
+    givenVersions(
+      "key",
+      version("v1", Duration.ofDays(4), listOf(TAG)),
+      version("v2", Duration.ofDays(3)),
+      version("v3", Duration.ofDays(2)),
+    )
+
+    iut.run()
+
+    verify(objectService).deleteObjects(BUCKET, Delete(listOf(identifier("key", "v1")), true))
+  }
+
+  @Test
+  fun `aborts incomplete multipart uploads`() {
+    givenRules(rule(abortIncompleteMultipartUpload = AbortIncompleteMultipartUpload(1), filter = filter(prefix = "uploads/")))
+    val expired = givenUpload("uploads/key", Duration.ofDays(2))
+    givenUpload("uploads/new", Duration.ofHours(23))
+    givenUpload("other/key", Duration.ofDays(2))
+
+    iut.run()
+
+    verify(multipartService).abortMultipartUpload(BUCKET, "uploads/key", UUID.fromString(expired.uploadId))
+    verify(multipartService, never()).abortMultipartUpload(eq(BUCKET), eq("uploads/new"), any())
+    verify(multipartService, never()).abortMultipartUpload(eq(BUCKET), eq("other/key"), any())
+  }
+
+  private fun iut(
+    timeAcceleration: Long = 1,
+    keysPerRun: Int = LifecycleService.DEFAULT_KEYS_PER_RUN,
+  ) = LifecycleService(
+    bucketStore,
+    objectStore,
+    multipartStore,
+    objectService,
+    multipartService,
+    Duration.ZERO,
+    timeAcceleration,
+    keysPerRun,
+  )
+
+  private fun rule(
+    expiration: LifecycleExpiration? = null,
+    noncurrentVersionExpiration: NoncurrentVersionExpiration? = null,
+    abortIncompleteMultipartUpload: AbortIncompleteMultipartUpload? = null,
+    filter: LifecycleRuleFilter? = null,
+    status: LifecycleRule.Status = LifecycleRule.Status.ENABLED,
+  ) = LifecycleRule(abortIncompleteMultipartUpload, expiration, filter, "rule", noncurrentVersionExpiration, null, status, null)
+
+  private fun filter(
+    prefix: String? = null,
+    tags: List<Tag>? = null,
+  ) = LifecycleRuleFilter(null, null, prefix, tags, null)
+
+  private fun givenRules(vararg rules: LifecycleRule) {
+    givenBucket(bucketMetadata().copy(bucketLifecycleConfiguration = BucketLifecycleConfiguration(rules.toList())))
+  }
+
+  private fun givenVersioning() {
+    givenBucket(bucketMetadata().copy(versioningConfiguration = VersioningConfiguration(null, VersioningConfiguration.Status.ENABLED)))
+  }
+
+  private fun bucketMetadata(): BucketMetadata = bucketStore.listBuckets().firstOrNull() ?: givenBucket(BUCKET)
+
+  private fun givenBucket(bucketMetadata: BucketMetadata) {
+    whenever(bucketStore.getBucketMetadata(BUCKET)).thenReturn(bucketMetadata)
+    whenever(bucketStore.listBuckets()).thenReturn(listOf(bucketMetadata))
+  }
+
+  private fun givenObject(
+    key: String,
+    age: Duration,
+    tags: List<Tag>? = null,
+  ) {
+    val bucketMetadata = bucketMetadata()
+    val id = givenKey(BUCKET, key)
+    whenever(objectStore.getS3ObjectMetadata(bucketMetadata, id, null))
+      .thenReturn(metadata(id, key, age, tags))
+  }
+
+  private fun givenVersions(
+    key: String,
+    vararg versions: (UUID) -> S3ObjectMetadata,
+  ) {
+    val bucketMetadata = bucketMetadata()
+    val id = givenKey(BUCKET, key)
+    val metadata = versions.map { it(id) }
+    whenever(objectStore.getS3ObjectVersionChain(bucketMetadata, id))
+      .thenReturn(metadata.map { S3ObjectVersionSummary.from(it) })
+    metadata.forEach {
+      whenever(objectStore.getS3ObjectMetadata(bucketMetadata, id, it.versionId)).thenReturn(it)
+    }
+  }
+
+  private fun version(
+    versionId: String,
+    age: Duration,
+    tags: List<Tag>? = null,
+    deleteMarker: Boolean = false,
+  ): (UUID) -> S3ObjectMetadata =
+    { id -> metadata(id, "key", age, tags).copy(versionId = versionId, deleteMarker = deleteMarker) }
+
+  private fun metadata(
+    id: UUID,
+    key: String,
+    age: Duration,
+    tags: List<Tag>?,
+  ): S3ObjectMetadata =
+    s3ObjectMetadata(id, key).copy(
+      size = "1",
+      lastModified = Instant.now().minus(age).toEpochMilli(),
+      tags = tags,
+    )
+
+  private fun givenUpload(
+    key: String,
+    age: Duration,
+  ): MultipartUpload {
+    val upload =
+      MultipartUpload(
+        null,
+        null,
+        Instant.now().minus(age),
+        Initiator.DEFAULT_INITIATOR,
+        key,
+        Owner.DEFAULT_OWNER,
+        StorageClass.STANDARD,
+        UUID.randomUUID().toString(),
+      )
+    val bucketMetadata = bucketMetadata()
+    val uploads = multipartStore.listMultipartUploads(bucketMetadata, null) + upload
+    whenever(multipartStore.listMultipartUploads(bucketMetadata, null)).thenReturn(uploads)
+    return upload
+  }
+
+  private fun identifier(
+    key: String,
+    versionId: String? = null,
+  ) = S3ObjectIdentifier(key, null, null, null, versionId)
+
+  companion object {
+    private const val BUCKET = "bucket"
+    private val TAG = Tag("expire", "true")
+  }
+}
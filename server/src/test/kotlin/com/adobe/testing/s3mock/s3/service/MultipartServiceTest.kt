@@ -36,6 +36,7 @@ import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.test.context.bean.override.mockito.MockitoBean
 import java.nio.file.Path
 import java.time.Instant
+import java.util.TreeMap
 import java.util.UUID
 
 @SpringBootTest(classes = [ServiceConfiguration::class], webEnvironment = SpringBootTest.WebEnvironment.NONE)
@@ -110,7 +111,7 @@ internal class MultipartServiceTest : ServiceTestBase() {
     val key = "key"
     val uploadId = UUID.randomUUID()
     val bucketMetadata = givenBucket(bucketName)
-    val id = bucketMetadata.addKey(key)
+    val id = givenKey(bucketName, key)
     val multipartUpload =
       MultipartUpload(
         null,
@@ -150,7 +151,7 @@ internal class MultipartServiceTest : ServiceTestBase() {
         StorageClass.STANDARD,
         uploadId.toString(),
       )
-    whenever(multipartStore.listMultipartUploads(bucketMetadata, null)).thenReturn(listOf(multipartUpload))
+    whenever(multipartStore.getMultipartUploads(bucketMetadata)).thenReturn(TreeMap(mapOf(key to listOf(multipartUpload))))
 
     val result = iut.listMultipartUploads(bucketName, null, null, null, 0, null, null)
 
@@ -160,13 +161,66 @@ internal class MultipartServiceTest : ServiceTestBase() {
     assertThat(result.nextUploadIdMarker).isEqualTo("")
   }
 
+  @Test
+  fun testListMultipartUploads_continuesAfterUploadIdMarker() {
+    val bucketName = "bucketName"
+    val bucketMetadata = givenBucket(bucketName)
+    val a1 = givenMultipartUpload("a")
+    val a2 = givenMultipartUpload("a")
+    val a3 = givenMultipartUpload("a")
+    val b1 = givenMultipartUpload("b")
+    whenever(multipartStore.getMultipartUploads(bucketMetadata))
+      .thenReturn(TreeMap(mapOf("a" to listOf(a1, a2, a3), "b" to listOf(b1))))
+
+    val first = iut.listMultipartUploads(bucketName, null, null, null, 2, null, null)
+
+    assertThat(first.multipartUploads).containsExactly(a1, a2)
+    assertThat(first.isTruncated).isTrue
+    assertThat(first.nextKeyMarker).isEqualTo("a")
+    assertThat(first.nextUploadIdMarker).isEqualTo(a2.uploadId)
+
+    val second = iut.listMultipartUploads(bucketName, null, null, first.nextKeyMarker, 2, null, first.nextUploadIdMarker)
+
+    assertThat(second.multipartUploads).containsExactly(a3, b1)
+    assertThat(second.isTruncated).isFalse
+    assertThat(second.nextKeyMarker).isNull()
+    assertThat(second.nextUploadIdMarker).isNull()
+  }
+
+  @Test
+  fun testListMultipartUploads_collapsesCommonPrefixes() {
+    val bucketName = "bucketName"
+    val bucketMetadata = givenBucket(bucketName)
+    val uploads = listOf("a/1", "a/2", "b", "c/1").associateWith { listOf(givenMultipartUpload(it)) }
+    whenever(multipartStore.getMultipartUploads(bucketMetadata)).thenReturn(TreeMap(uploads))
+
+    val result = iut.listMultipartUploads(bucketName, "/", null, null, 2, null, null)
+
+    assertThat(result.commonPrefixes?.map { it.prefix }).containsExactly("a/")
+    assertThat(result.multipartUploads?.map { it.key }).containsExactly("b")
+    assertThat(result.isTruncated).isTrue
+    assertThat(result.nextKeyMarker).isEqualTo("b")
+  }
+
+  private fun givenMultipartUpload(key: String) =
+    MultipartUpload(
+      null,
+      null,
+      Instant.now(),
+      Initiator.DEFAULT_INITIATOR,
+      key,
+      Owner.DEFAULT_OWNER,
+      StorageClass.STANDARD,
+      UUID.randomUUID().toString(),
+    )
+
   @Test
   fun testVerifyMultipartParts_withRequestedParts_success() {
     val bucketName = "bucketName"
     val key = "key"
     val uploadId = UUID.randomUUID()
     val bucketMetadata = givenBucket(bucketName)
-    val id = bucketMetadata.addKey(key)
+    val id = givenKey(bucketName, key)
     val parts = givenParts(2, MultipartService.MINIMUM_PART_SIZE)
     val requestedParts = from(parts)
     whenever(multipartStore.getMultipartUploadParts(bucketMetadata, id, uploadId)).thenReturn(parts)
@@ -180,7 +234,7 @@ internal class MultipartServiceTest : ServiceTestBase() {
     val key = "key"
     val uploadId = UUID.randomUUID()
     val bucketMetadata = givenBucket(bucketName)
-    val id = bucketMetadata.addKey(key)
+    val id = givenKey(bucketName, key)
     val parts = givenParts(1, 1L)
     val requestedParts =
       listOf(
@@ -206,7 +260,7 @@ internal class MultipartServiceTest : ServiceTestBase() {
     val key = "key"
     val uploadId = UUID.randomUUID()
     val bucketMetadata = givenBucket(bucketName)
-    val id = bucketMetadata.addKey(key)
+    val id = givenKey(bucketName, key)
     val parts = givenParts(2, MultipartService.MINIMUM_PART_SIZE)
     val requestedParts = from(parts).toMutableList().also { it.reverse() }
     whenever(multipartStore.getMultipartUploadParts(bucketMetadata, id, uploadId)).thenReturn(parts)
@@ -321,7 +375,7 @@ internal class MultipartServiceTest : ServiceTestBase() {
     val key = "key"
     val uploadId = UUID.randomUUID()
     val bucketMetadata = givenBucket(bucketName)
-    val id = bucketMetadata.addKey(key)
+    val id = givenKey(bucketName, key)
     // Only part 1 was uploaded
     val uploadedParts = givenParts(1, MultipartService.MINIMUM_PART_SIZE)
     whenever(multipartStore.getMultipartUploadParts(bucketMetadata, id, uploadId)).thenReturn(uploadedParts)
@@ -27,12 +27,20 @@ import com.adobe.testing.s3mock.s3.dto.Retention
 import com.adobe.testing.s3mock.s3.dto.S3ObjectIdentifier
 import com.adobe.testing.s3mock.s3.dto.Tag
 import com.adobe.testing.s3mock.s3.store.MultipartStore
+import com.adobe.testing.s3mock.s3.util.ChecksumUtil
 import com.adobe.testing.s3mock.s3.util.DigestUtil
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.Test
 import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.argThat
+import org.mockito.kotlin.eq
 import org.mockito.kotlin.isNull
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
@@ -49,6 +57,9 @@ import java.time.temporal.ChronoUnit
 import java.util.UUID
 import kotlin.io.path.inputStream
 import kotlin.io.path.outputStream
+import kotlin.io.path.readText
+import kotlin.io.path.writeText
+import kotlin.random.Random
 
 @SpringBootTest(classes = [ServiceConfiguration::class], webEnvironment = SpringBootTest.WebEnvironment.NONE)
 @MockitoBean(types = [BucketService::class, MultipartService::class, MultipartStore::class])
@@ -63,7 +74,6 @@ internal class ObjectServiceTest : ServiceTestBase() {
     val key2 = "key2"
     givenBucketWithContents(
       bucketName,
-      "",
       listOf(
         givenS3Object(key),
         givenS3Object(key2),
@@ -78,12 +88,14 @@ internal class ObjectServiceTest : ServiceTestBase() {
         false,
       )
 
-    whenever(objectStore.deleteObject(any(), any(), isNull()))
+    whenever(objectStore.deleteObject(any(), any(), isNull(), anyOrNull()))
       .thenReturn(true)
-    whenever(bucketStore.removeFromBucket(key, bucketName)).thenReturn(true)
-    whenever(bucketStore.removeFromBucket(key2, bucketName)).thenReturn(true)
     val deleted = iut.deleteObjects(bucketName, delete)
     assertThat(deleted.deletedObjects).hasSize(2)
+    // one update of the bucket metadata for all keys
+    verify(bucketStore).removeFromBucket(argThat<Map<String, UUID>> { keys == setOf(key, key2) }, eq(bucketName))
+    verify(bucketStore, never()).removeFromBucket(any<String>(), any())
+    verify(bucketStore, times(1)).getBucketMetadata(bucketName)
   }
 
   @Test
@@ -93,7 +105,6 @@ internal class ObjectServiceTest : ServiceTestBase() {
     val key2 = "key2"
     givenBucketWithContents(
       bucketName,
-      "",
       listOf(
         givenS3Object(key),
         givenS3Object(key2),
@@ -108,25 +119,49 @@ internal class ObjectServiceTest : ServiceTestBase() {
         true,
       )
 
-    whenever(objectStore.deleteObject(any(), any(), isNull()))
+    whenever(objectStore.deleteObject(any(), any(), isNull(), anyOrNull()))
       .thenReturn(true)
-    whenever(bucketStore.removeFromBucket(key, bucketName)).thenReturn(true)
-    whenever(bucketStore.removeFromBucket(key2, bucketName)).thenReturn(true)
     val deleted = iut.deleteObjects(bucketName, delete)
     assertThat(deleted.deletedObjects).hasSize(0)
   }
 
+  @Test
+  fun testDeleteObjects_keepsKeysOfRemainingVersionsAndReportsErrors() {
+    val bucketName = "bucket"
+    val bucketMetadata = givenBucket(bucketName)
+    val deleted = givenKey(bucketName, "deleted")
+    val versioned = givenKey(bucketName, "versioned")
+    val failing = givenKey(bucketName, "failing")
+    whenever(objectStore.deleteObject(any(), eq(deleted), isNull(), anyOrNull())).thenReturn(true)
+    whenever(objectStore.deleteObject(any(), eq(versioned), isNull(), anyOrNull())).thenReturn(false)
+    whenever(objectStore.deleteObject(any(), eq(failing), isNull(), anyOrNull()))
+      .thenThrow(IllegalStateException("failing"))
+    val delete =
+      Delete(
+        listOf("deleted", "versioned", "failing", "missing").map { givenS3ObjectIdentifier(it) },
+        false,
+      )
+
+    val result = iut.deleteObjects(bucketName, delete)
+
+    verify(bucketStore).removeFromBucket(mapOf("deleted" to deleted), bucketName)
+    assertThat(result.deletedObjects!!.map { it.key }).containsExactly("deleted", "versioned", "missing")
+    assertThat(result.errors!!.map { it.key }).containsExactly("failing")
+  }
+
   private fun givenS3ObjectIdentifier(key: String) = S3ObjectIdentifier(key, null, null, null, null)
 
   @Test
   fun testDeleteObject() {
     val bucketName = "bucket"
     val key = "key"
-    givenBucketWithContents(bucketName, "", listOf(givenS3Object(key)))
-    whenever(objectStore.deleteObject(any(), any(), isNull()))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
+    whenever(objectStore.deleteObject(any(), any(), isNull(), anyOrNull()))
       .thenReturn(true)
     whenever(bucketStore.removeFromBucket(key, bucketName)).thenReturn(true)
     val outcome = iut.deleteObject(bucketName, key, null)
+    // the metadata read by the service is passed on instead of being read again
+    verify(objectStore, times(1)).getS3ObjectMetadata(any(), any(), isNull())
     assertThat(outcome.deleted).isTrue()
     assertThat(outcome.isDeleteMarker).isFalse()
   }
@@ -333,9 +368,8 @@ internal class ObjectServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyLegalHoldExists_failure() {
     val bucketName = "bucket"
-    val prefix = ""
     val key = "key"
-    givenBucketWithContents(bucketName, prefix, listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
     assertThatThrownBy { iut.verifyLegalHoldExists(bucketName, key, null) }
       .isEqualTo(S3Exception.NOT_FOUND_OBJECT_LOCK)
   }
@@ -343,10 +377,9 @@ internal class ObjectServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyLegalHoldExists_onlyRetentionSet_failure() {
     val bucketName = "bucket"
-    val prefix = ""
     val key = "key"
     val retention = Retention(Mode.COMPLIANCE, Instant.now().plus(1, ChronoUnit.DAYS))
-    givenBucketWithContents(bucketName, prefix, listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
     whenever(objectStore.getS3ObjectMetadata(any(), any(), isNull()))
       .thenReturn(s3ObjectMetadata(UUID.randomUUID(), key).copy(retention = retention))
     assertThatThrownBy { iut.verifyLegalHoldExists(bucketName, key, null) }
@@ -356,9 +389,8 @@ internal class ObjectServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyRetentionExists_failure() {
     val bucketName = "bucket"
-    val prefix = ""
     val key = "key"
-    givenBucketWithContents(bucketName, prefix, listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
     assertThatThrownBy { iut.verifyRetentionExists(bucketName, key, null) }
       .isEqualTo(S3Exception.NOT_FOUND_OBJECT_LOCK)
   }
@@ -366,10 +398,9 @@ internal class ObjectServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyRetentionExists_onlyLegalHoldSet_failure() {
     val bucketName = "bucket"
-    val prefix = ""
     val key = "key"
     val legalHold = LegalHold(LegalHold.Status.ON)
-    givenBucketWithContents(bucketName, prefix, listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
     whenever(objectStore.getS3ObjectMetadata(any(), any(), isNull()))
       .thenReturn(s3ObjectMetadata(UUID.randomUUID(), key).copy(legalHold = legalHold))
     assertThatThrownBy { iut.verifyRetentionExists(bucketName, key, null) }
@@ -379,10 +410,9 @@ internal class ObjectServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyLegalHoldExists_success() {
     val bucketName = "bucket"
-    val prefix = ""
     val key = "key"
     val legalHold = LegalHold(LegalHold.Status.ON)
-    givenBucketWithContents(bucketName, prefix, listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
     whenever(objectStore.getS3ObjectMetadata(any(), any(), isNull()))
       .thenReturn(s3ObjectMetadata(UUID.randomUUID(), key).copy(legalHold = legalHold))
     assertThat(iut.verifyLegalHoldExists(bucketName, key, null).legalHold).isEqualTo(legalHold)
@@ -391,10 +421,9 @@ internal class ObjectServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyRetentionExists_success() {
     val bucketName = "bucket"
-    val prefix = ""
     val key = "key"
     val retention = Retention(Mode.COMPLIANCE, Instant.now().plus(1, ChronoUnit.DAYS))
-    givenBucketWithContents(bucketName, prefix, listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
     whenever(objectStore.getS3ObjectMetadata(any(), any(), isNull()))
       .thenReturn(s3ObjectMetadata(UUID.randomUUID(), key).copy(retention = retention))
     assertThat(iut.verifyRetentionExists(bucketName, key, null).retention).isEqualTo(retention)
@@ -403,9 +432,8 @@ internal class ObjectServiceTest : ServiceTestBase() {
   @Test
   fun testVerifyObjectExists_success() {
     val bucketName = "bucket"
-    val prefix = ""
     val key = "key"
-    givenBucketWithContents(bucketName, prefix, listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
     val s3ObjectMetadata = iut.verifyObjectExists(bucketName, key, null)
     assertThat(s3ObjectMetadata.key).isEqualTo(key)
   }
@@ -441,6 +469,126 @@ internal class ObjectServiceTest : ServiceTestBase() {
     assertThat(checksum).contains("Y8S4/uAGut7vjdFZQjLKZ7P28V9EPWb4BIoeniuM0mY=")
   }
 
+  @Test
+  fun `receive keeps small payload in memory`() {
+    val bytes = File(TEST_FILE_PATH).readBytes()
+    val (content, checksum) =
+      iut.receive(bytes.inputStream(), HttpHeaders().apply { contentLength = bytes.size.toLong() })
+
+    assertThat(content).isInstanceOf(ObjectContent.InMemory::class.java)
+    assertThat((content as ObjectContent.InMemory).bytes).isEqualTo(bytes)
+    assertThat(checksum).isNull()
+  }
+
+  @Test
+  fun `receive decodes small aws-chunked payload in memory`() {
+    val file = File(TEST_FILE_PATH)
+    val chunked = toTempFile(file.toPath(), DefaultChecksumAlgorithm.SHA256)
+    val (content, checksum) =
+      iut.receive(
+        chunked.inputStream(),
+        HttpHeaders(
+          MultiValueMapAdapter(
+            mapOf(
+              AwsHttpHeaders.X_AMZ_SDK_CHECKSUM_ALGORITHM to listOf(ChecksumAlgorithm.SHA256.toString()),
+              HttpHeaders.CONTENT_ENCODING to listOf(AwsHttpHeaders.AWS_CHUNKED),
+              AwsHttpHeaders.X_AMZ_TRAILER to listOf(AwsHttpHeaders.X_AMZ_CHECKSUM_SHA256),
+              AwsHttpHeaders.X_AMZ_DECODED_CONTENT_LENGTH to listOf(file.length().toString()),
+            ),
+          ),
+        ),
+      )
+
+    assertThat((content as ObjectContent.InMemory).bytes).isEqualTo(file.readBytes())
+    assertThat(checksum).isEqualTo(ChecksumUtil.checksumFor(file.toPath(), DefaultChecksumAlgorithm.SHA256))
+  }
+
+  @Test
+  fun `receive writes large or unknown length payload to temp file`() {
+    val bytes = Random.nextBytes(LARGE_OBJECT_SIZE)
+    listOf(
+      HttpHeaders().apply { contentLength = bytes.size.toLong() },
+      HttpHeaders(),
+    ).forEach { headers ->
+      val (content, _) = iut.receive(bytes.inputStream(), headers)
+
+      assertThat(content).isInstanceOf(ObjectContent.OnDisk::class.java)
+      assertThat((content as ObjectContent.OnDisk).path).hasBinaryContent(bytes)
+      content.discard()
+    }
+  }
+
+  @Test
+  fun `receive rejects payload shorter than its content length`() {
+    assertThatThrownBy {
+      iut.receive("short".toByteArray().inputStream(), HttpHeaders().apply { contentLength = 10 })
+    }.isEqualTo(S3Exception.BAD_REQUEST_CONTENT)
+  }
+
+  @Test
+  fun `receive writes payload to temp file if threshold is 0`() {
+    val disabled = ObjectService(bucketStore, objectStore, 0L)
+    listOf(ByteArray(0), "0123456789".toByteArray()).forEach { bytes ->
+      val (content, _) = disabled.receive(bytes.inputStream(), HttpHeaders().apply { contentLength = bytes.size.toLong() })
+
+      assertThat(content).isInstanceOf(ObjectContent.OnDisk::class.java)
+      assertThat((content as ObjectContent.OnDisk).path).hasBinaryContent(bytes)
+      content.discard()
+    }
+  }
+
+  @Test
+  fun `getSmallObjectData serves small objects from the store`() {
+    val bytes = "0123456789".toByteArray()
+    val metadata = s3ObjectMetadata(UUID.randomUUID(), "key").copy(size = bytes.size.toString())
+    whenever(objectStore.readObjectData(metadata)).thenReturn(bytes)
+
+    assertThat(iut.getSmallObjectData(metadata)).isEqualTo(bytes)
+    assertThat(iut.getSmallObjectData(metadata, 2, 3)).isEqualTo("234".toByteArray())
+  }
+
+  @Test
+  fun `getSmallObjectData leaves large objects on disk`() {
+    val metadata = s3ObjectMetadata(UUID.randomUUID(), "key").copy(size = LARGE_OBJECT_SIZE.toString())
+
+    assertThat(iut.getSmallObjectData(metadata)).isNull()
+    assertThat(iut.getSmallObjectData(metadata, 10, 5)).isNull()
+    verify(objectStore, never()).readObjectData(any())
+  }
+
+  @Test
+  fun `getSmallObjectData leaves all objects on disk if threshold is 0`() {
+    val disabled = ObjectService(bucketStore, objectStore, 0L)
+    val metadata = s3ObjectMetadata(UUID.randomUUID(), "key").copy(size = "0")
+
+    assertThat(disabled.getSmallObjectData(metadata)).isNull()
+    verify(objectStore, never()).readObjectData(any())
+  }
+
+  @Test
+  fun `toTempFile rejects aws-chunked stream with mismatching checksum`() {
+    val file = File("src/test/resources/sampleFile_large.txt")
+    val tempFile = toTempFile(file.toPath(), DefaultChecksumAlgorithm.SHA256)
+    tempFile.writeText(
+      tempFile.readText().replace("Y8S4/uAGut7vjdFZQjLKZ7P28V9EPWb4BIoeniuM0mY=", "1VcEifAruhjVvjzul4sC0B1EmlUdzqvsp6BP0KSVdTE="),
+    )
+
+    assertThatThrownBy {
+      iut.toTempFile(
+        tempFile.inputStream(),
+        HttpHeaders(
+          MultiValueMapAdapter(
+            mapOf(
+              AwsHttpHeaders.X_AMZ_SDK_CHECKSUM_ALGORITHM to listOf(ChecksumAlgorithm.SHA256.toString()),
+              HttpHeaders.CONTENT_ENCODING to listOf(AwsHttpHeaders.AWS_CHUNKED),
+              AwsHttpHeaders.X_AMZ_TRAILER to listOf(AwsHttpHeaders.X_AMZ_CHECKSUM_SHA256),
+            ),
+          ),
+        ),
+      )
+    }.isEqualTo(S3Exception.BAD_CHECKSUM_SHA256)
+  }
+
   @Test
   fun `store tags succeeds`() {
     val tags = listOf(Tag("key1", "value1"), Tag("key2", "value2"))
@@ -575,7 +723,7 @@ internal class ObjectServiceTest : ServiceTestBase() {
   fun testVerifyObjectMatching_byName_notModifiedMapsToPreconditionFailed() {
     val bucketName = "bucket"
     val key = "key"
-    givenBucketWithContents(bucketName, "", listOf(givenS3Object(key)))
+    givenBucketWithContents(bucketName, listOf(givenS3Object(key)))
 
     assertThatThrownBy {
       iut.verifyObjectMatching(bucketName, key, null, listOf("\"etag\""))
@@ -626,5 +774,8 @@ internal class ObjectServiceTest : ServiceTestBase() {
 
   companion object {
     private const val TEST_FILE_PATH = "src/test/resources/sampleFile.txt"
+
+    // above the default small object threshold
+    private const val LARGE_OBJECT_SIZE = 100 * 1024
   }
 }
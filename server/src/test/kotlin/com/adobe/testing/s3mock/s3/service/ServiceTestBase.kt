@@ -26,18 +26,20 @@ import com.adobe.testing.s3mock.s3.dto.StorageClass
 import com.adobe.testing.s3mock.s3.model.BucketMetadata
 import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
 import com.adobe.testing.s3mock.s3.service.BucketServiceTest.Param
-import com.adobe.testing.s3mock.s3.service.ServiceBase.Companion.filterBy
 import com.adobe.testing.s3mock.s3.store.BucketStore
 import com.adobe.testing.s3mock.s3.store.ObjectStore
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.params.ParameterizedTest
 import org.junit.jupiter.params.provider.MethodSource
+import org.mockito.kotlin.any
+import org.mockito.kotlin.eq
 import org.mockito.kotlin.whenever
 import org.springframework.test.context.bean.override.mockito.MockitoBean
 import java.nio.file.Files
 import java.nio.file.Path
 import java.time.Instant
+import java.util.TreeMap
 import java.util.UUID
 
 internal abstract class ServiceTestBase {
@@ -47,96 +49,106 @@ internal abstract class ServiceTestBase {
   @MockitoBean
   protected lateinit var objectStore: ObjectStore
 
+  // keys and ids of the objects of each bucket, returned by the mocked bucketStore
+  private val objects = mutableMapOf<String, TreeMap<String, UUID>>()
+
   @ParameterizedTest
   @MethodSource("data")
-  fun testCommonPrefixesAndBucketContentFilter(parameters: Param) {
-    val prefix = parameters.prefix
-    val delimiter = parameters.delimiter
-    val bucketContents = givenBucketContents(prefix)
-    val commonPrefixes = ServiceBase.collapseCommonPrefixes(prefix, delimiter, bucketContents, S3Object::key)
+  fun testListEntries(parameters: Param) {
+    val keys = ALL_KEYS.associateWithTo(TreeMap()) { it }
 
-    val filteredBucketContents = filterBy(bucketContents, S3Object::key, commonPrefixes)
+    val entries = ServiceBase.listEntries(keys, parameters.prefix, parameters.delimiter, null).toList()
 
-    val expectedPrefixes = parameters.expectedPrefixes
-    val expectedKeys = parameters.expectedKeys
+    assertThat(entries.filterIsInstance<ServiceBase.ListingEntry.CommonPrefix>().map { it.name })
+      .containsExactlyInAnyOrderElementsOf(parameters.expectedPrefixes.toList())
+    assertThat(entries.filterIsInstance<ServiceBase.ListingEntry.Key<String>>().map { it.name })
+      .containsExactlyInAnyOrderElementsOf(parameters.expectedKeys.toList())
+    assertThat(entries.map { it.name }).isSorted()
+  }
 
-    assertThat(commonPrefixes)
-      .hasSize(expectedPrefixes.size)
-      .containsExactlyInAnyOrderElementsOf(expectedPrefixes.toList())
+  @Test
+  fun testListEntriesAfterMarker() {
+    val keys = (ALL_KEYS + "b/\uFFFF" + "b\uFFFF").associateWithTo(TreeMap()) { it }
 
-    assertThat(filteredBucketContents.map(S3Object::key))
-      .containsExactlyInAnyOrderElementsOf(expectedKeys.toList())
+    assertThat(ServiceBase.listEntries(keys, null, "/", "b").map { it.name }.toList())
+      .containsExactly("b/", "b\uFFFF", "c/", "d:1", "d:1:1", "eor.txt", "foo/")
+    // a common prefix as marker continues after all keys starting with it
+    assertThat(ServiceBase.listEntries(keys, null, "/", "b/").map { it.name }.toList())
+      .containsExactly("b\uFFFF", "c/", "d:1", "d:1:1", "eor.txt", "foo/")
+    assertThat(ServiceBase.listEntries(keys, "b/", "/", "b/1/").map { it.name }.toList())
+      .containsExactly("b/2", "b/\uFFFF")
   }
 
   @Test
-  fun testCommonPrefixesNoPrefixNoDelimiter() {
-    val prefix = ""
-    val delimiter = ""
-    val bucketContents = givenBucketContents()
+  fun testListEntriesNoPrefixNoDelimiter() {
+    val keys = ALL_KEYS.associateWithTo(TreeMap()) { it }
 
-    val commonPrefixes = ServiceBase.collapseCommonPrefixes(prefix, delimiter, bucketContents, S3Object::key)
-    assertThat(commonPrefixes).isEmpty()
+    assertThat(ServiceBase.listEntries(keys, "", "", null).map { it.name }.toList())
+      .containsExactly(*ALL_KEYS)
   }
 
   @Test
-  fun testCommonPrefixesPrefixNoDelimiter() {
-    val prefix = "prefix-a"
-    val delimiter = ""
-    val bucketContents = givenBucketContents()
+  fun testListEntriesPrefixNoDelimiter() {
+    val keys = ALL_KEYS.associateWithTo(TreeMap()) { it }
 
-    val commonPrefixes = ServiceBase.collapseCommonPrefixes(prefix, delimiter, bucketContents, S3Object::key)
-    assertThat(commonPrefixes).isEmpty()
+    assertThat(ServiceBase.listEntries(keys, "prefix-a", "", null).toList()).isEmpty()
   }
 
   @Test
-  fun testCommonPrefixesNoPrefixDelimiter() {
-    val prefix = ""
-    val delimiter = "/"
-    val bucketContents = givenBucketContents()
+  fun testListEntriesNoPrefixDelimiter() {
+    val keys = ALL_KEYS.associateWithTo(TreeMap()) { it }
 
-    val commonPrefixes = ServiceBase.collapseCommonPrefixes(prefix, delimiter, bucketContents, S3Object::key)
-    assertThat(commonPrefixes).hasSize(5).contains("3330/", "foo/", "c/", "b/", "33309/")
+    assertThat(ServiceBase.listEntries(keys, "", "/", null).map { it.name }.toList())
+      .containsExactly("3330/", "33309/", "a", "b", "b/", "c/", "d:1", "d:1:1", "eor.txt", "foo/")
   }
 
   @Test
-  fun testCommonPrefixesPrefixDelimiter() {
-    val prefix = "3330"
-    val delimiter = "/"
-    val bucketContents = givenBucketContents()
+  fun testListEntriesPrefixDelimiter() {
+    val keys = ALL_KEYS.associateWithTo(TreeMap()) { it }
 
-    val commonPrefixes = ServiceBase.collapseCommonPrefixes(prefix, delimiter, bucketContents, S3Object::key)
-    assertThat(commonPrefixes).hasSize(2).contains("3330/", "33309/")
+    assertThat(ServiceBase.listEntries(keys, "3330", "/", null).toList())
+      .containsExactly(ServiceBase.ListingEntry.CommonPrefix("3330/"), ServiceBase.ListingEntry.CommonPrefix("33309/"))
   }
 
   fun givenBucket(name: String): BucketMetadata {
     whenever(bucketStore.doesBucketExist(name)).thenReturn(true)
+    objectsOf(name)
     val bucketMetadata = metadataFrom(name)
     whenever(bucketStore.getBucketMetadata(name)).thenReturn(bucketMetadata)
     return bucketMetadata
   }
 
+  fun givenKey(
+    bucketName: String,
+    key: String,
+  ): UUID = objectsOf(bucketName).getOrPut(key) { UUID.randomUUID() }
+
+  private fun objectsOf(bucketName: String): TreeMap<String, UUID> =
+    objects.getOrPut(bucketName) {
+      TreeMap<String, UUID>().also { keys ->
+        whenever(bucketStore.getObjects(bucketName)).thenReturn(keys)
+        whenever(bucketStore.findIdInBucket(any(), eq(bucketName))).thenAnswer { keys[it.getArgument(0)] }
+      }
+    }
+
   fun givenBucketWithContents(
     name: String,
     prefix: String?,
   ): List<S3Object> {
     val s3Objects = givenBucketContents(prefix)
-    return givenBucketWithContents(name, prefix, s3Objects)
+    return givenBucketWithContents(name, s3Objects)
   }
 
   fun givenBucketWithContents(
     name: String,
-    prefix: String?,
     s3Objects: List<S3Object>,
   ): List<S3Object> {
     val bucketMetadata = givenBucket(name)
-    val ids = mutableListOf<UUID>()
     for (s3Object in s3Objects) {
-      val id = bucketMetadata.addKey(s3Object.key)
-      ids.add(id)
+      val id = givenKey(name, s3Object.key)
       whenever(objectStore.getS3ObjectMetadata(bucketMetadata, id, null))
         .thenReturn(s3ObjectMetadata(id, s3Object.key))
     }
-    whenever(bucketStore.lookupIdsInBucket(prefix, name)).thenReturn(ids)
     return s3Objects
   }
 
@@ -33,6 +33,7 @@ import com.adobe.testing.s3mock.s3.dto.Transition
 import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.assertj.core.api.Assertions.entry
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.Test
 import org.springframework.beans.factory.annotation.Autowired
@@ -40,6 +41,11 @@ import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc
 import org.springframework.test.context.bean.override.mockito.MockitoBean
+import tools.jackson.databind.ObjectMapper
+import java.io.File
+import java.util.UUID
+import kotlin.io.path.readText
+import kotlin.io.path.writeText
 
 @AutoConfigureWebMvc
 @AutoConfigureMockMvc
@@ -49,6 +55,12 @@ internal class BucketStoreTest : StoreTestBase() {
   @Autowired
   private lateinit var bucketStore: BucketStore
 
+  @Autowired
+  private lateinit var rootFolder: File
+
+  @Autowired
+  private lateinit var objectMapper: ObjectMapper
+
   @Test
   fun `creates a bucket with expected name and path`() {
     val bucket = givenBucket()
@@ -88,6 +100,16 @@ internal class BucketStoreTest : StoreTestBase() {
     assertThat(buckets).`as`("FileStore should hold three Buckets").hasSize(3)
   }
 
+  @Test
+  fun `lists buckets by prefix and start`() {
+    listOf("a-1", "b-1", "b-2", "b-3", "c-1").forEach { givenBucket(it) }
+
+    assertThat(bucketStore.listBuckets("b-", null).map { it.name }.toList()).containsExactly("b-1", "b-2", "b-3")
+    assertThat(bucketStore.listBuckets("b-", "b-1").map { it.name }.toList()).containsExactly("b-2", "b-3")
+    assertThat(bucketStore.listBuckets("b-", "a-9").map { it.name }.toList()).containsExactly("b-1", "b-2", "b-3")
+    assertThat(bucketStore.listBuckets("", "b-3").map { it.name }.toList()).containsExactly("c-1")
+  }
+
   @Test
   fun `creates and gets a bucket`() {
     givenBucket()
@@ -98,6 +120,44 @@ internal class BucketStoreTest : StoreTestBase() {
     assertThat(bucket.name).isEqualTo(TEST_BUCKET_NAME)
   }
 
+  @Test
+  fun `serves bucket metadata from memory`() {
+    val bucket = givenBucket()
+    val keys = bucketStore.getObjects(TEST_BUCKET_NAME)
+    val id = bucketStore.addKeyToBucket("key", TEST_BUCKET_NAME)
+
+    // removing the file on disk does not affect the bucket, it was read once on creation
+    bucket.path
+      .resolve(BucketStore.BUCKET_META_FILE)
+      .toFile()
+      .delete()
+
+    assertThat(bucketStore.doesBucketExist(TEST_BUCKET_NAME)).isTrue()
+    assertThat(bucketStore.findIdInBucket("key", TEST_BUCKET_NAME)).isEqualTo(id)
+    // keys added later are visible in views returned earlier
+    assertThat(keys["key"]).isEqualTo(id)
+
+    // every change is written through to disk, keys to a file of their own
+    bucketStore.removeFromBucket("key", TEST_BUCKET_NAME)
+    assertThat(bucket.path.resolve(BucketStore.BUCKET_META_FILE)).doesNotExist()
+    assertThat(bucket.path.resolve(BucketStore.BUCKET_OBJECTS_FILE)).exists()
+  }
+
+  @Test
+  fun `keeps configuration and keys when storing configurations of stale metadata`() {
+    val bucket = givenBucket()
+    val id = bucketStore.addKeyToBucket("key", TEST_BUCKET_NAME)
+    bucketStore.storeVersioningConfiguration(bucket, VersioningConfiguration(null, VersioningConfiguration.Status.ENABLED))
+
+    bucketStore.storeObjectLockConfiguration(bucket, ObjectLockConfiguration(ObjectLockEnabled.ENABLED, null))
+
+    bucketStore.getBucketMetadata(TEST_BUCKET_NAME).also {
+      assertThat(it.isVersioningEnabled).isTrue()
+      assertThat(it.objectLockConfiguration?.objectLockEnabled).isEqualTo(ObjectLockEnabled.ENABLED)
+    }
+    assertThat(bucketStore.findIdInBucket("key", TEST_BUCKET_NAME)).isEqualTo(id)
+  }
+
   @Test
   fun `creates and gets bucket with object lock`() {
     givenBucket(
@@ -148,6 +208,8 @@ internal class BucketStoreTest : StoreTestBase() {
 
     assertThat(bucketDeleted).isTrue()
     assertThat(bucket).isFalse()
+    assertThatThrownBy { bucketStore.getObjects(TEST_BUCKET_NAME) }
+      .isInstanceOf(IllegalStateException::class.java)
   }
 
   @Test
@@ -163,24 +225,18 @@ internal class BucketStoreTest : StoreTestBase() {
   }
 
   @Test
-  fun `add, lookup and remove keys with and without prefix`() {
+  fun `add and remove keys`() {
     givenBucket()
 
     val id1 = bucketStore.addKeyToBucket("a/1.txt", TEST_BUCKET_NAME)
     val id2 = bucketStore.addKeyToBucket("a/2.txt", TEST_BUCKET_NAME)
     val id3 = bucketStore.addKeyToBucket("b/1.txt", TEST_BUCKET_NAME)
 
-    // lookup with null prefix -> all keys
-    val all = bucketStore.lookupIdsInBucket(null, TEST_BUCKET_NAME)
-    assertThat(all).containsExactlyInAnyOrder(id1, id2, id3)
-
-    // lookup for prefix "a/" -> two keys
-    val aOnly = bucketStore.lookupIdsInBucket("a/", TEST_BUCKET_NAME)
-    assertThat(aOnly).containsExactlyInAnyOrder(id1, id2)
-
-    // lookup for non-matching prefix
-    val none = bucketStore.lookupIdsInBucket("c/", TEST_BUCKET_NAME)
-    assertThat(none).isEmpty()
+    assertThat(bucketStore.getObjects(TEST_BUCKET_NAME)).containsExactly(
+      entry("a/1.txt", id1),
+      entry("a/2.txt", id2),
+      entry("b/1.txt", id3),
+    )
 
     // remove key and verify behavior
     val removed = bucketStore.removeFromBucket("a/1.txt", TEST_BUCKET_NAME)
@@ -189,6 +245,35 @@ internal class BucketStoreTest : StoreTestBase() {
     assertThat(removedAgain).isFalse()
   }
 
+  @Test
+  fun `remove multiple keys at once`() {
+    givenBucket()
+    bucketStore.addKeyToBucket("a.txt", TEST_BUCKET_NAME)
+    bucketStore.addKeyToBucket("b.txt", TEST_BUCKET_NAME)
+    bucketStore.addKeyToBucket("c.txt", TEST_BUCKET_NAME)
+
+    val removed = bucketStore.removeFromBucket(listOf("a.txt", "missing.txt", "c.txt"), TEST_BUCKET_NAME)
+
+    assertThat(removed).containsExactly("a.txt", "c.txt")
+    assertThat(bucketStore.getObjects(TEST_BUCKET_NAME).keys).containsExactly("b.txt")
+    assertThat(bucketStore.removeFromBucket(emptyList(), TEST_BUCKET_NAME)).isEmpty()
+  }
+
+  @Test
+  fun `remove keys only if they still map to their ids`() {
+    givenBucket()
+    val a = bucketStore.addKeyToBucket("a.txt", TEST_BUCKET_NAME)
+    val b = bucketStore.addKeyToBucket("b.txt", TEST_BUCKET_NAME)
+    // deleted and stored again by a concurrent request
+    bucketStore.removeFromBucket("b.txt", TEST_BUCKET_NAME)
+    bucketStore.addKeyToBucket("b.txt", TEST_BUCKET_NAME)
+
+    val removed = bucketStore.removeFromBucket(mapOf("a.txt" to a, "b.txt" to b), TEST_BUCKET_NAME)
+
+    assertThat(removed).containsExactly("a.txt")
+    assertThat(bucketStore.getObjects(TEST_BUCKET_NAME).keys).containsExactly("b.txt")
+  }
+
   @Test
   fun `deleteBucket returns false and does not delete a non-empty bucket`() {
     givenBucket()
@@ -268,14 +353,39 @@ internal class BucketStoreTest : StoreTestBase() {
   }
 
   @Test
-  fun `loadBuckets returns existing object ids`() {
-    givenBucket()
+  fun `loadBuckets reads the configuration and the keys on first access only`() {
+    val bucket = givenBucket()
+    val id = bucketStore.addKeyToBucket("key", TEST_BUCKET_NAME)
+    val objectsFile = bucket.path.resolve(BucketStore.BUCKET_OBJECTS_FILE)
+    val keys = objectsFile.readText()
+    objectsFile.writeText("{")
+
+    val iut = BucketStore(rootFolder, StoreConfiguration.S3_OBJECT_DATE_FORMAT, "us-east-1", objectMapper)
+    iut.loadBuckets(listOf(TEST_BUCKET_NAME))
+
+    // ListBuckets and HeadBucket don't read the unreadable keys
+    assertThat(iut.listBuckets("", null).map { it.name }.toList()).containsExactly(TEST_BUCKET_NAME)
+    assertThat(iut.doesBucketExist(TEST_BUCKET_NAME)).isTrue()
+    assertThat(iut.getBucketMetadata(TEST_BUCKET_NAME).bucketRegion).isEqualTo("us-east-1")
+
+    objectsFile.writeText(keys)
+    assertThat(iut.findIdInBucket("key", TEST_BUCKET_NAME)).isEqualTo(id)
+  }
+
+  @Test
+  fun `moves keys stored in the bucket metadata by older versions to their own file`() {
+    val bucket = givenBucket()
+    val metaFile = bucket.path.resolve(BucketStore.BUCKET_META_FILE)
+    val id = UUID.randomUUID()
+    metaFile.writeText(metaFile.readText().replaceFirst("{", "{\"objects\":{\"key\":\"$id\"},"))
 
-    val id1 = bucketStore.addKeyToBucket("x/1", TEST_BUCKET_NAME)
-    val id2 = bucketStore.addKeyToBucket("x/2", TEST_BUCKET_NAME)
+    val iut = BucketStore(rootFolder, StoreConfiguration.S3_OBJECT_DATE_FORMAT, "us-east-1", objectMapper)
+    iut.loadBuckets(listOf(TEST_BUCKET_NAME))
 
-    val loaded = bucketStore.loadBuckets(listOf(TEST_BUCKET_NAME))
-    assertThat(loaded).contains(id1, id2)
+    assertThat(metaFile.readText()).doesNotContain("objects")
+    assertThat(bucket.path.resolve(BucketStore.BUCKET_OBJECTS_FILE)).exists()
+    assertThat(iut.findIdInBucket("key", TEST_BUCKET_NAME)).isEqualTo(id)
+    assertThat(iut.getObjects(TEST_BUCKET_NAME).keys).containsExactly("key")
   }
 
   fun givenBucket(
@@ -300,9 +410,7 @@ internal class BucketStoreTest : StoreTestBase() {
   @AfterEach
   fun cleanupStores() {
     bucketStore.listBuckets().forEach { bucket ->
-      bucketStore.lookupKeysInBucket(null, bucket.name).forEach { key ->
-        bucketStore.removeFromBucket(key, bucket.name)
-      }
+      bucketStore.removeFromBucket(bucketStore.getObjects(bucket.name).keys.toList(), bucket.name)
       bucketStore.deleteBucket(bucket.name)
     }
   }
@@ -23,8 +23,10 @@ import com.adobe.testing.s3mock.s3.dto.EtagUtil.normalizeEtag
 import com.adobe.testing.s3mock.s3.dto.Owner
 import com.adobe.testing.s3mock.s3.dto.Part
 import com.adobe.testing.s3mock.s3.dto.StorageClass
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
 import com.adobe.testing.s3mock.s3.util.ChecksumUtil
 import com.adobe.testing.s3mock.s3.util.HeaderUtil
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.AfterAll
@@ -50,6 +52,10 @@ import java.security.MessageDigest
 import java.time.Instant
 import java.util.Collections
 import java.util.UUID
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 import kotlin.io.path.outputStream
 
 @AutoConfigureWebMvc
@@ -1096,7 +1102,7 @@ internal class MultipartStoreTest : StoreTestBase() {
       sourceFile,
       DEFAULT_CONTENT_TYPE,
       storeHeaders(),
-      tempFile,
+      ObjectContent.OnDisk(tempFile),
       NO_USER_METADATA,
       NO_ENCRYPTION_HEADERS,
       null,
@@ -1127,17 +1133,18 @@ internal class MultipartStoreTest : StoreTestBase() {
     val uploadId = UUID.fromString(multipartUpload.uploadId)
 
     val range = HttpRange.createByteRange(0, contentBytes.size.toLong())
-    multipartStore.copyPart(
-      metadataFrom(TEST_BUCKET_NAME),
-      sourceId,
-      range,
-      partNumber,
-      metadataFrom(TEST_BUCKET_NAME),
-      destinationId,
-      uploadId,
-      NO_ENCRYPTION_HEADERS,
-      null,
-    )
+    val etag =
+      multipartStore.copyPart(
+        metadataFrom(TEST_BUCKET_NAME),
+        sourceId,
+        range,
+        partNumber,
+        metadataFrom(TEST_BUCKET_NAME),
+        destinationId,
+        uploadId,
+        NO_ENCRYPTION_HEADERS,
+        null,
+      )
     assertThat(
       Paths
         .get(
@@ -1148,6 +1155,20 @@ internal class MultipartStoreTest : StoreTestBase() {
           "$partNumber.part",
         ).toFile(),
     ).exists()
+    assertThat(
+      Paths
+        .get(
+          rootFolder.absolutePath,
+          TEST_BUCKET_NAME,
+          MultipartStore.MULTIPARTS_FOLDER,
+          uploadId.toString(),
+          "$partNumber.partmeta.json",
+        ).toFile(),
+    ).exists()
+    assertThat(multipartStore.getMultipartUploadParts(metadataFrom(TEST_BUCKET_NAME), destinationId, uploadId))
+      .singleElement()
+      .extracting { it.etag }
+      .isEqualTo(normalizeEtag(etag))
     multipartStore.abortMultipartUpload(metadataFrom(TEST_BUCKET_NAME), uploadId)
   }
 
@@ -1169,7 +1190,7 @@ internal class MultipartStoreTest : StoreTestBase() {
       sourceFile,
       DEFAULT_CONTENT_TYPE,
       storeHeaders(),
-      tempFile,
+      ObjectContent.OnDisk(tempFile),
       NO_USER_METADATA,
       emptyMap(),
       null,
@@ -1308,6 +1329,100 @@ internal class MultipartStoreTest : StoreTestBase() {
     assertThat(s).containsExactlyElementsOf((1..10).map { "$it" })
   }
 
+  @Test
+  fun listsMultipartUploadsSortedByKeyAndInitiation() {
+    val bucket = metadataFrom(TEST_BUCKET_NAME)
+    val first = createMultipartUpload(bucket, "b/key", managedId())
+    val second = createMultipartUpload(bucket, "b/key", managedId())
+    createMultipartUpload(bucket, "a/key", managedId())
+    val aborted = createMultipartUpload(bucket, "b/other", managedId())
+    multipartStore.abortMultipartUpload(bucket, UUID.fromString(aborted.uploadId))
+
+    val uploads = multipartStore.listMultipartUploads(bucket, NO_PREFIX)
+    assertThat(uploads.map { it.key }).containsExactly("a/key", "b/key", "b/key")
+    assertThat(uploads.map { it.initiated }.drop(1)).isSorted()
+    assertThat(multipartStore.listMultipartUploads(bucket, "b/").map { it.uploadId })
+      .containsExactlyInAnyOrder(first.uploadId, second.uploadId)
+    assertThat(multipartStore.listMultipartUploads(bucket, "c")).isEmpty()
+  }
+
+  @Test
+  fun listsPartsAfterPartNumberMarker() {
+    val bucket = metadataFrom(TEST_BUCKET_NAME)
+    val id = managedId()
+    val uploadId = UUID.fromString(createMultipartUpload(bucket, UUID.randomUUID().toString(), id).uploadId)
+    for (i in listOf(3, 1, 5, 2, 4)) {
+      val tempFile = Files.createTempFile("", "")
+      ("$i\n").toByteArray(StandardCharsets.UTF_8).inputStream().transferTo(tempFile.outputStream())
+      multipartStore.putPart(bucket, id, uploadId, i, tempFile, NO_ENCRYPTION_HEADERS)
+    }
+
+    assertThat(multipartStore.listParts(bucket, uploadId, null, 2).map { it.partNumber }).containsExactly(1, 2)
+    assertThat(multipartStore.listParts(bucket, uploadId, 2, 2).map { it.partNumber }).containsExactly(3, 4)
+    assertThat(multipartStore.listParts(bucket, uploadId, 4, 2).map { it.partNumber }).containsExactly(5)
+    assertThat(multipartStore.getMultipartUploadParts(bucket, id, uploadId).map { it.partNumber })
+      .containsExactly(1, 2, 3, 4, 5)
+  }
+
+  @Test
+  fun listsPartsWhileTheyAreUploaded() {
+    val bucket = metadataFrom(TEST_BUCKET_NAME)
+    val executor = Executors.newFixedThreadPool(2)
+    try {
+      repeat(20) {
+        val id = managedId()
+        val uploadId = UUID.fromString(createMultipartUpload(bucket, UUID.randomUUID().toString(), id).uploadId)
+        val tempFile = Files.createTempFile("", "")
+        "1\n".toByteArray(StandardCharsets.UTF_8).inputStream().transferTo(tempFile.outputStream())
+        val start = CountDownLatch(1)
+
+        val listing =
+          executor.submit(
+            Callable {
+              start.await()
+              multipartStore.listParts(bucket, uploadId, null, 10)
+            },
+          )
+        val upload =
+          executor.submit(
+            Callable {
+              start.await()
+              multipartStore.putPart(bucket, id, uploadId, 1, tempFile, NO_ENCRYPTION_HEADERS)
+            },
+          )
+        start.countDown()
+
+        // neither call blocks the other for good
+        listing.get(10, TimeUnit.SECONDS)
+        upload.get(10, TimeUnit.SECONDS)
+        // the part isn't lost when it's uploaded while the parts are loaded
+        assertThat(multipartStore.listParts(bucket, uploadId, null, 10).map { it.partNumber }).containsExactly(1)
+      }
+    } finally {
+      executor.shutdownNow()
+    }
+  }
+
+  private fun createMultipartUpload(
+    bucket: BucketMetadata,
+    key: String,
+    id: UUID,
+  ) = multipartStore.createMultipartUpload(
+    bucket,
+    key,
+    id,
+    DEFAULT_CONTENT_TYPE,
+    storeHeaders(),
+    TEST_OWNER,
+    TEST_INITIATOR,
+    NO_USER_METADATA,
+    NO_ENCRYPTION_HEADERS,
+    NO_TAGS,
+    StorageClass.STANDARD,
+    NO_CHECKSUMTYPE,
+    NO_CHECKSUM_ALGORITHM,
+  )
+
   private fun managedId(): UUID {
     val uuid = UUID.randomUUID()
     idCache.add(uuid)
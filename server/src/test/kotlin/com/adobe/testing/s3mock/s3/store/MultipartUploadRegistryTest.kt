@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import com.adobe.testing.s3mock.s3.dto.Initiator
+import com.adobe.testing.s3mock.s3.dto.MultipartUpload
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.Part
+import com.adobe.testing.s3mock.s3.dto.StorageClass
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.entry
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.whenever
+import java.time.Instant
+import java.util.UUID
+
+internal class MultipartUploadRegistryTest {
+  private val iut = MultipartUploadRegistry()
+  private val uploadId = UUID.randomUUID()
+
+  @Test
+  fun `putPart adds the part to loaded parts`() {
+    iut.addParts(uploadId, listOf(Part(1, "etag-1", 1)))
+
+    iut.putPart(uploadId, Part(2, "etag-2", 2))
+
+    assertThat(iut.parts(uploadId, null, 10)!!.map { it.partNumber }).containsExactly(1, 2)
+  }
+
+  @Test
+  fun `putPart leaves parts that weren't loaded to be read on first access`() {
+    iut.putPart(uploadId, Part(2, "etag-2", 2))
+
+    assertThat(iut.hasParts(uploadId)).isFalse()
+    assertThat(iut.parts(uploadId, null, 10)).isNull()
+  }
+
+  @Test
+  fun `addParts keeps the parts registered first`() {
+    iut.addParts(uploadId, listOf(Part(1, "etag-1", 1)))
+
+    iut.addParts(uploadId, listOf(Part(2, "etag-2", 2)))
+
+    assertThat(iut.parts(uploadId, null, 10)!!.map { it.partNumber }).containsExactly(1)
+  }
+
+  @Test
+  fun `putPart doesn't register parts of a removed upload again`() {
+    val upload = mock<MultipartUpload>()
+    whenever(upload.uploadId).thenReturn(uploadId.toString())
+    whenever(upload.key).thenReturn("key")
+    iut.addParts(uploadId, listOf(Part(1, "etag-1", 1)))
+
+    iut.removeUpload(mock<BucketMetadata>(), upload)
+    iut.putPart(uploadId, Part(2, "etag-2", 2))
+
+    assertThat(iut.parts(uploadId, null, 10)).isNull()
+  }
+
+  @Test
+  fun `uploads are grouped by key and sorted by initiation`() {
+    val bucket = mock<BucketMetadata>()
+    val later = upload("a", Instant.ofEpochSecond(2))
+    val earlier = upload("a", Instant.ofEpochSecond(1))
+    val other = upload("b", Instant.ofEpochSecond(0))
+    iut.uploads(bucket) { listOf(later, other) }
+
+    iut.addUpload(bucket, earlier) { emptyList() }
+
+    assertThat(iut.uploads(bucket) { emptyList() }).containsExactly(
+      entry("a", listOf(earlier, later)),
+      entry("b", listOf(other)),
+    )
+  }
+
+  @Test
+  fun `removeUploads evicts the uploads of the bucket and their parts`() {
+    val bucket = mock<BucketMetadata>()
+    val upload = upload("key", Instant.now(), uploadId)
+    iut.uploads(bucket) { listOf(upload) }
+    iut.addParts(uploadId, listOf(Part(1, "etag-1", 1)))
+
+    iut.removeUploads(bucket)
+
+    assertThat(iut.uploads(bucket) { emptyList() }).isEmpty()
+    assertThat(iut.parts(uploadId, null, 10)).isNull()
+  }
+
+  private fun upload(
+    key: String,
+    initiated: Instant,
+    id: UUID = UUID.randomUUID(),
+  ) = MultipartUpload(
+    null,
+    null,
+    initiated,
+    Initiator.DEFAULT_INITIATOR,
+    key,
+    Owner.DEFAULT_OWNER,
+    StorageClass.STANDARD,
+    id.toString(),
+  )
+}
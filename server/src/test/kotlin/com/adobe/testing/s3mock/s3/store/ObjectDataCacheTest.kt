@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import java.nio.file.Path
+import java.util.UUID
+
+internal class ObjectDataCacheTest {
+  @Test
+  fun `get loads and caches data`() {
+    val iut = ObjectDataCache(100)
+    val metadata = s3ObjectMetadata("a")
+    var loads = 0
+
+    repeat(2) {
+      assertThat(iut.get(metadata) { ByteArray(10).also { loads++ } }).hasSize(10)
+    }
+
+    assertThat(loads).isEqualTo(1)
+    assertThat(iut.size).isEqualTo(10)
+  }
+
+  @Test
+  fun `changed etag misses the cached entry`() {
+    val iut = ObjectDataCache(100)
+    val metadata = s3ObjectMetadata("a")
+    iut.put(metadata, "old".toByteArray())
+
+    val data = iut.get(metadata.copy(etag = "other")) { "new".toByteArray() }
+
+    assertThat(data).isEqualTo("new".toByteArray())
+  }
+
+  @Test
+  fun `evicts least recently used entries when full`() {
+    val iut = ObjectDataCache(30)
+    val a = s3ObjectMetadata("a")
+    val b = s3ObjectMetadata("b")
+    val c = s3ObjectMetadata("c")
+    iut.put(a, ByteArray(10))
+    iut.put(b, ByteArray(10))
+    iut.put(c, ByteArray(10))
+    // touch a, so that b is the least recently used entry
+    iut.get(a) { error("a is cached") }
+
+    iut.put(s3ObjectMetadata("d"), ByteArray(10))
+
+    assertThat(iut.size).isEqualTo(30)
+    assertThat(iut.get(a) { ByteArray(0) }).hasSize(10)
+    assertThat(iut.get(c) { ByteArray(0) }).hasSize(10)
+    assertThat(iut.get(b) { ByteArray(1) }).hasSize(1)
+  }
+
+  @Test
+  fun `does not cache entries larger than the cache`() {
+    val iut = ObjectDataCache(10)
+    val metadata = s3ObjectMetadata("a")
+
+    iut.put(metadata, ByteArray(11))
+
+    assertThat(iut.size).isZero()
+    assertThat(iut.get(metadata) { ByteArray(1) }).hasSize(1)
+  }
+
+  private fun s3ObjectMetadata(name: String) =
+    S3ObjectMetadata(
+      id = UUID.randomUUID(),
+      key = name,
+      size = "0",
+      modificationDate = "",
+      etag = "etag-$name",
+      contentType = null,
+      lastModified = 1L,
+      dataPath = Path.of("/tmp", name, "binaryData"),
+      legalHold = null,
+      retention = null,
+      owner = Owner.DEFAULT_OWNER,
+      checksumAlgorithm = null,
+      checksum = null,
+      storageClass = null,
+      policy = null,
+      versionId = null,
+      checksumType = null,
+    )
+}
@@ -27,9 +27,12 @@ import com.adobe.testing.s3mock.s3.dto.Owner
 import com.adobe.testing.s3mock.s3.dto.Retention
 import com.adobe.testing.s3mock.s3.dto.StorageClass
 import com.adobe.testing.s3mock.s3.dto.Tag
+import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration
+import com.adobe.testing.s3mock.s3.dto.VersioningConfiguration.Status
 import com.adobe.testing.s3mock.s3.model.BucketMetadata
 import com.adobe.testing.s3mock.s3.model.S3ObjectMetadata
 import com.adobe.testing.s3mock.s3.util.DigestUtil
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.AfterAll
@@ -457,11 +460,76 @@ internal class ObjectStoreTest : StoreTestBase() {
     assertThat(reread.checksum).isEqualTo("dummy-checksum")
   }
 
+  @Test
+  fun testStoreObject_inMemory_servedFromCache() {
+    val sourceFile = File(TEST_FILE_PATH)
+    val id = managedId()
+    val bytes = sourceFile.readBytes()
+
+    val metadata =
+      givenStoredS3ObjectMetadata(
+        id,
+        sourceFile.name,
+        sourceFile.toPath(),
+        content = ObjectContent.InMemory(bytes),
+      )
+
+    assertThat(metadata.size).isEqualTo(bytes.size.toString())
+    assertThat(metadata.etag).isEqualTo(DigestUtil.hexDigest(sourceFile.inputStream()))
+    assertThat(metadata.dataPath).hasBinaryContent(bytes)
+
+    // the data is cached when stored, reads don't need the data file
+    metadata.dataPath.toFile().delete()
+    assertThat(objectStore.readObjectData(metadata)).isEqualTo(bytes)
+  }
+
+  @Test
+  fun testReadObjectData_afterOverwrite() {
+    val sourceFile = File(TEST_FILE_PATH)
+    val id = managedId()
+
+    val first =
+      givenStoredS3ObjectMetadata(id, sourceFile.name, sourceFile.toPath(), content = ObjectContent.InMemory("first".toByteArray()))
+    val second =
+      givenStoredS3ObjectMetadata(id, sourceFile.name, sourceFile.toPath(), content = ObjectContent.InMemory("second".toByteArray()))
+
+    assertThat(second.etag).isNotEqualTo(first.etag)
+    assertThat(objectStore.readObjectData(second)).isEqualTo("second".toByteArray())
+  }
+
+  @Test
+  fun testVersionChain() {
+    val bucket = metadataFrom(TEST_BUCKET_NAME).copy(versioningConfiguration = VersioningConfiguration(null, Status.ENABLED))
+    val path = File(TEST_FILE_PATH).toPath()
+    val id = managedId()
+
+    val first = givenStoredS3ObjectMetadata(id, "key", path, bucket)
+    val second = givenStoredS3ObjectMetadata(id, "key", path, bucket, storageClass = StorageClass.GLACIER)
+    assertThat(objectStore.getS3ObjectVersionChain(bucket, id).map { it.versionId })
+      .containsExactly(first.versionId, second.versionId)
+    assertThat(objectStore.getS3ObjectVersionChain(bucket, id).last().storageClass).isEqualTo(StorageClass.GLACIER)
+    assertThat(objectStore.getS3ObjectMetadata(bucket, id, null)!!.versionId).isEqualTo(second.versionId)
+
+    objectStore.deleteObject(bucket, id, null)
+    assertThat(objectStore.getS3ObjectVersionChain(bucket, id).map { it.deleteMarker }).containsExactly(false, false, true)
+    assertThat(objectStore.getS3ObjectMetadata(bucket, id, null)!!.deleteMarker).isTrue()
+
+    objectStore.deleteObject(bucket, id, first.versionId)
+    assertThat(objectStore.getS3ObjectVersionChain(bucket, id).map { it.versionId })
+      .hasSize(2)
+      .doesNotContain(first.versionId)
+      .isEqualTo(objectStore.getS3ObjectVersions(bucket, id).versions)
+
+    objectStore.doDeleteObject(bucket, id)
+    assertThat(objectStore.getS3ObjectVersionChain(bucket, id)).isEmpty()
+  }
+
   private fun givenStoredS3ObjectMetadata(
     id: UUID,
     name: String,
     path: Path,
     bucketMetadata: BucketMetadata = metadataFrom(TEST_BUCKET_NAME),
+    content: ObjectContent = ObjectContent.OnDisk(path),
     contentType: String? = TEXT_PLAIN,
     storeHeaders: Map<String, String> = storeHeaders(),
     userMetadata: Map<String, String> = NO_USER_METADATA,
@@ -480,7 +548,7 @@ internal class ObjectStoreTest : StoreTestBase() {
       name,
       contentType,
       storeHeaders,
-      path,
+      content,
       userMetadata,
       encryptionHeaders,
       etag,
@@ -16,6 +16,8 @@
 
 package com.adobe.testing.s3mock.s3.store
 
+import com.adobe.testing.s3mock.common.MetadataWriter
+import com.adobe.testing.s3mock.common.StoreInstrumentation
 import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
 import com.adobe.testing.s3mock.s3.model.BucketMetadata
 import org.assertj.core.api.Assertions.assertThat
@@ -29,6 +31,7 @@ import java.io.IOException
 import java.nio.file.Path
 import java.nio.file.Paths
 import java.time.Instant
+import kotlin.io.path.createDirectories
 import kotlin.io.path.listDirectoryEntries
 
 internal class StoreConfigurationTest {
@@ -47,6 +50,10 @@ internal class StoreConfigurationTest {
         tempDir.toFile(),
         listOf(),
         OBJECT_MAPPER,
+        Trash(tempDir.toFile()),
+        StoreInstrumentation(),
+        MetadataWriter(),
+        StoreManifest(tempDir.toFile(), OBJECT_MAPPER),
         "eu-central-1",
       )
 
@@ -92,6 +99,10 @@ internal class StoreConfigurationTest {
         tempDir.toFile(),
         listOf(existingBucketName),
         OBJECT_MAPPER,
+        Trash(tempDir.toFile()),
+        StoreInstrumentation(),
+        MetadataWriter(),
+        StoreManifest(tempDir.toFile(), OBJECT_MAPPER),
         "eu-central-1",
       )
 
@@ -120,6 +131,10 @@ internal class StoreConfigurationTest {
         tempDir.toFile(),
         listOf(),
         OBJECT_MAPPER,
+        Trash(tempDir.toFile()),
+        StoreInstrumentation(),
+        MetadataWriter(),
+        StoreManifest(tempDir.toFile(), OBJECT_MAPPER),
         "eu-central-1",
       )
 
@@ -127,6 +142,40 @@ internal class StoreConfigurationTest {
     assertThat(tempDir.listDirectoryEntries()).isEmpty()
   }
 
+  @Test
+  fun bucketNames_ignoresTrashFolder(
+    @TempDir tempDir: Path,
+  ) {
+    tempDir.resolve(Trash.FOLDER).createDirectories()
+
+    assertThat(StoreConfiguration().bucketNames(tempDir.toFile(), StoreManifest(tempDir.toFile(), OBJECT_MAPPER))).isEmpty()
+  }
+
+  @Test
+  fun loadObjects_skipsMissingBuckets(
+    @TempDir tempDir: Path,
+  ) {
+    val properties = StoreProperties(false, "", setOf(), listOf("bucket"), "eu-central-1")
+    val iut = StoreConfiguration()
+    val bucketStore =
+      iut.bucketStore(
+        properties,
+        tempDir.toFile(),
+        listOf(),
+        OBJECT_MAPPER,
+        Trash(tempDir.toFile()),
+        StoreInstrumentation(),
+        MetadataWriter(),
+        StoreManifest(tempDir.toFile(), OBJECT_MAPPER),
+        "eu-central-1",
+      )
+    val objectStore = ObjectStore(StoreConfiguration.S3_OBJECT_DATE_FORMAT, OBJECT_MAPPER)
+
+    iut.loadObjects(objectStore, bucketStore, listOf("bucket", "missing"))
+
+    assertThat(bucketStore.getBucketMetadata("bucket").name).isEqualTo("bucket")
+  }
+
   companion object {
     private const val BUCKET_META_FILE = "bucketMetadata.json"
     private val OBJECT_MAPPER: ObjectMapper =
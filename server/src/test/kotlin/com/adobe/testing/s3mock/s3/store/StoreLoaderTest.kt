@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import java.util.concurrent.ConcurrentHashMap
+
+internal class StoreLoaderTest {
+  @Test
+  fun `loadInParallel processes all items on its own threads`() {
+    val threads = ConcurrentHashMap<Int, String>()
+
+    loadInParallel((1..10).toList(), "test-loader", threads = 3) { threads[it] = Thread.currentThread().name }
+
+    assertThat(threads.keys).containsExactlyInAnyOrderElementsOf(1..10)
+    assertThat(threads.values).allMatch { it.startsWith("test-loader-") }
+    assertThat(threads.values.toSet()).hasSizeLessThanOrEqualTo(3)
+  }
+
+  @Test
+  fun `loadInParallel rethrows a failure after processing all items`() {
+    val processed = ConcurrentHashMap.newKeySet<Int>()
+
+    assertThatThrownBy {
+      loadInParallel((1..10).toList(), "test-loader") {
+        check(it != 5) { "item $it" }
+        processed.add(it)
+      }
+    }.isInstanceOf(IllegalStateException::class.java)
+      .hasMessage("item 5")
+    assertThat(processed).hasSize(9)
+  }
+}
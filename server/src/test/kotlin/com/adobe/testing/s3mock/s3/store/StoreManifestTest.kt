@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import com.adobe.testing.s3mock.s3.dto.Initiator
+import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
+import com.adobe.testing.s3mock.s3.dto.Owner
+import com.adobe.testing.s3mock.s3.dto.StorageClass
+import com.adobe.testing.s3mock.s3.model.BucketMetadata
+import com.adobe.testing.s3mock.s3.store.StoreConfiguration.Companion.S3_OBJECT_DATE_FORMAT
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import tools.jackson.databind.DeserializationFeature
+import tools.jackson.databind.json.JsonMapper
+import tools.jackson.module.kotlin.KotlinModule
+import java.nio.file.Path
+import java.util.UUID
+import kotlin.io.path.createDirectories
+import kotlin.io.path.deleteExisting
+import kotlin.io.path.writeText
+
+internal class StoreManifestTest {
+  private val objectMapper =
+    JsonMapper
+      .builder()
+      .addModule(KotlinModule.Builder().build())
+      .findAndAddModules()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+      .build()
+
+  @TempDir
+  private lateinit var root: Path
+
+  private lateinit var bucketStore: BucketStore
+  private lateinit var multipartStore: MultipartStore
+
+  @BeforeEach
+  fun setUp() {
+    bucketStore = BucketStore(root.toFile(), S3_OBJECT_DATE_FORMAT, "us-east-1", objectMapper)
+    multipartStore = MultipartStore(ObjectStore(S3_OBJECT_DATE_FORMAT, objectMapper), objectMapper)
+  }
+
+  @Test
+  fun `restores buckets, keys and uploads of the last graceful shutdown once`() {
+    val bucket = givenBucket("bucket-1")
+    givenBucket("bucket-2")
+    val id = bucketStore.addKeyToBucket("key", "bucket-1")
+    val upload = givenUpload(bucket, "upload")
+    storeCleaner(retainFilesOnExit = true).destroy()
+    // neither keys nor uploads are read from disk on restore, keep the stamps to prove it
+    val folder = root.resolve("bucket-1").toFile()
+    val uploadsFolder = folder.resolve(MultipartStore.MULTIPARTS_FOLDER)
+    val modified = folder.lastModified()
+    val uploadsModified = uploadsFolder.lastModified()
+    root.resolve("bucket-1").resolve(BucketStore.BUCKET_OBJECTS_FILE).deleteExisting()
+    uploadsFolder.listFiles()!!.forEach { it.deleteRecursively() }
+    folder.setLastModified(modified)
+    uploadsFolder.setLastModified(uploadsModified)
+
+    val snapshot = StoreManifest(root.toFile(), objectMapper).snapshot!!
+    val restoredBuckets = BucketStore(root.toFile(), S3_OBJECT_DATE_FORMAT, "us-east-1", objectMapper)
+    restoredBuckets.restoreBuckets(snapshot.buckets)
+    val restoredUploads = MultipartStore(ObjectStore(S3_OBJECT_DATE_FORMAT, objectMapper), objectMapper)
+    snapshot.buckets.forEach { restored ->
+      restored.uploads?.let { restoredUploads.restoreMultipartUploads(restored.metadata, it) }
+    }
+
+    assertThat(restoredBuckets.listBuckets().map { it.name }).containsExactly("bucket-1", "bucket-2")
+    assertThat(restoredBuckets.getObjects("bucket-1")).containsExactlyEntriesOf(mapOf("key" to id))
+    assertThat(restoredBuckets.getObjects("bucket-2")).isEmpty()
+    assertThat(restoredUploads.listMultipartUploads(bucket, null).map { it.uploadId }).containsExactly(upload)
+    assertThat(root.resolve(StoreManifest.FILE)).doesNotExist()
+    assertThat(StoreManifest(root.toFile(), objectMapper).snapshot).isNull()
+  }
+
+  @Test
+  fun `leaves out keys and uploads that were never loaded`() {
+    givenBucket("bucket")
+    val reopened = BucketStore(root.toFile(), S3_OBJECT_DATE_FORMAT, "us-east-1", objectMapper)
+    reopened.loadBuckets(listOf("bucket"))
+
+    StoreManifest(root.toFile(), objectMapper).write(reopened, multipartStore)
+
+    val bucket = StoreManifest(root.toFile(), objectMapper).snapshot!!.buckets.single()
+    assertThat(bucket.metadata.name).isEqualTo("bucket")
+    assertThat(bucket.keys).isNull()
+    assertThat(bucket.uploads).isNull()
+  }
+
+  @Test
+  fun `returns no snapshot without manifest`() {
+    givenBucket("bucket")
+
+    assertThat(StoreManifest(root.toFile(), objectMapper).snapshot).isNull()
+  }
+
+  @Test
+  fun `returns no snapshot if a bucket was added after the shutdown`() {
+    givenBucket("bucket-1")
+    storeCleaner(retainFilesOnExit = true).destroy()
+    root.resolve("bucket-2").createDirectories()
+
+    assertThat(StoreManifest(root.toFile(), objectMapper).snapshot).isNull()
+    assertThat(root.resolve(StoreManifest.FILE)).doesNotExist()
+  }
+
+  @Test
+  fun `returns no snapshot if a bucket was written after the shutdown`() {
+    givenBucket("bucket")
+    // the stamp must differ from the time of the write below, whatever the timestamp granularity
+    root.resolve("bucket").toFile().setLastModified(System.currentTimeMillis() - 60_000)
+    storeCleaner(retainFilesOnExit = true).destroy()
+
+    val reopened = BucketStore(root.toFile(), S3_OBJECT_DATE_FORMAT, "us-east-1", objectMapper)
+    reopened.loadBuckets(listOf("bucket"))
+    reopened.addKeyToBucket("key", "bucket")
+
+    assertThat(StoreManifest(root.toFile(), objectMapper).snapshot).isNull()
+    assertThat(root.resolve(StoreManifest.FILE)).doesNotExist()
+  }
+
+  @Test
+  fun `returns no snapshot for unreadable manifest`() {
+    givenBucket("bucket")
+    root.resolve(StoreManifest.FILE).writeText("{")
+
+    assertThat(StoreManifest(root.toFile(), objectMapper).snapshot).isNull()
+    assertThat(root.resolve(StoreManifest.FILE)).doesNotExist()
+  }
+
+  @Test
+  fun `is not written if files are not retained`() {
+    givenBucket("bucket")
+
+    storeCleaner(retainFilesOnExit = false).destroy()
+
+    assertThat(root.resolve(StoreManifest.FILE)).doesNotExist()
+  }
+
+  private fun storeCleaner(retainFilesOnExit: Boolean) =
+    StoreCleaner(root.toFile(), retainFilesOnExit) {
+      StoreManifest(root.toFile(), objectMapper).write(bucketStore, multipartStore)
+    }
+
+  private fun givenBucket(name: String) =
+    bucketStore.createBucket(name, false, ObjectOwnership.BUCKET_OWNER_ENFORCED, "us-east-1", null, null)
+
+  private fun givenUpload(
+    bucket: BucketMetadata,
+    key: String,
+  ): String =
+    multipartStore
+      .createMultipartUpload(
+        bucket,
+        key,
+        UUID.randomUUID(),
+        null,
+        emptyMap(),
+        Owner.DEFAULT_OWNER,
+        Initiator.DEFAULT_INITIATOR,
+        emptyMap(),
+        emptyMap(),
+        null,
+        StorageClass.STANDARD,
+        null,
+        null,
+      ).uploadId!!
+}
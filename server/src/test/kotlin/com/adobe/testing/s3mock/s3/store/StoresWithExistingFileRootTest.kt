@@ -21,6 +21,7 @@ import com.adobe.testing.s3mock.s3.dto.ObjectOwnership
 import com.adobe.testing.s3mock.s3.dto.Owner
 import com.adobe.testing.s3mock.s3.dto.StorageClass
 import com.adobe.testing.s3mock.s3.store.StoresWithExistingFileRootTest.TestConfig
+import com.adobe.testing.s3mock.s3.util.ObjectContent
 import org.assertj.core.api.AssertionsForClassTypes.assertThat
 import org.junit.jupiter.api.Test
 import org.springframework.beans.factory.annotation.Autowired
@@ -65,11 +66,8 @@ internal class StoresWithExistingFileRootTest : StoreTestBase() {
     )
     val bucket = bucketStore.getBucketMetadata(TEST_BUCKET_NAME)
 
-    // lockFor() creates the lock on demand — getBucketMetadata no longer throws NPE on a fresh store
-    testBucketStore.getBucketMetadata(TEST_BUCKET_NAME).also {
-      assertThat(it.creationDate).isEqualTo(bucket.creationDate)
-      assertThat(it.path).isEqualTo(bucket.path)
-    }
+    // buckets are only known to a store once they were loaded on startup
+    assertThat(testBucketStore.doesBucketExist(TEST_BUCKET_NAME)).isFalse()
 
     testBucketStore.loadBuckets(listOf(TEST_BUCKET_NAME))
     testBucketStore.getBucketMetadata(TEST_BUCKET_NAME).also {
@@ -92,7 +90,7 @@ internal class StoresWithExistingFileRootTest : StoreTestBase() {
       name,
       TEXT_PLAIN,
       storeHeaders(),
-      path,
+      ObjectContent.OnDisk(path),
       emptyMap(),
       emptyMap(),
       null,
@@ -106,7 +104,7 @@ internal class StoresWithExistingFileRootTest : StoreTestBase() {
 
     // lockFor() creates the lock on demand — getS3ObjectMetadata no longer throws NPE on a fresh store
     val originalMeta = objectStore.getS3ObjectMetadata(bucketMetadata, id, null)!!
-    testObjectStore.loadObjects(bucketMetadata, listOf(originalMeta.id))
+    assertThat(testObjectStore.loadObjects(bucketMetadata, listOf(originalMeta.id))).isEqualTo(1)
 
     val reloadedMeta = testObjectStore.getS3ObjectMetadata(bucketMetadata, id, null)!!
     assertThat(reloadedMeta.modificationDate).isEqualTo(originalMeta.modificationDate)
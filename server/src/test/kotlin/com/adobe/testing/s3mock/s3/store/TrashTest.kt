@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.store
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Path
+import kotlin.io.path.createDirectories
+import kotlin.io.path.exists
+import kotlin.io.path.listDirectoryEntries
+import kotlin.io.path.writeText
+
+internal class TrashTest {
+  @Test
+  fun `delete moves folder out of the way and deletes it in the background`(
+    @TempDir root: Path,
+  ) {
+    val folder = root.resolve("bucket/object").createDirectories()
+    folder.resolve("binaryData").writeText("content")
+    val iut = Trash(root.toFile())
+
+    assertThat(iut.delete(folder)).isTrue()
+
+    assertThat(folder).doesNotExist()
+    awaitEmpty(root.resolve(Trash.FOLDER))
+    iut.destroy()
+  }
+
+  @Test
+  fun `delete returns false for missing path`(
+    @TempDir root: Path,
+  ) {
+    val iut = Trash(root.toFile())
+
+    assertThat(iut.delete(root.resolve("missing"))).isFalse()
+    assertThat(root.resolve(Trash.FOLDER)).doesNotExist()
+    iut.destroy()
+  }
+
+  @Test
+  fun `leftovers of a previous run are deleted on startup`(
+    @TempDir root: Path,
+  ) {
+    val leftover = root.resolve(Trash.FOLDER).resolve("leftover").createDirectories()
+    leftover.resolve("binaryData").writeText("content")
+
+    val iut = Trash(root.toFile())
+
+    awaitEmpty(root.resolve(Trash.FOLDER))
+    iut.destroy()
+  }
+
+  private fun awaitEmpty(folder: Path) {
+    repeat(100) {
+      if (!folder.exists() || folder.listDirectoryEntries().isEmpty()) {
+        return
+      }
+      Thread.sleep(50)
+    }
+    assertThat(folder.listDirectoryEntries()).isEmpty()
+  }
+}
@@ -17,10 +17,12 @@ package com.adobe.testing.s3mock.s3.util
 
 import com.adobe.testing.s3mock.s3.ChecksumTestUtil.prepareInputStream
 import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.TestInfo
 import software.amazon.awssdk.checksums.DefaultChecksumAlgorithm
 import java.io.ByteArrayOutputStream
+import java.io.IOException
 import java.io.InputStream
 import java.nio.file.Files
 
@@ -100,6 +102,37 @@ internal class AbstractAwsInputStreamTest {
     assertThat(iut.readDecodedLength).isZero()
   }
 
+  @Test
+  fun `a stream ending before the last chunk fails`() {
+    val chunked = "5;chunk-signature=abc\r\nhello\r\n".byteInputStream()
+
+    val iut = AwsChunkedDecodingChecksumInputStream(chunked, 5)
+
+    assertThatThrownBy { iut.readAllBytes() }
+      .isInstanceOf(IOException::class.java)
+      .hasMessageContaining("before the last chunk")
+  }
+
+  @Test
+  fun `a payload not matching the decoded length fails`() {
+    val chunked = "5;chunk-signature=abc\r\nhello\r\n0;chunk-signature=def\r\n\r\n".byteInputStream()
+
+    val iut = AwsChunkedDecodingChecksumInputStream(chunked, 6)
+
+    assertThatThrownBy { iut.readAllBytes() }
+      .isInstanceOf(IOException::class.java)
+      .hasMessageContaining("decoded content length is 6")
+  }
+
+  @Test
+  fun `a payload of unknown decoded length is not verified`() {
+    val chunked = "5;chunk-signature=abc\r\nhello\r\n0;chunk-signature=def\r\n\r\n".byteInputStream()
+
+    val iut = AwsChunkedDecodingChecksumInputStream(chunked, -1)
+
+    assertThat(iut.readAllBytes()).isEqualTo("hello".toByteArray())
+  }
+
   private fun readByteByByte(input: InputStream): ByteArray =
     ByteArrayOutputStream().use { out ->
       while (true) {
@@ -19,12 +19,16 @@ import com.adobe.testing.s3mock.s3.ChecksumTestUtil
 import com.adobe.testing.s3mock.s3.ChecksumTestUtil.prepareInputStream
 import com.adobe.testing.s3mock.s3.dto.ChecksumAlgorithm
 import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.TestInfo
 import org.junit.jupiter.params.ParameterizedTest
 import org.junit.jupiter.params.provider.MethodSource
 import software.amazon.awssdk.checksums.DefaultChecksumAlgorithm
+import java.io.ByteArrayOutputStream
 import java.io.File
+import java.io.IOException
+import java.nio.charset.StandardCharsets
 import java.util.stream.Stream
 import software.amazon.awssdk.checksums.spi.ChecksumAlgorithm as AwsChecksumAlgorithm
 
@@ -103,6 +107,59 @@ internal class AwsChunkedDecodingChecksumInputStreamTest {
     doTest(testImage, 17)
   }
 
+  @Test
+  fun `test decoding aws inputstream with single byte and small reads`(testInfo: TestInfo) {
+    val testImage = TestUtil.getFileFromClasspath(testInfo, "test-image.png")
+    val expected = testImage.readBytes()
+    val checksum = ChecksumUtil.checksumFor(testImage.toPath(), DefaultChecksumAlgorithm.CRC32)
+
+    val (singleByteStream, decodedLength) = prepareInputStream(testImage, true, DefaultChecksumAlgorithm.CRC32)
+    val singleByte = AwsChunkedDecodingChecksumInputStream(singleByteStream, decodedLength, ChecksumAlgorithm.CRC32)
+    val singleByteRead = ByteArrayOutputStream()
+    generateSequence { singleByte.read().takeIf { it >= 0 } }.forEach { singleByteRead.write(it) }
+    assertThat(singleByteRead.toByteArray()).isEqualTo(expected)
+    assertThat(singleByte.calculatedChecksum).isEqualTo(checksum)
+
+    val (smallReadStream, _) = prepareInputStream(testImage, true, DefaultChecksumAlgorithm.CRC32)
+    val smallRead = AwsChunkedDecodingChecksumInputStream(smallReadStream, decodedLength, ChecksumAlgorithm.CRC32)
+    val smallReadBytes = ByteArrayOutputStream()
+    val buffer = ByteArray(7)
+    while (true) {
+      val read = smallRead.read(buffer, 0, buffer.size)
+      if (read < 0) break
+      smallReadBytes.write(buffer, 0, read)
+    }
+    assertThat(smallReadBytes.toByteArray()).isEqualTo(expected)
+    assertThat(smallRead.calculatedChecksum).isEqualTo(checksum)
+  }
+
+  @Test
+  fun `test decoding aws inputstream returns mismatching calculated checksum`(testInfo: TestInfo) {
+    val sampleFile = TestUtil.getFileFromClasspath(testInfo, "sampleFile.txt")
+    val checksum = ChecksumUtil.checksumFor(sampleFile.toPath(), DefaultChecksumAlgorithm.SHA256)
+    val (chunkedEncodingInputStream, decodedLength) = prepareInputStream(sampleFile, true, DefaultChecksumAlgorithm.SHA256)
+    val tampered = String(chunkedEncodingInputStream.readBytes(), StandardCharsets.ISO_8859_1).replaceFirst("demo", "DEMO")
+
+    val iut =
+      AwsChunkedDecodingChecksumInputStream(tampered.byteInputStream(StandardCharsets.ISO_8859_1), decodedLength, ChecksumAlgorithm.SHA256)
+    iut.readAllBytes()
+
+    assertThat(iut.checksum).isEqualTo(checksum)
+    assertThat(iut.calculatedChecksum).isNotNull().isNotEqualTo(checksum)
+  }
+
+  @Test
+  fun `test decoding aws inputstream rejects invalid chunk header`() {
+    val iut = AwsChunkedDecodingChecksumInputStream("zz\r\npayload\r\n0\r\n\r\n".byteInputStream(), 7)
+    assertThatThrownBy { iut.readAllBytes() }.isInstanceOf(IOException::class.java)
+  }
+
+  @Test
+  fun `test decoding aws inputstream rejects truncated chunk`() {
+    val iut = AwsChunkedDecodingChecksumInputStream("a\r\npay".byteInputStream(), 10)
+    assertThatThrownBy { iut.readAllBytes() }.isInstanceOf(IOException::class.java)
+  }
+
   private fun doTest(
     input: File,
     chunks: Int = 0,
@@ -116,10 +173,11 @@ internal class AwsChunkedDecodingChecksumInputStreamTest {
         true,
         algorithm,
       )
-    val iut = AwsChunkedDecodingChecksumInputStream(chunkedEncodingInputStream, decodedLength)
+    val iut = AwsChunkedDecodingChecksumInputStream(chunkedEncodingInputStream, decodedLength, checksumAlgorithm)
     assertThat(iut).hasSameContentAs(input.inputStream())
     assertThat(iut.algorithm).isEqualTo(checksumAlgorithm)
     assertThat(iut.checksum).isEqualTo(checksum)
+    assertThat(iut.calculatedChecksum).isEqualTo(checksum)
     assertThat(iut.decodedLength).isEqualTo(decodedLength)
     assertThat(iut.readDecodedLength).isEqualTo(decodedLength)
     assertThat(iut.chunks).isEqualTo(chunks)
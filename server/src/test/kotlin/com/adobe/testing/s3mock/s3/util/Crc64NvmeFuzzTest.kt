@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.util
+
+import com.code_intelligence.jazzer.api.FuzzedDataProvider
+import com.code_intelligence.jazzer.junit.FuzzTest
+import org.assertj.core.api.Assertions.assertThat
+
+internal class Crc64NvmeFuzzTest {
+  @FuzzTest
+  fun `fuzz updates against bitwise reference`(data: FuzzedDataProvider) {
+    val crc = Crc64Nvme()
+    val all = mutableListOf<Byte>()
+    while (data.remainingBytes() > 0) {
+      val chunk = data.consumeBytes(data.consumeInt(0, 64))
+      if (chunk.isEmpty()) break
+      if (chunk.size == 1) crc.update(chunk[0].toInt()) else crc.update(chunk, 0, chunk.size)
+      all += chunk.toList()
+    }
+    assertThat(crc.value).isEqualTo(Crc64NvmeTest.reference(all.toByteArray()))
+  }
+}
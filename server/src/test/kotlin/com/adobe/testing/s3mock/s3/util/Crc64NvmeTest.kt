@@ -18,6 +18,7 @@ package com.adobe.testing.s3mock.s3.util
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Test
 import software.amazon.awssdk.utils.BinaryUtils
+import kotlin.random.Random
 
 internal class Crc64NvmeTest {
   @Test
@@ -80,4 +81,58 @@ internal class Crc64NvmeTest {
 
     assertThat(marked.value).isEqualTo(prefixOnly.value)
   }
+
+  @Test
+  fun testSlicedUpdateMatchesBytewiseReference() {
+    val random = Random(42)
+    repeat(1000) {
+      val data = random.nextBytes(random.nextInt(0, 300))
+      val off = if (data.isEmpty()) 0 else random.nextInt(0, data.size)
+      val len = random.nextInt(0, data.size - off + 1)
+
+      val crc = Crc64Nvme().apply { update(data, off, len) }
+
+      assertThat(crc.value).isEqualTo(reference(data, off, len))
+    }
+  }
+
+  @Test
+  fun testSplitUpdatesMatchSingleUpdate() {
+    val random = Random(7)
+    val data = random.nextBytes(4096)
+    val single = Crc64Nvme().apply { update(data, 0, data.size) }
+
+    repeat(100) {
+      val split =
+        Crc64Nvme().apply {
+          var i = 0
+          while (i < data.size) {
+            val len = minOf(random.nextInt(0, 40), data.size - i)
+            if (len == 1) update(data[i].toInt()) else update(data, i, len)
+            i += len
+          }
+        }
+      assertThat(split.value).isEqualTo(single.value)
+    }
+  }
+
+  companion object {
+    /**
+     * Bitwise CRC-64/NVME, independent of the table-driven implementation.
+     */
+    fun reference(
+      data: ByteArray,
+      off: Int = 0,
+      len: Int = data.size,
+    ): Long {
+      var crc = -1L
+      for (i in off until off + len) {
+        crc = crc xor (data[i].toLong() and 0xff)
+        repeat(8) {
+          crc = if (crc and 1L != 0L) (crc ushr 1) xor 0x9a6c9329ac4bc9b5uL.toLong() else crc ushr 1
+        }
+      }
+      return crc.inv()
+    }
+  }
 }
@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.s3.util
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Files
+import java.nio.file.Path
+
+internal class ObjectContentTest {
+  @Test
+  fun `in memory content is copied to the target`(
+    @TempDir dir: Path,
+  ) {
+    val content = ObjectContent.InMemory("content".toByteArray())
+    val target = dir.resolve("target")
+
+    content.copyTo(target)
+
+    assertThat(content.size).isEqualTo(7)
+    assertThat(target).hasContent("content")
+    assertThat(content.inputStream().readAllBytes()).isEqualTo("content".toByteArray())
+  }
+
+  @Test
+  fun `on disk content is copied to the target and deleted on discard`(
+    @TempDir dir: Path,
+  ) {
+    val source = Files.writeString(dir.resolve("source"), "content")
+    val target = Files.writeString(dir.resolve("target"), "previous content")
+    val content = ObjectContent.OnDisk(source)
+
+    assertThat(content.size).isEqualTo(7)
+    content.copyTo(target)
+    content.discard()
+
+    assertThat(target).hasContent("content")
+    assertThat(source).doesNotExist()
+  }
+}
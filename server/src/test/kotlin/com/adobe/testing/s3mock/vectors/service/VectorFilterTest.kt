@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.service
+
+import com.adobe.testing.s3mock.vectors.store.VectorMetadataIndex
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+import tools.jackson.databind.JsonNode
+import tools.jackson.databind.json.JsonMapper
+import java.util.BitSet
+
+internal class VectorFilterTest {
+  private val mapper = JsonMapper.builder().build()
+
+  private val metadata: List<JsonNode?> =
+    listOf(
+      """{"genre":"drama","year":2019,"tags":["a","b"]}""",
+      """{"genre":"comedy","year":2021}""",
+      """{"genre":"drama","year":2023.0,"internal":"x"}""",
+      """{"year":"unknown"}""",
+      null,
+      """{"tags":["c",null]}""",
+    ).map { it?.let { json -> mapper.readTree(json) } }
+
+  private val index =
+    VectorMetadataIndex(listOf("internal")).apply {
+      metadata.forEachIndexed { ordinal, node -> add(ordinal, node) }
+    }
+
+  private val live = BitSet().apply { set(0, metadata.size) }
+
+  @Test
+  fun `compile converts operands to typed scalars`() {
+    val filter = VectorFilter.compile(mapper.readTree("""{"year":{"${'$'}gte":2020},"genre":"drama"}"""))
+
+    assertThat(filter).isEqualTo(
+      VectorFilter.And(
+        listOf(
+          VectorFilter.Compare("year", 2020.0, greater = true, inclusive = true),
+          VectorFilter.Equals("genre", "drama"),
+        ),
+      ),
+    )
+    assertThat(filter.keys).containsExactlyInAnyOrder("year", "genre")
+  }
+
+  @Test
+  fun `keys are collected from nested $and and $or`() {
+    val filter = VectorFilter.compile(mapper.readTree("""{"${'$'}or":[{"a":1},{"${'$'}and":[{"b":2},{"c":3}]}]}"""))
+
+    assertThat(filter.keys).containsExactlyInAnyOrder("a", "b", "c")
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+    strings = [
+      """{"genre":"drama"}""",
+      """{"year":{"${'$'}gt":2020}}""",
+      """{"year":{"${'$'}lte":2021}}""",
+      """{"year":{"${'$'}gte":"a"}}""",
+      """{"genre":{"${'$'}ne":"drama"}}""",
+      """{"genre":{"${'$'}in":["comedy","horror"]}}""",
+      """{"genre":{"${'$'}nin":["comedy"]}}""",
+      """{"genre":{"${'$'}exists":false}}""",
+      """{"genre":null}""",
+      """{"tags":"b"}""",
+      """{"tags":null}""",
+      """{"tags":{"${'$'}ne":null}}""",
+      """{"tags":{"${'$'}exists":true}}""",
+      """{"${'$'}or":[{"genre":"comedy"},{"year":{"${'$'}lt":2020}}]}""",
+      """{"${'$'}and":[{"genre":"drama"},{"year":{"${'$'}gt":2020}}]}""",
+      """{"internal":"x"}""",
+      """{"internal":"x","genre":"drama"}""",
+      """{"genre":{"${'$'}ne":"drama"},"internal":{"${'$'}exists":true}}""",
+    ],
+  )
+  fun `candidates from the metadata index agree with matches`(json: String) {
+    val filter = VectorFilter.compile(mapper.readTree(json))
+    val expected = metadata.indices.filter { filter.matches(metadata[it]) }
+
+    val candidates = filter.candidates(index, live.clone() as BitSet)
+
+    val ordinals = candidates?.ordinals ?: live
+    val actual = ordinals.stream().toArray().filter { candidates?.exact == true || filter.matches(metadata[it]) }
+    assertThat(actual).containsExactlyElementsOf(expected)
+    assertThat(expected).allMatch { ordinals.get(it) }
+  }
+
+  @Test
+  fun `filters on indexed keys are resolved exactly`() {
+    val filter = VectorFilter.compile(mapper.readTree("""{"genre":"drama","year":{"${'$'}gt":2020}}"""))
+
+    val candidates = filter.candidates(index, live)!!
+
+    assertThat(candidates.exact).isTrue()
+    assertThat(candidates.ordinals.stream().toArray()).containsExactly(2)
+  }
+
+  @Test
+  fun `filters on non-indexed keys narrow candidates but are not exact`() {
+    val filter = VectorFilter.compile(mapper.readTree("""{"genre":"drama","internal":"x"}"""))
+
+    val candidates = filter.candidates(index, live)!!
+
+    assertThat(candidates.exact).isFalse()
+    assertThat(candidates.ordinals.stream().toArray()).containsExactly(0, 2)
+  }
+}
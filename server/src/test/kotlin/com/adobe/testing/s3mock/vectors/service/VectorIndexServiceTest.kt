@@ -20,10 +20,12 @@ import com.adobe.testing.s3mock.vectors.store.VectorBucketMetadata
 import com.adobe.testing.s3mock.vectors.store.VectorBucketStore
 import com.adobe.testing.s3mock.vectors.store.VectorIndexMetadata
 import com.adobe.testing.s3mock.vectors.store.VectorIndexStore
+import com.adobe.testing.s3mock.vectors.store.VectorStore
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.Test
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import java.nio.file.Path
 
@@ -31,7 +33,8 @@ internal class VectorIndexServiceTest {
   private val vectorBucketStore: VectorBucketStore = mock()
   private val vectorBucketService = VectorBucketService(vectorBucketStore, "us-east-1")
   private val vectorIndexStore: VectorIndexStore = mock()
-  private val iut = VectorIndexService(vectorBucketService, vectorIndexStore, "us-east-1")
+  private val vectorStore: VectorStore = mock()
+  private val iut = VectorIndexService(vectorBucketService, vectorIndexStore, vectorStore, "us-east-1")
 
   @Test
   fun `createIndex returns ARN when bucket exists and index is new`() {
@@ -122,9 +125,12 @@ internal class VectorIndexServiceTest {
   fun `deleteIndex removes index when it exists`() {
     givenBucket("b")
     whenever(vectorIndexStore.doesIndexExist("b", "del-idx")).thenReturn(true)
-    whenever(vectorIndexStore.getIndexMetadata("b", "del-idx")).thenReturn(indexMetadata("b", "del-idx", 4))
+    val meta = indexMetadata("b", "del-idx", 4)
+    whenever(vectorIndexStore.getIndexMetadata("b", "del-idx")).thenReturn(meta)
 
     iut.deleteIndex("b", "del-idx")
+
+    verify(vectorStore).deleteIndex(meta)
   }
 
   @Test
@@ -136,6 +142,19 @@ internal class VectorIndexServiceTest {
       .isEqualTo(S3VectorsException.INDEX_NOT_FOUND)
   }
 
+  @Test
+  fun `resolveIndexId parses index ARNs`() {
+    val arn = VectorArns.indexArn("us-east-1", "b", "my-idx")
+
+    assertThat(iut.resolveIndexId(null, arn)).isEqualTo("b" to "my-idx")
+  }
+
+  @Test
+  fun `resolveIndexId rejects bucket ARNs as index ARN`() {
+    assertThatThrownBy { iut.resolveIndexId(null, VectorArns.bucketArn("us-east-1", "b")) }
+      .isInstanceOf(S3VectorsException::class.java)
+  }
+
   private fun givenBucket(name: String) {
     whenever(vectorBucketStore.doesBucketExist(name)).thenReturn(true)
     whenever(vectorBucketStore.getBucketMetadata(name)).thenReturn(
@@ -17,12 +17,19 @@ package com.adobe.testing.s3mock.vectors.service
 
 import com.adobe.testing.s3mock.vectors.S3VectorsException
 import com.adobe.testing.s3mock.vectors.dto.VectorData
+import com.adobe.testing.s3mock.vectors.store.VectorIndexData
 import com.adobe.testing.s3mock.vectors.store.VectorIndexMetadata
+import com.adobe.testing.s3mock.vectors.store.VectorMutation
+import com.adobe.testing.s3mock.vectors.store.VectorQuantization
+import com.adobe.testing.s3mock.vectors.store.VectorSegment
 import com.adobe.testing.s3mock.vectors.store.VectorStore
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.assertj.core.data.Offset
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.EnumSource
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.whenever
 import tools.jackson.databind.json.JsonMapper
@@ -34,6 +41,10 @@ internal class VectorQueryServiceTest {
   private val vectorIndexService: VectorIndexService = mock()
   private val vectorStore: VectorStore = mock()
   private val iut = VectorQueryService(vectorIndexService, vectorStore)
+  private lateinit var indexMeta: VectorIndexMetadata
+
+  @TempDir
+  private lateinit var tempDir: Path
   private val mapper =
     JsonMapper
       .builder()
@@ -148,6 +159,28 @@ internal class VectorQueryServiceTest {
     assertThat(result.vectors[0].distance).isLessThan(result.vectors[1].distance!!)
   }
 
+  @Test
+  fun `topK ranks vectors at the same distance by key`() {
+    givenIndex(distanceMetric = "euclidean", dimension = 1)
+    val data = VectorIndexData(indexMeta.creationTime, emptyList())
+    // ordinals in a different order than the keys
+    listOf("c", "a", "d", "b").forEach { data.put(it, floatArrayOf(1f), null) }
+    whenever(vectorStore.getIndexData(indexMeta)).thenReturn(data)
+
+    val result =
+      iut.queryVectors(
+        bucketNameOrArn = null,
+        indexNameOrArn = "arn:aws:s3vectors:us-east-1:123456789012:bucket/b/index/i",
+        queryVector = VectorData(listOf(0.0)),
+        topK = 2,
+        filter = null,
+        returnDistance = false,
+        returnMetadata = false,
+      )
+
+    assertThat(result.vectors.map { it.key }).containsExactly("a", "b")
+  }
+
   @Test
   fun `topK greater than 100 throws ValidationException`() {
     givenIndex(distanceMetric = "euclidean", dimension = 1)
@@ -340,6 +373,157 @@ internal class VectorQueryServiceTest {
     assertThat(result.distanceMetric).isEqualTo("cosine")
   }
 
+  @Test
+  fun `filter $eq matches numbers regardless of integer or decimal notation`() {
+    val metadata = mapper.readTree("""{"year":2020}""")
+    val filter = mapper.readTree("""{"year":{"${'$'}eq":2020.0}}""")
+
+    assertThat(iut.matchesFilter(metadata, filter)).isTrue()
+  }
+
+  @Test
+  fun `filter $lt does not match missing field`() {
+    val metadata = mapper.readTree("""{"other":1}""")
+    val filter = mapper.readTree("""{"year":{"${'$'}lt":2020}}""")
+
+    assertThat(iut.matchesFilter(metadata, filter)).isFalse()
+  }
+
+  @Test
+  fun `filter $gte does not match value of different type`() {
+    val metadata = mapper.readTree("""{"year":"unknown"}""")
+    val filter = mapper.readTree("""{"year":{"${'$'}gte":2020}}""")
+
+    assertThat(iut.matchesFilter(metadata, filter)).isFalse()
+  }
+
+  @Test
+  fun `filter $eq matches element of array value`() {
+    val metadata = mapper.readTree("""{"genres":["drama","comedy"]}""")
+    val filter = mapper.readTree("""{"genres":"comedy"}""")
+
+    assertThat(iut.matchesFilter(metadata, filter)).isTrue()
+  }
+
+  @Test
+  fun `filter $eq null matches null element of array value`() {
+    val metadata = mapper.readTree("""{"k":[1,null]}""")
+    val filter = mapper.readTree("""{"k":{"${'$'}eq":null}}""")
+
+    assertThat(iut.matchesFilter(metadata, filter)).isTrue()
+  }
+
+  @Test
+  fun `query with filter only returns matching vectors`() {
+    givenIndex(distanceMetric = "euclidean", dimension = 1)
+    givenVectors(
+      listOf(
+        floatArrayOf(1f) to mapper.readTree("""{"genre":"drama","year":2019}"""),
+        floatArrayOf(2f) to mapper.readTree("""{"genre":"comedy","year":2021}"""),
+        floatArrayOf(3f) to mapper.readTree("""{"genre":"drama","year":2023}"""),
+        floatArrayOf(4f) to null,
+      ),
+    )
+    val filter = mapper.readTree("""{"genre":"drama","year":{"${'$'}gt":2020}}""")
+
+    val result =
+      iut.queryVectors(
+        bucketNameOrArn = null,
+        indexNameOrArn = "arn:aws:s3vectors:us-east-1:123456789012:bucket/b/index/i",
+        queryVector = VectorData(listOf(0.0)),
+        topK = 10,
+        filter = filter,
+        returnDistance = true,
+        returnMetadata = false,
+      )
+
+    assertThat(result.vectors.map { it.key }).containsExactly("key-2")
+  }
+
+  @Test
+  fun `query with $ne filter returns vectors without the field`() {
+    givenIndex(distanceMetric = "euclidean", dimension = 1)
+    givenVectors(
+      listOf(
+        floatArrayOf(1f) to mapper.readTree("""{"genre":"drama"}"""),
+        floatArrayOf(2f) to mapper.readTree("""{"genre":"comedy"}"""),
+        floatArrayOf(3f) to null,
+      ),
+    )
+    val filter = mapper.readTree("""{"genre":{"${'$'}ne":"drama"}}""")
+
+    val result =
+      iut.queryVectors(
+        bucketNameOrArn = null,
+        indexNameOrArn = "arn:aws:s3vectors:us-east-1:123456789012:bucket/b/index/i",
+        queryVector = VectorData(listOf(0.0)),
+        topK = 10,
+        filter = filter,
+        returnDistance = false,
+        returnMetadata = false,
+      )
+
+    assertThat(result.vectors.map { it.key }).containsExactly("key-1", "key-2")
+  }
+
+  @Test
+  fun `query returns topK nearest in ascending distance order`() {
+    givenIndex(distanceMetric = "euclidean", dimension = 1)
+    givenVectors((10 downTo 1).map { floatArrayOf(it.toFloat()) to null })
+
+    val result =
+      iut.queryVectors(
+        bucketNameOrArn = null,
+        indexNameOrArn = "arn:aws:s3vectors:us-east-1:123456789012:bucket/b/index/i",
+        queryVector = VectorData(listOf(0.0)),
+        topK = 3,
+        filter = null,
+        returnDistance = true,
+        returnMetadata = false,
+      )
+
+    assertThat(result.vectors.map { it.distance }).containsExactly(1.0, 2.0, 3.0)
+  }
+
+  // ── Quantization ──────────────────────────────────────────────────────
+
+  @ParameterizedTest
+  @EnumSource(VectorQuantization::class)
+  fun `quantized candidates are rescored with exact distances`(quantization: VectorQuantization) {
+    givenIndex(distanceMetric = "euclidean", dimension = 3)
+    val data =
+      VectorIndexData(
+        indexMeta.creationTime,
+        emptyList(),
+        quantization,
+        VectorSegment(tempDir.resolve("segment.wal"), mapper),
+      )
+    data.commit(
+      listOf(
+        VectorMutation.Put("far", floatArrayOf(10f, -10f, 10f), null),
+        VectorMutation.Put("near", floatArrayOf(0.1234f, 0.5678f, 0.9012f), null),
+        VectorMutation.Put("nearer", floatArrayOf(0.1235f, 0.5677f, 0.9011f), null),
+      ),
+    )
+    whenever(vectorStore.getIndexData(indexMeta)).thenReturn(data)
+
+    val result =
+      iut.queryVectors(
+        bucketNameOrArn = null,
+        indexNameOrArn = "arn:aws:s3vectors:us-east-1:123456789012:bucket/b/index/i",
+        queryVector = VectorData(listOf(0.1235, 0.5677, 0.9011)),
+        topK = 2,
+        filter = null,
+        returnDistance = true,
+        returnMetadata = false,
+      )
+
+    assertThat(result.vectors.map { it.key }).containsExactly("nearer", "near")
+    assertThat(result.vectors[0].distance).isCloseTo(0.0, Offset.offset(1e-7))
+    val exact = sqrt(3 * 0.0001 * 0.0001)
+    assertThat(result.vectors[1].distance).isCloseTo(exact, Offset.offset(1e-6))
+  }
+
   // ── Helpers ────────────────────────────────────────────────────────────
 
   private fun givenIndex(
@@ -347,7 +531,7 @@ internal class VectorQueryServiceTest {
     dimension: Int,
     nonFilterableKeys: List<String> = emptyList(),
   ) {
-    val indexMeta =
+    indexMeta =
       VectorIndexMetadata(
         name = "i",
         vectorBucketName = "b",
@@ -367,10 +551,8 @@ internal class VectorQueryServiceTest {
   }
 
   private fun givenVectors(entries: List<Pair<FloatArray, tools.jackson.databind.JsonNode?>>) {
-    val stored =
-      entries.mapIndexed { idx, (floats, meta) ->
-        VectorStore.StoredVector("key-$idx", floats, meta)
-      }
-    whenever(vectorStore.readAllForQuery("b", "i")).thenReturn(stored)
+    val data = VectorIndexData(indexMeta.creationTime, indexMeta.nonFilterableMetadataKeys)
+    entries.forEachIndexed { idx, (floats, meta) -> data.put("key-$idx", floats, meta) }
+    whenever(vectorStore.getIndexData(indexMeta)).thenReturn(data)
   }
 }
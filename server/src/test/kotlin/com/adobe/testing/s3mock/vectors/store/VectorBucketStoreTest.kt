@@ -28,6 +28,7 @@ import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc
 import org.springframework.test.context.ActiveProfiles
 import org.springframework.test.context.bean.override.mockito.MockitoBean
+import tools.jackson.databind.ObjectMapper
 import java.io.File
 
 @AutoConfigureWebMvc
@@ -45,8 +46,13 @@ internal class VectorBucketStoreTest {
   @Autowired
   private lateinit var rootFolder: File
 
+  @Autowired
+  private lateinit var objectMapper: ObjectMapper
+
   @AfterEach
   fun cleanup() {
+    // buckets and indexes are cached by the stores of the shared context, delete them through the stores
+    iut.listBuckets().forEach { iut.deleteBucket(it.name) }
     rootFolder.resolve("vectors").deleteRecursively()
   }
 
@@ -144,4 +150,15 @@ internal class VectorBucketStoreTest {
 
     assertThat(iut.hasIndexes("idx-check-bucket")).isFalse()
   }
+
+  @Test
+  fun `a new store loads the buckets written by another one`() {
+    iut.createVectorBucket("persisted-bucket", null, null, mapOf("a" to "1"))
+    iut.updateTags("persisted-bucket", mapOf("b" to "2"))
+
+    val reopened = VectorBucketStore(rootFolder.resolve("vectors"), objectMapper)
+
+    assertThat(reopened.listBuckets().map { it.name }).containsExactly("persisted-bucket")
+    assertThat(reopened.getBucketMetadata("persisted-bucket").tags).containsEntry("a", "1").containsEntry("b", "2")
+  }
 }
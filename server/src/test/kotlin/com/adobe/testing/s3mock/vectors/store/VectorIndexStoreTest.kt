@@ -29,6 +29,7 @@ import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc
 import org.springframework.test.context.ActiveProfiles
 import org.springframework.test.context.bean.override.mockito.MockitoBean
+import tools.jackson.databind.ObjectMapper
 import java.io.File
 
 @AutoConfigureWebMvc
@@ -49,6 +50,9 @@ internal class VectorIndexStoreTest {
   @Autowired
   private lateinit var rootFolder: File
 
+  @Autowired
+  private lateinit var objectMapper: ObjectMapper
+
   private val bucket = "test-bucket"
 
   @BeforeEach
@@ -58,6 +62,11 @@ internal class VectorIndexStoreTest {
 
   @AfterEach
   fun cleanup() {
+    // buckets and indexes are cached by the stores of the shared context, delete them through the stores
+    vectorBucketStore.listBuckets().forEach { bucket ->
+      iut.listIndexes(bucket.name).forEach { iut.deleteIndex(bucket.name, it.name) }
+      vectorBucketStore.deleteBucket(bucket.name)
+    }
     rootFolder.resolve("vectors").deleteRecursively()
   }
 
@@ -144,4 +153,17 @@ internal class VectorIndexStoreTest {
 
     assertThat(vectorBucketStore.hasIndexes(bucket)).isTrue()
   }
+
+  @Test
+  fun `a new store loads the indexes written by another one`() {
+    iut.createIndex(bucket, "persisted-idx", "float32", 4, "cosine", null, null, listOf("text"), mapOf("a" to "1"))
+    iut.updateTags(bucket, "persisted-idx", mapOf("b" to "2"))
+
+    val reopened = VectorIndexStore(vectorBucketStore, objectMapper)
+
+    assertThat(reopened.listIndexes(bucket).map { it.name }).containsExactly("persisted-idx")
+    val meta = reopened.getIndexMetadata(bucket, "persisted-idx")
+    assertThat(meta.nonFilterableMetadataKeys).containsExactly("text")
+    assertThat(meta.tags).containsEntry("a", "1").containsEntry("b", "2")
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import tools.jackson.databind.json.JsonMapper
+import java.util.BitSet
+
+internal class VectorMetadataIndexTest {
+  private val mapper = JsonMapper.builder().build()
+  private val iut = VectorMetadataIndex(listOf("internal"))
+
+  @Test
+  fun `equalTo finds ordinals by canonical value`() {
+    iut.add(0, mapper.readTree("""{"genre":"drama","year":2020}"""))
+    iut.add(1, mapper.readTree("""{"genre":"comedy","year":2020.0}"""))
+
+    assertThat(iut.equalTo("genre", "drama")).isEqualTo(bits(0))
+    assertThat(iut.equalTo("year", 2020.0)).isEqualTo(bits(0, 1))
+    assertThat(iut.equalTo("genre", "horror")).isEqualTo(bits())
+    assertThat(iut.equalTo("unknown", "drama")).isEqualTo(bits())
+  }
+
+  @Test
+  fun `array values are indexed per element`() {
+    iut.add(3, mapper.readTree("""{"tags":["a","b",null,"a"]}"""))
+
+    assertThat(iut.equalTo("tags", "a")).isEqualTo(bits(3))
+    assertThat(iut.equalTo("tags", "b")).isEqualTo(bits(3))
+    assertThat(iut.present("tags")).isEqualTo(bits(3))
+    assertThat(iut.nullElements("tags")).isEqualTo(bits(3))
+  }
+
+  @Test
+  fun `range resolves numbers and strings separately`() {
+    iut.add(0, mapper.readTree("""{"v":1}"""))
+    iut.add(1, mapper.readTree("""{"v":5}"""))
+    iut.add(2, mapper.readTree("""{"v":10}"""))
+    iut.add(3, mapper.readTree("""{"v":"7"}"""))
+
+    assertThat(iut.range("v", 5.0, greater = true, inclusive = false)).isEqualTo(bits(2))
+    assertThat(iut.range("v", 5.0, greater = true, inclusive = true)).isEqualTo(bits(1, 2))
+    assertThat(iut.range("v", 5.0, greater = false, inclusive = false)).isEqualTo(bits(0))
+    assertThat(iut.range("v", "5", greater = true, inclusive = false)).isEqualTo(bits(3))
+    assertThat(iut.range("v", true, greater = true, inclusive = false)).isNull()
+  }
+
+  @Test
+  fun `remove clears all values of an ordinal`() {
+    val metadata = mapper.readTree("""{"genre":"drama","tags":["a","b",null]}""")
+    iut.add(0, metadata)
+    iut.add(1, mapper.readTree("""{"genre":"drama"}"""))
+
+    iut.remove(0, metadata)
+
+    assertThat(iut.equalTo("genre", "drama")).isEqualTo(bits(1))
+    assertThat(iut.equalTo("tags", "a")).isEqualTo(bits())
+    assertThat(iut.present("tags")).isEqualTo(bits())
+    assertThat(iut.nullElements("tags")).isEqualTo(bits())
+  }
+
+  @Test
+  fun `non-filterable keys and null values are not indexed`() {
+    iut.add(0, mapper.readTree("""{"internal":"x","genre":null}"""))
+
+    assertThat(iut.isIndexed("internal")).isFalse()
+    assertThat(iut.present("internal")).isEqualTo(bits())
+    assertThat(iut.present("genre")).isEqualTo(bits())
+  }
+
+  @Test
+  fun `canonical normalizes numbers and negative zero`() {
+    assertThat(VectorMetadataIndex.canonical(mapper.readTree("2"))).isEqualTo(2.0)
+    assertThat(VectorMetadataIndex.canonical(mapper.readTree("-0.0"))).isEqualTo(0.0)
+    assertThat(VectorMetadataIndex.canonical(mapper.readTree("\"x\""))).isEqualTo("x")
+    assertThat(VectorMetadataIndex.canonical(mapper.readTree("true"))).isEqualTo(true)
+    assertThat(VectorMetadataIndex.canonical(mapper.readTree("null"))).isNull()
+  }
+
+  private fun bits(vararg ordinals: Int) = BitSet().apply { ordinals.forEach { set(it) } }
+}
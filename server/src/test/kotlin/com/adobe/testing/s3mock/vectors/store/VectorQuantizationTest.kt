@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.data.Offset
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+
+internal class VectorQuantizationTest {
+  @ParameterizedTest
+  @ValueSource(floats = [0f, -0f, 1f, -2f, 0.5f, 65504f, -65504f, 6.1035156E-5f, 5.9604645E-8f])
+  fun `float16 represents half precision values exactly`(value: Float) {
+    val roundTripped = VectorQuantization.fromFloat16(VectorQuantization.toFloat16(value))
+
+    assertThat(roundTripped.toRawBits()).isEqualTo(value.toRawBits())
+  }
+
+  @Test
+  fun `float16 rounds to the nearest representable value`() {
+    for (value in floatArrayOf(0.1f, -0.3333f, 3.14159f, 1234.567f, 0.0001f)) {
+      val roundTripped = VectorQuantization.fromFloat16(VectorQuantization.toFloat16(value))
+      assertThat(roundTripped).isCloseTo(value, Offset.offset(Math.abs(value) / 2048))
+    }
+  }
+
+  @Test
+  fun `float16 rounds ties to even`() {
+    // 1 + 2^-11 is halfway between 1 and the next half precision value 1 + 2^-10
+    assertThat(VectorQuantization.fromFloat16(VectorQuantization.toFloat16(1f + Math.scalb(1f, -11)))).isEqualTo(1f)
+    // 1 + 3 * 2^-11 is halfway between 1 + 2^-10 and 1 + 2^-9
+    assertThat(VectorQuantization.fromFloat16(VectorQuantization.toFloat16(1f + 3 * Math.scalb(1f, -11))))
+      .isEqualTo(1f + Math.scalb(1f, -9))
+  }
+
+  @Test
+  fun `float16 overflows to infinity and keeps NaN`() {
+    assertThat(VectorQuantization.fromFloat16(VectorQuantization.toFloat16(70000f))).isEqualTo(Float.POSITIVE_INFINITY)
+    assertThat(VectorQuantization.fromFloat16(VectorQuantization.toFloat16(Float.NEGATIVE_INFINITY))).isEqualTo(Float.NEGATIVE_INFINITY)
+    assertThat(VectorQuantization.fromFloat16(VectorQuantization.toFloat16(Float.NaN))).isNaN()
+    assertThat(VectorQuantization.fromFloat16(VectorQuantization.toFloat16(1e-10f))).isEqualTo(0f)
+  }
+
+  @Test
+  fun `int8 matrix stays within one level of each dimension's range after widening`() {
+    val matrix = VectorMatrix.create(VectorQuantization.INT8, 2)
+    val vectors = List(100) { floatArrayOf(it * 0.5f, -it.toFloat()) }
+    vectors.forEachIndexed { ordinal, it -> matrix.set(ordinal, it) }
+
+    val decoded = FloatArray(2)
+    vectors.forEachIndexed { ordinal, it ->
+      matrix.decode(ordinal, decoded)
+      // each widening re-encodes, the accumulated error stays below 1.5 levels of the widened range
+      assertThat(decoded[0]).isCloseTo(it[0], Offset.offset(49.5f * 1.5f * 3 / 255))
+      assertThat(decoded[1]).isCloseTo(it[1], Offset.offset(99f * 1.5f * 3 / 255))
+    }
+  }
+
+  @Test
+  fun `int8 matrix keeps the range of other blocks when widening`() {
+    val matrix = VectorMatrix.create(VectorQuantization.INT8, 1)
+    val vectors = List(1000) { floatArrayOf((it % 10) * 0.1f) }
+    vectors.forEachIndexed { ordinal, it -> matrix.set(ordinal, it) }
+    matrix.set(999, floatArrayOf(1000f))
+
+    val decoded = FloatArray(1)
+    vectors.dropLast(1).forEachIndexed { ordinal, it ->
+      matrix.decode(ordinal, decoded)
+      // the outlier only widens the range of its own block
+      val range = if (ordinal < 768) 0.9f * 1.5f else 1000f * 1.5f
+      assertThat(decoded[0]).isCloseTo(it[0], Offset.offset(range * 1.5f / 255))
+    }
+    matrix.decode(999, decoded)
+    assertThat(decoded[0]).isCloseTo(1000f, Offset.offset(1000f * 1.5f * 1.5f / 255))
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = ["NONE", "FLOAT16"])
+  fun `float32 and float16 matrices grow with the ordinals`(quantization: VectorQuantization) {
+    val matrix = VectorMatrix.create(quantization, 3)
+    matrix.set(100, floatArrayOf(1f, 2f, 3f))
+    matrix.set(0, floatArrayOf(4f, 5f, 6f))
+
+    val decoded = FloatArray(3)
+    matrix.decode(100, decoded)
+    assertThat(decoded).containsExactly(1f, 2f, 3f)
+    matrix.decode(0, decoded)
+    assertThat(decoded).containsExactly(4f, 5f, 6f)
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ *  Copyright 2017-2026 Adobe.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.adobe.testing.s3mock.vectors.store
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import tools.jackson.databind.json.JsonMapper
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+internal class VectorSegmentTest {
+  private val mapper = JsonMapper.builder().build()
+
+  @TempDir
+  private lateinit var tempDir: Path
+
+  @Test
+  fun `appended batches are read back in order`() {
+    val segment = VectorSegment(tempDir.resolve("segment.wal"), mapper)
+    segment.append(
+      listOf(
+        VectorMutation.Put("k-1", floatArrayOf(1f, 2f), mapper.readTree("""{"genre":"drama"}""")),
+        VectorMutation.Put("k-2", floatArrayOf(3f, 4f), null),
+      ),
+    )
+    segment.append(listOf(VectorMutation.Delete("k-1")))
+
+    val mutations = readAll(VectorSegment(tempDir.resolve("segment.wal"), mapper))
+
+    assertThat(mutations.map { it.key }).containsExactly("k-1", "k-2", "k-1")
+    val first = mutations[0] as VectorMutation.Put
+    assertThat(first.floats).containsExactly(1f, 2f)
+    assertThat(first.metadata!!.get("genre").stringValue()).isEqualTo("drama")
+    assertThat((mutations[1] as VectorMutation.Put).metadata).isNull()
+    assertThat(mutations[2]).isInstanceOf(VectorMutation.Delete::class.java)
+  }
+
+  @Test
+  fun `a partially written batch is dropped as a whole and cut off`() {
+    val file = tempDir.resolve("segment.wal")
+    val segment = VectorSegment(file, mapper)
+    segment.append(listOf(VectorMutation.Put("k-1", floatArrayOf(1f), null)))
+    val committedSize = Files.size(file)
+    segment.append(
+      listOf(
+        VectorMutation.Put("k-2", floatArrayOf(2f), null),
+        VectorMutation.Put("k-3", floatArrayOf(3f), null),
+      ),
+    )
+    Files.newByteChannel(file, StandardOpenOption.WRITE).use { it.truncate(Files.size(file) - 3) }
+
+    val reopened = VectorSegment(file, mapper)
+
+    assertThat(readAll(reopened).map { it.key }).containsExactly("k-1")
+    assertThat(Files.size(file)).isEqualTo(committedSize)
+    reopened.append(listOf(VectorMutation.Put("k-4", floatArrayOf(4f), null)))
+    assertThat(readAll(VectorSegment(file, mapper)).map { it.key }).containsExactly("k-1", "k-4")
+  }
+
+  @Test
+  fun `a failed append is cut off so that later batches are kept`() {
+    val file = tempDir.resolve("segment.wal")
+    var diskFull = false
+    val segment =
+      VectorSegment(file, mapper) { channel, buffer ->
+        if (diskFull) {
+          // writes half of the frame before the disk runs full
+          buffer.limit(buffer.position() + buffer.remaining() / 2)
+          channel.write(buffer)
+          throw IOException("No space left on device")
+        }
+        channel.write(buffer)
+      }
+    segment.append(listOf(VectorMutation.Put("k-1", floatArrayOf(1f), null)))
+    val committedSize = Files.size(file)
+
+    diskFull = true
+    assertThatThrownBy { segment.append(listOf(VectorMutation.Put("k-2", floatArrayOf(2f), null))) }
+      .isInstanceOf(IllegalStateException::class.java)
+      .hasRootCauseInstanceOf(IOException::class.java)
+    assertThat(Files.size(file)).isEqualTo(committedSize)
+    diskFull = false
+    segment.append(listOf(VectorMutation.Put("k-3", floatArrayOf(3f), null)))
+
+    assertThat(readAll(VectorSegment(file, mapper)).map { it.key }).containsExactly("k-1", "k-3")
+  }
+
+  @Test
+  fun `a corrupt batch is dropped`() {
+    val file = tempDir.resolve("segment.wal")
+    VectorSegment(file, mapper).append(listOf(VectorMutation.Put("k-1", floatArrayOf(1f), null)))
+    val bytes = Files.readAllBytes(file)
+    bytes[bytes.size - 1] = (bytes[bytes.size - 1] + 1).toByte()
+    Files.write(file, bytes)
+
+    assertThat(readAll(VectorSegment(file, mapper))).isEmpty()
+  }
+
+  @Test
+  fun `rewrite replaces all mutations`() {
+    val file = tempDir.resolve("segment.wal")
+    val segment = VectorSegment(file, mapper)
+    segment.append(listOf(VectorMutation.Put("k-1", floatArrayOf(1f), null), VectorMutation.Delete("k-1")))
+
+    segment.rewrite(sequenceOf(VectorMutation.Put("k-2", floatArrayOf(2f), null)))
+
+    assertThat(segment.mutationCount).isEqualTo(1)
+    assertThat(readAll(VectorSegment(file, mapper)).map { it.key }).containsExactly("k-2")
+    assertThat(tempDir.resolve("segment.wal.tmp")).doesNotExist()
+  }
+
+  @Test
+  fun `segment is compactable once most mutations are superseded`() {
+    val segment = VectorSegment(tempDir.resolve("segment.wal"), mapper)
+    segment.append(List(10_000) { VectorMutation.Put("k", floatArrayOf(1f), null) })
+
+    assertThat(segment.isCompactable(10_000)).isFalse()
+    assertThat(segment.isCompactable(1)).isTrue()
+  }
+
+  @Test
+  fun `reading a missing segment returns no mutations`() {
+    assertThat(readAll(VectorSegment(tempDir.resolve("segment.wal"), mapper))).isEmpty()
+    assertThat(tempDir.resolve("segment.wal")).doesNotExist()
+  }
+
+  @Test
+  fun `floats are read back by their position`() {
+    val segment = VectorSegment(tempDir.resolve("segment.wal"), mapper)
+    val first = segment.append(listOf(VectorMutation.Put("k-1", floatArrayOf(1f, 2f), null))).single() as VectorMutation.Put
+    val second =
+      segment.append(
+        listOf(
+          VectorMutation.Delete("k-1"),
+          VectorMutation.Put("k-2", floatArrayOf(3f, 4f), mapper.readTree("""{"genre":"drama"}""")),
+        ),
+      )[1] as VectorMutation.Put
+
+    assertThat(segment.readFloats(longArrayOf(second.position, first.position), 2))
+      .containsExactly(floatArrayOf(3f, 4f), floatArrayOf(1f, 2f))
+    assertThat(readAll(segment).filterIsInstance<VectorMutation.Put>().map { it.position })
+      .containsExactly(first.position, second.position)
+  }
+
+  @Test
+  fun `rewrite returns the new positions of the floats`() {
+    val segment = VectorSegment(tempDir.resolve("segment.wal"), mapper)
+    segment.append(listOf(VectorMutation.Put("k-1", floatArrayOf(1f, 2f), null)))
+
+    val positions = segment.rewrite((1..2500).asSequence().map { VectorMutation.Put("k-$it", floatArrayOf(it.toFloat(), 0f), null) })
+
+    assertThat(positions).hasSize(2500)
+    assertThat(segment.readFloats(longArrayOf(positions[0], positions[2499]), 2))
+      .containsExactly(floatArrayOf(1f, 0f), floatArrayOf(2500f, 0f))
+  }
+
+  private fun readAll(segment: VectorSegment): List<VectorMutation> = buildList { segment.read { add(it) } }
+}
@@ -19,16 +19,21 @@ import com.adobe.testing.s3mock.s3.store.KmsKeyStore
 import com.adobe.testing.s3mock.s3.store.MultipartStore
 import com.adobe.testing.s3mock.s3.store.ObjectStore
 import com.adobe.testing.s3mock.s3.store.StoreConfiguration
+import com.adobe.testing.s3mock.vectors.S3VectorsException
 import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.EnumSource
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc
 import org.springframework.test.context.ActiveProfiles
 import org.springframework.test.context.bean.override.mockito.MockitoBean
+import tools.jackson.databind.ObjectMapper
 import java.io.File
 
 @AutoConfigureWebMvc
@@ -52,26 +57,35 @@ internal class VectorStoreTest {
   @Autowired
   private lateinit var rootFolder: File
 
+  @Autowired
+  private lateinit var objectMapper: ObjectMapper
+
   private val bucket = "test-bucket"
   private val index = "test-index"
+  private lateinit var indexMeta: VectorIndexMetadata
 
   @BeforeEach
   fun setup() {
     vectorBucketStore.createVectorBucket(bucket, null, null, emptyMap())
-    vectorIndexStore.createIndex(bucket, index, "float32", 3, "cosine", null, null, emptyList(), emptyMap())
+    indexMeta = vectorIndexStore.createIndex(bucket, index, "float32", 3, "cosine", null, null, emptyList(), emptyMap())
   }
 
   @AfterEach
   fun cleanup() {
+    // buckets and indexes are cached by the stores of the shared context, delete them through the stores
+    vectorBucketStore.listBuckets().forEach { bucket ->
+      vectorIndexStore.listIndexes(bucket.name).forEach { vectorIndexStore.deleteIndex(bucket.name, it.name) }
+      vectorBucketStore.deleteBucket(bucket.name)
+    }
     rootFolder.resolve("vectors").deleteRecursively()
   }
 
   @Test
   fun `putVector and getVector round-trip preserves float data`() {
     val floats = floatArrayOf(0.1f, 0.2f, 0.3f)
-    iut.putVector(bucket, index, "my-key", floats, null)
+    putVector("my-key", floats, null)
 
-    val stored = iut.getVector(bucket, index, "my-key", returnData = true, returnMetadata = false)
+    val stored = iut.getVector(indexMeta, "my-key", returnData = true, returnMetadata = false)
 
     assertThat(stored).isNotNull
     assertThat(stored!!.key).isEqualTo("my-key")
@@ -83,9 +97,9 @@ internal class VectorStoreTest {
 
   @Test
   fun `putVector stores metadata and getVector retrieves it`() {
-    iut.putVector(bucket, index, "meta-key", floatArrayOf(1f, 0f, 0f), mapOf("genre" to "drama"))
+    putVector("meta-key", floatArrayOf(1f, 0f, 0f), mapOf("genre" to "drama"))
 
-    val stored = iut.getVector(bucket, index, "meta-key", returnData = false, returnMetadata = true)
+    val stored = iut.getVector(indexMeta, "meta-key", returnData = false, returnMetadata = true)
 
     assertThat(stored).isNotNull
     assertThat(stored!!.metadata).isNotNull
@@ -94,16 +108,16 @@ internal class VectorStoreTest {
 
   @Test
   fun `getVector returns null for non-existing key`() {
-    val stored = iut.getVector(bucket, index, "no-such-key", returnData = false, returnMetadata = false)
+    val stored = iut.getVector(indexMeta, "no-such-key", returnData = false, returnMetadata = false)
 
     assertThat(stored).isNull()
   }
 
   @Test
   fun `getVector with returnData=false returns null floats`() {
-    iut.putVector(bucket, index, "no-data-key", floatArrayOf(1f, 0f, 0f), null)
+    putVector("no-data-key", floatArrayOf(1f, 0f, 0f), null)
 
-    val stored = iut.getVector(bucket, index, "no-data-key", returnData = false, returnMetadata = false)
+    val stored = iut.getVector(indexMeta, "no-data-key", returnData = false, returnMetadata = false)
 
     assertThat(stored).isNotNull
     assertThat(stored!!.floats).isNull()
@@ -111,52 +125,52 @@ internal class VectorStoreTest {
 
   @Test
   fun `vectorExists returns true after putVector`() {
-    iut.putVector(bucket, index, "exists-key", floatArrayOf(1f, 0f, 0f), null)
+    putVector("exists-key", floatArrayOf(1f, 0f, 0f), null)
 
-    assertThat(iut.vectorExists(bucket, index, "exists-key")).isTrue()
+    assertThat(iut.vectorExists(indexMeta, "exists-key")).isTrue()
   }
 
   @Test
   fun `vectorExists returns false before putVector`() {
-    assertThat(iut.vectorExists(bucket, index, "not-yet")).isFalse()
+    assertThat(iut.vectorExists(indexMeta, "not-yet")).isFalse()
   }
 
   @Test
   fun `deleteVector removes the vector`() {
-    iut.putVector(bucket, index, "del-key", floatArrayOf(1f, 0f, 0f), null)
-    iut.deleteVector(bucket, index, "del-key")
+    putVector("del-key", floatArrayOf(1f, 0f, 0f), null)
+    iut.deleteVectors(indexMeta, listOf("del-key"))
 
-    assertThat(iut.vectorExists(bucket, index, "del-key")).isFalse()
+    assertThat(iut.vectorExists(indexMeta, "del-key")).isFalse()
   }
 
   @Test
   fun `deleteVector on non-existing key is a no-op`() {
-    iut.deleteVector(bucket, index, "never-existed")
+    iut.deleteVectors(indexMeta, listOf("never-existed"))
 
-    assertThat(iut.vectorExists(bucket, index, "never-existed")).isFalse()
+    assertThat(iut.vectorExists(indexMeta, "never-existed")).isFalse()
   }
 
   @Test
   fun `listVectors returns all stored vectors sorted by key`() {
-    iut.putVector(bucket, index, "k-b", floatArrayOf(1f, 0f, 0f), null)
-    iut.putVector(bucket, index, "k-a", floatArrayOf(0f, 1f, 0f), null)
+    putVector("k-b", floatArrayOf(1f, 0f, 0f), null)
+    putVector("k-a", floatArrayOf(0f, 1f, 0f), null)
 
-    val listed = iut.listVectors(bucket, index, returnData = false, returnMetadata = false)
+    val listed = iut.listVectors(indexMeta, returnData = false, returnMetadata = false)
 
     assertThat(listed.map { it.key }).containsExactly("k-a", "k-b")
   }
 
   @Test
   fun `listVectors returns empty for empty index`() {
-    assertThat(iut.listVectors(bucket, index, returnData = false, returnMetadata = false)).isEmpty()
+    assertThat(iut.listVectors(indexMeta, returnData = false, returnMetadata = false)).isEmpty()
   }
 
   @Test
   fun `putVector with unicode key round-trips the key correctly`() {
     val unicodeKey = "héllo/wörld=key"
-    iut.putVector(bucket, index, unicodeKey, floatArrayOf(1f, 0f, 0f), null)
+    putVector(unicodeKey, floatArrayOf(1f, 0f, 0f), null)
 
-    val stored = iut.getVector(bucket, index, unicodeKey, returnData = false, returnMetadata = false)
+    val stored = iut.getVector(indexMeta, unicodeKey, returnData = false, returnMetadata = false)
 
     assertThat(stored).isNotNull
     assertThat(stored!!.key).isEqualTo(unicodeKey)
@@ -172,24 +186,207 @@ internal class VectorStoreTest {
   }
 
   @Test
-  fun `sha256Hex produces consistent results for the same input`() {
-    val h1 = VectorStore.sha256Hex("test-key")
-    val h2 = VectorStore.sha256Hex("test-key")
+  fun `putVector is upsert and re-putting the same key overwrites`() {
+    putVector("upsert-key", floatArrayOf(1f, 0f, 0f), null)
+    putVector("upsert-key", floatArrayOf(0f, 1f, 0f), null)
 
-    assertThat(h1).isEqualTo(h2).hasSize(64)
+    val stored = iut.getVector(indexMeta, "upsert-key", returnData = true, returnMetadata = false)
+    assertThat(stored!!.floats!![1]).isEqualTo(1f)
   }
 
   @Test
-  fun `sha256Hex produces different results for different inputs`() {
-    assertThat(VectorStore.sha256Hex("key-a")).isNotEqualTo(VectorStore.sha256Hex("key-b"))
+  fun `getIndexData is loaded from disk and kept in sync with writes`() {
+    putVector("k-1", floatArrayOf(1f, 0f, 0f), mapOf("genre" to "drama"))
+    val data = iut.getIndexData(indexMeta)
+
+    putVector("k-2", floatArrayOf(0f, 1f, 0f), mapOf("genre" to "comedy"))
+    iut.deleteVectors(indexMeta, listOf("k-1"))
+
+    data.read { view ->
+      assertThat(
+        view
+          .live()
+          .stream()
+          .toArray()
+          .map { view.key(it) },
+      ).containsExactly("k-2")
+      assertThat(view.metadataIndex.equalTo("genre", "drama")!!.isEmpty).isTrue()
+      assertThat(view.metadataIndex.equalTo("genre", "comedy")!!.cardinality()).isEqualTo(1)
+    }
   }
 
   @Test
-  fun `putVector is upsert and re-putting the same key overwrites`() {
-    iut.putVector(bucket, index, "upsert-key", floatArrayOf(1f, 0f, 0f), null)
-    iut.putVector(bucket, index, "upsert-key", floatArrayOf(0f, 1f, 0f), null)
+  fun `getIndexData discards data of a deleted and re-created index`() {
+    putVector("k-1", floatArrayOf(1f, 0f, 0f), null)
+    val before = iut.getIndexData(indexMeta)
 
-    val stored = iut.getVector(bucket, index, "upsert-key", returnData = true, returnMetadata = false)
-    assertThat(stored!!.floats!![1]).isEqualTo(1f)
+    vectorIndexStore.deleteIndex(bucket, index)
+    Thread.sleep(2)
+    val recreated = vectorIndexStore.createIndex(bucket, index, "float32", 3, "cosine", null, null, emptyList(), emptyMap())
+
+    assertThat(before.size).isEqualTo(1)
+    assertThat(iut.getIndexData(recreated).size).isZero()
+  }
+
+  @Test
+  fun `putVectors doesn't bring back the segment of a deleted index`() {
+    putVector("k-1", floatArrayOf(1f, 0f, 0f), null)
+
+    iut.deleteIndex(indexMeta)
+
+    assertThatThrownBy { putVector("k-2", floatArrayOf(0f, 1f, 0f), null) }
+      .isEqualTo(S3VectorsException.INDEX_NOT_FOUND)
+    assertThat(vectorIndexStore.getIndexDir(bucket, index)).doesNotExist()
+    assertThat(vectorIndexStore.doesIndexExist(bucket, index)).isFalse()
+  }
+
+  @Test
+  fun `putVectors stores the batch and the last vector wins for duplicate keys`() {
+    iut.putVectors(
+      indexMeta,
+      listOf(
+        VectorStore.VectorWrite("k-1", floatArrayOf(1f, 0f, 0f), null),
+        VectorStore.VectorWrite("k-2", floatArrayOf(0f, 1f, 0f), null),
+        VectorStore.VectorWrite("k-1", floatArrayOf(0f, 0f, 1f), mapOf("genre" to "drama")),
+      ),
+    )
+
+    assertThat(iut.countVectors(indexMeta)).isEqualTo(2)
+    val stored = iut.getVector(indexMeta, "k-1", returnData = true, returnMetadata = true)
+    assertThat(stored!!.floats).containsExactly(0f, 0f, 1f)
+    assertThat(stored.metadata!!.get("genre").stringValue()).isEqualTo("drama")
+  }
+
+  @Test
+  fun `vectors are read back from the segment by a new store`() {
+    putVector("k-1", floatArrayOf(1f, 0f, 0f), mapOf("genre" to "drama"))
+    putVector("k-2", floatArrayOf(0f, 1f, 0f), null)
+    iut.deleteVectors(indexMeta, listOf("k-2"))
+
+    val reopened = VectorStore(vectorIndexStore, objectMapper)
+
+    assertThat(reopened.listVectors(indexMeta, returnData = true, returnMetadata = true))
+      .singleElement()
+      .satisfies({
+        assertThat(it.key).isEqualTo("k-1")
+        assertThat(it.floats).containsExactly(1f, 0f, 0f)
+        assertThat(it.metadata!!.get("genre").stringValue()).isEqualTo("drama")
+      })
+  }
+
+  @Test
+  fun `vectors stored in one directory per vector are migrated to the segment`() {
+    val vectorsDir = vectorIndexStore.getIndexDir(bucket, index).resolve(VectorIndexStore.VECTORS_DIR)
+    val legacyDir = vectorsDir.resolve("legacy").apply { mkdirs() }
+    legacyDir.resolve("key.txt").writeText("legacy-key")
+    legacyDir.resolve("data.f32").writeBytes(VectorStore.floatsToBytes(floatArrayOf(1f, 2f, 3f)))
+    legacyDir.resolve("metadata.json").writeText("""{"genre":"drama"}""")
+
+    val stored = iut.getVector(indexMeta, "legacy-key", returnData = true, returnMetadata = true)
+
+    assertThat(stored!!.floats).containsExactly(1f, 2f, 3f)
+    assertThat(stored.metadata!!.get("genre").stringValue()).isEqualTo("drama")
+    assertThat(legacyDir).doesNotExist()
+    assertThat(vectorsDir.resolve(VectorSegment.SEGMENT_FILE)).exists()
   }
+
+  @Test
+  fun `listVectors seeks to startAfter and stops at limit`() {
+    iut.putVectors(indexMeta, listOf("k-3", "k-1", "k-5", "k-2", "k-4").map { VectorStore.VectorWrite(it, floatArrayOf(1f, 0f, 0f), null) })
+    iut.deleteVectors(indexMeta, listOf("k-2"))
+    putVector("k-0", floatArrayOf(0f, 1f, 0f), null)
+
+    val firstPage = iut.listVectors(indexMeta, returnData = false, returnMetadata = false, limit = 2)
+    val secondPage = iut.listVectors(indexMeta, returnData = false, returnMetadata = false, startAfter = "k-1", limit = 2)
+    val lastPage = iut.listVectors(indexMeta, returnData = false, returnMetadata = false, startAfter = "k-35", limit = 2)
+
+    assertThat(firstPage.map { it.key }).containsExactly("k-0", "k-1")
+    assertThat(secondPage.map { it.key }).containsExactly("k-3", "k-4")
+    assertThat(lastPage.map { it.key }).containsExactly("k-4", "k-5")
+  }
+
+  @Test
+  fun `listVectors lists the keys of a segment by their hash`() {
+    val keys = (1..20).map { "k-$it" }
+    iut.putVectors(indexMeta, keys.map { VectorStore.VectorWrite(it, floatArrayOf(1f, 0f, 0f), null) })
+
+    val segments =
+      (0..2).map { segmentIndex ->
+        iut.listVectors(indexMeta, returnData = false, returnMetadata = false, segmentIndex = segmentIndex, segmentCount = 3)
+      }
+    val expected = (0..2).map { segmentIndex -> keys.filter { Math.floorMod(it.hashCode(), 3) == segmentIndex }.sorted() }
+    val secondPage =
+      iut.listVectors(
+        indexMeta,
+        returnData = false,
+        returnMetadata = false,
+        startAfter = expected[1].first(),
+        limit = 2,
+        segmentIndex = 1,
+        segmentCount = 3,
+      )
+
+    assertThat(segments.map { segment -> segment.map { it.key } }).isEqualTo(expected)
+    assertThat(secondPage.map { it.key }).isEqualTo(expected[1].drop(1).take(2))
+  }
+
+  @Test
+  fun `listVectors segments keep their keys when other keys are added and deleted`() {
+    val keys = (1..20).map { "k-$it" }
+    iut.putVectors(indexMeta, keys.map { VectorStore.VectorWrite(it, floatArrayOf(1f, 0f, 0f), null) })
+    val before = iut.listVectors(indexMeta, returnData = false, returnMetadata = false, segmentIndex = 1, segmentCount = 2)
+    val deleted = keys.filter { Math.floorMod(it.hashCode(), 2) == 0 }.take(3)
+
+    iut.deleteVectors(indexMeta, deleted)
+    putVector("k-21", floatArrayOf(1f, 0f, 0f), null)
+    putVector("k-22", floatArrayOf(1f, 0f, 0f), null)
+
+    val after = iut.listVectors(indexMeta, returnData = false, returnMetadata = false, segmentIndex = 1, segmentCount = 2)
+
+    val added = listOf("k-21", "k-22").filter { Math.floorMod(it.hashCode(), 2) == 1 }
+    assertThat(after.map { it.key }).isEqualTo((before.map { it.key } + added).sorted())
+  }
+
+  @Test
+  fun `countVectors counts the stored vectors`() {
+    iut.putVectors(indexMeta, (1..3).map { VectorStore.VectorWrite("k-$it", floatArrayOf(1f, 0f, 0f), null) })
+    iut.deleteVectors(indexMeta, listOf("k-2", "k-4"))
+
+    assertThat(iut.countVectors(indexMeta)).isEqualTo(2)
+  }
+
+  @ParameterizedTest
+  @EnumSource(VectorQuantization::class)
+  fun `quantized stores return the exact vectors`(quantization: VectorQuantization) {
+    val store = VectorStore(vectorIndexStore, objectMapper, quantization)
+    val floats = floatArrayOf(0.123456f, -98.7654f, 3.3333333f)
+    store.putVectors(indexMeta, listOf(VectorStore.VectorWrite("k-1", floats, null)))
+
+    assertThat(store.getVector(indexMeta, "k-1", returnData = true, returnMetadata = false)!!.floats)
+      .containsExactly(*floats)
+    assertThat(store.listVectors(indexMeta, returnData = true, returnMetadata = false).single().floats)
+      .containsExactly(*floats)
+  }
+
+  @ParameterizedTest
+  @EnumSource(VectorQuantization::class)
+  fun `compacting the segment keeps the exact vectors`(quantization: VectorQuantization) {
+    val store = VectorStore(vectorIndexStore, objectMapper, quantization)
+    store.putVectors(indexMeta, List(10_000) { VectorStore.VectorWrite("k-1", floatArrayOf(it.toFloat(), 0.1f, 0.2f), null) })
+    store.putVectors(indexMeta, listOf(VectorStore.VectorWrite("k-2", floatArrayOf(0.3f, 0.4f, 0.5f), null)))
+
+    val segment = vectorIndexStore.getIndexDir(bucket, index).resolve(VectorIndexStore.VECTORS_DIR).resolve(VectorSegment.SEGMENT_FILE)
+    assertThat(segment.length()).isLessThan(1000)
+    assertThat(store.getVector(indexMeta, "k-1", returnData = true, returnMetadata = false)!!.floats)
+      .containsExactly(9999f, 0.1f, 0.2f)
+    assertThat(VectorStore(vectorIndexStore, objectMapper, quantization).listVectors(indexMeta, returnData = true, returnMetadata = false))
+      .extracting<FloatArray> { it.floats }
+      .containsExactly(floatArrayOf(9999f, 0.1f, 0.2f), floatArrayOf(0.3f, 0.4f, 0.5f))
+  }
+
+  private fun putVector(
+    key: String,
+    floats: FloatArray,
+    metadata: Map<String, Any?>?,
+  ) = iut.putVectors(indexMeta, listOf(VectorStore.VectorWrite(key, floats, metadata)))
 }